@@ -42,7 +42,7 @@ scriptDirectory="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
 
 # Use GNU getopt to parse the options passed to this script.
 TEMP=`getopt \
-	j:m:v:t:u: \
+	j:m:v:t:u:c: \
 	$*`
 if [ $? != 0 ] ; then echo "Terminating." >&2 ; exit 1 ; fi
 
@@ -55,6 +55,7 @@ maxHeapArg="-Xmx4g"
 visualVm=""
 targetDirectory=
 dbUrl="jdbc:bluebutton-test:hsqldb:mem"
+cdsArchive=""
 while true; do
 	case "$1" in
 		-j )
@@ -67,6 +68,8 @@ while true; do
 			targetDirectory="$2"; shift 2 ;;
 		-u )
 			dbUrl="$2"; shift 2 ;;
+		-c )
+			cdsArchive="$2"; shift 2 ;;
 		-- ) shift; break ;;
 		* ) break ;;
 	esac
@@ -186,6 +189,46 @@ if [[ ! -f "${serverHome}/bin/standalone.conf.original" ]]; then
 	mv "${serverHome}/bin/standalone.conf" "${serverHome}/bin/standalone.conf.original"
 fi
 
+# Build the args to pass to the server for (static) AppCDS, if any. The first
+# launch just records the classes that the server loads into a class list. The
+# next launch dumps an archive from that list and then starts from it. This
+# needs Java 11+ (earlier JVMs don't accept these options for application
+# classes, so the -c option is ignored on them). Only the JDK's classes and
+# jboss-modules.jar can be archived: the JVM can't share the classes that
+# Wildfly loads through its own module class loaders. The Wildfly dist is
+# re-extracted for every launch, but tar preserves the timestamps that the JVM
+# uses to validate the archive's classpath. If the archive doesn't match, the
+# JVM just starts without it (that's what -Xshare:auto means).
+cdsArgs=""
+if [[ -n "${cdsArchive}" && "${cdsArchive}" != "none" ]]; then
+	if [[ -z "${javaHome}" ]]; then javaExe="java"; else javaExe="${javaHome}/bin/java"; fi
+	cdsClassList="${cdsArchive}.classlist"
+	cdsProbe="$(mktemp -u)"
+	if "${javaExe}" -XX:DumpLoadedClassList="${cdsProbe}" -XX:SharedArchiveFile="${cdsProbe}" -Xshare:auto -version >/dev/null 2>&1; then
+		if [[ ! -f "${cdsArchive}" && -s "${cdsClassList}" ]]; then
+			echo "Dumping AppCDS archive from class list: '${cdsClassList}'"
+			if ! "${javaExe}" -Xshare:dump -XX:SharedClassListFile="${cdsClassList}" -XX:SharedArchiveFile="${cdsArchive}" \
+					-cp "${serverHome}/jboss-modules.jar" &> "${cdsArchive}.log"; then
+				echo "Warning: Unable to dump AppCDS archive; see '${cdsArchive}.log'."
+				rm -f "${cdsArchive}"
+			fi
+		fi
+
+		if [[ -f "${cdsArchive}" ]]; then
+			echo "Using AppCDS archive: '${cdsArchive}'"
+			cdsArgs="-XX:SharedArchiveFile=${cdsArchive} -Xshare:auto"
+		else
+			echo "Recording AppCDS class list, for the next launch: '${cdsClassList}'"
+			mkdir -p "$(dirname "${cdsClassList}")"
+			rm -f "${cdsClassList}"
+			cdsArgs="-XX:DumpLoadedClassList=${cdsClassList}"
+		fi
+	else
+		echo "Warning: Java version doesn't support AppCDS for application classes; ignoring -c option."
+	fi
+	rm -f "${cdsProbe}"
+fi
+
 # Write a correct server conf file.
 javaHomeLine=''
 if [[ -z "${javaHome}" ]]; then
@@ -204,6 +247,7 @@ JBOSS_MODULES_SYSTEM_PKGS="${jbossModulesSystemPackages}"
 JAVA_OPTS="-Xms64m ${maxHeapArg} -XX:MaxPermSize=256m -Djava.net.preferIPv4Stack=true"
 JAVA_OPTS="\$JAVA_OPTS -Djboss.modules.system.pkgs=\$JBOSS_MODULES_SYSTEM_PKGS -Djava.awt.headless=true"
 JAVA_OPTS="\$JAVA_OPTS ${visualVmArgs}"
+JAVA_OPTS="\$JAVA_OPTS ${cdsArgs}"
 
 # Uncomment this next line to enable debugging Wildfly at launch. It will wait 
 # for a debugger to connect when first launching the server.
@@ -221,6 +265,9 @@ JAVA_OPTS="\$JAVA_OPTS -Djboss.management.http.port=${serverPortManagement} -Djb
 JAVA_OPTS="\$JAVA_OPTS -Dbbfhir.db.url=${dbUrl}"
 JAVA_OPTS="\$JAVA_OPTS -Dbbfhir.ssl.keystore.path=${keyStore} -Dbbfhir.ssl.truststore.path=${trustStore} -Dbbfhir.roles=${rolesProps}"
 
+# Lets the tests' trusted client (dev/ssl-stores/client-trusted.cer) invalidate the server's caches between tests.
+JAVA_OPTS="\$JAVA_OPTS -Dbbfhir.cache.eob.admin.dns=CN=client-local-dev"
+
 # Used in src/main/resources/logback.xml as the directory to write the app log to. Must have a trailing slash.
 JAVA_OPTS="\$JAVA_OPTS -Dbbfhir.logs.dir=${workDirectory}/"
 
@@ -279,6 +326,7 @@ EOF
 
 # Deploy the application to the now-configured server.
 echo "Deploying application: '${warArtifact}'..."
+deploySeconds=$SECONDS
 "${serverHome}/bin/jboss-cli.sh" \
 	--connect \
 	--controller=localhost:${serverPortManagement} \
@@ -287,4 +335,4 @@ echo "Deploying application: '${warArtifact}'..."
 	>> "${workDirectory}/server-config.log" 2>&1
 # Note: No need to watch log here, as the command blocks until deployment is
 # completed, and returns a non-zero exit code if it fails.
-echo 'Application deployed.'
+echo "Application deployed in $(($SECONDS - $deploySeconds)) seconds."
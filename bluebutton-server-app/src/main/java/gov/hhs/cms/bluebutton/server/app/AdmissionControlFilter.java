@@ -0,0 +1,537 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * <p>
+ * Limits how much of the server any single client (as identified by the DN of
+ * its SSL certificate) can use at once, so that one partner flooding us with
+ * expensive EOB searches can't starve everyone else.
+ * </p>
+ * <p>
+ * Each client gets:
+ * </p>
+ * <ul>
+ * <li>A rate limit: a token bucket that refills at the client's configured
+ * requests-per-second, and can hold up to one second's worth.</li>
+ * <li>An adaptive concurrency limit: it starts at the client's configured
+ * maximum, shrinks multiplicatively whenever the client's requests take longer
+ * than the latency target (which is what happens once it's queuing up behind
+ * itself), and grows back additively as they speed up again.</li>
+ * </ul>
+ * <p>
+ * Requests beyond either limit are turned away immediately with a
+ * <code>429 Too Many Requests</code>, before they cost us any database time.
+ * Well-behaved clients never come near their limits, and so don't notice any of
+ * this.
+ * </p>
+ * <p>
+ * The following metrics are recorded:
+ * </p>
+ * <ul>
+ * <li><code>AdmissionControlFilter.rejected.rate</code> and
+ * <code>AdmissionControlFilter.rejected.concurrency</code>: meters for the
+ * requests turned away by each limit.</li>
+ * <li><code>AdmissionControlFilter.clients.&lt;client&gt;.limit</code> and
+ * <code>AdmissionControlFilter.clients.&lt;client&gt;.in_flight</code>: gauges
+ * for each client's current concurrency limit and usage. Clients that haven't
+ * made any requests in {@link #CLIENT_IDLE_MINUTES} minutes are forgotten,
+ * along with their gauges, so that these don't pile up forever.</li>
+ * </ul>
+ */
+public final class AdmissionControlFilter implements Filter {
+	/**
+	 * The client key used for requests that don't have a client certificate.
+	 */
+	static final String CLIENT_ANONYMOUS = "anonymous";
+
+	/**
+	 * How long (in seconds) rejected clients are asked to wait before retrying.
+	 */
+	private static final int RETRY_AFTER_SECONDS = 1;
+
+	/**
+	 * How long (in minutes) a client must go without any requests before its
+	 * {@link ClientState} (and gauges) are discarded.
+	 */
+	static final long CLIENT_IDLE_MINUTES = 10;
+
+	/**
+	 * How often (in minutes) to check for idle clients to discard.
+	 */
+	private static final long CLIENT_EVICTION_INTERVAL_MINUTES = 1;
+
+	private final MetricRegistry metricRegistry;
+	private final Limits defaultLimits;
+	private final Map<String, Limits> partnerLimits;
+	private final long latencyTargetNanos;
+	private final LongSupplier nanoClock;
+	private final Meter rejectedRate;
+	private final Meter rejectedConcurrency;
+	private final ConcurrentMap<String, ClientState> clients = new ConcurrentHashMap<>();
+	private final AtomicLong nextEvictionNanos;
+
+	/**
+	 * Constructs a new {@link AdmissionControlFilter}.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the filter's metrics in
+	 * @param defaultLimits
+	 *            the {@link Limits} to apply to clients that aren't listed in
+	 *            <code>partnerLimits</code>
+	 * @param partnerLimits
+	 *            the {@link Limits} to apply to specific clients, keyed by
+	 *            their certificate's DN
+	 * @param latencyTargetMilliseconds
+	 *            the request latency (in milliseconds) above which clients'
+	 *            concurrency limits will be reduced
+	 */
+	public AdmissionControlFilter(MetricRegistry metricRegistry, Limits defaultLimits,
+			Map<String, Limits> partnerLimits, long latencyTargetMilliseconds) {
+		this(metricRegistry, defaultLimits, partnerLimits, latencyTargetMilliseconds, System::nanoTime);
+	}
+
+	/**
+	 * Constructs a new {@link AdmissionControlFilter}.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the filter's metrics in
+	 * @param defaultLimits
+	 *            the {@link Limits} to apply to clients that aren't listed in
+	 *            <code>partnerLimits</code>
+	 * @param partnerLimits
+	 *            the {@link Limits} to apply to specific clients, keyed by
+	 *            their certificate's DN
+	 * @param latencyTargetMilliseconds
+	 *            the request latency (in milliseconds) above which clients'
+	 *            concurrency limits will be reduced
+	 * @param nanoClock
+	 *            the clock (e.g. {@link System#nanoTime()}) to use
+	 */
+	AdmissionControlFilter(MetricRegistry metricRegistry, Limits defaultLimits, Map<String, Limits> partnerLimits,
+			long latencyTargetMilliseconds, LongSupplier nanoClock) {
+		if (latencyTargetMilliseconds < 1)
+			throw new IllegalArgumentException("Invalid latency target: " + latencyTargetMilliseconds);
+
+		this.metricRegistry = metricRegistry;
+		this.defaultLimits = defaultLimits;
+		this.partnerLimits = Collections.unmodifiableMap(new HashMap<>(partnerLimits));
+		this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMilliseconds);
+		this.nanoClock = nanoClock;
+		this.nextEvictionNanos = new AtomicLong(
+				nanoClock.getAsLong() + TimeUnit.MINUTES.toNanos(CLIENT_EVICTION_INTERVAL_MINUTES));
+
+		String metricPrefix = AdmissionControlFilter.class.getSimpleName();
+		this.rejectedRate = metricRegistry.meter(MetricRegistry.name(metricPrefix, "rejected", "rate"));
+		this.rejectedConcurrency = metricRegistry.meter(MetricRegistry.name(metricPrefix, "rejected", "concurrency"));
+	}
+
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		ClientState client = getClient(getClientKey((HttpServletRequest) request));
+		long startNanos = nanoClock.getAsLong();
+		Admission admission = client.tryAcquire(startNanos);
+		if (admission != Admission.ADMITTED) {
+			(admission == Admission.REJECTED_RATE ? rejectedRate : rejectedConcurrency).mark();
+			HttpServletResponse servletResponse = (HttpServletResponse) response;
+			servletResponse.setIntHeader("Retry-After", RETRY_AFTER_SECONDS);
+			servletResponse.sendError(429, "Too many requests from this client.");
+			return;
+		}
+
+		boolean asyncStarted = false;
+		try {
+			chain.doFilter(request, response);
+			asyncStarted = request.isAsyncStarted();
+		} finally {
+			if (asyncStarted) {
+				// The request is still running (see RequestExecutor), so release it once it's done.
+				request.getAsyncContext().addListener(new AsyncListener() {
+					@Override
+					public void onComplete(AsyncEvent event) {
+						client.release(startNanos, nanoClock.getAsLong());
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) {
+						// Nothing to do here: onComplete(...) will still be called.
+					}
+
+					@Override
+					public void onError(AsyncEvent event) {
+						// Nothing to do here: onComplete(...) will still be called.
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) {
+						// Nothing to do here.
+					}
+				});
+			} else {
+				client.release(startNanos, nanoClock.getAsLong());
+			}
+		}
+	}
+
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @param clientKey
+	 *            the client key (see {@link #getClientKey(HttpServletRequest)})
+	 *            to get the {@link ClientState} for
+	 * @return the {@link ClientState} for the specified client, which will be
+	 *         created (and have its metrics registered) if needed
+	 */
+	ClientState getClient(String clientKey) {
+		long nowNanos = nanoClock.getAsLong();
+		long evictionNanos = nextEvictionNanos.get();
+		if (nowNanos - evictionNanos >= 0 && nextEvictionNanos.compareAndSet(evictionNanos,
+				nowNanos + TimeUnit.MINUTES.toNanos(CLIENT_EVICTION_INTERVAL_MINUTES)))
+			evictIdleClients(nowNanos);
+
+		ClientState client = clients.get(clientKey);
+		if (client != null)
+			return client;
+
+		// Creating and evicting clients is rare, so just serialize it (and its gauges).
+		synchronized (clients) {
+			client = clients.get(clientKey);
+			if (client != null)
+				return client;
+
+			Limits limits = partnerLimits.getOrDefault(clientKey, defaultLimits);
+			ClientState newClient = new ClientState(limits, latencyTargetNanos, nowNanos);
+			clients.put(clientKey, newClient);
+
+			String metricPrefix = computeClientMetricPrefix(clientKey);
+			metricRegistry.register(MetricRegistry.name(metricPrefix, "limit"),
+					(Gauge<Integer>) newClient::getLimit);
+			metricRegistry.register(MetricRegistry.name(metricPrefix, "in_flight"),
+					(Gauge<Integer>) newClient::getInFlight);
+			return newClient;
+		}
+	}
+
+	/**
+	 * Discards the {@link ClientState}s (and gauges) of all clients that have
+	 * been idle for at least {@link #CLIENT_IDLE_MINUTES}.
+	 *
+	 * @param nowNanos
+	 *            the current time, in nanoseconds
+	 */
+	private void evictIdleClients(long nowNanos) {
+		long idleNanos = TimeUnit.MINUTES.toNanos(CLIENT_IDLE_MINUTES);
+		synchronized (clients) {
+			for (Iterator<Map.Entry<String, ClientState>> clientIter = clients.entrySet().iterator(); clientIter
+					.hasNext();) {
+				Map.Entry<String, ClientState> clientEntry = clientIter.next();
+				if (!clientEntry.getValue().isIdle(nowNanos, idleNanos))
+					continue;
+
+				/*
+				 * A request that grabbed this state just before now will still be tracked
+				 * against it, which is harmless: the client has been idle for minutes.
+				 */
+				clientIter.remove();
+				String metricPrefix = computeClientMetricPrefix(clientEntry.getKey());
+				metricRegistry.remove(MetricRegistry.name(metricPrefix, "limit"));
+				metricRegistry.remove(MetricRegistry.name(metricPrefix, "in_flight"));
+			}
+		}
+	}
+
+	/**
+	 * @param request
+	 *            the {@link HttpServletRequest} to identify the client of
+	 * @return the DN of the request's client certificate (see
+	 *         {@link ClientDistinguishedNames#getClientDn(HttpServletRequest)}),
+	 *         or {@link #CLIENT_ANONYMOUS} if it doesn't have one
+	 */
+	private static String getClientKey(HttpServletRequest request) {
+		String clientDn = ClientDistinguishedNames.getClientDn(request);
+		return clientDn != null ? clientDn : CLIENT_ANONYMOUS;
+	}
+
+	/**
+	 * @param clientKey
+	 *            the client key to compute the metric name prefix for
+	 * @return the prefix of the names of the specified client's gauges
+	 */
+	private static String computeClientMetricPrefix(String clientKey) {
+		return MetricRegistry.name(AdmissionControlFilter.class.getSimpleName(), "clients",
+				computeMetricName(clientKey));
+	}
+
+	/**
+	 * @param clientKey
+	 *            the client key to compute a metric name for
+	 * @return a version of the specified client key that's safe to use as part
+	 *         of a metric name (i.e. without any dots or spaces)
+	 */
+	static String computeMetricName(String clientKey) {
+		return clientKey.replaceAll("[^\\p{Alnum}=_-]+", "_");
+	}
+
+	/**
+	 * Parses per-partner {@link Limits} from a configuration value, e.g.
+	 * <code>CN=Partner A,O=Example|20|50;CN=Partner B|5|10</code>: a
+	 * semicolon-separated list of entries, each of which is a client
+	 * certificate DN, its maximum concurrency, and its requests-per-second
+	 * rate, separated by pipes.
+	 *
+	 * @param partnerLimitsText
+	 *            the configuration value to parse
+	 * @return the parsed {@link Limits}, keyed by client DN
+	 */
+	static Map<String, Limits> parsePartnerLimits(String partnerLimitsText) {
+		Map<String, Limits> partnerLimits = new HashMap<>();
+		if (partnerLimitsText == null || partnerLimitsText.trim().isEmpty())
+			return partnerLimits;
+
+		for (String entryText : partnerLimitsText.split(";")) {
+			if (entryText.trim().isEmpty())
+				continue;
+
+			String[] fields = entryText.split("\\|");
+			if (fields.length != 3)
+				throw new IllegalArgumentException("Invalid partner limits: " + entryText);
+			try {
+				partnerLimits.put(fields[0].trim(),
+						new Limits(Integer.parseInt(fields[1].trim()), Double.parseDouble(fields[2].trim())));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid partner limits: " + entryText, e);
+			}
+		}
+		return partnerLimits;
+	}
+
+	/**
+	 * The configured limits for a client.
+	 */
+	public static final class Limits {
+		private final int maxConcurrency;
+		private final double requestsPerSecond;
+
+		/**
+		 * Constructs a new {@link Limits}.
+		 *
+		 * @param maxConcurrency
+		 *            the maximum number of requests that the client may have
+		 *            in progress at once
+		 * @param requestsPerSecond
+		 *            the sustained rate of requests that the client may make
+		 */
+		public Limits(int maxConcurrency, double requestsPerSecond) {
+			if (maxConcurrency < 1)
+				throw new IllegalArgumentException("Invalid max concurrency: " + maxConcurrency);
+			if (!(requestsPerSecond > 0.0))
+				throw new IllegalArgumentException("Invalid requests per second: " + requestsPerSecond);
+
+			this.maxConcurrency = maxConcurrency;
+			this.requestsPerSecond = requestsPerSecond;
+		}
+
+		/**
+		 * @return the maximum number of requests that the client may have in
+		 *         progress at once
+		 */
+		public int getMaxConcurrency() {
+			return maxConcurrency;
+		}
+
+		/**
+		 * @return the sustained rate of requests that the client may make
+		 */
+		public double getRequestsPerSecond() {
+			return requestsPerSecond;
+		}
+	}
+
+	/**
+	 * Enumerates the outcomes of {@link ClientState#tryAcquire(long)}.
+	 */
+	enum Admission {
+		ADMITTED,
+
+		REJECTED_RATE,
+
+		REJECTED_CONCURRENCY;
+	}
+
+	/**
+	 * Tracks the rate and concurrency limits for a single client.
+	 */
+	static final class ClientState {
+		/**
+		 * The factor that the concurrency limit is multiplied by when a
+		 * request misses the latency target.
+		 */
+		private static final double DECREASE_FACTOR = 0.9;
+
+		private final Limits limits;
+		private final long latencyTargetNanos;
+
+		// All guarded by this.
+		private double tokens;
+		private long lastRefillNanos;
+		private double limit;
+		private long lastDecreaseNanos;
+		private int inFlight = 0;
+		private long lastUsedNanos;
+
+		/**
+		 * Constructs a new {@link ClientState}.
+		 *
+		 * @param limits
+		 *            the client's {@link Limits}
+		 * @param latencyTargetNanos
+		 *            the request latency (in nanoseconds) above which the
+		 *            concurrency limit will be reduced
+		 * @param nowNanos
+		 *            the current time, in nanoseconds
+		 */
+		ClientState(Limits limits, long latencyTargetNanos, long nowNanos) {
+			this.limits = limits;
+			this.latencyTargetNanos = latencyTargetNanos;
+			this.tokens = getBurst();
+			this.lastRefillNanos = nowNanos;
+			this.limit = limits.getMaxConcurrency();
+			this.lastDecreaseNanos = nowNanos - latencyTargetNanos;
+			this.lastUsedNanos = nowNanos;
+		}
+
+		/**
+		 * @param nowNanos
+		 *            the current time, in nanoseconds
+		 * @return whether or not the client may start another request now,
+		 *         which (if so) must be followed by a call to
+		 *         {@link #release(long, long)} once it's done
+		 */
+		synchronized Admission tryAcquire(long nowNanos) {
+			double elapsedSeconds = (nowNanos - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+			tokens = Math.min(getBurst(), tokens + elapsedSeconds * limits.getRequestsPerSecond());
+			lastRefillNanos = nowNanos;
+			lastUsedNanos = nowNanos;
+
+			if (tokens < 1.0)
+				return Admission.REJECTED_RATE;
+			if (inFlight >= getLimit())
+				return Admission.REJECTED_CONCURRENCY;
+
+			tokens -= 1.0;
+			inFlight++;
+			return Admission.ADMITTED;
+		}
+
+		/**
+		 * Records that a request admitted by {@link #tryAcquire(long)} has
+		 * completed, and adjusts the concurrency limit based on how long it
+		 * took.
+		 *
+		 * @param startNanos
+		 *            the time that the request was admitted at, in nanoseconds
+		 * @param nowNanos
+		 *            the current time, in nanoseconds
+		 */
+		synchronized void release(long startNanos, long nowNanos) {
+			inFlight--;
+			lastUsedNanos = nowNanos;
+
+			if (nowNanos - startNanos > latencyTargetNanos) {
+				/*
+				 * Only back off once per latency target period: a batch of slow requests
+				 * that were all in flight together is one signal, not several.
+				 */
+				if (nowNanos - lastDecreaseNanos >= latencyTargetNanos) {
+					limit = Math.max(1.0, limit * DECREASE_FACTOR);
+					lastDecreaseNanos = nowNanos;
+				}
+			} else {
+				limit = Math.min(limits.getMaxConcurrency(), limit + 1.0 / limit);
+			}
+		}
+
+		/**
+		 * @param nowNanos
+		 *            the current time, in nanoseconds
+		 * @param idleNanos
+		 *            how long (in nanoseconds) the client must have gone
+		 *            without any requests to be considered idle
+		 * @return <code>true</code> if the client has no requests in progress
+		 *         and hasn't started or finished any for at least
+		 *         <code>idleNanos</code>, <code>false</code> otherwise
+		 */
+		synchronized boolean isIdle(long nowNanos, long idleNanos) {
+			return inFlight == 0 && nowNanos - lastUsedNanos >= idleNanos;
+		}
+
+		/**
+		 * @return the current concurrency limit
+		 */
+		synchronized int getLimit() {
+			return (int) limit;
+		}
+
+		/**
+		 * @return the number of requests currently in progress
+		 */
+		synchronized int getInFlight() {
+			return inFlight;
+		}
+
+		/**
+		 * @return the maximum number of tokens that the bucket can hold
+		 */
+		private double getBurst() {
+			return Math.max(1.0, limits.getRequestsPerSecond());
+		}
+	}
+}
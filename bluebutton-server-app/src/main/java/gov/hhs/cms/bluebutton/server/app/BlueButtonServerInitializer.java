@@ -1,5 +1,9 @@
 package gov.hhs.cms.bluebutton.server.app;
 
+import java.util.EnumSet;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
 import javax.servlet.ServletContainerInitializer;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -20,6 +24,11 @@ import com.codahale.metrics.servlet.InstrumentedFilter;
 import com.codahale.metrics.servlets.HealthCheckServlet;
 import com.codahale.metrics.servlets.MetricsServlet;
 
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.BulkExportJobManager;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.BulkExportServlet;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobCacheServlet;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.StartupWarmup;
+
 /**
  * <p>
  * Initializes the Blue Button API FHIR backend application.
@@ -62,8 +71,48 @@ public final class BlueButtonServerInitializer implements WebApplicationInitiali
 		BlueButtonStu3Server stu3Servlet = new BlueButtonStu3Server();
 		ServletRegistration.Dynamic cxfServletReg = servletContext.addServlet("fhirStu3Servlet", stu3Servlet);
 		cxfServletReg.setLoadOnStartup(1);
+		cxfServletReg.setAsyncSupported(true);
 		cxfServletReg.addMapping("/v1/fhir/*");
 
+		/*
+		 * Start warming up the application in the background. Until it's done, the
+		 * "warmup" health check will report that this server isn't ready for traffic.
+		 */
+		springContext.getBean(StartupWarmup.class).start(stu3Servlet.getFhirContext());
+
+		/*
+		 * Register the hook that data reloads use to invalidate cached EOBs. It's only
+		 * usable by the configured admin DNs, and only affects this node's cache.
+		 */
+		ServletRegistration.Dynamic eobCacheServletReg = servletContext.addServlet("eobCacheServlet",
+				springContext.getBean(EobCacheServlet.class));
+		eobCacheServletReg.addMapping("/admin/cache/eob");
+
+		// Register the status/download endpoints for $export jobs.
+		ServletRegistration.Dynamic bulkExportServletReg = servletContext.addServlet("bulkExportServlet",
+				new BulkExportServlet(springContext.getBean(BulkExportJobManager.class)));
+		bulkExportServletReg.addMapping("/v1/fhir" + BulkExportServlet.STATUS_PATH + "*");
+
+		/*
+		 * Register the per-client admission control filter. It's mapped after the
+		 * filters in web.xml, so that the requests it turns away are still logged,
+		 * traced, and instrumented.
+		 */
+		FilterRegistration.Dynamic admissionControlFilterReg = servletContext.addFilter("admissionControlFilter",
+				springContext.getBean(AdmissionControlFilter.class));
+		admissionControlFilterReg.setAsyncSupported(true);
+		admissionControlFilterReg.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/v1/fhir/*");
+
+		/*
+		 * Register the response compression filter for the $export downloads. (FHIR
+		 * requests are run asynchronously, so BlueButtonStu3Server applies it, along
+		 * with the ResponseCacheFilter, itself.)
+		 */
+		FilterRegistration.Dynamic compressionFilterReg = servletContext.addFilter("compressionFilter",
+				springContext.getBean(CompressionFilter.class));
+		compressionFilterReg.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true,
+				"/v1/fhir" + BulkExportServlet.STATUS_PATH + "*");
+
 		/*
 		 * Register the MetricRegistry and HealthCheckRegistry into the ServletContext,
 		 * so that InstrumentedFilter and AdminServlet (configured in web.xml) can work.
@@ -73,6 +122,18 @@ public final class BlueButtonServerInitializer implements WebApplicationInitiali
 		servletContext.setAttribute(HealthCheckServlet.HEALTH_CHECK_REGISTRY,
 				springContext.getBean(HealthCheckRegistry.class));
 
+		/*
+		 * Register separate readiness and liveness endpoints alongside AdminServlet's
+		 * (which reports on all of the health checks, same as readiness). Both return
+		 * a 500 if any of their checks fail, so load balancers can use them as-is.
+		 */
+		ServletRegistration.Dynamic readinessServletReg = servletContext.addServlet("readinessServlet",
+				new HealthCheckServlet(springContext.getBean(HealthCheckRegistry.class)));
+		readinessServletReg.addMapping("/metrics/ready");
+		ServletRegistration.Dynamic livenessServletReg = servletContext.addServlet("livenessServlet",
+				new HealthCheckServlet(springContext.getBean("livenessHealthCheckRegistry", HealthCheckRegistry.class)));
+		livenessServletReg.addMapping("/metrics/live");
+
 		LOGGER.info("Initialized Blue Button API backend server.");
 	}
 }
@@ -7,10 +7,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
 
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
 import javax.servlet.Servlet;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.hl7.fhir.dstu3.hapi.rest.server.ServerCapabilityStatementProvider;
 import org.hl7.fhir.dstu3.model.CapabilityStatement;
@@ -26,6 +33,8 @@ import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.RestfulServer;
 import ca.uhn.fhir.rest.server.interceptor.CorsInterceptor;
 import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.BulkExportProvider;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.StartupWarmup;
 
 /**
  * <p>
@@ -39,6 +48,26 @@ public class BlueButtonStu3Server extends RestfulServer {
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * The {@link HttpServletRequest#getPathInfo()} prefix of the requests that
+	 * {@link ResponseCacheFilter} applies to.
+	 */
+	private static final String PATH_PREFIX_EOB = "/ExplanationOfBenefit";
+
+	/**
+	 * The {@link HttpServletRequest#getPathInfo()} prefix of the requests that
+	 * are run on the {@link SpringConfiguration#REQUEST_EXECUTOR_PATIENT}
+	 * bulkhead.
+	 */
+	private static final String PATH_PREFIX_PATIENT = "/Patient";
+
+	private transient RequestExecutor requestExecutor;
+	private transient RequestExecutor patientRequestExecutor;
+	private transient RequestExecutor eobRequestExecutor;
+	private transient ResponseCacheFilter responseCacheFilter;
+	private transient CompressionFilter compressionFilter;
+	private transient StartupWarmup startupWarmup;
+
 	static final String CAPABILITIES_PUBLISHER = "Centers for Medicare & Medicaid Services";
 	static final String CAPABILITIES_SERVER_NAME = "Blue Button API: Direct";
 
@@ -79,6 +108,113 @@ public class BlueButtonStu3Server extends RestfulServer {
 		setServerConformanceProvider(capabilityStatementProvider);
 	}
 
+	/**
+	 * Hands each request off to the {@link RequestExecutor} for its bulkhead, so
+	 * that it doesn't tie up one of the container's threads while it waits on
+	 * the database, and doesn't wait behind other kinds of requests either.
+	 *
+	 * @see ca.uhn.fhir.rest.server.RestfulServer#service(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	protected void service(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		if (requestExecutor == null) {
+			serviceWithResponseFilters(request, response);
+			return;
+		}
+
+		selectRequestExecutor(request.getPathInfo()).execute(request, response, this::serviceWithResponseFilters);
+	}
+
+	/**
+	 * @param pathInfo
+	 *            the {@link HttpServletRequest#getPathInfo()} of the request to
+	 *            be run
+	 * @return the {@link RequestExecutor} (bulkhead) to run the request on
+	 */
+	private RequestExecutor selectRequestExecutor(String pathInfo) {
+		if (isPathUnder(pathInfo, PATH_PREFIX_PATIENT))
+			return patientRequestExecutor;
+		if (isPathUnder(pathInfo, PATH_PREFIX_EOB))
+			return eobRequestExecutor;
+		return requestExecutor;
+	}
+
+	/**
+	 * @param pathInfo
+	 *            the {@link HttpServletRequest#getPathInfo()} to check, if any
+	 * @param pathPrefix
+	 *            the resource path to check for, e.g. {@link #PATH_PREFIX_EOB}
+	 * @return <code>true</code> if the specified path is for the specified
+	 *         resource (or one of its instances/operations)
+	 */
+	private static boolean isPathUnder(String pathInfo, String pathPrefix) {
+		return pathInfo != null && (pathInfo.equals(pathPrefix) || pathInfo.startsWith(pathPrefix + "/"));
+	}
+
+	/**
+	 * Runs the request through the {@link ResponseCacheFilter} (for EOBs) and
+	 * {@link CompressionFilter}, and then HAPI. Those filters wrap the response,
+	 * so they have to run on the same thread as HAPI does, rather than as
+	 * regular container filters (which would return as soon as the request had
+	 * been handed off).
+	 *
+	 * @param request
+	 *            the {@link HttpServletRequest} to handle
+	 * @param response
+	 *            the {@link HttpServletResponse} to handle
+	 * @throws ServletException
+	 *             Any {@link ServletException}s encountered will be bubbled up.
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private void serviceWithResponseFilters(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		List<Filter> filters = new ArrayList<>(2);
+		String pathInfo = request.getPathInfo();
+		if (responseCacheFilter != null && isPathUnder(pathInfo, PATH_PREFIX_EOB))
+			filters.add(responseCacheFilter);
+		if (compressionFilter != null)
+			filters.add(compressionFilter);
+
+		try {
+			runFilterChain(filters, request, response);
+		} finally {
+			if (startupWarmup != null)
+				startupWarmup.recordRequestServed();
+		}
+	}
+
+	/**
+	 * @param filters
+	 *            the {@link Filter}s to run the request through before HAPI
+	 * @param request
+	 *            the {@link HttpServletRequest} to handle
+	 * @param response
+	 *            the {@link HttpServletResponse} to handle
+	 * @throws ServletException
+	 *             Any {@link ServletException}s encountered will be bubbled up.
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private void runFilterChain(List<Filter> filters, HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		new FilterChain() {
+			private int filterIndex = 0;
+
+			@Override
+			public void doFilter(ServletRequest chainRequest, ServletResponse chainResponse)
+					throws IOException, ServletException {
+				if (filterIndex < filters.size())
+					filters.get(filterIndex++).doFilter(chainRequest, chainResponse, this);
+				else
+					BlueButtonStu3Server.super.service((HttpServletRequest) chainRequest,
+							(HttpServletResponse) chainResponse);
+			}
+		}.doFilter(request, response);
+	}
+
 	/**
 	 * @see ca.uhn.fhir.rest.server.RestfulServer#initialize()
 	 */
@@ -92,6 +228,13 @@ public class BlueButtonStu3Server extends RestfulServer {
 		 * be a bean).
 		 */
 		WebApplicationContext springContext = ContextLoaderListener.getCurrentWebApplicationContext();
+		requestExecutor = springContext.getBean(SpringConfiguration.REQUEST_EXECUTOR_DEFAULT, RequestExecutor.class);
+		patientRequestExecutor = springContext.getBean(SpringConfiguration.REQUEST_EXECUTOR_PATIENT,
+				RequestExecutor.class);
+		eobRequestExecutor = springContext.getBean(SpringConfiguration.REQUEST_EXECUTOR_EOB, RequestExecutor.class);
+		responseCacheFilter = springContext.getBean(ResponseCacheFilter.class);
+		compressionFilter = springContext.getBean(CompressionFilter.class);
+		startupWarmup = springContext.getBean(StartupWarmup.class);
 
 		// Each IResourceProvider adds support for a specific FHIR resource.
 		List<IResourceProvider> resourceProviders = springContext
@@ -104,6 +247,7 @@ public class BlueButtonStu3Server extends RestfulServer {
 		 * global history.
 		 */
 		List<Object> plainProviders = new ArrayList<>();
+		plainProviders.add(springContext.getBean(BulkExportProvider.class));
 		setPlainProviders(plainProviders);
 
 		/*
@@ -131,8 +275,20 @@ public class BlueButtonStu3Server extends RestfulServer {
 		// Enable ETag Support (this is already the default)
 		setETagSupport(ETagSupportEnum.ENABLED);
 
-		// Default to XML and pretty printing.
-		setDefaultResponseEncoding(EncodingEnum.XML);
-		setDefaultPrettyPrint(true);
+		/*
+		 * Default to compact JSON, which is much faster to encode (and much
+		 * smaller) than the pretty-printed XML we used to default to. Clients can
+		 * still ask for either via _format/_pretty or the Accept header.
+		 */
+		String responseEncodingName = springContext.getEnvironment()
+				.getProperty(SpringConfiguration.PROP_RESPONSE_ENCODING, EncodingEnum.JSON.name());
+		try {
+			setDefaultResponseEncoding(EncodingEnum.valueOf(responseEncodingName.toUpperCase(Locale.ENGLISH)));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(
+					"Invalid " + SpringConfiguration.PROP_RESPONSE_ENCODING + ": " + responseEncodingName, e);
+		}
+		setDefaultPrettyPrint(springContext.getEnvironment().getProperty(SpringConfiguration.PROP_RESPONSE_PRETTY,
+				Boolean.class, false));
 	}
 }
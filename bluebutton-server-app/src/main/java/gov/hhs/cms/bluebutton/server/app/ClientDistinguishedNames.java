@@ -0,0 +1,60 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.security.cert.X509Certificate;
+
+import javax.security.auth.x500.X500Principal;
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Identifies the client behind an {@link HttpServletRequest}, by the DN of its
+ * SSL certificate. Everything that needs to know who a request came from (for
+ * logging, limits, or authorization) should go through here, so that they all
+ * agree.
+ */
+public final class ClientDistinguishedNames {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ClientDistinguishedNames.class);
+
+	/**
+	 * The {@link HttpServletRequest#getAttribute(String)} key that the
+	 * container stores the client's certificate chain under.
+	 */
+	private static final String REQUEST_ATTRIB_CERTS = "javax.servlet.request.X509Certificate";
+
+	/**
+	 * This class only has <code>static</code> methods, so it shouldn't be
+	 * instantiated.
+	 */
+	private ClientDistinguishedNames() {
+	}
+
+	/**
+	 * @param request
+	 *            the {@link HttpServletRequest} to get the client DN for
+	 * @return the {@link HttpServletRequest#getRemoteUser()} (which, as the
+	 *         application uses <code>CLIENT-CERT</code> authentication, is the
+	 *         client certificate's DN), falling back to the
+	 *         {@link X500Principal#getName()} of the client certificate itself
+	 *         if the container didn't authenticate the request, or
+	 *         <code>null</code> if neither is available
+	 */
+	public static String getClientDn(HttpServletRequest request) {
+		if (request.getRemoteUser() != null)
+			return request.getRemoteUser();
+
+		X509Certificate[] certs = (X509Certificate[]) request.getAttribute(REQUEST_ATTRIB_CERTS);
+		if (certs == null || certs.length <= 0) {
+			LOGGER.debug("No client certificate found for request.");
+			return null;
+		}
+
+		X509Certificate clientCert = certs[certs.length - 1];
+		if (clientCert.getSubjectX500Principal() == null) {
+			LOGGER.debug("No client SSL principal available: {}", clientCert);
+			return null;
+		}
+		return clientCert.getSubjectX500Principal().getName();
+	}
+}
@@ -0,0 +1,640 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * <p>
+ * Compresses responses with <code>gzip</code> or <code>deflate</code>, as
+ * negotiated via the request's <code>Accept-Encoding</code> header.
+ * </p>
+ * <p>
+ * Response bodies are buffered until they pass the configured size threshold:
+ * anything smaller than that (e.g. a single small resource or an error) isn't
+ * worth the CPU and goes out as-is, with its exact <code>Content-Length</code>.
+ * Anything larger is compressed as it's written, so the full body is never
+ * held in memory here.
+ * </p>
+ * <p>
+ * The following metrics are recorded for each endpoint (i.e. each FHIR
+ * resource type, or <code>root</code> for the server's base URL). They're only
+ * recorded for successful (<code>2xx</code>) responses, so that requests for
+ * made-up paths (which all get a <code>404</code>) can't create new metrics.
+ * </p>
+ * <ul>
+ * <li><code>CompressionFilter.&lt;endpoint&gt;.bytes.body</code>: a histogram
+ * of the response body sizes, before compression.</li>
+ * <li><code>CompressionFilter.&lt;endpoint&gt;.bytes.wire</code>: a histogram
+ * of the response body sizes, as actually sent.</li>
+ * <li><code>CompressionFilter.&lt;endpoint&gt;.compress</code>: a timer for
+ * the time spent compressing (and writing out) each compressed response
+ * body.</li>
+ * <li><code>CompressionFilter.&lt;endpoint&gt;.encode.&lt;format&gt;</code>: a
+ * timer for the time spent encoding each response body (i.e. from its first
+ * byte until the rest of the chain is done, less any compression time), where
+ * the format is <code>json</code>, <code>xml</code>, or <code>other</code>.
+ * Comparing the <code>json</code> and <code>xml</code> timers shows the
+ * encode-time savings of the compact JSON default.</li>
+ * </ul>
+ */
+public final class CompressionFilter implements Filter {
+	static final String ENCODING_GZIP = "gzip";
+	static final String ENCODING_DEFLATE = "deflate";
+
+	private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+	private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+	/**
+	 * Matches the path segments that will be used as metric name components.
+	 * Anything else gets lumped into <code>other</code>.
+	 */
+	private static final Pattern ENDPOINT_PATTERN = Pattern.compile("[A-Za-z$_-]{1,64}");
+
+	private final MetricRegistry metricRegistry;
+	private final int thresholdBytes;
+	private final int compressionLevel;
+
+	/**
+	 * Constructs a new {@link CompressionFilter}.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the filter's metrics in
+	 * @param thresholdBytes
+	 *            the minimum response body size, in bytes, to compress
+	 * @param compressionLevel
+	 *            the {@link Deflater} compression level to use, from
+	 *            {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+	 */
+	public CompressionFilter(MetricRegistry metricRegistry, int thresholdBytes, int compressionLevel) {
+		if (thresholdBytes < 0)
+			throw new IllegalArgumentException("Invalid threshold: " + thresholdBytes);
+		if (compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION)
+			throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+
+		this.metricRegistry = metricRegistry;
+		this.thresholdBytes = thresholdBytes;
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+		String endpoint = parseEndpoint(httpRequest.getPathInfo());
+		String contentEncoding = negotiateEncoding(httpRequest.getHeader(HEADER_ACCEPT_ENCODING));
+		httpResponse.addHeader("Vary", HEADER_ACCEPT_ENCODING);
+
+		/*
+		 * The request's Accept-Encoding header is hidden from everything further
+		 * down the chain, so that nothing there tries to also compress the
+		 * response.
+		 */
+		CompressingResponseWrapper compressingResponse = new CompressingResponseWrapper(httpResponse,
+				contentEncoding);
+		chain.doFilter(new AcceptEncodingHidingRequestWrapper(httpRequest), compressingResponse);
+		long encodeNanos = compressingResponse.getEncodeNanos();
+		compressingResponse.finish();
+
+		// The endpoint's only known to be real once it's succeeded.
+		int status = compressingResponse.getStatus();
+		if (status < HttpServletResponse.SC_OK || status >= HttpServletResponse.SC_MULTIPLE_CHOICES)
+			return;
+		String metricPrefix = MetricRegistry.name(CompressionFilter.class.getSimpleName(), endpoint);
+		metricRegistry.histogram(MetricRegistry.name(metricPrefix, "bytes", "body"))
+				.update(compressingResponse.bodyBytes);
+		metricRegistry.histogram(MetricRegistry.name(metricPrefix, "bytes", "wire"))
+				.update(compressingResponse.getWireBytes());
+		if (compressingResponse.compressingStream != null)
+			metricRegistry.timer(MetricRegistry.name(metricPrefix, "compress"))
+					.update(compressingResponse.compressNanos, TimeUnit.NANOSECONDS);
+		if (encodeNanos >= 0L)
+			metricRegistry
+					.timer(MetricRegistry.name(metricPrefix, "encode", parseFormat(httpResponse.getContentType())))
+					.update(encodeNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @param acceptEncoding
+	 *            the request's <code>Accept-Encoding</code> header value, if any
+	 * @return {@link #ENCODING_GZIP} or {@link #ENCODING_DEFLATE}, if the client
+	 *         accepts either (preferring <code>gzip</code> when the client
+	 *         doesn't express a preference), or <code>null</code> if the
+	 *         response shouldn't be compressed
+	 */
+	static String negotiateEncoding(String acceptEncoding) {
+		if (acceptEncoding == null)
+			return null;
+
+		String bestEncoding = null;
+		double bestQuality = 0.0;
+		for (String candidate : acceptEncoding.split(",")) {
+			String[] candidateParts = candidate.split(";");
+			String encoding = candidateParts[0].trim().toLowerCase(Locale.ENGLISH);
+			double quality = 1.0;
+			for (int i = 1; i < candidateParts.length; i++) {
+				String param = candidateParts[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						quality = Double.parseDouble(param.substring(2));
+					} catch (NumberFormatException e) {
+						quality = 0.0;
+					}
+				}
+			}
+
+			if (encoding.equals("*")) {
+				// Only applies to the encodings that weren't explicitly listed.
+				String acceptEncodingLower = acceptEncoding.toLowerCase(Locale.ENGLISH);
+				if (!acceptEncodingLower.contains(ENCODING_GZIP))
+					encoding = ENCODING_GZIP;
+				else if (!acceptEncodingLower.contains(ENCODING_DEFLATE))
+					encoding = ENCODING_DEFLATE;
+				else
+					continue;
+			}
+			// A quality of zero means "not acceptable", per RFC 7231.
+			if ((!encoding.equals(ENCODING_GZIP) && !encoding.equals(ENCODING_DEFLATE)) || quality <= 0.0)
+				continue;
+			if (quality > bestQuality || (quality == bestQuality && encoding.equals(ENCODING_GZIP))) {
+				bestEncoding = encoding;
+				bestQuality = quality;
+			}
+		}
+		return bestEncoding;
+	}
+
+	/**
+	 * @param pathInfo
+	 *            the request's {@link HttpServletRequest#getPathInfo()} value
+	 * @return the endpoint name to record metrics under for the request
+	 */
+	static String parseEndpoint(String pathInfo) {
+		if (pathInfo == null)
+			return "root";
+
+		String path = pathInfo.startsWith("/") ? pathInfo.substring(1) : pathInfo;
+		int slashIndex = path.indexOf('/');
+		String endpoint = slashIndex >= 0 ? path.substring(0, slashIndex) : path;
+		if (endpoint.isEmpty())
+			return "root";
+		return ENDPOINT_PATTERN.matcher(endpoint).matches() ? endpoint : "other";
+	}
+
+	/**
+	 * @param contentType
+	 *            the response's <code>Content-Type</code>, if any
+	 * @return the format name to record encode metrics under for the response
+	 */
+	static String parseFormat(String contentType) {
+		if (contentType == null)
+			return "other";
+
+		String contentTypeLower = contentType.toLowerCase(Locale.ENGLISH);
+		if (contentTypeLower.contains("json"))
+			return "json";
+		if (contentTypeLower.contains("xml"))
+			return "xml";
+		return "other";
+	}
+
+	/**
+	 * Hides the <code>Accept-Encoding</code> header from the wrapped
+	 * {@link HttpServletRequest}.
+	 */
+	private static final class AcceptEncodingHidingRequestWrapper extends HttpServletRequestWrapper {
+		/**
+		 * Constructs a new {@link AcceptEncodingHidingRequestWrapper}.
+		 *
+		 * @param request
+		 *            the {@link HttpServletRequest} to wrap
+		 */
+		AcceptEncodingHidingRequestWrapper(HttpServletRequest request) {
+			super(request);
+		}
+
+		/**
+		 * @see javax.servlet.http.HttpServletRequestWrapper#getHeader(java.lang.String)
+		 */
+		@Override
+		public String getHeader(String name) {
+			return HEADER_ACCEPT_ENCODING.equalsIgnoreCase(name) ? null : super.getHeader(name);
+		}
+
+		/**
+		 * @see javax.servlet.http.HttpServletRequestWrapper#getHeaders(java.lang.String)
+		 */
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			return HEADER_ACCEPT_ENCODING.equalsIgnoreCase(name) ? Collections.emptyEnumeration()
+					: super.getHeaders(name);
+		}
+
+		/**
+		 * @see javax.servlet.http.HttpServletRequestWrapper#getHeaderNames()
+		 */
+		@Override
+		public Enumeration<String> getHeaderNames() {
+			return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+					.filter(n -> !HEADER_ACCEPT_ENCODING.equalsIgnoreCase(n))
+					.collect(Collectors.toList()));
+		}
+	}
+
+	/**
+	 * Buffers the response body until it's clear whether or not it should be
+	 * compressed, and then either compresses it or passes it straight through.
+	 */
+	private final class CompressingResponseWrapper extends HttpServletResponseWrapper {
+		private final String contentEncoding;
+		private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private CountingOutputStream wireBytes;
+		private DeflaterOutputStream compressingStream;
+		private OutputStream target;
+		private long bodyBytes = 0L;
+		private long firstWriteNanos = -1L;
+		private long compressNanos = 0L;
+		private long declaredContentLength = -1L;
+		private ServletOutputStream outputStream;
+		private PrintWriter writer;
+
+		/**
+		 * Constructs a new {@link CompressingResponseWrapper}.
+		 *
+		 * @param response
+		 *            the {@link HttpServletResponse} to wrap
+		 * @param contentEncoding
+		 *            the negotiated <code>Content-Encoding</code> to use, or
+		 *            <code>null</code> to never compress the response
+		 */
+		CompressingResponseWrapper(HttpServletResponse response, String contentEncoding) {
+			super(response);
+			this.contentEncoding = contentEncoding;
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+		 */
+		@Override
+		public ServletOutputStream getOutputStream() {
+			if (writer != null)
+				throw new IllegalStateException("getWriter() has already been called.");
+			if (outputStream == null)
+				outputStream = new ServletOutputStream() {
+					@Override
+					public void write(int b) throws IOException {
+						write(new byte[] { (byte) b }, 0, 1);
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						writeBody(b, off, len);
+					}
+
+					@Override
+					public boolean isReady() {
+						return true;
+					}
+
+					@Override
+					public void setWriteListener(WriteListener writeListener) {
+						throw new UnsupportedOperationException();
+					}
+				};
+			return outputStream;
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#getWriter()
+		 */
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (outputStream != null)
+				throw new IllegalStateException("getOutputStream() has already been called.");
+			if (writer == null) {
+				OutputStream bodyStream = new OutputStream() {
+					@Override
+					public void write(int b) throws IOException {
+						write(new byte[] { (byte) b }, 0, 1);
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						writeBody(b, off, len);
+					}
+				};
+				writer = new PrintWriter(new OutputStreamWriter(bodyStream, getCharacterEncoding()));
+			}
+			return writer;
+		}
+
+		/**
+		 * Small responses aren't flushed until they're complete, as it's not
+		 * yet known whether they'll need compressing.
+		 *
+		 * @see javax.servlet.ServletResponseWrapper#flushBuffer()
+		 */
+		@Override
+		public void flushBuffer() throws IOException {
+			if (writer != null)
+				writer.flush();
+			if (target != null) {
+				target.flush();
+				super.flushBuffer();
+			}
+		}
+
+		/**
+		 * The actual length is only known once the response is complete.
+		 *
+		 * @see javax.servlet.ServletResponseWrapper#setContentLength(int)
+		 */
+		@Override
+		public void setContentLength(int len) {
+			this.declaredContentLength = len;
+		}
+
+		/**
+		 * The actual length is only known once the response is complete.
+		 *
+		 * @see javax.servlet.ServletResponseWrapper#setContentLengthLong(long)
+		 */
+		@Override
+		public void setContentLengthLong(long len) {
+			this.declaredContentLength = len;
+		}
+
+		/**
+		 * @param b
+		 *            the response body bytes to write
+		 * @param off
+		 *            the offset in <code>b</code> to start writing from
+		 * @param len
+		 *            the number of bytes from <code>b</code> to write
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		private void writeBody(byte[] b, int off, int len) throws IOException {
+			if (firstWriteNanos < 0L)
+				firstWriteNanos = System.nanoTime();
+			bodyBytes += len;
+			if (target == null) {
+				buffer.write(b, off, len);
+				if (buffer.size() > thresholdBytes)
+					startWriting(true);
+			} else if (compressingStream != null) {
+				long compressStartNanos = System.nanoTime();
+				try {
+					target.write(b, off, len);
+				} finally {
+					compressNanos += System.nanoTime() - compressStartNanos;
+				}
+			} else {
+				target.write(b, off, len);
+			}
+		}
+
+		/**
+		 * Decides whether or not to compress the response, sets the headers
+		 * accordingly, and writes out whatever has been buffered so far.
+		 *
+		 * @param overThreshold
+		 *            <code>true</code> if the response body is larger than the
+		 *            threshold, <code>false</code> if it's complete and smaller
+		 *            than that
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		private void startWriting(boolean overThreshold) throws IOException {
+			HttpServletResponse response = (HttpServletResponse) getResponse();
+			wireBytes = new CountingOutputStream(response.getOutputStream());
+
+			int status = getStatus();
+			boolean compress = overThreshold && contentEncoding != null
+					&& !response.containsHeader(HEADER_CONTENT_ENCODING)
+					&& status != HttpServletResponse.SC_NO_CONTENT
+					&& status != HttpServletResponse.SC_PARTIAL_CONTENT
+					&& status != HttpServletResponse.SC_NOT_MODIFIED;
+			if (compress) {
+				response.setHeader(HEADER_CONTENT_ENCODING, contentEncoding);
+				compressingStream = ENCODING_GZIP.equals(contentEncoding)
+						? new LeveledGzipOutputStream(wireBytes, compressionLevel)
+						: new LeveledDeflaterOutputStream(wireBytes, compressionLevel);
+				target = compressingStream;
+			} else {
+				if (!overThreshold)
+					response.setContentLength(buffer.size());
+				else if (declaredContentLength >= 0)
+					response.setContentLengthLong(declaredContentLength);
+				target = wireBytes;
+			}
+
+			ByteArrayOutputStream bufferedBytes = buffer;
+			buffer = null;
+			if (compressingStream != null) {
+				long compressStartNanos = System.nanoTime();
+				try {
+					bufferedBytes.writeTo(target);
+				} finally {
+					compressNanos += System.nanoTime() - compressStartNanos;
+				}
+			} else {
+				bufferedBytes.writeTo(target);
+			}
+		}
+
+		/**
+		 * @return the number of nanoseconds since the first response body byte
+		 *         was written, less the time spent compressing since then, or
+		 *         <code>-1</code> if nothing has been written
+		 */
+		long getEncodeNanos() {
+			if (writer != null)
+				writer.flush();
+			if (firstWriteNanos < 0L)
+				return -1L;
+			return System.nanoTime() - firstWriteNanos - compressNanos;
+		}
+
+		/**
+		 * @return the number of response body bytes actually sent
+		 */
+		long getWireBytes() {
+			return wireBytes != null ? wireBytes.count : 0L;
+		}
+
+		/**
+		 * Writes out the rest of the response. Must be called once the rest of
+		 * the filter chain is done.
+		 *
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		void finish() throws IOException {
+			if (writer != null)
+				writer.flush();
+			if (target == null) {
+				if (bodyBytes == 0 && getResponse().isCommitted())
+					// e.g. after a sendError(...), which bypasses this wrapper.
+					return;
+				startWriting(false);
+			}
+			if (compressingStream != null) {
+				long compressStartNanos = System.nanoTime();
+				try {
+					compressingStream.close();
+				} finally {
+					compressNanos += System.nanoTime() - compressStartNanos;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts the bytes written through it, and never closes the wrapped
+	 * {@link OutputStream} (which belongs to the servlet container).
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+		private long count = 0L;
+
+		/**
+		 * Constructs a new {@link CountingOutputStream}.
+		 *
+		 * @param out
+		 *            the {@link OutputStream} to wrap
+		 */
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		/**
+		 * @see java.io.FilterOutputStream#write(int)
+		 */
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		/**
+		 * @see java.io.FilterOutputStream#write(byte[], int, int)
+		 */
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		/**
+		 * @see java.io.FilterOutputStream#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+
+	/**
+	 * A {@link GZIPOutputStream} with a configurable compression level.
+	 */
+	private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+		/**
+		 * Constructs a new {@link LeveledGzipOutputStream}.
+		 *
+		 * @param out
+		 *            the {@link OutputStream} to write the compressed bytes to
+		 * @param compressionLevel
+		 *            the {@link Deflater} compression level to use
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		LeveledGzipOutputStream(OutputStream out, int compressionLevel) throws IOException {
+			super(out, 8192);
+			def.setLevel(compressionLevel);
+		}
+	}
+
+	/**
+	 * A {@link DeflaterOutputStream} (i.e. HTTP's <code>deflate</code>, which
+	 * is zlib-wrapped) with a configurable compression level, which releases its
+	 * {@link Deflater} when closed.
+	 */
+	private static final class LeveledDeflaterOutputStream extends DeflaterOutputStream {
+		/**
+		 * Constructs a new {@link LeveledDeflaterOutputStream}.
+		 *
+		 * @param out
+		 *            the {@link OutputStream} to write the compressed bytes to
+		 * @param compressionLevel
+		 *            the {@link Deflater} compression level to use
+		 */
+		LeveledDeflaterOutputStream(OutputStream out, int compressionLevel) {
+			super(out, new Deflater(compressionLevel), 8192);
+		}
+
+		/**
+		 * @see java.util.zip.DeflaterOutputStream#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				def.end();
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+/**
+ * <p>
+ * Splits each node's database connections between the application's main
+ * connection pool and its bulkheads' pools (see
+ * {@link SpringConfiguration#PROP_BULKHEAD_PATIENT_CONNECTIONS_MAX} and
+ * {@link SpringConfiguration#PROP_BULKHEAD_EOB_CONNECTIONS_MAX}), so that the
+ * bulkheads are carved out of the existing budget, rather than piled on top of
+ * it.
+ * </p>
+ * <p>
+ * The total is {@link SpringConfiguration#PROP_DB_CONNECTIONS_MAX} (five per
+ * available processor, by default). Bulkheads without a configured size get
+ * {@link #PATIENT_SHARE_PERCENT} and {@link #EOB_SHARE_PERCENT} percent of it,
+ * and the main pool gets whatever's left. Each node therefore holds at most
+ * {@link #getTotalConnections()} connections open, unless pool tuning is
+ * enabled, in which case each pool may grow to
+ * {@link ConnectionPoolMonitor.Tuning#getMaxSizeFactor()} times its share.
+ * </p>
+ */
+public final class ConnectionBudget {
+	/**
+	 * The default percentage of the total for the <code>Patient</code>
+	 * bulkhead: patient lookups are short indexed queries, so they don't need
+	 * many.
+	 */
+	static final int PATIENT_SHARE_PERCENT = 20;
+
+	/**
+	 * The default percentage of the total for the
+	 * <code>ExplanationOfBenefit</code> bulkhead, which serves the bulk of the
+	 * application's traffic (and its heaviest queries).
+	 */
+	static final int EOB_SHARE_PERCENT = 60;
+
+	private final int totalConnections;
+	private final int patientConnections;
+	private final int eobConnections;
+
+	/**
+	 * Constructs a new {@link ConnectionBudget}.
+	 *
+	 * @param totalConnections
+	 *            the total number of database connections that each node may
+	 *            use, across all of its pools
+	 * @param patientConnections
+	 *            the configured size of the <code>Patient</code> bulkhead's
+	 *            pool, or <code>-1</code> to use its default share
+	 * @param eobConnections
+	 *            the configured size of the <code>ExplanationOfBenefit</code>
+	 *            bulkhead's pool, or <code>-1</code> to use its default share
+	 */
+	public ConnectionBudget(int totalConnections, int patientConnections, int eobConnections) {
+		if (totalConnections < 1)
+			throw new IllegalArgumentException("Invalid total connections: " + totalConnections);
+
+		this.totalConnections = totalConnections;
+		this.patientConnections = patientConnections >= 1 ? patientConnections
+				: Math.max(1, totalConnections * PATIENT_SHARE_PERCENT / 100);
+		this.eobConnections = eobConnections >= 1 ? eobConnections
+				: Math.max(1, totalConnections * EOB_SHARE_PERCENT / 100);
+
+		if (getMainConnections() < 1)
+			throw new IllegalArgumentException(String.format(
+					"Bulkhead connections (Patient: %d, EOB: %d) leave none of the %d total for the main pool.",
+					this.patientConnections, this.eobConnections, totalConnections));
+	}
+
+	/**
+	 * @return the total number of database connections that each node may use,
+	 *         across all of its pools
+	 */
+	public int getTotalConnections() {
+		return totalConnections;
+	}
+
+	/**
+	 * @return the size of the main connection pool, which is used by
+	 *         everything that doesn't have a bulkhead of its own
+	 */
+	public int getMainConnections() {
+		return totalConnections - patientConnections - eobConnections;
+	}
+
+	/**
+	 * @return the size of the <code>Patient</code> bulkhead's connection pool
+	 */
+	public int getPatientConnections() {
+		return patientConnections;
+	}
+
+	/**
+	 * @return the size of the <code>ExplanationOfBenefit</code> bulkhead's
+	 *         connection pool
+	 */
+	public int getEobConnections() {
+		return eobConnections;
+	}
+}
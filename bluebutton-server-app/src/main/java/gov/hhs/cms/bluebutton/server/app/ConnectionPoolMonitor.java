@@ -0,0 +1,458 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * <p>
+ * Monitors (and, optionally, resizes) one of the application's Hikari
+ * connection pools, so that it's possible to tell whether slow requests are
+ * waiting on the pool or on the database itself.
+ * </p>
+ * <p>
+ * The following metrics are recorded, all prefixed with
+ * <code>ConnectionPoolMonitor.&lt;pool&gt;</code>:
+ * </p>
+ * <ul>
+ * <li><code>acquire</code> and
+ * <code>acquire.&lt;resource&gt;.&lt;operation&gt;</code>: timers for how long
+ * callers waited for a connection, overall and per FHIR operation (see
+ * {@link #setCurrentOperation(String)}).</li>
+ * <li><code>query</code>: a timer for how long the database took to run each
+ * query, once a connection was in hand.</li>
+ * <li><code>utilization</code>: a histogram of the percentage of the pool's
+ * connections in use, sampled once per tuning interval.</li>
+ * <li><code>size</code>: a gauge of the pool's current maximum size.</li>
+ * </ul>
+ * <p>
+ * If a {@link Tuning} is enabled, the pool is also resized within its bounds
+ * (from {@link Tuning#getMinSize()} up to {@link Tuning#getMaxSizeFactor()}
+ * times its configured size) once per interval: grown when callers spent too
+ * long waiting for connections while the database itself was keeping up,
+ * shrunk when the database is what's slow (more connections would just make
+ * that worse), and slowly shrunk back when the pool is mostly idle.
+ * </p>
+ * <p>
+ * Note that callers only ever wait for connections if there are more of them
+ * than the pool has connections, so the pool's users must be able to run more
+ * than that many requests at once (e.g. see {@link Tuning#getMaxSize(int)})
+ * for it to ever be grown.
+ * </p>
+ */
+public final class ConnectionPoolMonitor implements QueryExecutionListener, Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolMonitor.class);
+
+	/**
+	 * The name of the FHIR operation being run on the current thread, if any,
+	 * which is used to break down connection acquisition times.
+	 */
+	private static final ThreadLocal<String> CURRENT_OPERATION = new ThreadLocal<>();
+
+	/**
+	 * The operation name used for connections acquired outside of a FHIR
+	 * operation, e.g. by <code>$export</code> jobs.
+	 */
+	private static final String OPERATION_OTHER = "other";
+
+	private final HikariDataSource poolingDataSource;
+	private final int configuredSize;
+	private final Tuning tuning;
+	private final MetricRegistry metricRegistry;
+	private final String metricPrefix;
+	private final Timer acquireTimer;
+	private final Timer queryTimer;
+	private final Histogram utilization;
+	private final LongAdder windowAcquireNanos = new LongAdder();
+	private final LongAdder windowAcquireCount = new LongAdder();
+	private final LongAdder windowQueryMillis = new LongAdder();
+	private final LongAdder windowQueryCount = new LongAdder();
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Constructs a new {@link ConnectionPoolMonitor}, and starts its periodic
+	 * sampling (and tuning, if enabled).
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the monitor's metrics in
+	 * @param poolingDataSource
+	 *            the {@link HikariDataSource} to monitor, which must already
+	 *            have its pool name and maximum size configured
+	 * @param tuning
+	 *            the {@link Tuning} settings to use
+	 */
+	public ConnectionPoolMonitor(MetricRegistry metricRegistry, HikariDataSource poolingDataSource, Tuning tuning) {
+		this.poolingDataSource = poolingDataSource;
+		this.configuredSize = poolingDataSource.getMaximumPoolSize();
+		this.tuning = tuning;
+		this.metricRegistry = metricRegistry;
+		this.metricPrefix = MetricRegistry.name(ConnectionPoolMonitor.class.getSimpleName(),
+				poolingDataSource.getPoolName());
+		this.acquireTimer = metricRegistry.timer(MetricRegistry.name(metricPrefix, "acquire"));
+		this.queryTimer = metricRegistry.timer(MetricRegistry.name(metricPrefix, "query"));
+		this.utilization = metricRegistry.histogram(MetricRegistry.name(metricPrefix, "utilization"));
+		metricRegistry.register(MetricRegistry.name(metricPrefix, "size"),
+				(Gauge<Integer>) poolingDataSource::getMaximumPoolSize);
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable,
+					ConnectionPoolMonitor.class.getSimpleName() + "-" + poolingDataSource.getPoolName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::tickSafely, tuning.getIntervalSeconds(),
+				tuning.getIntervalSeconds(), TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param operation
+	 *            the name of the FHIR operation now being run on the current
+	 *            thread (e.g. <code>Patient.read</code>), or <code>null</code>
+	 *            to clear it
+	 */
+	public static void setCurrentOperation(String operation) {
+		if (operation == null)
+			CURRENT_OPERATION.remove();
+		else
+			CURRENT_OPERATION.set(operation);
+	}
+
+	/**
+	 * @return a {@link DataSource} that wraps the monitored
+	 *         {@link HikariDataSource}, recording how long each connection
+	 *         takes to acquire, and which will also stop this monitor when
+	 *         it's closed
+	 */
+	public DataSource wrapDataSource() {
+		return new MonitoredDataSource(poolingDataSource, this);
+	}
+
+	/**
+	 * @see net.ttddyy.dsproxy.listener.QueryExecutionListener#beforeQuery(net.ttddyy.dsproxy.ExecutionInfo,
+	 *      java.util.List)
+	 */
+	@Override
+	public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @see net.ttddyy.dsproxy.listener.QueryExecutionListener#afterQuery(net.ttddyy.dsproxy.ExecutionInfo,
+	 *      java.util.List)
+	 */
+	@Override
+	public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		queryTimer.update(execInfo.getElapsedTime(), TimeUnit.MILLISECONDS);
+		windowQueryMillis.add(execInfo.getElapsedTime());
+		windowQueryCount.increment();
+	}
+
+	/**
+	 * Stops this monitor's sampling and tuning.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * @param acquireNanos
+	 *            how long (in nanoseconds) it took to acquire a connection
+	 */
+	private void recordAcquire(long acquireNanos) {
+		acquireTimer.update(acquireNanos, TimeUnit.NANOSECONDS);
+		String operation = CURRENT_OPERATION.get();
+		metricRegistry
+				.timer(MetricRegistry.name(metricPrefix, "acquire", operation != null ? operation : OPERATION_OTHER))
+				.update(acquireNanos, TimeUnit.NANOSECONDS);
+		windowAcquireNanos.add(acquireNanos);
+		windowAcquireCount.increment();
+	}
+
+	/**
+	 * Calls {@link #tick()}, logging (rather than propagating) any failures, so
+	 * that they don't cancel the scheduled task.
+	 */
+	private void tickSafely() {
+		try {
+			tick();
+		} catch (RuntimeException e) {
+			LOGGER.warn("Connection pool tuning failed for pool: " + poolingDataSource.getPoolName(), e);
+		}
+	}
+
+	/**
+	 * Samples the pool's utilization and, if enabled, resizes it based on what
+	 * was observed since the last tick.
+	 */
+	private void tick() {
+		HikariPoolMXBean pool = poolingDataSource.getHikariPoolMXBean();
+		if (pool == null)
+			// The pool hasn't been started yet.
+			return;
+
+		int currentSize = poolingDataSource.getMaximumPoolSize();
+		int activeConnections = pool.getActiveConnections();
+		utilization.update(100 * activeConnections / currentSize);
+
+		long acquireCount = windowAcquireCount.sumThenReset();
+		long acquireNanos = windowAcquireNanos.sumThenReset();
+		long queryCount = windowQueryCount.sumThenReset();
+		long queryMillis = windowQueryMillis.sumThenReset();
+		if (!tuning.isEnabled())
+			return;
+
+		double averageWaitMillis = acquireCount > 0 ? acquireNanos / (double) acquireCount / 1000000.0 : 0.0;
+		double averageQueryMillis = queryCount > 0 ? queryMillis / (double) queryCount : 0.0;
+		int targetSize = computeTargetSize(tuning, configuredSize, currentSize, activeConnections,
+				averageWaitMillis, averageQueryMillis);
+		if (targetSize == currentSize)
+			return;
+
+		LOGGER.info("Resizing connection pool '{}' from {} to {} (average wait: {} ms, average query: {} ms).",
+				poolingDataSource.getPoolName(), currentSize, targetSize, String.format("%.1f", averageWaitMillis),
+				String.format("%.1f", averageQueryMillis));
+		// Keep the pool fixed-size (as Hikari recommends), by moving both bounds together.
+		if (targetSize > currentSize) {
+			poolingDataSource.getHikariConfigMXBean().setMaximumPoolSize(targetSize);
+			poolingDataSource.getHikariConfigMXBean().setMinimumIdle(targetSize);
+		} else {
+			poolingDataSource.getHikariConfigMXBean().setMinimumIdle(targetSize);
+			poolingDataSource.getHikariConfigMXBean().setMaximumPoolSize(targetSize);
+		}
+	}
+
+	/**
+	 * @param tuning
+	 *            the {@link Tuning} settings to use
+	 * @param configuredSize
+	 *            the pool's originally configured maximum size
+	 * @param currentSize
+	 *            the pool's current maximum size
+	 * @param activeConnections
+	 *            the number of the pool's connections currently in use
+	 * @param averageWaitMillis
+	 *            the average time (in milliseconds) that callers waited for a
+	 *            connection over the last interval
+	 * @param averageQueryMillis
+	 *            the average time (in milliseconds) that the database took to
+	 *            run queries over the last interval
+	 * @return the size that the pool should be resized to, which will be
+	 *         within the {@link Tuning}'s bounds
+	 */
+	static int computeTargetSize(Tuning tuning, int configuredSize, int currentSize, int activeConnections,
+			double averageWaitMillis, double averageQueryMillis) {
+		int step = Math.max(1, currentSize / 10);
+		int targetSize;
+		if (averageQueryMillis > tuning.getQueryLatencyLimitMillis())
+			// The database is struggling: back off, rather than piling more onto it.
+			targetSize = currentSize - step;
+		else if (averageWaitMillis > tuning.getWaitTargetMillis())
+			// The database is keeping up, but callers are queuing for connections.
+			targetSize = currentSize + step;
+		else if (activeConnections < currentSize / 2 && averageWaitMillis < tuning.getWaitTargetMillis() / 10.0)
+			// Mostly idle: give connections back slowly.
+			targetSize = currentSize - 1;
+		else
+			targetSize = currentSize;
+
+		int minSize = Math.min(tuning.getMinSize(), configuredSize);
+		return Math.max(minSize, Math.min(tuning.getMaxSize(configuredSize), targetSize));
+	}
+
+	/**
+	 * The settings for {@link ConnectionPoolMonitor}'s pool resizing.
+	 */
+	public static final class Tuning {
+		/**
+		 * A {@link Tuning} that never resizes pools.
+		 */
+		public static final Tuning DISABLED = new Tuning(false, 1, 1.0, 1.0, 1000L, 10L);
+
+		private final boolean enabled;
+		private final int minSize;
+		private final double maxSizeFactor;
+		private final double waitTargetMillis;
+		private final long queryLatencyLimitMillis;
+		private final long intervalSeconds;
+
+		/**
+		 * Constructs a new {@link Tuning}.
+		 *
+		 * @param enabled
+		 *            whether or not pools should actually be resized (they're
+		 *            always monitored)
+		 * @param minSize
+		 *            the smallest size that pools may be shrunk to
+		 * @param maxSizeFactor
+		 *            the largest size that pools may be grown to, as a
+		 *            multiple of their configured size
+		 * @param waitTargetMillis
+		 *            the average connection wait (in milliseconds) above which
+		 *            pools will be grown
+		 * @param queryLatencyLimitMillis
+		 *            the average query latency (in milliseconds) above which
+		 *            pools will be shrunk
+		 * @param intervalSeconds
+		 *            how often (in seconds) pools are sampled and resized
+		 */
+		public Tuning(boolean enabled, int minSize, double maxSizeFactor, double waitTargetMillis,
+				long queryLatencyLimitMillis, long intervalSeconds) {
+			if (minSize < 1)
+				throw new IllegalArgumentException("Invalid min size: " + minSize);
+			if (!(maxSizeFactor >= 1.0))
+				throw new IllegalArgumentException("Invalid max size factor: " + maxSizeFactor);
+			if (intervalSeconds < 1)
+				throw new IllegalArgumentException("Invalid interval: " + intervalSeconds);
+
+			this.enabled = enabled;
+			this.minSize = minSize;
+			this.maxSizeFactor = maxSizeFactor;
+			this.waitTargetMillis = waitTargetMillis;
+			this.queryLatencyLimitMillis = queryLatencyLimitMillis;
+			this.intervalSeconds = intervalSeconds;
+		}
+
+		/**
+		 * @return whether or not pools should actually be resized
+		 */
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		/**
+		 * @return the smallest size that pools may be shrunk to
+		 */
+		public int getMinSize() {
+			return minSize;
+		}
+
+		/**
+		 * @return the largest size that pools may be grown to, as a multiple of
+		 *         their configured size
+		 */
+		public double getMaxSizeFactor() {
+			return maxSizeFactor;
+		}
+
+		/**
+		 * @param configuredSize
+		 *            the configured size of a pool
+		 * @return the largest size that the specified pool may be grown to,
+		 *         which is just its configured size if resizing isn't enabled
+		 */
+		public int getMaxSize(int configuredSize) {
+			if (!enabled)
+				return configuredSize;
+			return Math.max(configuredSize, (int) Math.ceil(configuredSize * maxSizeFactor));
+		}
+
+		/**
+		 * @return the average connection wait (in milliseconds) above which
+		 *         pools will be grown
+		 */
+		public double getWaitTargetMillis() {
+			return waitTargetMillis;
+		}
+
+		/**
+		 * @return the average query latency (in milliseconds) above which pools
+		 *         will be shrunk
+		 */
+		public long getQueryLatencyLimitMillis() {
+			return queryLatencyLimitMillis;
+		}
+
+		/**
+		 * @return how often (in seconds) pools are sampled and resized
+		 */
+		public long getIntervalSeconds() {
+			return intervalSeconds;
+		}
+	}
+
+	/**
+	 * A {@link DataSource} that records how long each connection takes to
+	 * acquire from the monitored pool.
+	 */
+	private static final class MonitoredDataSource extends DelegatingDataSource implements Closeable {
+		private final HikariDataSource poolingDataSource;
+		private final ConnectionPoolMonitor monitor;
+
+		/**
+		 * Constructs a new {@link MonitoredDataSource}.
+		 *
+		 * @param poolingDataSource
+		 *            the {@link HikariDataSource} to wrap
+		 * @param monitor
+		 *            the {@link ConnectionPoolMonitor} to record metrics with
+		 */
+		MonitoredDataSource(HikariDataSource poolingDataSource, ConnectionPoolMonitor monitor) {
+			super(poolingDataSource);
+			this.poolingDataSource = poolingDataSource;
+			this.monitor = monitor;
+		}
+
+		/**
+		 * @see org.springframework.jdbc.datasource.DelegatingDataSource#getConnection()
+		 */
+		@Override
+		public Connection getConnection() throws SQLException {
+			long startNanos = System.nanoTime();
+			try {
+				return super.getConnection();
+			} finally {
+				monitor.recordAcquire(System.nanoTime() - startNanos);
+			}
+		}
+
+		/**
+		 * @see org.springframework.jdbc.datasource.DelegatingDataSource#getConnection(java.lang.String,
+		 *      java.lang.String)
+		 */
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			long startNanos = System.nanoTime();
+			try {
+				return super.getConnection(username, password);
+			} finally {
+				monitor.recordAcquire(System.nanoTime() - startNanos);
+			}
+		}
+
+		/**
+		 * Stops the {@link ConnectionPoolMonitor} and closes the pool.
+		 *
+		 * @see java.io.Closeable#close()
+		 */
+		@Override
+		public void close() {
+			monitor.close();
+			poolingDataSource.close();
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+
+/**
+ * A HAPI {@link IServerInterceptor} that tells {@link ConnectionPoolMonitor}
+ * which FHIR operation (e.g. <code>ExplanationOfBenefit.search_type</code>)
+ * the current thread is running, so that connection acquire times can be
+ * broken out per resource provider operation.
+ */
+public final class ConnectionPoolOperationInterceptor extends InterceptorAdapter {
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#incomingRequestPreHandled(ca.uhn.fhir.rest.api.RestOperationTypeEnum,
+	 *      ca.uhn.fhir.rest.server.interceptor.IServerInterceptor.ActionRequestDetails)
+	 */
+	@Override
+	public void incomingRequestPreHandled(RestOperationTypeEnum operation, ActionRequestDetails processedRequest) {
+		String resourceType = processedRequest.getResourceType() != null ? processedRequest.getResourceType()
+				: "system";
+		ConnectionPoolMonitor
+				.setCurrentOperation(String.format("%s.%s", resourceType, operation.getCode().replace('-', '_')));
+	}
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#processingCompletedNormally(ca.uhn.fhir.rest.server.servlet.ServletRequestDetails)
+	 */
+	@Override
+	public void processingCompletedNormally(ServletRequestDetails requestDetails) {
+		ConnectionPoolMonitor.setCurrentOperation(null);
+	}
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#handleException(ca.uhn.fhir.rest.api.server.RequestDetails,
+	 *      ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException,
+	 *      javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	public boolean handleException(RequestDetails requestDetails, BaseServerResponseException exception,
+			HttpServletRequest servletRequest, HttpServletResponse servletResponse) {
+		ConnectionPoolMonitor.setCurrentOperation(null);
+		return true;
+	}
+}
@@ -1,51 +1,99 @@
 package gov.hhs.cms.bluebutton.server.app;
 
-import java.io.BufferedOutputStream;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CodingErrorAction;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 
 /**
- * A simple application that downloads the FDA NDC (national drug code) file;
- * unzips it and then converts it to UTF-8 format.
- *
+ * <p>
+ * A simple application that downloads the FDA NDC (national drug code) file
+ * and builds an {@link NdcIndex} from its products.
+ * </p>
+ * <p>
+ * The zip is streamed straight from the download (or a local copy of it):
+ * nothing is unzipped to disk. Its <code>product.txt</code> file is decoded
+ * from Windows-1252 and parsed in parallel, with each product's NDC
+ * normalized to the format that claims use (see {@link NdcIndex}), so that
+ * none of that has to happen when the server loads it.
+ * </p>
+ * <p>
+ * The FDA's file isn't always clean: any bytes that aren't valid
+ * Windows-1252 are replaced (with <code>U+FFFD</code>), and any products
+ * without a usable <code>PRODUCTNDC</code> are skipped and reported on
+ * <code>System.err</code>, rather than failing the whole build.
+ * </p>
+ * <p>
  * See the <code>download-fda-drug-data</code> execution of
  * <code>exec-maven-plugin</code> in this project's <code>pom.xml</code> for
  * details on how this utility is run during the project's build.
+ * </p>
  */
 public final class FDADrugDataUtilityApp {
 	/**
 	 * The name of the classpath resource (for the project's main web application)
-	 * for the FDA "Products" TSV file.
+	 * for the FDA "Products" {@link NdcIndex}.
 	 */
-	public static final String FDA_PRODUCTS_RESOURCE = "fda_products_cp1252.tsv";
+	public static final String FDA_PRODUCTS_RESOURCE = "fda_products.ndcindex";
 
 	/**
-	 * Size of the buffer to read/write data
+	 * The URL that the FDA NDC zip file is downloaded from.
 	 */
-	private static final int BUFFER_SIZE = 4096;
+	private static final String FDA_NDC_ZIP_URL = "https://www.accessdata.fda.gov/cder/ndctext.zip";
+
+	/**
+	 * The <code>NDC_ZIP</code> argument value that indicates the FDA NDC zip file
+	 * should be downloaded.
+	 */
+	private static final String NDC_ZIP_NONE = "none";
+
+	/**
+	 * The name of the entry in the FDA NDC zip file that has the products in
+	 * it.
+	 */
+	private static final String FDA_NDC_ZIP_PRODUCTS_ENTRY = "product.txt";
+
+	/**
+	 * The connect and read timeouts (in milliseconds) for the download.
+	 */
+	private static final int DOWNLOAD_TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * The index of the <code>PRODUCTNDC</code> column in the products file.
+	 */
+	private static final int COLUMN_PRODUCT_NDC = 1;
+
+	/**
+	 * The index of the <code>PROPRIETARYNAME</code> column in the products file.
+	 */
+	private static final int COLUMN_PROPRIETARY_NAME = 3;
+
+	/**
+	 * The index of the <code>SUBSTANCENAME</code> column in the products file.
+	 */
+	private static final int COLUMN_SUBSTANCE_NAME = 13;
 
 	/**
 	 * 
@@ -58,10 +106,14 @@ public final class FDADrugDataUtilityApp {
 	 *            launched with. Must include:
 	 *            </p>
 	 *            <ol>
-	 *            <li><code>OUTPUT_DIR</code>: the first (and only) argument for
-	 *            this application, which should be the path to the project's
+	 *            <li><code>OUTPUT_DIR</code>: the first argument for this
+	 *            application, which should be the path to the project's
 	 *            <code>${project.build.outputDirectory}</code> directory (i.e.
 	 *            <code>target/classes/</code>)</li>
+	 *            <li><code>NDC_ZIP</code>: an optional second argument, which
+	 *            is the path to a local copy of the FDA NDC zip file to use,
+	 *            rather than downloading it (or <code>none</code>, to download
+	 *            it)</li>
 	 *            </ol>
 	 * @throws IOException
 	 */
@@ -70,7 +122,7 @@ public final class FDADrugDataUtilityApp {
 			System.err.println("OUTPUT_DIR argument not specified for FDA NDC download.");
 			System.exit(1);
 		}
-		if (args.length > 1) {
+		if (args.length > 2) {
 			System.err.println("Invalid arguments supplied for FDA NDC download.");
 			System.exit(2);
 		}
@@ -81,110 +133,128 @@ public final class FDADrugDataUtilityApp {
 			System.exit(3);
 		}
 
-		// Create a temp directory that will be recursively deleted when we're done.
-		Path workingDir = Files.createTempDirectory("fda-data");
-		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-			try {
-				Files.walkFileTree(workingDir, new SimpleFileVisitor<Path>() {
-					@Override
-					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-						Files.delete(file);
-						return FileVisitResult.CONTINUE;
-					}
-
-					@Override
-					public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-						Files.delete(dir);
-						return FileVisitResult.CONTINUE;
-					}
-				});
-			} catch (IOException e) {
-				throw new UncheckedIOException(e);
-			}
-		}));
-
 		// If the output file isn't already there, go build it.
-		Path convertedNdcDataFile = outputPath.resolve(FDA_PRODUCTS_RESOURCE);
-		if (!Files.exists(convertedNdcDataFile)) {
-			// download FDA NDC file
-			Path downloadedNdcZipFile = Paths.get(workingDir.resolve("ndctext.zip").toFile().getAbsolutePath());
-			if (!Files.isReadable(downloadedNdcZipFile)) {
-				try {
-					// connectionTimeout, readTimeout = 10 seconds
-					FileUtils.copyURLToFile(new URL("https://www.accessdata.fda.gov/cder/ndctext.zip"),
-							new File(downloadedNdcZipFile.toFile().getAbsolutePath()), 10000, 10000);
-				} catch (IOException e) {
-					e.printStackTrace();
-					System.exit(4);
-				}
+		Path ndcIndexFile = outputPath.resolve(FDA_PRODUCTS_RESOURCE);
+		if (!Files.exists(ndcIndexFile)) {
+			boolean useLocalZip = args.length > 1 && !args[1].equals(NDC_ZIP_NONE);
+			try (InputStream ndcZipStream = useLocalZip ? Files.newInputStream(Paths.get(args[1])) : openDownload()) {
+				buildIndex(ndcZipStream, ndcIndexFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.exit(4);
 			}
+		}
+	}
 
-			// unzip FDA NDC file
-			Path originalNdcDataFile = workingDir.resolve("product.txt");
-			unzip(downloadedNdcZipFile, workingDir);
-
-			// convert file format from cp1252 to utf8
-			CharsetDecoder inDec = Charset.forName("windows-1252").newDecoder()
-					.onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
-
-			CharsetEncoder outEnc = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPORT)
-					.onUnmappableCharacter(CodingErrorAction.REPORT);
+	/**
+	 * @return an {@link InputStream} for the FDA NDC zip file download
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private static InputStream openDownload() throws IOException {
+		URLConnection connection = new URL(FDA_NDC_ZIP_URL).openConnection();
+		connection.setConnectTimeout(DOWNLOAD_TIMEOUT_MILLIS);
+		connection.setReadTimeout(DOWNLOAD_TIMEOUT_MILLIS);
+		return connection.getInputStream();
+	}
 
-			try (FileInputStream is = new FileInputStream(originalNdcDataFile.toFile().getAbsolutePath());
-					BufferedReader reader = new BufferedReader(new InputStreamReader(is, inDec));
-					FileOutputStream fw = new FileOutputStream(convertedNdcDataFile.toFile().getAbsolutePath());
-					BufferedWriter out = new BufferedWriter(new OutputStreamWriter(fw, outEnc))) {
+	/**
+	 * Builds an {@link NdcIndex} from the specified FDA NDC zip file. The index
+	 * is written to a temporary file first, so that a failed build can't leave
+	 * a partial index behind.
+	 *
+	 * @param ndcZipStream
+	 *            an {@link InputStream} for the FDA NDC zip file, which will not
+	 *            be closed
+	 * @param ndcIndexFile
+	 *            the file to write the {@link NdcIndex} to
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	static void buildIndex(InputStream ndcZipStream, Path ndcIndexFile) throws IOException {
+		SortedMap<String, String> products = readProducts(ndcZipStream);
 
-				for (String in; (in = reader.readLine()) != null;) {
-					out.write(in);
-					out.newLine();
-				}
+		Path tempFile = Files.createTempFile(ndcIndexFile.toAbsolutePath().getParent(), FDA_PRODUCTS_RESOURCE, ".tmp");
+		try {
+			try (OutputStream indexStream = Files.newOutputStream(tempFile)) {
+				NdcIndex.write(products, indexStream);
 			}
+			Files.move(tempFile, ndcIndexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
 		}
 	}
 
 	/**
-	 * Extracts a zip file specified by the zipFilePath to a directory specified by
-	 * destDirectory (will be created if does not exists)
-	 * 
-	 * @param zipFilePath
-	 * @param destDirectory
+	 * @param ndcZipStream
+	 *            an {@link InputStream} for the FDA NDC zip file, which will not
+	 *            be closed
+	 * @return the display values for each of the products in the FDA NDC zip
+	 *         file, keyed and sorted by their normalized product NDCs
 	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
 	 */
-	private static void unzip(Path zipFilePath, Path destDirectory) throws IOException {
-		ZipInputStream zipIn = new ZipInputStream(new FileInputStream(zipFilePath.toFile().getAbsolutePath()));
-		ZipEntry entry = zipIn.getNextEntry();
-		// iterates over entries in the zip file
-		while (entry != null) {
-			Path filePath = Paths.get(destDirectory.toFile().getAbsolutePath(), entry.getName());
-			if (!entry.isDirectory()) {
-				// if the entry is a file, extracts it
-				extractFile(zipIn, filePath);
-			} else {
-				// if the entry is a directory, make the directory
-				File dir = new File(filePath.toFile().getAbsolutePath());
-				dir.mkdir();
+	static SortedMap<String, String> readProducts(InputStream ndcZipStream) throws IOException {
+		ZipInputStream zipIn = new ZipInputStream(new BufferedInputStream(ndcZipStream));
+		for (ZipEntry entry; (entry = zipIn.getNextEntry()) != null;) {
+			if (entry.isDirectory() || !entry.getName().equals(FDA_NDC_ZIP_PRODUCTS_ENTRY))
+				continue;
+
+			CharsetDecoder decoder = Charset.forName("windows-1252").newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+			BufferedReader productsReader = new BufferedReader(new InputStreamReader(zipIn, decoder));
+			try {
+				/*
+				 * The lines are parsed in parallel, but the collector still merges them in
+				 * file order, so that (as before) the last of any duplicate NDCs wins.
+				 */
+				return productsReader.lines().skip(1).parallel().map(FDADrugDataUtilityApp::parseProduct)
+						.filter(Optional::isPresent).map(Optional::get).collect(Collectors.toMap(Map.Entry::getKey,
+								Map.Entry::getValue, (first, second) -> second, TreeMap::new));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
 			}
-			zipIn.closeEntry();
-			entry = zipIn.getNextEntry();
 		}
-		zipIn.close();
+
+		throw new IOException("Entry not found in FDA NDC zip file: " + FDA_NDC_ZIP_PRODUCTS_ENTRY);
 	}
 
 	/**
-	 * Extracts a zip entry (file entry)
-	 * 
-	 * @param zipIn
-	 * @param filePath
-	 * @throws IOException
+	 * @param productLine
+	 *            a line (other than the header) from the FDA NDC products file
+	 * @return the normalized product NDC and display value for that product,
+	 *         or {@link Optional#empty()} if the line is invalid (in which case
+	 *         it will have been reported on <code>System.err</code>)
 	 */
-	private static void extractFile(ZipInputStream zipIn, Path filePath) throws IOException {
-		BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(filePath.toFile().getAbsolutePath()));
-		byte[] bytesIn = new byte[BUFFER_SIZE];
-		int read = 0;
-		while ((read = zipIn.read(bytesIn)) != -1) {
-			bos.write(bytesIn, 0, read);
+	private static Optional<Map.Entry<String, String>> parseProduct(String productLine) {
+		String[] columns = productLine.split("\t", -1);
+		Optional<String> productNdc = columns.length > COLUMN_SUBSTANCE_NAME
+				? normalizeProductNdc(columns[COLUMN_PRODUCT_NDC])
+				: Optional.empty();
+		if (!productNdc.isPresent()) {
+			System.err.println("Skipping invalid FDA NDC product: " + productLine);
+			return Optional.empty();
 		}
-		bos.close();
+
+		return Optional.of(new AbstractMap.SimpleImmutableEntry<>(productNdc.get(),
+				columns[COLUMN_PROPRIETARY_NAME] + " - " + columns[COLUMN_SUBSTANCE_NAME]));
+	}
+
+	/**
+	 * @param productNdc
+	 *            a <code>PRODUCTNDC</code> value from the FDA NDC products file,
+	 *            e.g. <code>"0002-3227"</code>
+	 * @return the normalized form of that product NDC, as used in claims, e.g.
+	 *         <code>"000023227"</code>, or {@link Optional#empty()} if it isn't
+	 *         a valid product NDC
+	 */
+	static Optional<String> normalizeProductNdc(String productNdc) {
+		int separator = productNdc.indexOf('-');
+		if (separator < 0)
+			return Optional.empty();
+
+		String normalized = StringUtils.leftPad(productNdc.substring(0, separator), 5, '0')
+				+ StringUtils.leftPad(productNdc.substring(separator + 1), 4, '0');
+		return NdcIndex.isValidKey(normalized) ? Optional.of(normalized) : Optional.empty();
 	}
 }
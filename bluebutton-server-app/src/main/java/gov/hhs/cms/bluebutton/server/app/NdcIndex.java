@@ -0,0 +1,273 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * <p>
+ * A compact, read-only index of FDA product NDCs (national drug codes) to
+ * their display values, as built by {@link FDADrugDataUtilityApp}.
+ * </p>
+ * <p>
+ * The index is a single binary blob with the following layout (all integers
+ * are big-endian):
+ * </p>
+ * <ol>
+ * <li>The {@link #MAGIC} number.</li>
+ * <li>The number of entries, <code>N</code>.</li>
+ * <li><code>N</code> product NDCs, sorted, each as {@link #KEY_LENGTH} ASCII
+ * digits: the left-padded 5 digit labeler (manufacturer) code, followed by the
+ * left-padded 4 digit product (ingredient) code.</li>
+ * <li><code>N + 1</code> offsets into the values section, where entry
+ * <code>i</code>'s value starts at offset <code>i</code> and ends at offset
+ * <code>i + 1</code>.</li>
+ * <li>The values, as concatenated UTF-8 strings.</li>
+ * </ol>
+ * <p>
+ * When it's loaded, the sorted keys are packed into a <code>long[]</code>, in
+ * the same order, so that an entry's index is its position in that array.
+ * Lookups parse the claim's drug code straight into the same packed form,
+ * rather than building a key {@link String} from it, and binary search for
+ * it. Values are decoded the first time they're returned, and then cached.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public final class NdcIndex {
+	/**
+	 * The magic number that identifies (the current version of) the index
+	 * format: "NDC1" in ASCII.
+	 */
+	static final int MAGIC = 0x4E444331;
+
+	/**
+	 * The length of each key, in ASCII characters/bytes.
+	 */
+	public static final int KEY_LENGTH = 9;
+
+	private static final int HEADER_LENGTH = 8;
+
+	/**
+	 * The packed key value returned for invalid keys by
+	 * {@link #packKey(CharSequence)}. Valid packed keys are never negative.
+	 */
+	private static final long INVALID_KEY = -1L;
+
+	private final ByteBuffer index;
+	private final int size;
+	private final int offsetsStart;
+	private final int valuesStart;
+
+	/**
+	 * The entries' packed keys (see {@link #packKey(CharSequence)}), in entry
+	 * (and so ascending) order.
+	 */
+	private final long[] keys;
+
+	/**
+	 * The decoded values, as returned by {@link #get(CharSequence)}. Racy, but
+	 * harmlessly so: {@link String}s are immutable, and so are safe to publish
+	 * this way, and all threads will decode the same value.
+	 */
+	private final String[] valueCache;
+
+	/**
+	 * Constructs a new {@link NdcIndex}.
+	 *
+	 * @param index
+	 *            the {@link ByteBuffer} containing the index, e.g. as read by
+	 *            {@link #read(InputStream)}, or a memory-mapped file
+	 */
+	public NdcIndex(ByteBuffer index) {
+		this.index = index.slice();
+		if (this.index.remaining() < HEADER_LENGTH || this.index.getInt(0) != MAGIC)
+			throw new IllegalArgumentException("Not an NDC index.");
+
+		this.size = this.index.getInt(4);
+		this.offsetsStart = HEADER_LENGTH + size * KEY_LENGTH;
+		this.valuesStart = offsetsStart + (size + 1) * Integer.BYTES;
+		if (size < 0 || valuesStart > this.index.limit()
+				|| valuesStart + this.index.getInt(offsetsStart + size * Integer.BYTES) != this.index.limit())
+			throw new IllegalArgumentException("Truncated NDC index.");
+
+		this.keys = new long[size];
+		for (int entryIndex = 0; entryIndex < size; entryIndex++) {
+			long key = packKey(getKey(entryIndex));
+			if (key == INVALID_KEY)
+				throw new IllegalArgumentException("Invalid key in NDC index at entry: " + entryIndex);
+			// Binary search needs the keys strictly ascending: sorted, and with no duplicates.
+			if (entryIndex > 0 && key <= keys[entryIndex - 1])
+				throw new IllegalArgumentException("Unsorted key in NDC index at entry: " + entryIndex);
+			keys[entryIndex] = key;
+		}
+		this.valueCache = new String[size];
+	}
+
+	/**
+	 * @param indexStream
+	 *            the {@link InputStream} to read the index from, which will be
+	 *            read fully but not closed
+	 * @return the {@link NdcIndex} that was read
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	public static NdcIndex read(InputStream indexStream) throws IOException {
+		ByteArrayOutputStream indexBytes = new ByteArrayOutputStream(1024 * 1024);
+		byte[] buffer = new byte[64 * 1024];
+		for (int read; (read = indexStream.read(buffer)) != -1;)
+			indexBytes.write(buffer, 0, read);
+		return new NdcIndex(ByteBuffer.wrap(indexBytes.toByteArray()));
+	}
+
+	/**
+	 * @param entries
+	 *            the product NDCs (each {@link #KEY_LENGTH} ASCII digits) and
+	 *            display values to write out
+	 * @param indexStream
+	 *            the {@link OutputStream} to write the index to, which will not
+	 *            be closed
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	public static void write(SortedMap<String, String> entries, OutputStream indexStream) throws IOException {
+		DataOutputStream indexOut = new DataOutputStream(indexStream);
+		indexOut.writeInt(MAGIC);
+		indexOut.writeInt(entries.size());
+
+		byte[][] values = new byte[entries.size()][];
+		int entryIndex = 0;
+		for (Map.Entry<String, String> entry : entries.entrySet()) {
+			if (!isValidKey(entry.getKey()))
+				throw new IllegalArgumentException("Invalid product NDC: " + entry.getKey());
+			indexOut.write(entry.getKey().getBytes(StandardCharsets.US_ASCII));
+			values[entryIndex++] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+		}
+
+		int offset = 0;
+		indexOut.writeInt(offset);
+		for (byte[] value : values) {
+			offset += value.length;
+			indexOut.writeInt(offset);
+		}
+		for (byte[] value : values)
+			indexOut.write(value);
+		indexOut.flush();
+	}
+
+	/**
+	 * @param key
+	 *            the candidate product NDC to check
+	 * @return <code>true</code> if the specified key is {@link #KEY_LENGTH}
+	 *         ASCII digits, <code>false</code> if it's not
+	 */
+	static boolean isValidKey(CharSequence key) {
+		if (key.length() != KEY_LENGTH)
+			return false;
+		for (int i = 0; i < KEY_LENGTH; i++)
+			if (key.charAt(i) < '0' || key.charAt(i) > '9')
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return the number of entries in this {@link NdcIndex}
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param drugCode
+	 *            the drug code to look up, whose first {@link #KEY_LENGTH}
+	 *            characters must be the (left-padded) product NDC, e.g. the full
+	 *            11 digit NDC from a claim
+	 * @return the display value for the specified drug code's product NDC, or
+	 *         <code>null</code> if it's not in this {@link NdcIndex}
+	 */
+	public String get(CharSequence drugCode) {
+		long key = packKey(drugCode);
+		if (key == INVALID_KEY)
+			return null;
+
+		int entryIndex = Arrays.binarySearch(keys, key);
+		if (entryIndex < 0)
+			return null;
+
+		String value = valueCache[entryIndex];
+		if (value == null) {
+			value = getValue(entryIndex);
+			valueCache[entryIndex] = value;
+		}
+		return value;
+	}
+
+	/**
+	 * @param drugCode
+	 *            the drug code (or key) to pack, whose first {@link #KEY_LENGTH}
+	 *            characters must be the (left-padded) product NDC
+	 * @return the first {@link #KEY_LENGTH} digits of the specified drug code,
+	 *         packed into a <code>long</code>, or {@link #INVALID_KEY} if the
+	 *         drug code is too short or those characters aren't all digits
+	 */
+	static long packKey(CharSequence drugCode) {
+		if (drugCode.length() < KEY_LENGTH)
+			return INVALID_KEY;
+
+		long key = 0;
+		for (int i = 0; i < KEY_LENGTH; i++) {
+			char digit = drugCode.charAt(i);
+			if (digit < '0' || digit > '9')
+				return INVALID_KEY;
+			key = key * 10 + (digit - '0');
+		}
+		return key;
+	}
+
+	/**
+	 * @return all of the entries in this {@link NdcIndex}, in key order
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> entries = new LinkedHashMap<>(size * 2);
+		for (int i = 0; i < size; i++)
+			entries.put(getKey(i), getValue(i));
+		return entries;
+	}
+
+	/**
+	 * @param entryIndex
+	 *            the index of the entry to get the key of
+	 * @return the entry's key
+	 */
+	private String getKey(int entryIndex) {
+		byte[] key = new byte[KEY_LENGTH];
+		ByteBuffer keyBuffer = index.duplicate();
+		keyBuffer.position(HEADER_LENGTH + entryIndex * KEY_LENGTH);
+		keyBuffer.get(key);
+		return new String(key, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * @param entryIndex
+	 *            the index of the entry to get the value of
+	 * @return the entry's value
+	 */
+	private String getValue(int entryIndex) {
+		int valueStart = index.getInt(offsetsStart + entryIndex * Integer.BYTES);
+		int valueEnd = index.getInt(offsetsStart + (entryIndex + 1) * Integer.BYTES);
+		byte[] value = new byte[valueEnd - valueStart];
+		ByteBuffer valueBuffer = index.duplicate();
+		valueBuffer.position(valuesStart + valueStart);
+		valueBuffer.get(value);
+		return new String(value, StandardCharsets.UTF_8);
+	}
+}
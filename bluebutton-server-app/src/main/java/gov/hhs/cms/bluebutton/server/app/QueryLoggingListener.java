@@ -8,18 +8,26 @@ import org.jboss.logging.MDC;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.hhs.cms.bluebutton.server.app.tracing.Span;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
 import net.ttddyy.dsproxy.ExecutionInfo;
 import net.ttddyy.dsproxy.QueryInfo;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
 
 /**
  * This {@link QueryExecutionListener} records query performance data in
- * {@link MDC}.
+ * {@link MDC}, and also records a {@link Span} for each query.
  */
 public final class QueryLoggingListener implements QueryExecutionListener {
 	private static final Logger LOGGER_DATABASE_QUERY = LoggerFactory.getLogger("DATABASE_QUERY");
 	private static final Logger LOGGER_MISC = LoggerFactory.getLogger(QueryLoggingListener.class);
 
+	/**
+	 * The {@link Span#getName()} used for the {@link Span}s started in
+	 * {@link #beforeQuery(ExecutionInfo, List)}.
+	 */
+	private static final String SPAN_NAME_QUERY = "query";
+
 	/**
 	 * @see net.ttddyy.dsproxy.listener.QueryExecutionListener#afterQuery(net.ttddyy.dsproxy.ExecutionInfo,
 	 *      java.util.List)
@@ -33,6 +41,15 @@ public final class QueryLoggingListener implements QueryExecutionListener {
 		 * relevant), and thus included in the access log.
 		 */
 
+		Span querySpan = Tracer.currentSpan();
+		if (SPAN_NAME_QUERY.equals(querySpan.getName())) {
+			if (queryInfoList.size() == 1)
+				querySpan.setAttribute("query_type",
+						QueryType.computeQueryType(queryInfoList.get(0)).getQueryTypeId());
+			querySpan.setAttribute("success", execInfo.isSuccess());
+			querySpan.close();
+		}
+
 		if (queryInfoList.isEmpty())
 			return;
 
@@ -127,7 +144,11 @@ public final class QueryLoggingListener implements QueryExecutionListener {
 	 */
 	@Override
 	public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
-		// Nothing to do here.
+		/*
+		 * Like afterQuery(...), this is called on the thread that's running the query,
+		 * so the span started here will be the active one when that gets called.
+		 */
+		Tracer.startSpan(SPAN_NAME_QUERY);
 	}
 
 	/**
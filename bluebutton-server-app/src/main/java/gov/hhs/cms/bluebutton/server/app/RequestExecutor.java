@@ -0,0 +1,258 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import gov.hhs.cms.bluebutton.server.app.tracing.Span;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
+
+/**
+ * <p>
+ * Runs FHIR requests asynchronously (via Servlet 3 {@link AsyncContext}s) on a
+ * dedicated, bounded pool of threads, rather than on the servlet container's
+ * own worker threads.
+ * </p>
+ * <p>
+ * The application has several of these: one per bulkhead (see
+ * {@link SpringConfiguration#REQUEST_EXECUTOR_PATIENT} and
+ * {@link SpringConfiguration#REQUEST_EXECUTOR_EOB}), plus a default one for
+ * everything else, so that a burst of one kind of request can't leave the
+ * others waiting.
+ * </p>
+ * <p>
+ * Nearly all of a FHIR request's time is spent blocked on the database, and
+ * the container's worker threads were being held for all of it, so a few slow
+ * beneficiaries could tie up the whole pool (and with it, the health checks
+ * and metrics endpoints). Now the container threads just hand the requests
+ * off. The pool is sized to match the database connection pool by default,
+ * and anything beyond what it can take waits in a bounded queue, where it's
+ * visible in the metrics. Once that queue is full, requests are turned away
+ * with a <code>503 Service Unavailable</code> rather than piling up.
+ * </p>
+ * <p>
+ * The following metrics are recorded:
+ * </p>
+ * <ul>
+ * <li><code>RequestExecutor.&lt;name&gt;.queue</code>: a timer for how long
+ * accepted requests wait for a thread.</li>
+ * <li><code>RequestExecutor.&lt;name&gt;.run</code>: a timer for how long
+ * requests run for, once they have one.</li>
+ * <li><code>RequestExecutor.&lt;name&gt;.rejected</code>: a meter for the
+ * requests turned away.</li>
+ * <li><code>RequestExecutor.&lt;name&gt;.queue_size</code> and
+ * <code>RequestExecutor.&lt;name&gt;.active</code>: gauges for the number of
+ * requests waiting and running.</li>
+ * </ul>
+ */
+public final class RequestExecutor implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RequestExecutor.class);
+
+	/**
+	 * How long (in seconds) rejected clients are asked to wait before retrying.
+	 */
+	private static final int RETRY_AFTER_SECONDS = 1;
+
+	private final String name;
+	private final ThreadPoolExecutor executor;
+	private final Timer queueTimer;
+	private final Timer runTimer;
+	private final Meter rejected;
+
+	/**
+	 * Constructs a new {@link RequestExecutor}.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the executor's metrics in
+	 * @param name
+	 *            the value to use for {@link #getName()}
+	 * @param threads
+	 *            the number of threads to run requests on
+	 * @param queueCapacity
+	 *            the maximum number of requests that may be waiting for a
+	 *            thread
+	 */
+	public RequestExecutor(MetricRegistry metricRegistry, String name, int threads, int queueCapacity) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Invalid threads: " + threads);
+		if (queueCapacity < 1)
+			throw new IllegalArgumentException("Invalid queue capacity: " + queueCapacity);
+
+		this.name = name;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable,
+							RequestExecutor.class.getSimpleName() + "-" + name + "-" + threadCount.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		String metricPrefix = MetricRegistry.name(RequestExecutor.class.getSimpleName(), name);
+		this.queueTimer = metricRegistry.timer(MetricRegistry.name(metricPrefix, "queue"));
+		this.runTimer = metricRegistry.timer(MetricRegistry.name(metricPrefix, "run"));
+		this.rejected = metricRegistry.meter(MetricRegistry.name(metricPrefix, "rejected"));
+		metricRegistry.register(MetricRegistry.name(metricPrefix, "queue_size"),
+				(Gauge<Integer>) () -> executor.getQueue().size());
+		metricRegistry.register(MetricRegistry.name(metricPrefix, "active"),
+				(Gauge<Integer>) executor::getActiveCount);
+	}
+
+	/**
+	 * @return the name of this {@link RequestExecutor}'s bulkhead, which is used
+	 *         in its metric and thread names
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Runs the specified {@link RequestHandler} for the specified request:
+	 * asynchronously on this {@link RequestExecutor}'s threads if the request
+	 * supports that, or directly on the calling thread if not (e.g. for error
+	 * dispatches, or if something earlier in the filter chain isn't
+	 * async-capable).
+	 *
+	 * @param request
+	 *            the {@link HttpServletRequest} to handle
+	 * @param response
+	 *            the {@link HttpServletResponse} to handle
+	 * @param handler
+	 *            the {@link RequestHandler} to run
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 * @throws ServletException
+	 *             Any {@link ServletException}s encountered will be bubbled up.
+	 */
+	public void execute(HttpServletRequest request, HttpServletResponse response, RequestHandler handler)
+			throws IOException, ServletException {
+		if (!request.isAsyncSupported() || request.getDispatcherType() != DispatcherType.REQUEST) {
+			handler.handle(request, response);
+			return;
+		}
+
+		/*
+		 * The request's MDC entries and tracing span live in thread-locals, so they
+		 * have to be carried over to (and back from) the thread that actually runs it.
+		 */
+		Map<String, String> mdc = MDC.getCopyOfContextMap();
+		Span span = Tracer.currentSpan();
+		AsyncContext asyncContext = request.startAsync(request, response);
+		asyncContext.setTimeout(0L);
+		Timer.Context queueTimerContext = queueTimer.time();
+		try {
+			executor.execute(() -> {
+				queueTimerContext.stop();
+				run(asyncContext, request, response, handler, mdc, span);
+			});
+		} catch (RejectedExecutionException e) {
+			// These never waited, so they're only counted in the rejected meter.
+			rejected.mark();
+			response.setIntHeader("Retry-After", RETRY_AFTER_SECONDS);
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is too busy.");
+			asyncContext.complete();
+		}
+	}
+
+	/**
+	 * Shuts down the request threads, waiting briefly for any in-progress
+	 * requests to complete.
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS))
+				LOGGER.warn("Requests still running after shutdown.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Runs the specified {@link RequestHandler} on the current (request
+	 * executor) thread, and then completes the request.
+	 *
+	 * @param asyncContext
+	 *            the request's {@link AsyncContext}
+	 * @param request
+	 *            the {@link HttpServletRequest} to handle
+	 * @param response
+	 *            the {@link HttpServletResponse} to handle
+	 * @param handler
+	 *            the {@link RequestHandler} to run
+	 * @param mdc
+	 *            the {@link MDC} entries from the container thread that the
+	 *            request arrived on, if any
+	 * @param span
+	 *            the request's {@link Span}
+	 */
+	private void run(AsyncContext asyncContext, HttpServletRequest request, HttpServletResponse response,
+			RequestHandler handler, Map<String, String> mdc, Span span) {
+		if (mdc != null)
+			MDC.setContextMap(mdc);
+		try (Timer.Context runTimerContext = runTimer.time()) {
+			Tracer.callInSpan(span, () -> {
+				try {
+					handler.handle(request, response);
+				} catch (IOException | ServletException | RuntimeException e) {
+					LOGGER.error("Request failed.", e);
+					if (!response.isCommitted()) {
+						try {
+							response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+						} catch (IOException e2) {
+							LOGGER.warn("Unable to send error response.", e2);
+						}
+					}
+				}
+				return null;
+			});
+		} finally {
+			// Hand the entries added while running back to RequestResponseLoggingFilter.
+			request.setAttribute(RequestResponseLoggingFilter.REQUEST_ATTRIB_MDC, MDC.getCopyOfContextMap());
+			MDC.clear();
+			ConnectionPoolMonitor.setCurrentOperation(null);
+			asyncContext.complete();
+		}
+	}
+
+	/**
+	 * Handles an {@link HttpServletRequest}, e.g. by passing it to a servlet.
+	 */
+	@FunctionalInterface
+	public static interface RequestHandler {
+		/**
+		 * @param request
+		 *            the {@link HttpServletRequest} to handle
+		 * @param response
+		 *            the {@link HttpServletResponse} to handle
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 * @throws ServletException
+		 *             Any {@link ServletException}s encountered will be bubbled
+		 *             up.
+		 */
+		void handle(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException;
+	}
+}
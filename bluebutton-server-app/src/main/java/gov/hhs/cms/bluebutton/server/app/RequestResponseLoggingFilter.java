@@ -1,13 +1,14 @@
 package gov.hhs.cms.bluebutton.server.app;
 
 import java.io.IOException;
-import java.security.cert.X509Certificate;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 
-import javax.security.auth.x500.X500Principal;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -40,10 +41,17 @@ import ch.qos.logback.classic.helpers.MDCInsertingServletFilter;
  */
 public final class RequestResponseLoggingFilter implements Filter {
 	private static final Logger LOGGER_HTTP_ACCESS = LoggerFactory.getLogger("HTTP_ACCESS");
-	private static final Logger LOGGER_MISC = LoggerFactory.getLogger(RequestResponseLoggingFilter.class);
 
 	private static final String REQUEST_ATTRIB_START = computeMdcKey("request_start_milliseconds");
 
+	/**
+	 * The {@link ServletRequest#getAttribute(String)} key that asynchronous
+	 * requests' final {@link MDC} entries should be stored under, before the
+	 * request is completed on whichever thread it ran on. Those entries will be
+	 * included in the request's access log entry.
+	 */
+	public static final String REQUEST_ATTRIB_MDC = computeMdcKey("async_mdc");
+
 	/**
 	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
 	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
@@ -52,11 +60,69 @@ public final class RequestResponseLoggingFilter implements Filter {
 	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
 			throws IOException, ServletException {
 		handleRequest(request);
+		boolean asyncStarted = false;
 		try {
 			chain.doFilter(request, response);
+			asyncStarted = request.isAsyncStarted();
 		} finally {
+			if (asyncStarted) {
+				/*
+				 * The response isn't done yet (see RequestExecutor), so hold off on
+				 * logging it until it is.
+				 */
+				Map<String, String> mdc = MDC.getCopyOfContextMap();
+				request.getAsyncContext().addListener(new AsyncListener() {
+					@Override
+					public void onComplete(AsyncEvent event) {
+						handleAsyncComplete(mdc, request, response);
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) {
+						// Nothing to do here: onComplete(...) will still be called.
+					}
+
+					@Override
+					public void onError(AsyncEvent event) {
+						// Nothing to do here: onComplete(...) will still be called.
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) {
+						// Nothing to do here.
+					}
+				});
+			} else {
+				handleResponse(request, response);
+				addToHttpAccessLog();
+			}
+			clearMdc();
+		}
+	}
+
+	/**
+	 * Logs an asynchronous request once it has completed.
+	 *
+	 * @param mdc
+	 *            the {@link MDC} entries from the container thread that the
+	 *            request arrived on, if any
+	 * @param request
+	 *            the {@link ServletRequest} that was completed
+	 * @param response
+	 *            the {@link ServletResponse} that was completed
+	 */
+	@SuppressWarnings("unchecked")
+	private void handleAsyncComplete(Map<String, String> mdc, ServletRequest request, ServletResponse response) {
+		try {
+			if (mdc != null)
+				MDC.setContextMap(mdc);
+			Map<String, String> asyncMdc = (Map<String, String>) request.getAttribute(REQUEST_ATTRIB_MDC);
+			if (asyncMdc != null)
+				asyncMdc.forEach(MDC::put);
+
 			handleResponse(request, response);
 			addToHttpAccessLog();
+		} finally {
 			clearMdc();
 		}
 	}
@@ -80,7 +146,7 @@ public final class RequestResponseLoggingFilter implements Filter {
 			MDC.put(computeMdcKey("request.url"), servletRequest.getRequestURL().toString());
 			MDC.put(computeMdcKey("request.uri"), servletRequest.getRequestURI());
 			MDC.put(computeMdcKey("request.query_string"), servletRequest.getQueryString());
-			MDC.put(computeMdcKey("request.clientSSL.DN"), getClientSslPrincipalDistinguishedName(servletRequest));
+			MDC.put(computeMdcKey("request.clientSSL.DN"), ClientDistinguishedNames.getClientDn(servletRequest));
 
 			// Record the request headers.
 			Enumeration<String> headerNames = servletRequest.getHeaderNames();
@@ -105,42 +171,6 @@ public final class RequestResponseLoggingFilter implements Filter {
 		return String.format("%s.%s", "http_access", keySuffix);
 	}
 
-	/**
-	 * @param request the {@link HttpServletRequest} to get the client principal DN
-	 *                (if any) for
-	 * @return the {@link X500Principal#getName()} for the client certificate, or
-	 *         <code>null</code> if that's not available
-	 */
-	private static String getClientSslPrincipalDistinguishedName(HttpServletRequest request) {
-		/*
-		 * Note: Now that Wildfly/JBoss is properly configured with a security realm,
-		 * this method is equivalent to calling `request.getRemoteUser()`.
-		 */
-		X509Certificate clientCert = getClientCertificate(request);
-		if (clientCert == null || clientCert.getSubjectX500Principal() == null) {
-			LOGGER_MISC.debug("No client SSL principal available: {}", clientCert);
-			return null;
-		}
-
-		return clientCert.getSubjectX500Principal().getName();
-	}
-
-	/**
-	 * @param request
-	 *            the {@link HttpServletRequest} to get the client SSL certificate
-	 *            for
-	 * @return the {@link X509Certificate} for the {@link HttpServletRequest}'s
-	 *         client SSL certificate, or <code>null</code> if that's not available
-	 */
-	private static X509Certificate getClientCertificate(HttpServletRequest request) {
-		X509Certificate[] certs = (X509Certificate[]) request.getAttribute("javax.servlet.request.X509Certificate");
-		if (certs == null || certs.length <= 0) {
-			LOGGER_MISC.debug("No client certificate found for request.");
-			return null;
-		}
-		return certs[certs.length - 1];
-	}
-
 	/**
 	 * @param request  the {@link ServletRequest} to record the standard {@link MDC}
 	 *                 entries for
@@ -0,0 +1,592 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * <p>
+ * Adds strong <code>ETag</code>s and conditional <code>GET</code> support to
+ * the responses that it's mapped to, and caches their encoded bytes.
+ * </p>
+ * <p>
+ * Our FHIR resources don't carry versions, so HAPI's own ETag support never
+ * kicks in, and partner applications that poll for new claims were
+ * re-downloading multi-megabyte EOB bundles every time. Instead, this filter
+ * derives each response's <code>ETag</code> from a hash of its content (see
+ * {@link #computeEtag(String, String, byte[])}). HAPI gives every
+ * <code>Bundle</code> it builds a random <code>id</code> and a fresh
+ * <code>meta.lastUpdated</code>, so those are left out of the hash: otherwise,
+ * no two searches would ever produce the same <code>ETag</code>. Apart from
+ * those, an <code>ETag</code> only matches a response with exactly the same
+ * content and encoding, no matter which node it came from.
+ * </p>
+ * <p>
+ * Responses are also kept in a (size-bounded) cache, keyed by the request's
+ * URL (including the server base that the <code>Bundle</code> links are built
+ * from) and the headers that affect its encoding. Cached responses are dropped
+ * once they're older than the time-to-live, or whenever the supplied data
+ * generation changes (see
+ * {@link gov.hhs.cms.bluebutton.server.app.stu3.providers.EobCache#getGeneration()},
+ * which is bumped by the reload hooks), just like the EOBs themselves. While a
+ * response is cached, it's replayed (or, if it matches the request's
+ * <code>If-None-Match</code>, answered with a <code>304 Not Modified</code>)
+ * without running any queries or transforms.
+ * </p>
+ * <p>
+ * Note that the generation is per-node and only changes when a node's reload
+ * hook is called. If a data load doesn't call that hook on every node, those
+ * nodes keep replaying (and confirming) the responses from before the load
+ * until they expire, so they can be up to the time-to-live stale.
+ * </p>
+ */
+public final class ResponseCacheFilter implements Filter {
+	/**
+	 * The request headers that (along with its URL) determine which response is
+	 * sent, as included in {@link #computeCacheKey(HttpServletRequest)}.
+	 */
+	private static final String VARY = "Accept, Accept-Encoding";
+
+	/**
+	 * The proxy headers that {@link ca.uhn.fhir.rest.server.ApacheProxyAddressStrategy}
+	 * builds the server base (and so the <code>Bundle</code> links) from, as
+	 * included in {@link #computeCacheKey(HttpServletRequest)}.
+	 */
+	private static final String[] FORWARDED_HEADERS = { "X-Forwarded-Host", "X-Forwarded-Proto",
+			"X-Forwarded-Prefix" };
+
+	/**
+	 * The maximum number of (decoded) bytes at the start of a response that
+	 * {@link #computeEtag(String, String, byte[])} will search for the
+	 * <code>Bundle</code> fields to leave out. Those all come before the
+	 * entries, so this only needs to cover the <code>Bundle</code>'s links.
+	 */
+	private static final int BUNDLE_HEAD_MAX_BYTES = 8192;
+
+	/**
+	 * Matches the start of a FHIR <code>Bundle</code>, in either JSON or XML.
+	 */
+	private static final Pattern BUNDLE_START = Pattern
+			.compile("\\A\\s*(?:\\{\\s*\"resourceType\"\\s*:\\s*\"Bundle\"|(?:<\\?xml[^>]*>\\s*)?<Bundle[\\s>])");
+
+	/**
+	 * Matches the start of a <code>Bundle</code>'s first entry, in either JSON
+	 * or XML.
+	 */
+	private static final Pattern BUNDLE_ENTRY = Pattern.compile("\"entry\"\\s*:|<entry[\\s>]");
+
+	/**
+	 * Matches the <code>Bundle</code> fields that HAPI fills in afresh for every
+	 * response: its <code>id</code> and <code>meta.lastUpdated</code>, in
+	 * either JSON or XML.
+	 */
+	private static final Pattern BUNDLE_VOLATILE_FIELDS = Pattern.compile(
+			"\"(?:id|lastUpdated)\"\\s*:\\s*\"[^\"]*\"|<(?:id|lastUpdated)\\s+value=\"[^\"]*\"\\s*/>");
+
+	private final LongSupplier dataGeneration;
+	private final long maxBytes;
+	private final long timeToLiveMilliseconds;
+	private final Meter notModified;
+	private final Meter hits;
+	private final Meter misses;
+
+	/*
+	 * Guarded by this. In access-order, so that the eldest entry is always the
+	 * least recently used.
+	 */
+	private final LinkedHashMap<String, CachedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes = 0L;
+
+	/**
+	 * Constructs a new {@link ResponseCacheFilter}.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the filter's metrics in
+	 * @param dataGeneration
+	 *            supplies a value that changes whenever the data being served
+	 *            might have changed, which invalidates all cached responses
+	 * @param maxBytes
+	 *            the maximum total size of the response bodies to cache, or
+	 *            <code>0</code> to only support conditional requests
+	 * @param timeToLiveSeconds
+	 *            the maximum number of seconds that a response remains cached
+	 *            for
+	 */
+	public ResponseCacheFilter(MetricRegistry metricRegistry, LongSupplier dataGeneration, long maxBytes,
+			long timeToLiveSeconds) {
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("Invalid max bytes: " + maxBytes);
+		if (timeToLiveSeconds < 1)
+			throw new IllegalArgumentException("Invalid time-to-live: " + timeToLiveSeconds);
+
+		this.dataGeneration = dataGeneration;
+		this.maxBytes = maxBytes;
+		this.timeToLiveMilliseconds = TimeUnit.SECONDS.toMillis(timeToLiveSeconds);
+
+		String metricPrefix = ResponseCacheFilter.class.getSimpleName();
+		this.notModified = metricRegistry.meter(MetricRegistry.name(metricPrefix, "not_modified"));
+		this.hits = metricRegistry.meter(MetricRegistry.name(metricPrefix, "hits"));
+		this.misses = metricRegistry.meter(MetricRegistry.name(metricPrefix, "misses"));
+		metricRegistry.register(MetricRegistry.name(metricPrefix, "bytes"), (Gauge<Long>) this::getCachedBytes);
+	}
+
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest) || !"GET".equals(((HttpServletRequest) request).getMethod())) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+		String cacheKey = computeCacheKey(httpRequest);
+		String ifNoneMatch = httpRequest.getHeader("If-None-Match");
+		CachedResponse cachedResponse = getCachedResponse(cacheKey);
+		if (cachedResponse != null) {
+			hits.mark();
+			if (matchesIfNoneMatch(ifNoneMatch, cachedResponse.etag))
+				writeNotModified(httpResponse, cachedResponse.etag);
+			else
+				cachedResponse.writeTo(httpResponse);
+			return;
+		}
+		misses.mark();
+
+		long generation = dataGeneration.getAsLong();
+		CapturingResponseWrapper capturingResponse = new CapturingResponseWrapper(httpResponse);
+		chain.doFilter(request, capturingResponse);
+		byte[] body = capturingResponse.getCapturedBytes();
+
+		if (capturingResponse.getStatus() == HttpServletResponse.SC_OK) {
+			String contentType = httpResponse.getContentType();
+			String contentEncoding = httpResponse.getHeader("Content-Encoding");
+			String etag = computeEtag(contentType, contentEncoding, body);
+			putCachedResponse(cacheKey, new CachedResponse(etag, contentType, contentEncoding, body, generation,
+					System.currentTimeMillis() + timeToLiveMilliseconds));
+
+			if (matchesIfNoneMatch(ifNoneMatch, etag)) {
+				writeNotModified(httpResponse, etag);
+				return;
+			}
+			httpResponse.setHeader("ETag", etag);
+			httpResponse.setHeader("Vary", VARY);
+		}
+		if (body.length > 0) {
+			httpResponse.setContentLength(body.length);
+			httpResponse.getOutputStream().write(body);
+		}
+	}
+
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		invalidateAll();
+	}
+
+	/**
+	 * Removes all of the cached responses.
+	 */
+	public synchronized void invalidateAll() {
+		responses.clear();
+		bytes = 0L;
+	}
+
+	/**
+	 * @return the total size of the response bodies that are currently cached
+	 */
+	public synchronized long getCachedBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @param request
+	 *            the {@link HttpServletRequest} to compute the key for
+	 * @return a key that identifies the specified request, along with everything
+	 *         about it that might affect its response's links or encoding
+	 */
+	static String computeCacheKey(HttpServletRequest request) {
+		/*
+		 * The full URL (rather than just the path) and the proxy headers are
+		 * included because the Bundle links are built from them, just as
+		 * PagingArguments.computeKey() includes the server base.
+		 */
+		StringBuilder cacheKey = new StringBuilder();
+		cacheKey.append(request.getRequestURL());
+		if (request.getQueryString() != null)
+			cacheKey.append('?').append(request.getQueryString());
+		for (String forwardedHeader : FORWARDED_HEADERS)
+			cacheKey.append('|').append(request.getHeader(forwardedHeader));
+		cacheKey.append('|').append(request.getHeader("Accept"));
+		cacheKey.append('|').append(request.getHeader("Accept-Encoding"));
+		return cacheKey.toString();
+	}
+
+	/**
+	 * @param contentType
+	 *            the response's <code>Content-Type</code>, if any
+	 * @param contentEncoding
+	 *            the response's <code>Content-Encoding</code>, if any
+	 * @param body
+	 *            the response's (encoded) body
+	 * @return the strong <code>ETag</code> (including its quotes) for the
+	 *         specified response, which is a hash of its representation, less
+	 *         the <code>id</code> and <code>meta.lastUpdated</code> of a
+	 *         <code>Bundle</code>
+	 */
+	static String computeEtag(String contentType, String contentEncoding, byte[] body) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 is required to be available in every JVM.
+			throw new IllegalStateException(e);
+		}
+		digest.update(String.valueOf(contentType).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) '|');
+		digest.update(String.valueOf(contentEncoding).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) '|');
+
+		/*
+		 * The compressed bytes of everything after the Bundle's id would differ
+		 * too, so the fields have to be left out of the decoded content. ISO
+		 * 8859-1 maps each byte to one char, so the head's char offsets are
+		 * also byte offsets.
+		 */
+		byte[] content = decodeContent(contentEncoding, body);
+		int headLength = Math.min(content.length, BUNDLE_HEAD_MAX_BYTES);
+		String head = new String(content, 0, headLength, StandardCharsets.ISO_8859_1);
+		if (BUNDLE_START.matcher(head).lookingAt()) {
+			Matcher entry = BUNDLE_ENTRY.matcher(head);
+			if (entry.find())
+				headLength = entry.start();
+			String normalizedHead = BUNDLE_VOLATILE_FIELDS.matcher(head.substring(0, headLength)).replaceAll("");
+			digest.update(normalizedHead.getBytes(StandardCharsets.ISO_8859_1));
+		} else {
+			headLength = 0;
+		}
+		digest.update(content, headLength, content.length - headLength);
+		return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + '"';
+	}
+
+	/**
+	 * @param contentEncoding
+	 *            the response's <code>Content-Encoding</code>, if any
+	 * @param body
+	 *            the response's (encoded) body
+	 * @return the decoded response body, or the specified one as-is if it isn't
+	 *         encoded (or can't be decoded)
+	 */
+	private static byte[] decodeContent(String contentEncoding, byte[] body) {
+		boolean gzip = CompressionFilter.ENCODING_GZIP.equalsIgnoreCase(contentEncoding);
+		if (body.length == 0 || !(gzip || CompressionFilter.ENCODING_DEFLATE.equalsIgnoreCase(contentEncoding)))
+			return body;
+
+		InputStream encodedStream = new ByteArrayInputStream(body);
+		try (InputStream decodingStream = gzip ? new GZIPInputStream(encodedStream)
+				: new InflaterInputStream(encodedStream)) {
+			ByteArrayOutputStream content = new ByteArrayOutputStream(body.length * 4);
+			byte[] buffer = new byte[8192];
+			for (int read = decodingStream.read(buffer); read >= 0; read = decodingStream.read(buffer))
+				content.write(buffer, 0, read);
+			return content.toByteArray();
+		} catch (IOException e) {
+			// It's still a perfectly good (if less stable) thing to hash.
+			return body;
+		}
+	}
+
+	/**
+	 * @param ifNoneMatch
+	 *            the request's <code>If-None-Match</code> header value, if any
+	 * @param etag
+	 *            the <code>ETag</code> of the resource's current
+	 *            representation, or <code>null</code> if there isn't one (e.g.
+	 *            because it doesn't exist)
+	 * @return <code>true</code> if the specified <code>If-None-Match</code>
+	 *         value matches the specified <code>ETag</code>, <code>false</code>
+	 *         if not
+	 */
+	static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+		// Per RFC 7232, not even "*" matches a resource that doesn't exist.
+		if (ifNoneMatch == null || etag == null)
+			return false;
+
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			// If-None-Match uses the weak comparison, per RFC 7232.
+			if (candidate.startsWith("W/"))
+				candidate = candidate.substring(2);
+			if (candidate.equals("*") || candidate.equals(etag))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param response
+	 *            the {@link HttpServletResponse} to send a
+	 *            <code>304 Not Modified</code> to
+	 * @param etag
+	 *            the <code>ETag</code> of the resource's current representation
+	 */
+	private void writeNotModified(HttpServletResponse response, String etag) {
+		notModified.mark();
+		response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		response.setHeader("ETag", etag);
+		response.setHeader("Vary", VARY);
+	}
+
+	/**
+	 * @param cacheKey
+	 *            the {@link #computeCacheKey(HttpServletRequest)} value for the
+	 *            request
+	 * @return the matching {@link CachedResponse}, or <code>null</code> if there
+	 *         isn't a current one
+	 */
+	private synchronized CachedResponse getCachedResponse(String cacheKey) {
+		CachedResponse cachedResponse = responses.get(cacheKey);
+		if (cachedResponse == null)
+			return null;
+		if (cachedResponse.generation != dataGeneration.getAsLong()
+				|| cachedResponse.expiresAtMillis <= System.currentTimeMillis()) {
+			// It's stale, so it will never be current again.
+			responses.remove(cacheKey);
+			bytes -= cachedResponse.body.length;
+			return null;
+		}
+		return cachedResponse;
+	}
+
+	/**
+	 * @param cacheKey
+	 *            the {@link #computeCacheKey(HttpServletRequest)} value for the
+	 *            request
+	 * @param cachedResponse
+	 *            the {@link CachedResponse} to cache
+	 */
+	private synchronized void putCachedResponse(String cacheKey, CachedResponse cachedResponse) {
+		if (cachedResponse.body.length > maxBytes)
+			return;
+
+		CachedResponse replacedResponse = responses.put(cacheKey, cachedResponse);
+		if (replacedResponse != null)
+			bytes -= replacedResponse.body.length;
+		bytes += cachedResponse.body.length;
+
+		Iterator<CachedResponse> eldest = responses.values().iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			bytes -= eldest.next().body.length;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * An encoded response, as it was originally sent.
+	 */
+	private static final class CachedResponse {
+		private final String etag;
+		private final String contentType;
+		private final String contentEncoding;
+		private final byte[] body;
+		private final long generation;
+		private final long expiresAtMillis;
+
+		/**
+		 * Constructs a new {@link CachedResponse}.
+		 *
+		 * @param etag
+		 *            the <code>ETag</code> that the response was sent with
+		 * @param contentType
+		 *            the <code>Content-Type</code> that the response was sent with
+		 * @param contentEncoding
+		 *            the <code>Content-Encoding</code> that the response was sent
+		 *            with, if any
+		 * @param body
+		 *            the response body
+		 * @param generation
+		 *            the data generation that the response was produced in
+		 * @param expiresAtMillis
+		 *            the time (in epoch milliseconds) after which the response
+		 *            must no longer be replayed
+		 */
+		CachedResponse(String etag, String contentType, String contentEncoding, byte[] body, long generation,
+				long expiresAtMillis) {
+			this.etag = etag;
+			this.contentType = contentType;
+			this.contentEncoding = contentEncoding;
+			this.body = body;
+			this.generation = generation;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+
+		/**
+		 * @param response
+		 *            the {@link HttpServletResponse} to replay this
+		 *            {@link CachedResponse} to
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		void writeTo(HttpServletResponse response) throws IOException {
+			response.setStatus(HttpServletResponse.SC_OK);
+			response.setHeader("ETag", etag);
+			response.setHeader("Vary", VARY);
+			if (contentType != null)
+				response.setContentType(contentType);
+			if (contentEncoding != null)
+				response.setHeader("Content-Encoding", contentEncoding);
+			response.setContentLength(body.length);
+			response.getOutputStream().write(body);
+		}
+	}
+
+	/**
+	 * Buffers the whole response body in memory, rather than sending it, so
+	 * that it can be cached (and so that headers can still be added once the
+	 * rest of the chain is done).
+	 */
+	private static final class CapturingResponseWrapper extends HttpServletResponseWrapper {
+		private final ByteArrayOutputStream capturedBytes = new ByteArrayOutputStream();
+		private ServletOutputStream outputStream;
+		private PrintWriter writer;
+
+		/**
+		 * Constructs a new {@link CapturingResponseWrapper}.
+		 *
+		 * @param response
+		 *            the {@link HttpServletResponse} to wrap
+		 */
+		CapturingResponseWrapper(HttpServletResponse response) {
+			super(response);
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+		 */
+		@Override
+		public ServletOutputStream getOutputStream() {
+			if (writer != null)
+				throw new IllegalStateException("getWriter() has already been called.");
+			if (outputStream == null)
+				outputStream = new ServletOutputStream() {
+					@Override
+					public void write(int b) {
+						capturedBytes.write(b);
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) {
+						capturedBytes.write(b, off, len);
+					}
+
+					@Override
+					public boolean isReady() {
+						return true;
+					}
+
+					@Override
+					public void setWriteListener(WriteListener writeListener) {
+						throw new UnsupportedOperationException();
+					}
+				};
+			return outputStream;
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#getWriter()
+		 */
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (outputStream != null)
+				throw new IllegalStateException("getOutputStream() has already been called.");
+			if (writer == null)
+				writer = new PrintWriter(new OutputStreamWriter(capturedBytes, getCharacterEncoding()));
+			return writer;
+		}
+
+		/**
+		 * The whole response is sent at once, afterwards.
+		 *
+		 * @see javax.servlet.ServletResponseWrapper#flushBuffer()
+		 */
+		@Override
+		public void flushBuffer() {
+			if (writer != null)
+				writer.flush();
+		}
+
+		/**
+		 * The actual length is set once the whole response has been captured.
+		 *
+		 * @see javax.servlet.ServletResponseWrapper#setContentLength(int)
+		 */
+		@Override
+		public void setContentLength(int len) {
+			// Ignored.
+		}
+
+		/**
+		 * The actual length is set once the whole response has been captured.
+		 *
+		 * @see javax.servlet.ServletResponseWrapper#setContentLengthLong(long)
+		 */
+		@Override
+		public void setContentLengthLong(long len) {
+			// Ignored.
+		}
+
+		/**
+		 * @return the response body bytes that were written
+		 */
+		byte[] getCapturedBytes() {
+			if (writer != null)
+				writer.flush();
+			return capturedBytes.toByteArray();
+		}
+	}
+}
@@ -7,7 +7,10 @@ import java.net.ServerSocket;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
@@ -22,11 +25,15 @@ import org.hibernate.jpa.HibernatePersistenceProvider;
 import org.hibernate.tool.schema.Action;
 import org.hsqldb.persist.HsqlProperties;
 import org.hsqldb.server.ServerAcl.AclFormatException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.support.PersistenceAnnotationBeanPostProcessor;
@@ -34,6 +41,7 @@ import org.springframework.orm.jpa.support.PersistenceAnnotationBeanPostProcesso
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.health.HealthCheckRegistry;
+import com.codahale.metrics.health.jvm.ThreadDeadlockHealthCheck;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
@@ -42,10 +50,46 @@ import com.zaxxer.hikari.HikariDataSource;
 import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
 import ca.uhn.fhir.rest.server.interceptor.ResponseHighlighterInterceptor;
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+import gov.hhs.cms.bluebutton.data.model.rif.BeneficiaryHistory;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.DMEClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.DMEClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.HHAClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.HHAClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.HospiceClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.HospiceClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.InpatientClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.InpatientClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.MedicareBeneficiaryIdHistory;
+import gov.hhs.cms.bluebutton.data.model.rif.OutpatientClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.OutpatientClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.PartDEvent;
+import gov.hhs.cms.bluebutton.data.model.rif.SNFClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.SNFClaimLine;
 import gov.hhs.cms.bluebutton.data.model.rif.schema.DatabaseSchemaManager;
+import gov.hhs.cms.bluebutton.server.app.health.CacheHealthCheck;
+import gov.hhs.cms.bluebutton.server.app.health.ConnectionPoolHealthCheck;
+import gov.hhs.cms.bluebutton.server.app.health.DatabaseHealthCheck;
+import gov.hhs.cms.bluebutton.server.app.health.ReferenceDataHealthCheck;
+import gov.hhs.cms.bluebutton.server.app.health.SamhsaCodesHealthCheck;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.BulkExportJobManager;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimTransformExecutor;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.CoverageResourceProvider;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobCache;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobCacheServlet;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.ExplanationOfBenefitResourceProvider;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.PatientResourceProvider;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.SamhsaMatcher;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.SearchCoalescer;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.StartupWarmup;
+import gov.hhs.cms.bluebutton.server.app.tracing.InMemorySpanExporter;
+import gov.hhs.cms.bluebutton.server.app.tracing.LoggingSpanExporter;
+import gov.hhs.cms.bluebutton.server.app.tracing.Span;
+import gov.hhs.cms.bluebutton.server.app.tracing.SpanExporter;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
+import gov.hhs.cms.bluebutton.server.app.tracing.TracingInterceptor;
 import net.ttddyy.dsproxy.support.ProxyDataSource;
 import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
 
@@ -60,8 +104,47 @@ public class SpringConfiguration {
 	public static final String PROP_DB_USERNAME = "bbfhir.db.username";
 	public static final String PROP_DB_PASSWORD = "bbfhir.db.password";
 	public static final String PROP_DB_CONNECTIONS_MAX = "bbfhir.db.connections.max";
+	public static final String PROP_DB_POOL_TUNING_ENABLED = "bbfhir.db.pool.tuning.enabled";
+	public static final String PROP_DB_POOL_TUNING_MIN = "bbfhir.db.pool.tuning.min";
+	public static final String PROP_DB_POOL_TUNING_MAX_FACTOR = "bbfhir.db.pool.tuning.max.factor";
+	public static final String PROP_DB_POOL_TUNING_WAIT_TARGET_MILLIS = "bbfhir.db.pool.tuning.wait.target.millis";
+	public static final String PROP_DB_POOL_TUNING_QUERY_LIMIT_MILLIS = "bbfhir.db.pool.tuning.query.limit.millis";
+	public static final String PROP_TRACING_SAMPLE_RATE = "bbfhir.tracing.sample.rate";
+	public static final String PROP_TRACING_EXPORTER = "bbfhir.tracing.exporter";
+	public static final String PROP_TRANSFORM_PARALLELISM = "bbfhir.transform.parallelism";
+	public static final String PROP_TRANSFORM_PARALLEL_THRESHOLD = "bbfhir.transform.parallel.threshold";
+	public static final String PROP_CACHE_EOB_WEIGHT_MAX = "bbfhir.cache.eob.weight.max";
+	public static final String PROP_CACHE_EOB_TTL_SECONDS = "bbfhir.cache.eob.ttl.seconds";
+	public static final String PROP_CACHE_EOB_ADMIN_DNS = "bbfhir.cache.eob.admin.dns";
+	public static final String PROP_CACHE_RESPONSE_BYTES_MAX = "bbfhir.cache.response.bytes.max";
+	public static final String PROP_RESPONSE_ENCODING = "bbfhir.response.encoding";
+	public static final String PROP_RESPONSE_PRETTY = "bbfhir.response.pretty";
+	public static final String PROP_COMPRESSION_THRESHOLD_BYTES = "bbfhir.compression.threshold.bytes";
+	public static final String PROP_COMPRESSION_LEVEL = "bbfhir.compression.level";
+	public static final String PROP_REQUESTS_THREADS = "bbfhir.requests.threads";
+	public static final String PROP_REQUESTS_QUEUE = "bbfhir.requests.queue";
+	public static final String PROP_BULKHEAD_PATIENT_CONNECTIONS_MAX = "bbfhir.bulkhead.patient.connections.max";
+	public static final String PROP_BULKHEAD_PATIENT_THREADS = "bbfhir.bulkhead.patient.threads";
+	public static final String PROP_BULKHEAD_EOB_CONNECTIONS_MAX = "bbfhir.bulkhead.eob.connections.max";
+	public static final String PROP_BULKHEAD_EOB_THREADS = "bbfhir.bulkhead.eob.threads";
+	public static final String PROP_ADMISSION_CONCURRENCY_MAX = "bbfhir.admission.concurrency.max";
+	public static final String PROP_ADMISSION_RATE = "bbfhir.admission.rate";
+	public static final String PROP_ADMISSION_LATENCY_TARGET_MILLIS = "bbfhir.admission.latency.target.millis";
+	public static final String PROP_ADMISSION_PARTNERS = "bbfhir.admission.partners";
+	public static final String PROP_EXPORT_DIR = "bbfhir.export.dir";
+	public static final String PROP_EXPORT_THREADS = "bbfhir.export.threads";
+	public static final String PROP_EXPORT_JOBS_MAX = "bbfhir.export.jobs.max";
+	public static final String PROP_EXPORT_CHUNK_SIZE = "bbfhir.export.chunk.size";
+	public static final String PROP_EXPORT_RETENTION_SECONDS = "bbfhir.export.retention.seconds";
+	public static final String PROP_WARMUP_ENABLED = "bbfhir.warmup.enabled";
+	public static final String PROP_WARMUP_SAMPLES = "bbfhir.warmup.samples";
+	public static final String PROP_WARMUP_ITERATIONS_MAX = "bbfhir.warmup.iterations.max";
+	public static final String PROP_HEALTH_DB_LATENCY_LIMIT_MILLIS = "bbfhir.health.db.latency.limit.millis";
+	public static final String PROP_HEALTH_POOL_WAITING_MILLIS = "bbfhir.health.pool.waiting.millis";
 	public static final int TRANSACTION_TIMEOUT = 30;
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(SpringConfiguration.class);
+
 	/**
 	 * This fake JDBC URL prefix indicates to {@link SpringConfiguration} and
 	 * <code>ServerTestUtils</code> that a database should be created for the
@@ -75,6 +158,46 @@ public class SpringConfiguration {
 	 */
 	static final String BLUEBUTTON_STU3_RESOURCE_PROVIDERS = "bluebuttonStu3ResourceProviders";
 
+	/**
+	 * The {@link Bean#name()} for the {@link RequestExecutor} that runs all FHIR
+	 * requests that don't have a bulkhead of their own.
+	 */
+	static final String REQUEST_EXECUTOR_DEFAULT = "requestExecutor";
+
+	/**
+	 * The {@link Bean#name()} for the {@link RequestExecutor} that runs
+	 * <code>Patient</code> requests.
+	 */
+	static final String REQUEST_EXECUTOR_PATIENT = "patientRequestExecutor";
+
+	/**
+	 * The {@link Bean#name()} for the {@link RequestExecutor} that runs
+	 * <code>ExplanationOfBenefit</code> requests.
+	 */
+	static final String REQUEST_EXECUTOR_EOB = "eobRequestExecutor";
+
+	/**
+	 * The Hikari pool name of the application's main {@link DataSource}.
+	 */
+	private static final String POOL_NAME_MAIN = "BFD-Main";
+
+	/**
+	 * The JPA entities that the application uses, which must include every
+	 * entity that they're associated with. These are listed out here, rather
+	 * than scanned for, as scanning for them slows down startup.
+	 */
+	static final List<Class<?>> ENTITY_CLASSES = Collections.unmodifiableList(Arrays.asList(Beneficiary.class,
+			BeneficiaryHistory.class, MedicareBeneficiaryIdHistory.class, CarrierClaim.class, CarrierClaimLine.class,
+			DMEClaim.class, DMEClaimLine.class, HHAClaim.class, HHAClaimLine.class, HospiceClaim.class,
+			HospiceClaimLine.class, InpatientClaim.class, InpatientClaimLine.class, OutpatientClaim.class,
+			OutpatientClaimLine.class, PartDEvent.class, SNFClaim.class, SNFClaimLine.class));
+
+	/**
+	 * The JPA persistence unit name used by everything that doesn't have a
+	 * bulkhead of its own.
+	 */
+	private static final String PERSISTENCE_UNIT_DEFAULT = "default";
+
 	/**
 	 * Set this to <code>true</code> to have Hibernate log a ton of info on the
 	 * SQL statements being run and each session's performance. Be sure to also
@@ -83,6 +206,158 @@ public class SpringConfiguration {
 	 */
 	private static final boolean HIBERNATE_DETAILED_LOGGING = false;
 
+	/**
+	 * The default value for {@link #PROP_TRACING_SAMPLE_RATE}: only a small
+	 * fraction of requests are traced unless the caller asks for it (via a
+	 * sampled <code>traceparent</code> header), which keeps the overhead
+	 * negligible in production.
+	 */
+	private static final double TRACING_SAMPLE_RATE_DEFAULT = 0.01;
+
+	/**
+	 * The default value for {@link #PROP_DB_POOL_TUNING_MIN}.
+	 */
+	private static final int DB_POOL_TUNING_MIN_DEFAULT = 2;
+
+	/**
+	 * The default value for {@link #PROP_DB_POOL_TUNING_MAX_FACTOR}: pools may
+	 * grow to twice their configured size.
+	 */
+	private static final double DB_POOL_TUNING_MAX_FACTOR_DEFAULT = 2.0;
+
+	/**
+	 * The default value for {@link #PROP_DB_POOL_TUNING_WAIT_TARGET_MILLIS}:
+	 * waiting any longer than this for a connection, on average, means the pool
+	 * is starved.
+	 */
+	private static final double DB_POOL_TUNING_WAIT_TARGET_MILLIS_DEFAULT = 5.0;
+
+	/**
+	 * The default value for {@link #PROP_DB_POOL_TUNING_QUERY_LIMIT_MILLIS}:
+	 * queries averaging any longer than this mean the database is struggling.
+	 */
+	private static final long DB_POOL_TUNING_QUERY_LIMIT_MILLIS_DEFAULT = 500L;
+
+	/**
+	 * How often (in seconds) the connection pools are sampled and resized.
+	 */
+	private static final long DB_POOL_TUNING_INTERVAL_SECONDS = 10L;
+
+	/**
+	 * The default value for {@link #PROP_TRANSFORM_PARALLEL_THRESHOLD}: below
+	 * this many claims (of a single type), handing the transforms off to other
+	 * threads costs more than it saves.
+	 */
+	private static final int TRANSFORM_PARALLEL_THRESHOLD_DEFAULT = 50;
+
+	/**
+	 * The default value for {@link #PROP_CACHE_EOB_WEIGHT_MAX}: each EOB weighs
+	 * one, plus one per claim line, so this caps the cache at about that many
+	 * EOB headers and claim lines' worth of heap.
+	 */
+	private static final long CACHE_EOB_WEIGHT_MAX_DEFAULT = 50000L;
+
+	/**
+	 * The default value for {@link #PROP_CACHE_EOB_TTL_SECONDS}: an hour, which
+	 * bounds how stale a cached EOB can get if nobody invalidates it after a
+	 * reload.
+	 */
+	private static final long CACHE_EOB_TTL_SECONDS_DEFAULT = 3600L;
+
+	/**
+	 * The default value for {@link #PROP_CACHE_RESPONSE_BYTES_MAX}: 64 MiB of
+	 * encoded response bodies.
+	 */
+	private static final long CACHE_RESPONSE_BYTES_MAX_DEFAULT = 64L * 1024L * 1024L;
+
+	/**
+	 * The default value for {@link #PROP_COMPRESSION_THRESHOLD_BYTES}: smaller
+	 * responses than this mostly fit in a single packet anyways, so compressing
+	 * them just wastes CPU.
+	 */
+	private static final int COMPRESSION_THRESHOLD_BYTES_DEFAULT = 1024;
+
+	/**
+	 * The default value for {@link #PROP_COMPRESSION_LEVEL}: the usual zlib
+	 * default, which gets most of the size reduction of the higher levels for a
+	 * fraction of their CPU cost on our (very repetitive) FHIR payloads.
+	 */
+	private static final int COMPRESSION_LEVEL_DEFAULT = 6;
+
+	/**
+	 * The default value for {@link #PROP_REQUESTS_QUEUE}: enough to absorb a
+	 * burst, without letting requests wait so long that the clients give up.
+	 */
+	private static final int REQUESTS_QUEUE_DEFAULT = 200;
+
+	/**
+	 * The default value for {@link #PROP_ADMISSION_CONCURRENCY_MAX}: a tenth of
+	 * the default request queue, so that it takes several misbehaving clients at
+	 * once to fill it.
+	 */
+	private static final int ADMISSION_CONCURRENCY_MAX_DEFAULT = 20;
+
+	/**
+	 * The default value for {@link #PROP_ADMISSION_RATE}, in requests per
+	 * second.
+	 */
+	private static final double ADMISSION_RATE_DEFAULT = 50.0;
+
+	/**
+	 * The default value for {@link #PROP_ADMISSION_LATENCY_TARGET_MILLIS}: well
+	 * above the latency of even large EOB searches on an idle server.
+	 */
+	private static final long ADMISSION_LATENCY_TARGET_MILLIS_DEFAULT = 2000L;
+
+	/**
+	 * The default value for {@link #PROP_EXPORT_THREADS}: exports are a
+	 * background task, so they only get a couple of threads by default.
+	 */
+	private static final int EXPORT_THREADS_DEFAULT = 2;
+
+	/**
+	 * The default value for {@link #PROP_EXPORT_JOBS_MAX}.
+	 */
+	private static final int EXPORT_JOBS_MAX_DEFAULT = 4;
+
+	/**
+	 * The default value for {@link #PROP_EXPORT_CHUNK_SIZE}: small enough that
+	 * an interrupted job doesn't lose much work, and large enough to keep the
+	 * number of output files manageable.
+	 */
+	private static final int EXPORT_CHUNK_SIZE_DEFAULT = 100;
+
+	/**
+	 * The default value for {@link #PROP_EXPORT_RETENTION_SECONDS}: a day, which
+	 * gives clients plenty of time to download a finished job's files, without
+	 * letting them pile up on disk.
+	 */
+	private static final long EXPORT_RETENTION_SECONDS_DEFAULT = 24L * 60L * 60L;
+
+	/**
+	 * The default value for {@link #PROP_WARMUP_SAMPLES}.
+	 */
+	private static final int WARMUP_SAMPLES_DEFAULT = 5;
+
+	/**
+	 * The default value for {@link #PROP_WARMUP_ITERATIONS_MAX}: plenty for the
+	 * JIT to compile the transformers' hot paths, even if the sample transforms'
+	 * latency never quite levels off.
+	 */
+	private static final int WARMUP_ITERATIONS_MAX_DEFAULT = 500;
+
+	/**
+	 * The default value for {@link #PROP_HEALTH_DB_LATENCY_LIMIT_MILLIS}.
+	 */
+	private static final long HEALTH_DB_LATENCY_LIMIT_MILLIS_DEFAULT = 1000L;
+
+	/**
+	 * The default value for {@link #PROP_HEALTH_POOL_WAITING_MILLIS}: a pool
+	 * that's had threads waiting on it for this long isn't just riding out a
+	 * burst.
+	 */
+	private static final long HEALTH_POOL_WAITING_MILLIS_DEFAULT = 30000L;
+
 	/**
 	 * @param url
 	 *            the JDBC URL of the database for the application
@@ -90,36 +365,213 @@ public class SpringConfiguration {
 	 *            the database username to use
 	 * @param password
 	 *            the database password to use
-	 * @param connectionsMaxText
-	 *            the maximum number of database connections to use
+	 * @param connectionBudget
+	 *            the {@link ConnectionBudget} for the application
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} for the application
+	 * @param poolTuning
+	 *            the {@link ConnectionPoolMonitor.Tuning} for the application
 	 * @return the {@link DataSource} that provides the application's database
 	 *         connection
 	 */
 	@Bean(destroyMethod = "close")
+	@Primary
 	public DataSource dataSource(@Value("${" + PROP_DB_URL + "}") String url,
 			@Value("${" + PROP_DB_USERNAME + "}") String username,
-			@Value("${" + PROP_DB_PASSWORD + "}") String password,
-			@Value("${" + PROP_DB_CONNECTIONS_MAX + ":-1}") String connectionsMaxText, MetricRegistry metricRegistry) {
+			@Value("${" + PROP_DB_PASSWORD + "}") String password, ConnectionBudget connectionBudget,
+			MetricRegistry metricRegistry, ConnectionPoolMonitor.Tuning poolTuning) {
 		HikariDataSource poolingDataSource;
 		if (url.startsWith(JDBC_URL_PREFIX_BLUEBUTTON_TEST)) {
-			poolingDataSource = createTestDatabaseIfNeeded(url, connectionsMaxText, metricRegistry);
+			poolingDataSource = createTestDatabaseIfNeeded(url, connectionBudget.getMainConnections(),
+					metricRegistry);
 		} else {
 			poolingDataSource = new HikariDataSource();
+			poolingDataSource.setPoolName(POOL_NAME_MAIN);
 			poolingDataSource.setJdbcUrl(url);
 			poolingDataSource.setUsername(username);
 			poolingDataSource.setPassword(password);
-			configureDataSource(poolingDataSource, connectionsMaxText, metricRegistry);
+			configureDataSource(poolingDataSource, connectionBudget.getMainConnections(), metricRegistry);
 		}
 
-		// Wrap the pooled DataSource in a proxy that records performance data.
-		ProxyDataSource proxyDataSource = ProxyDataSourceBuilder.create(poolingDataSource).name("BFD-Data")
-				.listener(new QueryLoggingListener()).proxyResultSet().build();
+		return createProxyDataSource(poolingDataSource, "BFD-Data", metricRegistry, poolTuning);
+	}
 
+	/**
+	 * @param connectionsMaxText
+	 *            the total number of database connections to use, across all
+	 *            of the application's connection pools
+	 * @param patientConnectionsMaxText
+	 *            the number of those connections to use for
+	 *            <code>Patient</code> lookups, if configured
+	 * @param eobConnectionsMaxText
+	 *            the number of those connections to use for
+	 *            <code>ExplanationOfBenefit</code> searches, if configured
+	 * @return the {@link ConnectionBudget} for the application
+	 */
+	@Bean
+	public ConnectionBudget connectionBudget(
+			@Value("${" + PROP_DB_CONNECTIONS_MAX + ":-1}") String connectionsMaxText,
+			@Value("${" + PROP_BULKHEAD_PATIENT_CONNECTIONS_MAX + ":-1}") String patientConnectionsMaxText,
+			@Value("${" + PROP_BULKHEAD_EOB_CONNECTIONS_MAX + ":-1}") String eobConnectionsMaxText) {
+		int connectionsMax = parseIntProperty(PROP_DB_CONNECTIONS_MAX, connectionsMaxText, -1);
+		if (connectionsMax < 1)
+			connectionsMax = Runtime.getRuntime().availableProcessors() * 5;
+
+		return new ConnectionBudget(connectionsMax,
+				parseIntProperty(PROP_BULKHEAD_PATIENT_CONNECTIONS_MAX, patientConnectionsMaxText, -1),
+				parseIntProperty(PROP_BULKHEAD_EOB_CONNECTIONS_MAX, eobConnectionsMaxText, -1));
+	}
+
+	/**
+	 * Wraps the specified pooled {@link DataSource} in a proxy that records
+	 * performance data, and a {@link ConnectionPoolMonitor}.
+	 *
+	 * @param poolingDataSource
+	 *            the (fully configured) {@link HikariDataSource} to wrap
+	 * @param proxyName
+	 *            the name to give the proxy {@link DataSource}
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param poolTuning
+	 *            the {@link ConnectionPoolMonitor.Tuning} for the application
+	 * @return the proxy {@link DataSource}, which will also close the pool
+	 *         (and its monitor) when it's closed
+	 */
+	private static DataSource createProxyDataSource(HikariDataSource poolingDataSource, String proxyName,
+			MetricRegistry metricRegistry, ConnectionPoolMonitor.Tuning poolTuning) {
+		ConnectionPoolMonitor poolMonitor = new ConnectionPoolMonitor(metricRegistry, poolingDataSource, poolTuning);
+		ProxyDataSource proxyDataSource = ProxyDataSourceBuilder.create(poolMonitor.wrapDataSource()).name(proxyName)
+				.listener(new QueryLoggingListener()).listener(poolMonitor).proxyResultSet().build();
 		return proxyDataSource;
 	}
 
+	/**
+	 * @param enabledText
+	 *            whether or not the connection pools should be resized
+	 *            automatically
+	 * @param minText
+	 *            the smallest size that the pools may be shrunk to
+	 * @param maxFactorText
+	 *            the largest size that the pools may be grown to, as a
+	 *            multiple of their configured size
+	 * @param waitTargetMillisText
+	 *            the average connection wait (in milliseconds) above which the
+	 *            pools will be grown
+	 * @param queryLimitMillisText
+	 *            the average query latency (in milliseconds) above which the
+	 *            pools will be shrunk
+	 * @return the {@link ConnectionPoolMonitor.Tuning} for the application
+	 */
+	@Bean
+	public ConnectionPoolMonitor.Tuning connectionPoolTuning(
+			@Value("${" + PROP_DB_POOL_TUNING_ENABLED + ":false}") String enabledText,
+			@Value("${" + PROP_DB_POOL_TUNING_MIN + ":" + DB_POOL_TUNING_MIN_DEFAULT + "}") String minText,
+			@Value("${" + PROP_DB_POOL_TUNING_MAX_FACTOR + ":" + DB_POOL_TUNING_MAX_FACTOR_DEFAULT
+					+ "}") String maxFactorText,
+			@Value("${" + PROP_DB_POOL_TUNING_WAIT_TARGET_MILLIS + ":" + DB_POOL_TUNING_WAIT_TARGET_MILLIS_DEFAULT
+					+ "}") String waitTargetMillisText,
+			@Value("${" + PROP_DB_POOL_TUNING_QUERY_LIMIT_MILLIS + ":" + DB_POOL_TUNING_QUERY_LIMIT_MILLIS_DEFAULT
+					+ "}") String queryLimitMillisText) {
+		int min = parseIntProperty(PROP_DB_POOL_TUNING_MIN, minText, DB_POOL_TUNING_MIN_DEFAULT);
+		double maxFactor = parseDoubleProperty(PROP_DB_POOL_TUNING_MAX_FACTOR, maxFactorText,
+				DB_POOL_TUNING_MAX_FACTOR_DEFAULT);
+		double waitTargetMillis = parseDoubleProperty(PROP_DB_POOL_TUNING_WAIT_TARGET_MILLIS, waitTargetMillisText,
+				DB_POOL_TUNING_WAIT_TARGET_MILLIS_DEFAULT);
+		long queryLimitMillis = parseLongProperty(PROP_DB_POOL_TUNING_QUERY_LIMIT_MILLIS, queryLimitMillisText,
+				DB_POOL_TUNING_QUERY_LIMIT_MILLIS_DEFAULT);
+
+		return new ConnectionPoolMonitor.Tuning(Boolean.parseBoolean(enabledText), min, maxFactor, waitTargetMillis,
+				queryLimitMillis, DB_POOL_TUNING_INTERVAL_SECONDS);
+	}
+
+	/**
+	 * @param dataSource
+	 *            the application's main {@link DataSource}, whose connection
+	 *            properties will be reused
+	 * @param connectionBudget
+	 *            the {@link ConnectionBudget} for the application
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param poolTuning
+	 *            the {@link ConnectionPoolMonitor.Tuning} for the application
+	 * @return the {@link DataSource} used for <code>Patient</code> lookups
+	 */
+	@Bean(destroyMethod = "close")
+	public DataSource patientDataSource(DataSource dataSource, ConnectionBudget connectionBudget,
+			MetricRegistry metricRegistry, ConnectionPoolMonitor.Tuning poolTuning) {
+		return createBulkheadDataSource(dataSource, "Patient", connectionBudget.getPatientConnections(),
+				metricRegistry, poolTuning);
+	}
+
+	/**
+	 * @param dataSource
+	 *            the application's main {@link DataSource}, whose connection
+	 *            properties will be reused
+	 * @param connectionBudget
+	 *            the {@link ConnectionBudget} for the application
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param poolTuning
+	 *            the {@link ConnectionPoolMonitor.Tuning} for the application
+	 * @return the {@link DataSource} used for <code>ExplanationOfBenefit</code>
+	 *         searches
+	 */
+	@Bean(destroyMethod = "close")
+	public DataSource eobDataSource(DataSource dataSource, ConnectionBudget connectionBudget,
+			MetricRegistry metricRegistry, ConnectionPoolMonitor.Tuning poolTuning) {
+		return createBulkheadDataSource(dataSource, "EOB", connectionBudget.getEobConnections(), metricRegistry,
+				poolTuning);
+	}
+
+	/**
+	 * <p>
+	 * Creates a separate connection pool (to the same database as the main
+	 * {@link DataSource}) for one of the application's bulkheads. Giving the
+	 * cheap, latency-critical <code>Patient</code> lookups their own pool (and
+	 * likewise for the heavy <code>ExplanationOfBenefit</code> searches) ensures
+	 * that a burst of one can never leave the other waiting for connections.
+	 * The pools' sizes all come out of the same {@link ConnectionBudget}, so
+	 * this doesn't add to the number of connections each node uses.
+	 * </p>
+	 * <p>
+	 * Each pool reports its own saturation metrics (e.g.
+	 * <code>BFD-EOB.pool.Wait</code>,
+	 * <code>BFD-EOB.pool.PendingConnections</code>, and those from
+	 * {@link ConnectionPoolMonitor}).
+	 * </p>
+	 *
+	 * @param dataSource
+	 *            the application's main {@link DataSource}, whose connection
+	 *            properties will be reused
+	 * @param bulkheadName
+	 *            the name of the bulkhead, which is used in the pool's name
+	 * @param connectionsMax
+	 *            the maximum number of database connections to use
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param poolTuning
+	 *            the {@link ConnectionPoolMonitor.Tuning} for the application
+	 * @return the new {@link DataSource}
+	 */
+	private static DataSource createBulkheadDataSource(DataSource dataSource, String bulkheadName,
+			int connectionsMax, MetricRegistry metricRegistry, ConnectionPoolMonitor.Tuning poolTuning) {
+		HikariDataSource mainPoolingDataSource;
+		try {
+			mainPoolingDataSource = dataSource.unwrap(HikariDataSource.class);
+		} catch (SQLException e) {
+			throw new BadCodeMonkeyException(e);
+		}
+
+		HikariDataSource poolingDataSource = new HikariDataSource();
+		poolingDataSource.setPoolName("BFD-" + bulkheadName);
+		poolingDataSource.setJdbcUrl(mainPoolingDataSource.getJdbcUrl());
+		poolingDataSource.setUsername(mainPoolingDataSource.getUsername());
+		poolingDataSource.setPassword(mainPoolingDataSource.getPassword());
+		configureDataSource(poolingDataSource, connectionsMax, metricRegistry);
+
+		return createProxyDataSource(poolingDataSource, "BFD-Data-" + bulkheadName, metricRegistry, poolTuning);
+	}
+
 	/**
 	 * <p>
 	 * When running this application for integration testing, this application
@@ -135,12 +587,12 @@ public class SpringConfiguration {
 	 * 
 	 * @param url
 	 *            the JDBC URL that the application was configured to use
-	 * @param connectionsMaxText
+	 * @param connectionsMax
 	 *            the maximum number of database connections to use
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} for the application
 	 */
-	private static HikariDataSource createTestDatabaseIfNeeded(String url, String connectionsMaxText,
+	private static HikariDataSource createTestDatabaseIfNeeded(String url, int connectionsMax,
 			MetricRegistry metricRegistry) {
 		if (!url.startsWith(JDBC_URL_PREFIX_BLUEBUTTON_TEST)) {
 			throw new IllegalArgumentException();
@@ -179,10 +631,11 @@ public class SpringConfiguration {
 
 		// Create the DataSource to connect to that shiny new DB.
 		HikariDataSource poolingDataSource = new HikariDataSource();
+		poolingDataSource.setPoolName(POOL_NAME_MAIN);
 		poolingDataSource.setJdbcUrl(String.format("jdbc:hsqldb:hsql://localhost:%d/test-embedded", hsqldbPort));
 		poolingDataSource.setUsername("test");
 		poolingDataSource.setPassword("test");
-		configureDataSource(poolingDataSource, connectionsMaxText, metricRegistry);
+		configureDataSource(poolingDataSource, connectionsMax, metricRegistry);
 
 		/*
 		 * Ensure the DataSource DB's schema is ready to use, because once
@@ -246,24 +699,13 @@ public class SpringConfiguration {
 	 *            the {@link HikariDataSource} to be configured, which must
 	 *            already have its basic connection properties (URL, username,
 	 *            password) configured
-	 * @param connectionsMaxText
+	 * @param connectionsMax
 	 *            the maximum number of database connections to use
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} for the application
 	 */
-	private static void configureDataSource(HikariDataSource poolingDataSource,
-			String connectionsMaxText, MetricRegistry metricRegistry) {
-		int connectionsMax;
-		try {
-			connectionsMax = Integer.parseInt(connectionsMaxText);
-		} catch (NumberFormatException e) {
-			connectionsMax = -1;
-		}
-		if (connectionsMax < 1) {
-			// Assign a reasonable default value, if none was specified.
-			connectionsMax = Runtime.getRuntime().availableProcessors() * 5;
-		}
-
+	private static void configureDataSource(HikariDataSource poolingDataSource, int connectionsMax,
+			MetricRegistry metricRegistry) {
 		poolingDataSource.setMaximumPoolSize(connectionsMax);
 
 		/*
@@ -298,10 +740,59 @@ public class SpringConfiguration {
 	 *         {@link EntityManager} instances
 	 */
 	@Bean
+	@Primary
 	public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+		return createEntityManagerFactory(dataSource, PERSISTENCE_UNIT_DEFAULT);
+	}
+
+	/**
+	 * @param patientDataSource
+	 *            the {@link DataSource} used for <code>Patient</code> lookups
+	 * @return the {@link LocalContainerEntityManagerFactoryBean} for
+	 *         {@link PatientResourceProvider#PERSISTENCE_UNIT_NAME}
+	 */
+	@Bean
+	public LocalContainerEntityManagerFactoryBean patientEntityManagerFactory(
+			@Qualifier("patientDataSource") DataSource patientDataSource) {
+		return createEntityManagerFactory(patientDataSource, PatientResourceProvider.PERSISTENCE_UNIT_NAME);
+	}
+
+	/**
+	 * @param eobDataSource
+	 *            the {@link DataSource} used for
+	 *            <code>ExplanationOfBenefit</code> searches
+	 * @return the {@link LocalContainerEntityManagerFactoryBean} for
+	 *         {@link ExplanationOfBenefitResourceProvider#PERSISTENCE_UNIT_NAME}
+	 */
+	@Bean
+	public LocalContainerEntityManagerFactoryBean eobEntityManagerFactory(
+			@Qualifier("eobDataSource") DataSource eobDataSource) {
+		return createEntityManagerFactory(eobDataSource, ExplanationOfBenefitResourceProvider.PERSISTENCE_UNIT_NAME);
+	}
+
+	/**
+	 * @param dataSource
+	 *            the {@link DataSource} to use
+	 * @param persistenceUnitName
+	 *            the JPA persistence unit name to use, which is what
+	 *            {@link PersistenceContext#unitName()} will select it by
+	 * @return a new {@link LocalContainerEntityManagerFactoryBean}
+	 */
+	private LocalContainerEntityManagerFactoryBean createEntityManagerFactory(DataSource dataSource,
+			String persistenceUnitName) {
 		LocalContainerEntityManagerFactoryBean containerEmfBean = new LocalContainerEntityManagerFactoryBean();
+		containerEmfBean.setPersistenceUnitName(persistenceUnitName);
 		containerEmfBean.setDataSource(dataSource);
-		containerEmfBean.setPackagesToScan("gov.hhs.cms.bluebutton.data.model.rif");
+		/*
+		 * List the entities explicitly, rather than having Spring scan the whole data
+		 * model package for them (at every startup, once per persistence unit).
+		 */
+		containerEmfBean.setPackagesToScan(new String[0]);
+		containerEmfBean.setPersistenceUnitPostProcessors(persistenceUnit -> {
+			persistenceUnit.setExcludeUnlistedClasses(true);
+			for (Class<?> entityClass : ENTITY_CLASSES)
+				persistenceUnit.addManagedClassName(entityClass.getName());
+		});
 		containerEmfBean.setPersistenceProvider(new HibernatePersistenceProvider());
 		containerEmfBean.setJpaProperties(jpaProperties());
 		containerEmfBean.afterPropertiesSet();
@@ -354,7 +845,9 @@ public class SpringConfiguration {
 	 */
 	@Bean
 	public PersistenceAnnotationBeanPostProcessor persistenceAnnotationProcessor() {
-		return new PersistenceAnnotationBeanPostProcessor();
+		PersistenceAnnotationBeanPostProcessor persistenceAnnotationProcessor = new PersistenceAnnotationBeanPostProcessor();
+		persistenceAnnotationProcessor.setDefaultPersistenceUnitName(PERSISTENCE_UNIT_DEFAULT);
+		return persistenceAnnotationProcessor;
 	}
 
 	/**
@@ -396,15 +889,483 @@ public class SpringConfiguration {
 	}
 
 	/**
+	 * @param dataSource
+	 *            the application's main {@link DataSource}, which will be used
+	 *            to check the database
+	 * @param dataSources
+	 *            all of the application's {@link DataSource}s, whose pools
+	 *            will be checked
+	 * @param samhsaMatcher
+	 *            the application's {@link SamhsaMatcher}
+	 * @param eobCache
+	 *            the application's {@link EobCache}
+	 * @param responseCacheFilter
+	 *            the application's {@link ResponseCacheFilter}
+	 * @param dbLatencyLimitMillisText
+	 *            the maximum number of milliseconds that the database may take
+	 *            to respond before it's considered unhealthy
+	 * @param poolWaitingMillisText
+	 *            how long (in milliseconds) threads may be left waiting for
+	 *            connections before a pool is considered unhealthy
 	 * @return the {@link HealthCheckRegistry} for the application, which collects
-	 *         any/all health checks that it provides
+	 *         any/all health checks that it provides, and determines whether or
+	 *         not it's ready to serve traffic
 	 */
 	@Bean
-	public HealthCheckRegistry healthCheckRegistry() {
+	@Primary
+	public HealthCheckRegistry healthCheckRegistry(DataSource dataSource, List<DataSource> dataSources,
+			SamhsaMatcher samhsaMatcher, EobCache eobCache, ResponseCacheFilter responseCacheFilter,
+			@Value("${" + PROP_HEALTH_DB_LATENCY_LIMIT_MILLIS + ":" + HEALTH_DB_LATENCY_LIMIT_MILLIS_DEFAULT
+					+ "}") String dbLatencyLimitMillisText,
+			@Value("${" + PROP_HEALTH_POOL_WAITING_MILLIS + ":" + HEALTH_POOL_WAITING_MILLIS_DEFAULT
+					+ "}") String poolWaitingMillisText) {
+		long dbLatencyLimitMillis = parseLongProperty(PROP_HEALTH_DB_LATENCY_LIMIT_MILLIS, dbLatencyLimitMillisText,
+				HEALTH_DB_LATENCY_LIMIT_MILLIS_DEFAULT);
+		long poolWaitingMillis = parseLongProperty(PROP_HEALTH_POOL_WAITING_MILLIS, poolWaitingMillisText,
+				HEALTH_POOL_WAITING_MILLIS_DEFAULT);
+
 		HealthCheckRegistry healthCheckRegistry = new HealthCheckRegistry();
+		healthCheckRegistry.register("database", new DatabaseHealthCheck(dataSource, dbLatencyLimitMillis));
+		for (DataSource pooledDataSource : dataSources) {
+			try {
+				HikariDataSource poolingDataSource = pooledDataSource.unwrap(HikariDataSource.class);
+				healthCheckRegistry.register("pool." + poolingDataSource.getPoolName(),
+						new ConnectionPoolHealthCheck(poolingDataSource, poolWaitingMillis));
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		healthCheckRegistry.register("reference_data", new ReferenceDataHealthCheck());
+		healthCheckRegistry.register("samhsa_codes", new SamhsaCodesHealthCheck(samhsaMatcher));
+		healthCheckRegistry.register("caches", new CacheHealthCheck(eobCache, responseCacheFilter));
+		healthCheckRegistry.register("deadlocks", new ThreadDeadlockHealthCheck());
 		return healthCheckRegistry;
 	}
 
+	/**
+	 * @return the {@link HealthCheckRegistry} that determines whether or not the
+	 *         application is still alive, which only includes the checks that
+	 *         restarting the application might fix
+	 */
+	@Bean
+	public HealthCheckRegistry livenessHealthCheckRegistry() {
+		HealthCheckRegistry livenessHealthCheckRegistry = new HealthCheckRegistry();
+		livenessHealthCheckRegistry.register("deadlocks", new ThreadDeadlockHealthCheck());
+		return livenessHealthCheckRegistry;
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param healthCheckRegistry
+	 *            the {@link HealthCheckRegistry} for the application, which the
+	 *            {@link StartupWarmup} will be registered in
+	 * @param dataSources
+	 *            all of the application's {@link DataSource}s
+	 * @param patientEntityManagerFactory
+	 *            the {@link EntityManagerFactory} used by
+	 *            {@link PatientResourceProvider}
+	 * @param eobEntityManagerFactory
+	 *            the {@link EntityManagerFactory} used by
+	 *            {@link ExplanationOfBenefitResourceProvider}
+	 * @param enabledText
+	 *            whether or not the application should be warmed up at startup
+	 * @param samplesText
+	 *            the number of sample entities of each type to warm up with
+	 * @param iterationsMaxText
+	 *            the maximum number of passes to make over the samples
+	 * @return the {@link StartupWarmup} for the application, which
+	 *         {@link BlueButtonServerInitializer} will start
+	 */
+	@Bean(destroyMethod = "close")
+	public StartupWarmup startupWarmup(MetricRegistry metricRegistry, HealthCheckRegistry healthCheckRegistry,
+			List<DataSource> dataSources,
+			@Qualifier("patientEntityManagerFactory") EntityManagerFactory patientEntityManagerFactory,
+			@Qualifier("eobEntityManagerFactory") EntityManagerFactory eobEntityManagerFactory,
+			@Value("${" + PROP_WARMUP_ENABLED + ":true}") String enabledText,
+			@Value("${" + PROP_WARMUP_SAMPLES + ":" + WARMUP_SAMPLES_DEFAULT + "}") String samplesText,
+			@Value("${" + PROP_WARMUP_ITERATIONS_MAX + ":" + WARMUP_ITERATIONS_MAX_DEFAULT
+					+ "}") String iterationsMaxText) {
+		int samples = parseIntProperty(PROP_WARMUP_SAMPLES, samplesText, WARMUP_SAMPLES_DEFAULT);
+		int iterationsMax = parseIntProperty(PROP_WARMUP_ITERATIONS_MAX, iterationsMaxText,
+				WARMUP_ITERATIONS_MAX_DEFAULT);
+
+		StartupWarmup startupWarmup = new StartupWarmup(metricRegistry, dataSources, patientEntityManagerFactory,
+				eobEntityManagerFactory, Boolean.parseBoolean(enabledText), samples, iterationsMax);
+		healthCheckRegistry.register("warmup", startupWarmup);
+		return startupWarmup;
+	}
+
+	/**
+	 * @param sampleRateText
+	 *            the fraction of requests (from <code>0.0</code> to
+	 *            <code>1.0</code>) that should be traced, when the caller hasn't
+	 *            already made that decision
+	 * @param exporterName
+	 *            <code>log</code> to write spans to the
+	 *            <code>TRACE_SPANS</code> log, <code>memory</code> to hold them
+	 *            in memory, or the fully qualified name of a custom
+	 *            {@link SpanExporter} implementation
+	 * @return an {@link IServerInterceptor} that will record tracing
+	 *         {@link Span}s for the provider and encoding phases of each
+	 *         request
+	 */
+	@Bean
+	public IServerInterceptor tracingInterceptor(
+			@Value("${" + PROP_TRACING_SAMPLE_RATE + ":" + TRACING_SAMPLE_RATE_DEFAULT + "}") String sampleRateText,
+			@Value("${" + PROP_TRACING_EXPORTER + ":log}") String exporterName) {
+		double sampleRate = parseDoubleProperty(PROP_TRACING_SAMPLE_RATE, sampleRateText, TRACING_SAMPLE_RATE_DEFAULT);
+
+		Tracer.configure(sampleRate, createSpanExporter(exporterName));
+		return new TracingInterceptor();
+	}
+
+	/**
+	 * @return an {@link IServerInterceptor} that tells
+	 *         {@link ConnectionPoolMonitor} which FHIR operation is being run
+	 */
+	@Bean
+	public IServerInterceptor connectionPoolOperationInterceptor() {
+		return new ConnectionPoolOperationInterceptor();
+	}
+
+	/**
+	 * @param exporterName
+	 *            the {@link #PROP_TRACING_EXPORTER} value to create a
+	 *            {@link SpanExporter} for
+	 * @return the {@link SpanExporter} that was selected
+	 */
+	private static SpanExporter createSpanExporter(String exporterName) {
+		if ("log".equals(exporterName))
+			return new LoggingSpanExporter();
+		if ("memory".equals(exporterName))
+			return new InMemorySpanExporter();
+
+		try {
+			return Class.forName(exporterName).asSubclass(SpanExporter.class).newInstance();
+		} catch (ClassNotFoundException | ClassCastException | InstantiationException
+				| IllegalAccessException e) {
+			throw new IllegalArgumentException("Invalid " + PROP_TRACING_EXPORTER + ": " + exporterName, e);
+		}
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link SearchCoalescer} for the application
+	 */
+	@Bean
+	public SearchCoalescer searchCoalescer(MetricRegistry metricRegistry) {
+		return new SearchCoalescer(metricRegistry);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param maxWeightText
+	 *            the maximum total weight of the EOBs to cache, or
+	 *            <code>0</code> to disable caching
+	 * @param timeToLiveSecondsText
+	 *            the number of seconds after which cached EOBs expire
+	 * @return the {@link EobCache} for the application
+	 */
+	@Bean
+	public EobCache eobCache(MetricRegistry metricRegistry,
+			@Value("${" + PROP_CACHE_EOB_WEIGHT_MAX + ":" + CACHE_EOB_WEIGHT_MAX_DEFAULT + "}") String maxWeightText,
+			@Value("${" + PROP_CACHE_EOB_TTL_SECONDS + ":" + CACHE_EOB_TTL_SECONDS_DEFAULT
+					+ "}") String timeToLiveSecondsText) {
+		long maxWeight = parseLongProperty(PROP_CACHE_EOB_WEIGHT_MAX, maxWeightText, CACHE_EOB_WEIGHT_MAX_DEFAULT);
+		long timeToLiveSeconds = parseLongProperty(PROP_CACHE_EOB_TTL_SECONDS, timeToLiveSecondsText,
+				CACHE_EOB_TTL_SECONDS_DEFAULT);
+
+		return new EobCache(metricRegistry, maxWeight, timeToLiveSeconds);
+	}
+
+	/**
+	 * @param eobCache
+	 *            the application's {@link EobCache} bean
+	 * @param adminDnsText
+	 *            the client certificate DNs that may invalidate the
+	 *            {@link EobCache}, in the format accepted by
+	 *            {@link EobCacheServlet#parseAdminDns(String)}
+	 * @return the {@link EobCacheServlet} for the application
+	 */
+	@Bean
+	public EobCacheServlet eobCacheServlet(EobCache eobCache,
+			@Value("${" + PROP_CACHE_EOB_ADMIN_DNS + ":}") String adminDnsText) {
+		return new EobCacheServlet(eobCache, EobCacheServlet.parseAdminDns(adminDnsText));
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param eobCache
+	 *            the application's {@link EobCache} bean, whose invalidations
+	 *            also invalidate the filter's cached responses
+	 * @param maxBytesText
+	 *            the maximum total size of the response bodies to cache, or
+	 *            <code>0</code> to only support conditional requests
+	 * @param timeToLiveSecondsText
+	 *            the number of seconds after which cached responses expire,
+	 *            which is shared with the {@link EobCache}, and which bounds how
+	 *            stale they can get after a data load that doesn't call the
+	 *            reload hook
+	 * @return the {@link ResponseCacheFilter} for the application
+	 */
+	@Bean
+	public ResponseCacheFilter responseCacheFilter(MetricRegistry metricRegistry, EobCache eobCache,
+			@Value("${" + PROP_CACHE_RESPONSE_BYTES_MAX + ":" + CACHE_RESPONSE_BYTES_MAX_DEFAULT
+					+ "}") String maxBytesText,
+			@Value("${" + PROP_CACHE_EOB_TTL_SECONDS + ":" + CACHE_EOB_TTL_SECONDS_DEFAULT
+					+ "}") String timeToLiveSecondsText) {
+		long maxBytes = parseLongProperty(PROP_CACHE_RESPONSE_BYTES_MAX, maxBytesText,
+				CACHE_RESPONSE_BYTES_MAX_DEFAULT);
+		long timeToLiveSeconds = parseLongProperty(PROP_CACHE_EOB_TTL_SECONDS, timeToLiveSecondsText,
+				CACHE_EOB_TTL_SECONDS_DEFAULT);
+
+		return new ResponseCacheFilter(metricRegistry, eobCache::getGeneration, maxBytes, timeToLiveSeconds);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param concurrencyMaxText
+	 *            the maximum number of requests that each client may have in
+	 *            progress at once, unless overridden for it
+	 * @param rateText
+	 *            the requests per second that each client may make, unless
+	 *            overridden for it
+	 * @param latencyTargetMillisText
+	 *            the request latency (in milliseconds) above which clients'
+	 *            concurrency limits will be reduced
+	 * @param partnersText
+	 *            the per-partner overrides, in the format accepted by
+	 *            {@link AdmissionControlFilter#parsePartnerLimits(String)}
+	 * @return the {@link AdmissionControlFilter} for the application
+	 */
+	@Bean
+	public AdmissionControlFilter admissionControlFilter(MetricRegistry metricRegistry,
+			@Value("${" + PROP_ADMISSION_CONCURRENCY_MAX + ":" + ADMISSION_CONCURRENCY_MAX_DEFAULT
+					+ "}") String concurrencyMaxText,
+			@Value("${" + PROP_ADMISSION_RATE + ":" + ADMISSION_RATE_DEFAULT + "}") String rateText,
+			@Value("${" + PROP_ADMISSION_LATENCY_TARGET_MILLIS + ":" + ADMISSION_LATENCY_TARGET_MILLIS_DEFAULT
+					+ "}") String latencyTargetMillisText,
+			@Value("${" + PROP_ADMISSION_PARTNERS + ":}") String partnersText) {
+		int concurrencyMax = parseIntProperty(PROP_ADMISSION_CONCURRENCY_MAX, concurrencyMaxText,
+				ADMISSION_CONCURRENCY_MAX_DEFAULT);
+		double rate = parseDoubleProperty(PROP_ADMISSION_RATE, rateText, ADMISSION_RATE_DEFAULT);
+		long latencyTargetMillis = parseLongProperty(PROP_ADMISSION_LATENCY_TARGET_MILLIS, latencyTargetMillisText,
+				ADMISSION_LATENCY_TARGET_MILLIS_DEFAULT);
+
+		return new AdmissionControlFilter(metricRegistry, new AdmissionControlFilter.Limits(concurrencyMax, rate),
+				AdmissionControlFilter.parsePartnerLimits(partnersText), latencyTargetMillis);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param connectionBudget
+	 *            the {@link ConnectionBudget} for the application, whose main
+	 *            pool size (as tuned) is also the default number of request
+	 *            threads
+	 * @param poolTuning
+	 *            the {@link ConnectionPoolMonitor.Tuning} for the application
+	 * @param threadsText
+	 *            the number of threads to run FHIR requests on
+	 * @param queueText
+	 *            the maximum number of FHIR requests that may be waiting for a
+	 *            thread
+	 * @return the {@link RequestExecutor} for all FHIR requests that don't have
+	 *         a bulkhead of their own
+	 */
+	@Bean(name = REQUEST_EXECUTOR_DEFAULT, destroyMethod = "close")
+	public RequestExecutor requestExecutor(MetricRegistry metricRegistry, ConnectionBudget connectionBudget,
+			ConnectionPoolMonitor.Tuning poolTuning, @Value("${" + PROP_REQUESTS_THREADS + ":-1}") String threadsText,
+			@Value("${" + PROP_REQUESTS_QUEUE + ":" + REQUESTS_QUEUE_DEFAULT + "}") String queueText) {
+		return createRequestExecutor(metricRegistry, "default", connectionBudget.getMainConnections(), poolTuning,
+				parseIntProperty(PROP_REQUESTS_THREADS, threadsText, -1),
+				parseIntProperty(PROP_REQUESTS_QUEUE, queueText, REQUESTS_QUEUE_DEFAULT));
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param connectionBudget
+	 *            the {@link ConnectionBudget} for the application, whose
+	 *            <code>Patient</code> pool size (as tuned) is also the default
+	 *            number of threads
+	 * @param poolTuning
+	 *            the {@link ConnectionPoolMonitor.Tuning} for the application
+	 * @param threadsText
+	 *            the number of threads to run <code>Patient</code> requests on
+	 * @param queueText
+	 *            the maximum number of <code>Patient</code> requests that may be
+	 *            waiting for a thread
+	 * @return the {@link RequestExecutor} for <code>Patient</code> requests
+	 */
+	@Bean(name = REQUEST_EXECUTOR_PATIENT, destroyMethod = "close")
+	public RequestExecutor patientRequestExecutor(MetricRegistry metricRegistry, ConnectionBudget connectionBudget,
+			ConnectionPoolMonitor.Tuning poolTuning,
+			@Value("${" + PROP_BULKHEAD_PATIENT_THREADS + ":-1}") String threadsText,
+			@Value("${" + PROP_REQUESTS_QUEUE + ":" + REQUESTS_QUEUE_DEFAULT + "}") String queueText) {
+		return createRequestExecutor(metricRegistry, "patient", connectionBudget.getPatientConnections(), poolTuning,
+				parseIntProperty(PROP_BULKHEAD_PATIENT_THREADS, threadsText, -1),
+				parseIntProperty(PROP_REQUESTS_QUEUE, queueText, REQUESTS_QUEUE_DEFAULT));
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param connectionBudget
+	 *            the {@link ConnectionBudget} for the application, whose
+	 *            <code>ExplanationOfBenefit</code> pool size (as tuned) is also
+	 *            the default number of threads
+	 * @param poolTuning
+	 *            the {@link ConnectionPoolMonitor.Tuning} for the application
+	 * @param threadsText
+	 *            the number of threads to run <code>ExplanationOfBenefit</code>
+	 *            requests on
+	 * @param queueText
+	 *            the maximum number of <code>ExplanationOfBenefit</code>
+	 *            requests that may be waiting for a thread
+	 * @return the {@link RequestExecutor} for <code>ExplanationOfBenefit</code>
+	 *         requests
+	 */
+	@Bean(name = REQUEST_EXECUTOR_EOB, destroyMethod = "close")
+	public RequestExecutor eobRequestExecutor(MetricRegistry metricRegistry, ConnectionBudget connectionBudget,
+			ConnectionPoolMonitor.Tuning poolTuning,
+			@Value("${" + PROP_BULKHEAD_EOB_THREADS + ":-1}") String threadsText,
+			@Value("${" + PROP_REQUESTS_QUEUE + ":" + REQUESTS_QUEUE_DEFAULT + "}") String queueText) {
+		return createRequestExecutor(metricRegistry, "eob", connectionBudget.getEobConnections(), poolTuning,
+				parseIntProperty(PROP_BULKHEAD_EOB_THREADS, threadsText, -1),
+				parseIntProperty(PROP_REQUESTS_QUEUE, queueText, REQUESTS_QUEUE_DEFAULT));
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param name
+	 *            the {@link RequestExecutor#getName()} to use
+	 * @param connectionsMax
+	 *            the size of the connection pool that the requests will use
+	 * @param poolTuning
+	 *            the {@link ConnectionPoolMonitor.Tuning} for the application,
+	 *            whose maximum size for that pool is the default number of
+	 *            threads
+	 * @param threads
+	 *            the configured number of threads, or <code>-1</code> to use
+	 *            the default
+	 * @param queue
+	 *            the configured queue capacity
+	 * @return a new {@link RequestExecutor}
+	 */
+	private static RequestExecutor createRequestExecutor(MetricRegistry metricRegistry, String name,
+			int connectionsMax, ConnectionPoolMonitor.Tuning poolTuning, int threads, int queue) {
+		/*
+		 * Any more threads than the pool can ever have connections would just be
+		 * waiting on it, so match its maximum size by default. If the pool can be
+		 * grown, that's more threads than it starts out with, on purpose: the time
+		 * those extra threads spend waiting for connections is exactly what tells
+		 * the ConnectionPoolMonitor to grow it.
+		 */
+		int threadsOrDefault = threads >= 1 ? threads : poolTuning.getMaxSize(connectionsMax);
+		return new RequestExecutor(metricRegistry, name, threadsOrDefault, queue);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param coverageResourceProvider
+	 *            the application's {@link CoverageResourceProvider} bean
+	 * @param eobResourceProvider
+	 *            the application's {@link ExplanationOfBenefitResourceProvider}
+	 *            bean
+	 * @param exportDirText
+	 *            the directory to store export jobs in, which defaults to a
+	 *            subdirectory of <code>java.io.tmpdir</code>
+	 * @param threadsText
+	 *            the number of threads to run exports on
+	 * @param maxJobsText
+	 *            the maximum number of export jobs that may be running at once
+	 * @param chunkSizeText
+	 *            the number of beneficiaries to export in each chunk
+	 * @param retentionSecondsText
+	 *            the number of seconds that finished export jobs (and their
+	 *            files) are kept for
+	 * @return the {@link BulkExportJobManager} for the application
+	 */
+	@Bean(destroyMethod = "close")
+	public BulkExportJobManager bulkExportJobManager(MetricRegistry metricRegistry,
+			CoverageResourceProvider coverageResourceProvider, ExplanationOfBenefitResourceProvider eobResourceProvider,
+			@Value("${" + PROP_EXPORT_DIR + ":}") String exportDirText,
+			@Value("${" + PROP_EXPORT_THREADS + ":" + EXPORT_THREADS_DEFAULT + "}") String threadsText,
+			@Value("${" + PROP_EXPORT_JOBS_MAX + ":" + EXPORT_JOBS_MAX_DEFAULT + "}") String maxJobsText,
+			@Value("${" + PROP_EXPORT_CHUNK_SIZE + ":" + EXPORT_CHUNK_SIZE_DEFAULT + "}") String chunkSizeText,
+			@Value("${" + PROP_EXPORT_RETENTION_SECONDS + ":" + EXPORT_RETENTION_SECONDS_DEFAULT
+					+ "}") String retentionSecondsText) {
+		Path exportDir = exportDirText.trim().isEmpty()
+				? Paths.get(System.getProperty("java.io.tmpdir"), "bluebutton-export")
+				: Paths.get(exportDirText);
+
+		int threads = parseIntProperty(PROP_EXPORT_THREADS, threadsText, EXPORT_THREADS_DEFAULT);
+		int maxJobs = parseIntProperty(PROP_EXPORT_JOBS_MAX, maxJobsText, EXPORT_JOBS_MAX_DEFAULT);
+		int chunkSize = parseIntProperty(PROP_EXPORT_CHUNK_SIZE, chunkSizeText, EXPORT_CHUNK_SIZE_DEFAULT);
+		long retentionSeconds = parseLongProperty(PROP_EXPORT_RETENTION_SECONDS, retentionSecondsText,
+				EXPORT_RETENTION_SECONDS_DEFAULT);
+
+		return new BulkExportJobManager(metricRegistry, coverageResourceProvider, eobResourceProvider, exportDir,
+				threads, maxJobs, chunkSize, retentionSeconds);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param thresholdBytesText
+	 *            the minimum response body size, in bytes, to compress
+	 * @param compressionLevelText
+	 *            the compression level to use, from <code>1</code> (fastest) to
+	 *            <code>9</code> (smallest)
+	 * @return the {@link CompressionFilter} for the application
+	 */
+	@Bean
+	public CompressionFilter compressionFilter(MetricRegistry metricRegistry,
+			@Value("${" + PROP_COMPRESSION_THRESHOLD_BYTES + ":" + COMPRESSION_THRESHOLD_BYTES_DEFAULT
+					+ "}") String thresholdBytesText,
+			@Value("${" + PROP_COMPRESSION_LEVEL + ":" + COMPRESSION_LEVEL_DEFAULT + "}") String compressionLevelText) {
+		int thresholdBytes = parseIntProperty(PROP_COMPRESSION_THRESHOLD_BYTES, thresholdBytesText,
+				COMPRESSION_THRESHOLD_BYTES_DEFAULT);
+		int compressionLevel = parseIntProperty(PROP_COMPRESSION_LEVEL, compressionLevelText,
+				COMPRESSION_LEVEL_DEFAULT);
+
+		return new CompressionFilter(metricRegistry, thresholdBytes, compressionLevel);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param eobCache
+	 *            the application's {@link EobCache} bean
+	 * @param parallelismText
+	 *            the maximum number of threads to transform claims on, which
+	 *            defaults to the number of available processors
+	 * @param parallelThresholdText
+	 *            the minimum number of claims (of a single type) to split up
+	 *            across those threads
+	 * @return the {@link ClaimTransformExecutor} for the application
+	 */
+	@Bean(destroyMethod = "close")
+	public ClaimTransformExecutor claimTransformExecutor(MetricRegistry metricRegistry, EobCache eobCache,
+			@Value("${" + PROP_TRANSFORM_PARALLELISM + ":}") String parallelismText,
+			@Value("${" + PROP_TRANSFORM_PARALLEL_THRESHOLD + ":" + TRANSFORM_PARALLEL_THRESHOLD_DEFAULT
+					+ "}") String parallelThresholdText) {
+		int parallelism = parseIntProperty(PROP_TRANSFORM_PARALLELISM, parallelismText,
+				Runtime.getRuntime().availableProcessors());
+		int parallelThreshold = parseIntProperty(PROP_TRANSFORM_PARALLEL_THRESHOLD, parallelThresholdText,
+				TRANSFORM_PARALLEL_THRESHOLD_DEFAULT);
+
+		return new ClaimTransformExecutor(metricRegistry, eobCache, parallelism, parallelThreshold);
+	}
+
 	/**
 	 * @return an {@link IServerInterceptor} that will add some pretty syntax
 	 *         highlighting in responses when a browser is detected
@@ -414,4 +1375,89 @@ public class SpringConfiguration {
 		ResponseHighlighterInterceptor retVal = new ResponseHighlighterInterceptor();
 		return retVal;
 	}
+
+	/**
+	 * @param propertyName
+	 *            the name of the configuration property being parsed
+	 * @param valueText
+	 *            the property's configured value, if any
+	 * @param defaultValue
+	 *            the value to use if the property isn't set, or isn't a valid
+	 *            <code>int</code>
+	 * @return the property's value, parsed as an <code>int</code>, or the
+	 *         specified default
+	 */
+	static int parseIntProperty(String propertyName, String valueText, int defaultValue) {
+		if (valueText == null || valueText.trim().isEmpty())
+			return defaultValue;
+
+		try {
+			return Integer.parseInt(valueText.trim());
+		} catch (NumberFormatException e) {
+			logInvalidProperty(propertyName, valueText, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @param propertyName
+	 *            the name of the configuration property being parsed
+	 * @param valueText
+	 *            the property's configured value, if any
+	 * @param defaultValue
+	 *            the value to use if the property isn't set, or isn't a valid
+	 *            <code>long</code>
+	 * @return the property's value, parsed as a <code>long</code>, or the
+	 *         specified default
+	 */
+	static long parseLongProperty(String propertyName, String valueText, long defaultValue) {
+		if (valueText == null || valueText.trim().isEmpty())
+			return defaultValue;
+
+		try {
+			return Long.parseLong(valueText.trim());
+		} catch (NumberFormatException e) {
+			logInvalidProperty(propertyName, valueText, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @param propertyName
+	 *            the name of the configuration property being parsed
+	 * @param valueText
+	 *            the property's configured value, if any
+	 * @param defaultValue
+	 *            the value to use if the property isn't set, or isn't a valid
+	 *            <code>double</code>
+	 * @return the property's value, parsed as a <code>double</code>, or the
+	 *         specified default
+	 */
+	static double parseDoubleProperty(String propertyName, String valueText, double defaultValue) {
+		if (valueText == null || valueText.trim().isEmpty())
+			return defaultValue;
+
+		try {
+			return Double.parseDouble(valueText.trim());
+		} catch (NumberFormatException e) {
+			logInvalidProperty(propertyName, valueText, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Warns about a misconfigured property, which would otherwise go unnoticed,
+	 * as the application just carries on with the default.
+	 *
+	 * @param propertyName
+	 *            the name of the invalid configuration property
+	 * @param valueText
+	 *            the property's (invalid) configured value
+	 * @param defaultValue
+	 *            the value that will be used instead
+	 */
+	private static void logInvalidProperty(String propertyName, String valueText, Object defaultValue) {
+		LOGGER.warn("Invalid value for configuration property '{}': '{}'. Using the default of '{}' instead.",
+				propertyName, valueText, defaultValue);
+	}
 }
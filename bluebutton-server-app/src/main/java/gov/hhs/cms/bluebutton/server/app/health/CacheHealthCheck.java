@@ -0,0 +1,43 @@
+package gov.hhs.cms.bluebutton.server.app.health;
+
+import com.codahale.metrics.health.HealthCheck;
+
+import gov.hhs.cms.bluebutton.server.app.ResponseCacheFilter;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobCache;
+
+/**
+ * A {@link HealthCheck} that reports how warm the application's caches are.
+ * It's informational only, and always healthy: a node with cold caches is
+ * slower, but still fine to route traffic to (and will never warm up if it's
+ * not).
+ */
+public final class CacheHealthCheck extends HealthCheck {
+	private final EobCache eobCache;
+	private final ResponseCacheFilter responseCacheFilter;
+
+	/**
+	 * Constructs a new {@link CacheHealthCheck}.
+	 *
+	 * @param eobCache
+	 *            the application's {@link EobCache}
+	 * @param responseCacheFilter
+	 *            the application's {@link ResponseCacheFilter}
+	 */
+	public CacheHealthCheck(EobCache eobCache, ResponseCacheFilter responseCacheFilter) {
+		this.eobCache = eobCache;
+		this.responseCacheFilter = responseCacheFilter;
+	}
+
+	/**
+	 * @see com.codahale.metrics.health.HealthCheck#check()
+	 */
+	@Override
+	protected Result check() throws Exception {
+		int eobs = eobCache.size();
+		long responseBytes = responseCacheFilter.getCachedBytes();
+		return Result.builder().healthy()
+				.withMessage("%d EOBs and %d bytes of responses cached.", eobs, responseBytes)
+				.withDetail("eobs", eobs).withDetail("eob_weight", eobCache.weight())
+				.withDetail("response_bytes", responseBytes).build();
+	}
+}
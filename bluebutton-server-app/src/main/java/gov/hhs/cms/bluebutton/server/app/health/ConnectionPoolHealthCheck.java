@@ -0,0 +1,87 @@
+package gov.hhs.cms.bluebutton.server.app.health;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.health.HealthCheck;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * <p>
+ * A {@link HealthCheck} that reports a Hikari connection pool as unhealthy
+ * when it's exhausted: when threads have been left waiting for connections
+ * for a sustained period, i.e. every time that it's been checked for at least
+ * the configured window. (A pool that's momentarily short of connections is
+ * normal under load; one that stays that way can't keep up.)
+ * </p>
+ * <p>
+ * Pools that haven't been started yet (Hikari starts them lazily) are
+ * reported as healthy.
+ * </p>
+ */
+public final class ConnectionPoolHealthCheck extends HealthCheck {
+	private final HikariDataSource poolingDataSource;
+	private final long waitingWindowMillis;
+
+	// Both guarded by this.
+	private boolean waitingSeen = false;
+	private long waitingSinceMillis;
+
+	/**
+	 * Constructs a new {@link ConnectionPoolHealthCheck}.
+	 *
+	 * @param poolingDataSource
+	 *            the {@link HikariDataSource} whose pool should be checked
+	 * @param waitingWindowMillis
+	 *            how long (in milliseconds) threads must have been waiting for
+	 *            connections before the pool is reported as unhealthy
+	 */
+	public ConnectionPoolHealthCheck(HikariDataSource poolingDataSource, long waitingWindowMillis) {
+		this.poolingDataSource = poolingDataSource;
+		this.waitingWindowMillis = waitingWindowMillis;
+	}
+
+	/**
+	 * @see com.codahale.metrics.health.HealthCheck#check()
+	 */
+	@Override
+	protected Result check() throws Exception {
+		HikariPoolMXBean poolBean = poolingDataSource.getHikariPoolMXBean();
+		if (poolBean == null)
+			return Result.healthy("Pool not started.");
+
+		int maxSize = poolingDataSource.getMaximumPoolSize();
+		int active = poolBean.getActiveConnections();
+		int idle = poolBean.getIdleConnections();
+		int waiting = poolBean.getThreadsAwaitingConnection();
+		long waitingMillis = recordWaiting(waiting, TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+		boolean exhausted = waitingMillis >= waitingWindowMillis;
+
+		ResultBuilder result = exhausted ? Result.builder().unhealthy() : Result.builder().healthy();
+		return result
+				.withMessage("%d of %d connections active, %d threads waiting.", active, maxSize, waiting)
+				.withDetail("active", active).withDetail("idle", idle).withDetail("waiting", waiting)
+				.withDetail("waiting_millis", Math.max(0L, waitingMillis)).withDetail("max", maxSize).build();
+	}
+
+	/**
+	 * @param waiting
+	 *            the number of threads currently waiting for connections
+	 * @param nowMillis
+	 *            the current time, in milliseconds
+	 * @return how long (in milliseconds) every check has found threads waiting
+	 *         for connections, or <code>-1</code> if none are now
+	 */
+	synchronized long recordWaiting(int waiting, long nowMillis) {
+		if (waiting <= 0) {
+			waitingSeen = false;
+			return -1L;
+		}
+
+		if (!waitingSeen) {
+			waitingSeen = true;
+			waitingSinceMillis = nowMillis;
+		}
+		return nowMillis - waitingSinceMillis;
+	}
+}
@@ -0,0 +1,55 @@
+package gov.hhs.cms.bluebutton.server.app.health;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import com.codahale.metrics.health.HealthCheck;
+
+/**
+ * A {@link HealthCheck} that verifies that the database is reachable, and is
+ * responding within a reasonable amount of time.
+ */
+public final class DatabaseHealthCheck extends HealthCheck {
+	/**
+	 * The number of seconds to wait for the database to respond before giving up
+	 * on it.
+	 */
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+	private final DataSource dataSource;
+	private final long latencyLimitMillis;
+
+	/**
+	 * Constructs a new {@link DatabaseHealthCheck}.
+	 *
+	 * @param dataSource
+	 *            the {@link DataSource} for the database to check
+	 * @param latencyLimitMillis
+	 *            the maximum number of milliseconds that the database may take to
+	 *            respond, before it's considered unhealthy
+	 */
+	public DatabaseHealthCheck(DataSource dataSource, long latencyLimitMillis) {
+		this.dataSource = dataSource;
+		this.latencyLimitMillis = latencyLimitMillis;
+	}
+
+	/**
+	 * @see com.codahale.metrics.health.HealthCheck#check()
+	 */
+	@Override
+	protected Result check() throws Exception {
+		try (Connection connection = dataSource.getConnection()) {
+			// Only time the round trip: waiting on the pool is ConnectionPoolHealthCheck's concern.
+			long start = System.nanoTime();
+			boolean valid = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+			long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			ResultBuilder result = valid && latencyMillis <= latencyLimitMillis ? Result.builder().healthy()
+					: Result.builder().unhealthy();
+			return result.withMessage(valid ? "Database responded in %d ms." : "Database invalid after %d ms.",
+					latencyMillis).withDetail("latency_millis", latencyMillis).build();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package gov.hhs.cms.bluebutton.server.app.health;
+
+import com.codahale.metrics.health.HealthCheck;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.StartupWarmup;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.TransformerUtils;
+
+/**
+ * A {@link HealthCheck} that verifies that the reference data files used by
+ * {@link TransformerUtils} (the ICD, procedure, NPI, and FDA NDC codes) have
+ * been loaded, which {@link StartupWarmup} takes care of. It never loads them
+ * itself: health checks need to be cheap, and a broken or missing file will be
+ * logged by the warm-up (and leave this check unhealthy).
+ */
+public final class ReferenceDataHealthCheck extends HealthCheck {
+	/**
+	 * @see com.codahale.metrics.health.HealthCheck#check()
+	 */
+	@Override
+	protected Result check() throws Exception {
+		if (!TransformerUtils.isReferenceDataLoaded())
+			return Result.unhealthy("Reference data not loaded yet.");
+		return Result.healthy("Reference data loaded.");
+	}
+}
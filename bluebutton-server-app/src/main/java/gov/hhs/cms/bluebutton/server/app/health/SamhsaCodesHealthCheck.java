@@ -0,0 +1,38 @@
+package gov.hhs.cms.bluebutton.server.app.health;
+
+import java.util.Map;
+
+import com.codahale.metrics.health.HealthCheck;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.SamhsaMatcher;
+
+/**
+ * A {@link HealthCheck} that verifies that none of the {@link SamhsaMatcher}'s
+ * code sets are empty, which would cause SAMHSA-related claims to not be
+ * filtered out.
+ */
+public final class SamhsaCodesHealthCheck extends HealthCheck {
+	private final SamhsaMatcher samhsaMatcher;
+
+	/**
+	 * Constructs a new {@link SamhsaCodesHealthCheck}.
+	 *
+	 * @param samhsaMatcher
+	 *            the application's {@link SamhsaMatcher}
+	 */
+	public SamhsaCodesHealthCheck(SamhsaMatcher samhsaMatcher) {
+		this.samhsaMatcher = samhsaMatcher;
+	}
+
+	/**
+	 * @see com.codahale.metrics.health.HealthCheck#check()
+	 */
+	@Override
+	protected Result check() throws Exception {
+		Map<String, Integer> codeSetSizes = samhsaMatcher.getCodeSetSizes();
+		ResultBuilder result = codeSetSizes.containsValue(0) ? Result.builder().unhealthy()
+				: Result.builder().healthy();
+		codeSetSizes.forEach(result::withDetail);
+		return result.withMessage("SAMHSA code set sizes: %s", codeSetSizes).build();
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * Contains the application's {@link com.codahale.metrics.health.HealthCheck}s,
+ * which load balancers use to decide whether or not to route traffic to it.
+ */
+package gov.hhs.cms.bluebutton.server.app.health;
@@ -0,0 +1,376 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * Models a single <code>$export</code> job (as run by
+ * {@link BulkExportJobManager}), and the state of it that's persisted to disk.
+ * </p>
+ * <p>
+ * Each job's beneficiaries are split into fixed-size chunks, each of which is
+ * exported into its own set of NDJSON files. A chunk only counts as done once
+ * all of its files have been written and its marker file created, so if the
+ * server is restarted mid-job, the job can be resumed by re-running just the
+ * chunks without markers.
+ * </p>
+ */
+final class BulkExportJob {
+	/**
+	 * The FHIR resource types that can be exported, in the order that they're
+	 * listed in the job's manifest.
+	 */
+	static final List<String> SUPPORTED_TYPES = Collections
+			.unmodifiableList(Arrays.asList("Patient", "Coverage", "ExplanationOfBenefit"));
+
+	private static final String PROPERTIES_FILE_NAME = "job.properties";
+	private static final String FAILED_FILE_NAME = "job.failed";
+	private static final String CANCELLED_FILE_NAME = "job.cancelled";
+
+	private final String id;
+	private final Path directory;
+	private final String owner;
+	private final String request;
+	private final String statusUrl;
+	private final Instant transactionTime;
+	private final List<String> types;
+	private final List<String> beneficiaryIds;
+	private final int chunkSize;
+
+	/*
+	 * Guarded by this.
+	 */
+	private final BitSet completedChunks;
+	private String failure;
+	private boolean cancelled;
+	private int runningChunks;
+
+	/**
+	 * Constructs a new {@link BulkExportJob}.
+	 *
+	 * @param id
+	 *            the value to use for {@link #getId()}
+	 * @param directory
+	 *            the value to use for {@link #getDirectory()}
+	 * @param owner
+	 *            the value to use for {@link #getOwner()}
+	 * @param request
+	 *            the value to use for {@link #getRequest()}
+	 * @param statusUrl
+	 *            the value to use for {@link #getStatusUrl()}
+	 * @param transactionTime
+	 *            the value to use for {@link #getTransactionTime()}
+	 * @param types
+	 *            the value to use for {@link #getTypes()}
+	 * @param beneficiaryIds
+	 *            the IDs of the beneficiaries to export
+	 * @param chunkSize
+	 *            the maximum number of beneficiaries to export in each chunk
+	 */
+	BulkExportJob(String id, Path directory, String owner, String request, String statusUrl, Instant transactionTime,
+			List<String> types, List<String> beneficiaryIds, int chunkSize) {
+		this.id = id;
+		this.directory = directory;
+		this.owner = owner;
+		this.request = request;
+		this.statusUrl = statusUrl;
+		this.transactionTime = transactionTime;
+		this.types = Collections.unmodifiableList(new ArrayList<>(types));
+		this.beneficiaryIds = Collections.unmodifiableList(new ArrayList<>(beneficiaryIds));
+		this.chunkSize = chunkSize;
+		this.completedChunks = new BitSet(getChunkCount());
+	}
+
+	/**
+	 * @return the unique ID of this {@link BulkExportJob}
+	 */
+	String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the directory that this {@link BulkExportJob}'s state and output
+	 *         files are stored in
+	 */
+	Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the name of the authenticated client that started this
+	 *         {@link BulkExportJob}, which is the only one allowed to see it, or
+	 *         <code>null</code> if the server isn't authenticating clients
+	 */
+	String getOwner() {
+		return owner;
+	}
+
+	/**
+	 * @return the full URL of the kick-off request for this
+	 *         {@link BulkExportJob}
+	 */
+	String getRequest() {
+		return request;
+	}
+
+	/**
+	 * @return the URL that this {@link BulkExportJob}'s status can be polled at,
+	 *         which its output files are also under
+	 */
+	String getStatusUrl() {
+		return statusUrl;
+	}
+
+	/**
+	 * @return when this {@link BulkExportJob} was started, which all of its
+	 *         output reflects the data as of (or later)
+	 */
+	Instant getTransactionTime() {
+		return transactionTime;
+	}
+
+	/**
+	 * @return the FHIR resource types to export, as listed in
+	 *         {@link #SUPPORTED_TYPES}
+	 */
+	List<String> getTypes() {
+		return types;
+	}
+
+	/**
+	 * @return the number of chunks that this {@link BulkExportJob}'s
+	 *         beneficiaries are split into
+	 */
+	int getChunkCount() {
+		return (beneficiaryIds.size() + chunkSize - 1) / chunkSize;
+	}
+
+	/**
+	 * @param chunkIndex
+	 *            the index of the chunk to get the beneficiary IDs for
+	 * @return the IDs of the beneficiaries to export in the specified chunk
+	 */
+	List<String> getChunkBeneficiaryIds(int chunkIndex) {
+		int fromIndex = chunkIndex * chunkSize;
+		return beneficiaryIds.subList(fromIndex, Math.min(fromIndex + chunkSize, beneficiaryIds.size()));
+	}
+
+	/**
+	 * @param type
+	 *            one of the {@link #getTypes()}
+	 * @param chunkIndex
+	 *            the index of the chunk
+	 * @return the name of the output file for the specified type and chunk
+	 */
+	static String getOutputFileName(String type, int chunkIndex) {
+		return String.format("%s-%d.ndjson", type, chunkIndex);
+	}
+
+	/**
+	 * @param chunkIndex
+	 *            the index of the chunk
+	 * @return the marker file that's created once the specified chunk's output
+	 *         files have all been written
+	 */
+	Path getChunkMarkerFile(int chunkIndex) {
+		return directory.resolve(String.format("chunk-%d.done", chunkIndex));
+	}
+
+	/**
+	 * @param chunkIndex
+	 *            the index of the chunk that has been completely exported
+	 */
+	synchronized void markChunkCompleted(int chunkIndex) {
+		completedChunks.set(chunkIndex);
+	}
+
+	/**
+	 * @param chunkIndex
+	 *            the index of the chunk to check
+	 * @return <code>true</code> if the specified chunk has been completely
+	 *         exported, <code>false</code> if not
+	 */
+	synchronized boolean isChunkCompleted(int chunkIndex) {
+		return completedChunks.get(chunkIndex);
+	}
+
+	/**
+	 * @return the number of chunks that have been completely exported
+	 */
+	synchronized int getCompletedChunkCount() {
+		return completedChunks.cardinality();
+	}
+
+	/**
+	 * @return <code>true</code> if every chunk of this {@link BulkExportJob} has
+	 *         been exported, <code>false</code> if not
+	 */
+	synchronized boolean isCompleted() {
+		return completedChunks.cardinality() == getChunkCount();
+	}
+
+	/**
+	 * @return a description of why this {@link BulkExportJob} failed, or
+	 *         <code>null</code> if it hasn't
+	 */
+	synchronized String getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Marks this {@link BulkExportJob} as failed, so that none of its remaining
+	 * chunks will be run, now or after a restart.
+	 *
+	 * @param failure
+	 *            a description of why this {@link BulkExportJob} failed
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	synchronized void markFailed(String failure) throws IOException {
+		if (this.failure != null)
+			return;
+		this.failure = failure;
+		Files.write(directory.resolve(FAILED_FILE_NAME), failure.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return <code>true</code> if this {@link BulkExportJob} has been
+	 *         cancelled, <code>false</code> if not
+	 */
+	synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Marks this {@link BulkExportJob} as cancelled, so that none of its
+	 * remaining chunks will be started, now or after a restart. Chunks that are
+	 * already running will stop at their next beneficiary: see
+	 * {@link #getRunningChunkCount()}.
+	 *
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	synchronized void markCancelled() throws IOException {
+		if (cancelled)
+			return;
+		this.cancelled = true;
+		Files.createDirectories(directory);
+		Files.write(directory.resolve(CANCELLED_FILE_NAME), new byte[0]);
+	}
+
+	/**
+	 * Records that one of this {@link BulkExportJob}'s chunks is about to be
+	 * run, unless the job is no longer active. Every call that returns
+	 * <code>true</code> must be followed by a call to {@link #chunkFinished()}.
+	 *
+	 * @return <code>true</code> if the chunk should be run, <code>false</code>
+	 *         if not
+	 */
+	synchronized boolean chunkStarted() {
+		if (!isActive())
+			return false;
+		runningChunks++;
+		return true;
+	}
+
+	/**
+	 * Records that one of this {@link BulkExportJob}'s chunks (as started via
+	 * {@link #chunkStarted()}) is no longer running.
+	 */
+	synchronized void chunkFinished() {
+		runningChunks--;
+	}
+
+	/**
+	 * @return the number of this {@link BulkExportJob}'s chunks that are
+	 *         currently running
+	 */
+	synchronized int getRunningChunkCount() {
+		return runningChunks;
+	}
+
+	/**
+	 * @return <code>true</code> if this {@link BulkExportJob} is still running,
+	 *         <code>false</code> if it's completed, failed, or been cancelled
+	 */
+	synchronized boolean isActive() {
+		return !cancelled && failure == null && !isCompleted();
+	}
+
+	/**
+	 * Writes this {@link BulkExportJob}'s parameters to its
+	 * {@link #getDirectory()}, so that it can be resumed later via
+	 * {@link #read(Path)}.
+	 *
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	void write() throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("id", id);
+		if (owner != null)
+			properties.setProperty("owner", owner);
+		properties.setProperty("request", request);
+		properties.setProperty("statusUrl", statusUrl);
+		properties.setProperty("transactionTime", transactionTime.toString());
+		properties.setProperty("types", String.join(",", types));
+		properties.setProperty("beneficiaryIds", String.join(",", beneficiaryIds));
+		properties.setProperty("chunkSize", Integer.toString(chunkSize));
+
+		Files.createDirectories(directory);
+		try (OutputStream propertiesStream = Files.newOutputStream(directory.resolve(PROPERTIES_FILE_NAME))) {
+			properties.store(propertiesStream, null);
+		}
+	}
+
+	/**
+	 * @param directory
+	 *            the {@link #getDirectory()} of the {@link BulkExportJob} to read
+	 * @return the {@link BulkExportJob} that was previously {@link #write()}n to
+	 *         the specified directory, along with its progress, or
+	 *         <code>null</code> if there isn't one there
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	static BulkExportJob read(Path directory) throws IOException {
+		Path propertiesFile = directory.resolve(PROPERTIES_FILE_NAME);
+		if (!Files.isRegularFile(propertiesFile))
+			return null;
+
+		Properties properties = new Properties();
+		try (InputStream propertiesStream = Files.newInputStream(propertiesFile)) {
+			properties.load(propertiesStream);
+		}
+		BulkExportJob job = new BulkExportJob(properties.getProperty("id"), directory,
+				properties.getProperty("owner"), properties.getProperty("request"),
+				properties.getProperty("statusUrl"), Instant.parse(properties.getProperty("transactionTime")),
+				Arrays.asList(properties.getProperty("types").split(",")),
+				Arrays.stream(properties.getProperty("beneficiaryIds").split(",")).filter(id -> !id.isEmpty())
+						.collect(Collectors.toList()),
+				Integer.parseInt(properties.getProperty("chunkSize")));
+
+		for (int chunkIndex = 0; chunkIndex < job.getChunkCount(); chunkIndex++)
+			if (Files.exists(job.getChunkMarkerFile(chunkIndex)))
+				job.markChunkCompleted(chunkIndex);
+		Path failedFile = directory.resolve(FAILED_FILE_NAME);
+		if (Files.exists(failedFile))
+			job.failure = new String(Files.readAllBytes(failedFile), StandardCharsets.UTF_8);
+		if (Files.exists(directory.resolve(CANCELLED_FILE_NAME)))
+			job.cancelled = true;
+
+		return job;
+	}
+}
@@ -0,0 +1,572 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.persistence.NoResultException;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.PatientResourceProvider.IncludeIdentifiersMode;
+
+/**
+ * <p>
+ * Runs the asynchronous <code>$export</code> jobs started via
+ * {@link BulkExportProvider}, writing each job's {@link IBaseResource}s out as
+ * NDJSON files on local disk, to be downloaded via {@link BulkExportServlet}.
+ * </p>
+ * <p>
+ * Each job's beneficiaries are split into chunks (see {@link BulkExportJob}),
+ * which are queued up and run on a small, fixed-size pool of low-priority
+ * threads that's shared by all jobs. That pool's size is the only concurrency
+ * that exports ever get, no matter how many jobs or beneficiaries are queued,
+ * so that they can't crowd out the interactive requests. For the same reason,
+ * the claims are transformed on those threads (rather than via
+ * {@link ClaimTransformExecutor}) and aren't added to the {@link EobCache}.
+ * </p>
+ * <p>
+ * Job state is kept on disk, and any unfinished jobs found there at startup
+ * are resumed from their last completed chunk. Finished (completed or failed)
+ * jobs, along with their output files, are deleted by a periodic sweep once
+ * they've been left alone for longer than the retention period.
+ * </p>
+ */
+public final class BulkExportJobManager implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BulkExportJobManager.class);
+
+	/**
+	 * How often finished and cancelled jobs are checked for deletion.
+	 */
+	private static final long SWEEP_INTERVAL_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+
+	private final MetricRegistry metricRegistry;
+	private final BeneficiaryExporter beneficiaryExporter;
+	private final Path exportDirectory;
+	private final int maxActiveJobs;
+	private final int chunkSize;
+	private final Duration retention;
+	private final FhirContext fhirContext = FhirContext.forDstu3();
+	private final ExecutorService executor;
+	private final ScheduledExecutorService sweeper;
+	private final Map<String, BulkExportJob> jobs = new ConcurrentHashMap<>();
+	private final Set<BulkExportJob> cancelledJobs = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Constructs a new {@link BulkExportJobManager}, and resumes any unfinished
+	 * jobs found in the specified export directory.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param coverageResourceProvider
+	 *            the {@link CoverageResourceProvider} to look up
+	 *            {@link Beneficiary}s with
+	 * @param eobResourceProvider
+	 *            the {@link ExplanationOfBenefitResourceProvider} to look up
+	 *            claims with
+	 * @param exportDirectory
+	 *            the directory to store the jobs' state and output files in
+	 * @param threads
+	 *            the number of threads to run export chunks on
+	 * @param maxActiveJobs
+	 *            the maximum number of jobs that may be running at once
+	 * @param chunkSize
+	 *            the number of beneficiaries to export in each chunk
+	 * @param retentionSeconds
+	 *            the number of seconds that finished jobs (and their output
+	 *            files) are kept for
+	 */
+	public BulkExportJobManager(MetricRegistry metricRegistry, CoverageResourceProvider coverageResourceProvider,
+			ExplanationOfBenefitResourceProvider eobResourceProvider, Path exportDirectory, int threads,
+			int maxActiveJobs, int chunkSize, long retentionSeconds) {
+		this(metricRegistry,
+				(parser, writers, beneficiaryId) -> exportBeneficiary(metricRegistry, coverageResourceProvider,
+						eobResourceProvider, parser, writers, beneficiaryId),
+				exportDirectory, threads, maxActiveJobs, chunkSize, retentionSeconds);
+	}
+
+	/**
+	 * Constructs a new {@link BulkExportJobManager}, and resumes any unfinished
+	 * jobs found in the specified export directory.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param beneficiaryExporter
+	 *            the {@link BeneficiaryExporter} to write out each
+	 *            beneficiary's resources with
+	 * @param exportDirectory
+	 *            the directory to store the jobs' state and output files in
+	 * @param threads
+	 *            the number of threads to run export chunks on
+	 * @param maxActiveJobs
+	 *            the maximum number of jobs that may be running at once
+	 * @param chunkSize
+	 *            the number of beneficiaries to export in each chunk
+	 * @param retentionSeconds
+	 *            the number of seconds that finished jobs (and their output
+	 *            files) are kept for
+	 */
+	BulkExportJobManager(MetricRegistry metricRegistry, BeneficiaryExporter beneficiaryExporter,
+			Path exportDirectory, int threads, int maxActiveJobs, int chunkSize, long retentionSeconds) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Invalid threads: " + threads);
+		if (maxActiveJobs < 1)
+			throw new IllegalArgumentException("Invalid max active jobs: " + maxActiveJobs);
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+		if (retentionSeconds < 1)
+			throw new IllegalArgumentException("Invalid retention: " + retentionSeconds);
+
+		this.metricRegistry = metricRegistry;
+		this.beneficiaryExporter = beneficiaryExporter;
+		this.exportDirectory = exportDirectory;
+		this.maxActiveJobs = maxActiveJobs;
+		this.chunkSize = chunkSize;
+		this.retention = Duration.ofSeconds(retentionSeconds);
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable,
+					BulkExportJobManager.class.getSimpleName() + "-" + threadCount.getAndIncrement());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+
+		this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, BulkExportJobManager.class.getSimpleName() + "-sweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		resumeJobs();
+		sweeper.scheduleWithFixedDelay(() -> sweepJobs(Instant.now()), SWEEP_INTERVAL_SECONDS,
+				SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Starts a new export job.
+	 *
+	 * @param owner
+	 *            the DN of the client starting the job, which is the only client
+	 *            that will be able to see it
+	 * @param request
+	 *            the full URL of the kick-off request
+	 * @param serverBase
+	 *            the base URL of the FHIR server, which the job's status and
+	 *            output file URLs will be built from
+	 * @param types
+	 *            the FHIR resource types to export, from
+	 *            {@link BulkExportJob#SUPPORTED_TYPES}
+	 * @param beneficiaryIds
+	 *            the IDs of the beneficiaries to export
+	 * @return the new job's {@link BulkExportJob#getStatusUrl()}, or
+	 *         {@link Optional#empty()} if too many jobs are already running to
+	 *         start another
+	 */
+	Optional<String> startJob(String owner, String request, String serverBase, List<String> types,
+			List<String> beneficiaryIds) {
+		Objects.requireNonNull(owner);
+
+		BulkExportJob job;
+		synchronized (this) {
+			if (jobs.values().stream().filter(BulkExportJob::isActive).count() >= maxActiveJobs)
+				return Optional.empty();
+
+			String jobId = UUID.randomUUID().toString();
+			job = new BulkExportJob(jobId, exportDirectory.resolve(jobId), owner, request,
+					serverBase + BulkExportServlet.STATUS_PATH + jobId, Instant.now(), types, beneficiaryIds,
+					chunkSize);
+			try {
+				job.write();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			jobs.put(jobId, job);
+		}
+
+		metricRegistry.meter(MetricRegistry.name(getClass().getSimpleName(), "jobs", "started")).mark();
+		LOGGER.info("Started export job '{}' for {} beneficiaries.", job.getId(), beneficiaryIds.size());
+		submitChunks(job);
+		return Optional.of(job.getStatusUrl());
+	}
+
+	/**
+	 * @param jobId
+	 *            the {@link BulkExportJob#getId()} of the job to get
+	 * @return the matching {@link BulkExportJob}, if any
+	 */
+	Optional<BulkExportJob> getJob(String jobId) {
+		return Optional.ofNullable(jobs.get(jobId));
+	}
+
+	/**
+	 * Cancels the specified job (if it's still running), and queues up the
+	 * deletion of its output files, without waiting for either. The files are
+	 * deleted once any of the job's chunks that are already running have
+	 * stopped.
+	 *
+	 * @param job
+	 *            the {@link BulkExportJob} to cancel
+	 */
+	void cancelJob(BulkExportJob job) {
+		try {
+			job.markCancelled();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		jobs.remove(job.getId());
+		cancelledJobs.add(job);
+		LOGGER.info("Cancelled export job '{}'.", job.getId());
+
+		scheduleCancelledJobsDeletion();
+	}
+
+	/**
+	 * Queues up a {@link #deleteCancelledJobs()} on the sweeper thread.
+	 */
+	private void scheduleCancelledJobsDeletion() {
+		try {
+			sweeper.execute(this::deleteCancelledJobs);
+		} catch (RejectedExecutionException e) {
+			// Shutting down: the files will instead be deleted at the next startup.
+			LOGGER.debug("Unable to schedule deletion of cancelled export jobs.", e);
+		}
+	}
+
+	/**
+	 * Deletes the files of all cancelled jobs that no longer have any chunks
+	 * running. Those that still do will be deleted once their last chunk
+	 * finishes, or by the next {@link #sweepJobs(Instant)}.
+	 */
+	private void deleteCancelledJobs() {
+		for (BulkExportJob job : cancelledJobs)
+			if (job.getRunningChunkCount() == 0 && cancelledJobs.remove(job))
+				deleteRecursively(job.getDirectory());
+	}
+
+	/**
+	 * Deletes the files of all cancelled jobs that no longer have any chunks
+	 * running, and removes all finished jobs (along with their files) that
+	 * haven't been modified within the retention period.
+	 *
+	 * @param now
+	 *            the current time
+	 */
+	void sweepJobs(Instant now) {
+		try {
+			deleteCancelledJobs();
+
+			for (BulkExportJob job : jobs.values()) {
+				if (job.isActive() || job.getRunningChunkCount() > 0)
+					continue;
+
+				/*
+				 * The directory's modification time is when its last file was added, i.e.
+				 * when the job finished.
+				 */
+				Instant finished = Files.getLastModifiedTime(job.getDirectory()).toInstant();
+				if (finished.plus(retention).isAfter(now))
+					continue;
+
+				jobs.remove(job.getId());
+				deleteRecursively(job.getDirectory());
+				metricRegistry.meter(MetricRegistry.name(getClass().getSimpleName(), "jobs", "expired")).mark();
+				LOGGER.info("Deleted expired export job '{}'.", job.getId());
+			}
+		} catch (IOException | RuntimeException e) {
+			// Don't let one bad job stop all future sweeps.
+			LOGGER.warn("Unable to sweep export jobs.", e);
+		}
+	}
+
+	/**
+	 * Shuts down the export threads. Any chunks that haven't been completed will
+	 * be re-run when the jobs are resumed after the next startup.
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		sweeper.shutdownNow();
+		executor.shutdownNow();
+		try {
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS))
+				LOGGER.warn("Export chunks still running after shutdown.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Loads all of the jobs found in {@link #exportDirectory}, and queues up
+	 * the remaining chunks of any that haven't finished.
+	 */
+	private void resumeJobs() {
+		if (!Files.isDirectory(exportDirectory))
+			return;
+
+		try (DirectoryStream<Path> jobDirectories = Files.newDirectoryStream(exportDirectory)) {
+			for (Path jobDirectory : jobDirectories) {
+				BulkExportJob job = BulkExportJob.read(jobDirectory);
+				if (job == null)
+					continue;
+				if (job.isCancelled()) {
+					// It was cancelled before its files could be deleted.
+					deleteRecursively(jobDirectory);
+					continue;
+				}
+
+				jobs.put(job.getId(), job);
+				if (job.isActive()) {
+					LOGGER.info("Resuming export job '{}' at {} of {} chunks.", job.getId(),
+							job.getCompletedChunkCount(), job.getChunkCount());
+					submitChunks(job);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @param job
+	 *            the {@link BulkExportJob} to queue up the remaining chunks of
+	 */
+	private void submitChunks(BulkExportJob job) {
+		for (int chunkIndex = 0; chunkIndex < job.getChunkCount(); chunkIndex++) {
+			if (job.isChunkCompleted(chunkIndex))
+				continue;
+
+			int chunkIndexFinal = chunkIndex;
+			executor.execute(() -> runChunk(job, chunkIndexFinal));
+		}
+	}
+
+	/**
+	 * Exports the specified chunk, marking the job as failed if that doesn't
+	 * work out.
+	 *
+	 * @param job
+	 *            the {@link BulkExportJob} to export a chunk of
+	 * @param chunkIndex
+	 *            the index of the chunk to export
+	 */
+	private void runChunk(BulkExportJob job, int chunkIndex) {
+		if (!job.chunkStarted())
+			return;
+
+		try {
+			try (Timer.Context timerChunk = metricRegistry
+					.timer(MetricRegistry.name(getClass().getSimpleName(), "chunk")).time()) {
+				exportChunk(job, chunkIndex);
+			} catch (Exception e) {
+				if (job.isCancelled())
+					return;
+
+				LOGGER.error(String.format("Export job '%s' failed on chunk %d.", job.getId(), chunkIndex), e);
+				metricRegistry.meter(MetricRegistry.name(getClass().getSimpleName(), "jobs", "failed")).mark();
+				try {
+					job.markFailed(String.format("Export failed on chunk %d.", chunkIndex));
+				} catch (IOException e2) {
+					LOGGER.warn("Unable to record export job failure.", e2);
+				}
+				return;
+			}
+
+			if (job.isCompleted()) {
+				metricRegistry.meter(MetricRegistry.name(getClass().getSimpleName(), "jobs", "completed")).mark();
+				LOGGER.info("Completed export job '{}'.", job.getId());
+			}
+		} finally {
+			job.chunkFinished();
+			if (job.isCancelled() && job.getRunningChunkCount() == 0)
+				scheduleCancelledJobsDeletion();
+		}
+	}
+
+	/**
+	 * Writes out the NDJSON files for the specified chunk. Each file is written
+	 * under a temporary name first, and the chunk's marker file only created
+	 * once they've all been moved into place, so a chunk that was interrupted
+	 * can simply be re-run from scratch.
+	 *
+	 * @param job
+	 *            the {@link BulkExportJob} to export a chunk of
+	 * @param chunkIndex
+	 *            the index of the chunk to export
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private void exportChunk(BulkExportJob job, int chunkIndex) throws IOException {
+		IParser parser = fhirContext.newJsonParser().setPrettyPrint(false);
+		Map<String, Path> tempFiles = new LinkedHashMap<>();
+		Map<String, BufferedWriter> writers = new LinkedHashMap<>();
+		try {
+			for (String type : job.getTypes()) {
+				Path tempFile = job.getDirectory().resolve(BulkExportJob.getOutputFileName(type, chunkIndex) + ".tmp");
+				tempFiles.put(type, tempFile);
+				writers.put(type, Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8));
+			}
+
+			for (String beneficiaryId : job.getChunkBeneficiaryIds(chunkIndex)) {
+				if (!job.isActive())
+					return;
+				beneficiaryExporter.export(parser, writers, beneficiaryId);
+			}
+		} finally {
+			for (BufferedWriter writer : writers.values())
+				writer.close();
+		}
+
+		for (Map.Entry<String, Path> tempFile : tempFiles.entrySet())
+			Files.move(tempFile.getValue(),
+					job.getDirectory().resolve(BulkExportJob.getOutputFileName(tempFile.getKey(), chunkIndex)),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		Files.createFile(job.getChunkMarkerFile(chunkIndex));
+		job.markChunkCompleted(chunkIndex);
+	}
+
+	/**
+	 * Writes out all of the requested resources for the specified beneficiary.
+	 * Beneficiaries that can't be found are skipped, just like they'd be for a
+	 * search.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param coverageResourceProvider
+	 *            the {@link CoverageResourceProvider} to look up
+	 *            {@link Beneficiary}s with
+	 * @param eobResourceProvider
+	 *            the {@link ExplanationOfBenefitResourceProvider} to look up
+	 *            claims with
+	 * @param parser
+	 *            the {@link IParser} to encode the resources with
+	 * @param writers
+	 *            the NDJSON file {@link BufferedWriter}s to write to, keyed by
+	 *            FHIR resource type
+	 * @param beneficiaryId
+	 *            the {@link Beneficiary#getBeneficiaryId()} of the beneficiary to
+	 *            export
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private static void exportBeneficiary(MetricRegistry metricRegistry,
+			CoverageResourceProvider coverageResourceProvider, ExplanationOfBenefitResourceProvider eobResourceProvider,
+			IParser parser, Map<String, BufferedWriter> writers, String beneficiaryId) throws IOException {
+		Beneficiary beneficiary;
+		try {
+			beneficiary = coverageResourceProvider.findBeneficiaryById(beneficiaryId);
+		} catch (NoResultException e) {
+			return;
+		}
+
+		BufferedWriter coverageWriter = writers.get("Coverage");
+		if (coverageWriter != null)
+			for (IBaseResource coverage : CoverageTransformer.transform(metricRegistry, beneficiary))
+				writeLine(parser, coverageWriter, coverage);
+
+		BufferedWriter patientWriter = writers.get("Patient");
+		if (patientWriter != null) {
+			// Exports never include the unhashed HICNs and MBIs.
+			beneficiary.setHicnUnhashed(Optional.empty());
+			beneficiary.setMedicareBeneficiaryId(Optional.empty());
+			writeLine(parser, patientWriter, BeneficiaryTransformer.transform(metricRegistry, beneficiary,
+					IncludeIdentifiersMode.OMIT_HICNS_AND_MBIS));
+		}
+
+		BufferedWriter eobWriter = writers.get("ExplanationOfBenefit");
+		if (eobWriter != null)
+			for (ClaimType claimType : ClaimType.values())
+				for (Object claim : eobResourceProvider.findClaimTypeByPatient(claimType, beneficiaryId))
+					writeLine(parser, eobWriter, claimType.getTransformer().apply(metricRegistry, claim));
+	}
+
+	/**
+	 * @param parser
+	 *            the {@link IParser} to encode the resource with
+	 * @param writer
+	 *            the NDJSON file {@link BufferedWriter} to write to
+	 * @param resource
+	 *            the {@link IBaseResource} to write out, as a single line
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private static void writeLine(IParser parser, BufferedWriter writer, IBaseResource resource) throws IOException {
+		parser.encodeResourceToWriter(resource, writer);
+		writer.write('\n');
+	}
+
+	/**
+	 * Writes out the requested resources for a single beneficiary, as part of
+	 * an export chunk.
+	 */
+	@FunctionalInterface
+	interface BeneficiaryExporter {
+		/**
+		 * @param parser
+		 *            the {@link IParser} to encode the resources with
+		 * @param writers
+		 *            the NDJSON file {@link BufferedWriter}s to write to, keyed
+		 *            by FHIR resource type
+		 * @param beneficiaryId
+		 *            the {@link Beneficiary#getBeneficiaryId()} of the
+		 *            beneficiary to export
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		void export(IParser parser, Map<String, BufferedWriter> writers, String beneficiaryId) throws IOException;
+	}
+
+	/**
+	 * @param directory
+	 *            the directory to delete, along with everything in it
+	 */
+	private static void deleteRecursively(Path directory) {
+		if (!Files.exists(directory))
+			return;
+
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException e) {
+					LOGGER.warn("Unable to delete export file: " + path, e);
+				}
+			});
+		} catch (IOException e) {
+			LOGGER.warn("Unable to delete export directory: " + directory, e);
+		}
+	}
+}
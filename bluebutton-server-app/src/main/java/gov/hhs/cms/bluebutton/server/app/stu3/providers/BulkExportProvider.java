@@ -0,0 +1,151 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+
+import org.hl7.fhir.dstu3.model.OperationOutcome;
+import org.hl7.fhir.dstu3.model.OperationOutcome.IssueSeverity;
+import org.hl7.fhir.dstu3.model.OperationOutcome.IssueType;
+import org.hl7.fhir.dstu3.model.StringType;
+import org.springframework.stereotype.Component;
+
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.AuthenticationException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.UnclassifiedServerFailureException;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import gov.hhs.cms.bluebutton.server.app.ClientDistinguishedNames;
+
+/**
+ * <p>
+ * A HAPI "plain" provider that adds support for the system-level
+ * <a href="https://hl7.org/fhir/uv/bulkdata/export/index.html">FHIR Bulk Data
+ * <code>$export</code></a> operation, for a cohort of beneficiaries. This
+ * allows partners that want everything for a cohort to fetch it as a handful
+ * of NDJSON files, rather than paging through per-beneficiary searches.
+ * </p>
+ * <p>
+ * Kicking off an export just queues up a job with {@link BulkExportJobManager}
+ * and responds with the job's status URL (in the
+ * <code>Content-Location</code> header), which is then served by
+ * {@link BulkExportServlet}.
+ * </p>
+ */
+@Component
+public final class BulkExportProvider {
+	/**
+	 * A {@link Pattern} that will match valid beneficiary IDs.
+	 */
+	private static final Pattern BENEFICIARY_ID_PATTERN = Pattern.compile("-?\\p{Alnum}+");
+
+	private BulkExportJobManager jobManager;
+
+	/**
+	 * @param jobManager
+	 *            the {@link BulkExportJobManager} to run the export jobs with
+	 */
+	@Inject
+	public void setBulkExportJobManager(BulkExportJobManager jobManager) {
+		this.jobManager = jobManager;
+	}
+
+	/**
+	 * Kicks off an asynchronous export of the specified beneficiaries' data.
+	 *
+	 * @param patient
+	 *            the IDs (or <code>Patient</code> references) of the
+	 *            beneficiaries to export
+	 * @param type
+	 *            an optional, comma-separated list of the FHIR resource types to
+	 *            export, which defaults to all of
+	 *            {@link BulkExportJob#SUPPORTED_TYPES}
+	 * @param requestDetails
+	 *            a {@link RequestDetails} containing the details of the request
+	 * @return an {@link OperationOutcome} pointing the client at the new job's
+	 *         status URL
+	 */
+	@Operation(name = "$export", idempotent = true)
+	public OperationOutcome export(
+			@OperationParam(name = "patient", min = 1, max = OperationParam.MAX_UNLIMITED) List<StringType> patient,
+			@OperationParam(name = "_type", min = 0, max = 1) StringType type, RequestDetails requestDetails) {
+		List<String> types = parseTypes(type);
+		List<String> beneficiaryIds = parseBeneficiaryIds(patient);
+
+		/*
+		 * The job's status and output are only served to whoever started it, so it
+		 * can't be started by a client that can't be identified later.
+		 */
+		String owner = null;
+		if (requestDetails instanceof ServletRequestDetails)
+			owner = ClientDistinguishedNames.getClientDn(((ServletRequestDetails) requestDetails).getServletRequest());
+		if (owner == null)
+			throw new AuthenticationException("A client certificate is required to start an export.");
+
+		Optional<String> statusUrl = jobManager.startJob(owner, requestDetails.getCompleteUrl(),
+				requestDetails.getFhirServerBase(), types, beneficiaryIds);
+		if (!statusUrl.isPresent())
+			throw new UnclassifiedServerFailureException(429, "Too many export jobs are already running.");
+
+		if (requestDetails instanceof ServletRequestDetails)
+			((ServletRequestDetails) requestDetails).getServletResponse().setHeader("Content-Location",
+					statusUrl.get());
+
+		OperationOutcome outcome = new OperationOutcome();
+		outcome.addIssue().setSeverity(IssueSeverity.INFORMATION).setCode(IssueType.INFORMATIONAL)
+				.setDiagnostics("Export started. Poll for its status at: " + statusUrl.get());
+		return outcome;
+	}
+
+	/**
+	 * @param type
+	 *            the <code>_type</code> parameter, if any
+	 * @return the FHIR resource types to export
+	 */
+	static List<String> parseTypes(StringType type) {
+		if (type == null || type.isEmpty())
+			return BulkExportJob.SUPPORTED_TYPES;
+
+		Set<String> types = new LinkedHashSet<>();
+		for (String typeText : type.getValue().split(",")) {
+			if (!BulkExportJob.SUPPORTED_TYPES.contains(typeText.trim()))
+				throw new InvalidRequestException("Unsupported _type: " + typeText);
+			types.add(typeText.trim());
+		}
+		return new ArrayList<>(types);
+	}
+
+	/**
+	 * @param patient
+	 *            the <code>patient</code> parameters
+	 * @return the beneficiary IDs to export, without duplicates
+	 */
+	static List<String> parseBeneficiaryIds(List<StringType> patient) {
+		Set<String> beneficiaryIds = new LinkedHashSet<>();
+		for (StringType patientParam : patient) {
+			if (patientParam.getValue() == null)
+				continue;
+
+			// Each may also contain a comma-separated list.
+			for (String patientText : patientParam.getValue().split(",")) {
+				String beneficiaryId = patientText.trim();
+				if (beneficiaryId.startsWith("Patient/"))
+					beneficiaryId = beneficiaryId.substring("Patient/".length());
+				if (!BENEFICIARY_ID_PATTERN.matcher(beneficiaryId).matches())
+					throw new InvalidRequestException("Invalid patient: " + patientText);
+				beneficiaryIds.add(beneficiaryId);
+			}
+		}
+
+		if (beneficiaryIds.isEmpty())
+			throw new InvalidRequestException("At least one patient must be specified.");
+		return new ArrayList<>(beneficiaryIds);
+	}
+}
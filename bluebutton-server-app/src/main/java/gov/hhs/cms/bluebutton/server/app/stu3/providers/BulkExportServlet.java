@@ -0,0 +1,246 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import gov.hhs.cms.bluebutton.server.app.ClientDistinguishedNames;
+
+/**
+ * <p>
+ * Serves the status and output files of the <code>$export</code> jobs run by
+ * {@link BulkExportJobManager}, per the
+ * <a href="https://hl7.org/fhir/uv/bulkdata/export/index.html">FHIR Bulk Data
+ * Access</a> spec:
+ * </p>
+ * <ul>
+ * <li><code>GET $export-status/&lt;job&gt;</code>: <code>202 Accepted</code>
+ * (with an <code>X-Progress</code> header) while the job is running, the
+ * job's JSON manifest once it's complete, or an <code>OperationOutcome</code>
+ * if it failed.</li>
+ * <li><code>GET $export-status/&lt;job&gt;/&lt;file&gt;</code>: one of the
+ * job's NDJSON output files.</li>
+ * <li><code>DELETE $export-status/&lt;job&gt;</code>: cancels the job, and
+ * responds with <code>202 Accepted</code> right away: its output files are
+ * deleted in the background.</li>
+ * </ul>
+ * <p>
+ * Jobs are only visible to the client that started them, as identified by
+ * {@link ClientDistinguishedNames#getClientDn(HttpServletRequest)}: requests
+ * for other clients' jobs get a <code>404</code>, and requests without a
+ * client certificate get a <code>401</code>.
+ * </p>
+ */
+public final class BulkExportServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The path (relative to the FHIR server's base URL) that this servlet's
+	 * URLs start with.
+	 */
+	public static final String STATUS_PATH = "/$export-status/";
+
+	/**
+	 * Matches this servlet's {@link HttpServletRequest#getPathInfo()}s: a job
+	 * ID, optionally followed by an output file name.
+	 */
+	private static final Pattern PATH_PATTERN = Pattern
+			.compile("/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(?:/(\\p{Alpha}+-\\d+\\.ndjson))?");
+
+	/**
+	 * How long (in seconds) clients are asked to wait between status polls.
+	 */
+	private static final int RETRY_AFTER_SECONDS = 10;
+
+	private final transient BulkExportJobManager jobManager;
+
+	/**
+	 * Constructs a new {@link BulkExportServlet}.
+	 *
+	 * @param jobManager
+	 *            the {@link BulkExportJobManager} running the jobs
+	 */
+	public BulkExportServlet(BulkExportJobManager jobManager) {
+		this.jobManager = jobManager;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		String clientDn = ClientDistinguishedNames.getClientDn(req);
+		if (clientDn == null) {
+			resp.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+			return;
+		}
+
+		Matcher pathMatcher = req.getPathInfo() != null ? PATH_PATTERN.matcher(req.getPathInfo()) : null;
+		Optional<BulkExportJob> job = findJob(clientDn, pathMatcher);
+		if (!job.isPresent()) {
+			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		String fileName = pathMatcher.group(2);
+		if (fileName != null)
+			sendFile(job.get(), fileName, resp);
+		else
+			sendStatus(job.get(), resp);
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServlet#doDelete(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		String clientDn = ClientDistinguishedNames.getClientDn(req);
+		if (clientDn == null) {
+			resp.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+			return;
+		}
+
+		Matcher pathMatcher = req.getPathInfo() != null ? PATH_PATTERN.matcher(req.getPathInfo()) : null;
+		Optional<BulkExportJob> job = findJob(clientDn, pathMatcher);
+		if (!job.isPresent() || pathMatcher.group(2) != null) {
+			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		jobManager.cancelJob(job.get());
+		resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+	}
+
+	/**
+	 * @param clientDn
+	 *            the DN of the client making the request
+	 * @param pathMatcher
+	 *            a {@link #PATH_PATTERN} {@link Matcher} for the request's path,
+	 *            if it has one
+	 * @return the {@link BulkExportJob} that the request is for, if it exists
+	 *         and belongs to the requesting client
+	 */
+	private Optional<BulkExportJob> findJob(String clientDn, Matcher pathMatcher) {
+		if (pathMatcher == null || !pathMatcher.matches())
+			return Optional.empty();
+
+		return jobManager.getJob(pathMatcher.group(1))
+				.filter(job -> clientDn.equals(job.getOwner()));
+	}
+
+	/**
+	 * @param job
+	 *            the {@link BulkExportJob} to send the status of
+	 * @param resp
+	 *            the {@link HttpServletResponse} to send it in
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private static void sendStatus(BulkExportJob job, HttpServletResponse resp) throws IOException {
+		String failure = job.getFailure();
+		if (failure != null) {
+			resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			resp.setContentType("application/fhir+json");
+			resp.setCharacterEncoding("UTF-8");
+			resp.getWriter().write(String.format(
+					"{\"resourceType\":\"OperationOutcome\",\"issue\":[{\"severity\":\"error\",\"code\":\"exception\","
+							+ "\"diagnostics\":%s}]}",
+					toJsonString(failure)));
+			return;
+		}
+
+		if (!job.isCompleted()) {
+			resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+			resp.setHeader("X-Progress",
+					String.format("%d of %d chunks complete", job.getCompletedChunkCount(), job.getChunkCount()));
+			resp.setIntHeader("Retry-After", RETRY_AFTER_SECONDS);
+			return;
+		}
+
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType("application/json");
+		resp.setCharacterEncoding("UTF-8");
+		PrintWriter writer = resp.getWriter();
+		writer.write("{\"transactionTime\":");
+		writer.write(toJsonString(job.getTransactionTime().toString()));
+		writer.write(",\"request\":");
+		writer.write(toJsonString(job.getRequest()));
+		writer.write(",\"requiresAccessToken\":false,\"output\":[");
+		boolean firstOutput = true;
+		for (String type : BulkExportJob.SUPPORTED_TYPES) {
+			if (!job.getTypes().contains(type))
+				continue;
+			for (int chunkIndex = 0; chunkIndex < job.getChunkCount(); chunkIndex++) {
+				String fileName = BulkExportJob.getOutputFileName(type, chunkIndex);
+				Path file = job.getDirectory().resolve(fileName);
+				// Empty files (e.g. chunks without any claims) aren't worth listing.
+				if (!Files.isRegularFile(file) || Files.size(file) == 0)
+					continue;
+
+				if (!firstOutput)
+					writer.write(',');
+				firstOutput = false;
+				writer.write("{\"type\":");
+				writer.write(toJsonString(type));
+				writer.write(",\"url\":");
+				writer.write(toJsonString(job.getStatusUrl() + "/" + fileName));
+				writer.write('}');
+			}
+		}
+		writer.write("],\"error\":[]}");
+	}
+
+	/**
+	 * @param job
+	 *            the {@link BulkExportJob} that the file belongs to
+	 * @param fileName
+	 *            the name of the output file to send
+	 * @param resp
+	 *            the {@link HttpServletResponse} to send it in
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private static void sendFile(BulkExportJob job, String fileName, HttpServletResponse resp) throws IOException {
+		Path file = job.getDirectory().resolve(fileName);
+		if (!job.isCompleted() || !Files.isRegularFile(file)) {
+			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType("application/fhir+ndjson");
+		resp.setContentLengthLong(Files.size(file));
+		Files.copy(file, resp.getOutputStream());
+	}
+
+	/**
+	 * @param value
+	 *            the value to encode
+	 * @return the specified value, as a quoted and escaped JSON string
+	 */
+	static String toJsonString(String value) {
+		StringBuilder json = new StringBuilder(value.length() + 2);
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				json.append('\\').append(c);
+			else if (c < 0x20)
+				json.append(String.format("\\u%04x", (int) c));
+			else
+				json.append(c);
+		}
+		json.append('"');
+		return json.toString();
+	}
+}
@@ -3,6 +3,7 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent;
@@ -15,12 +16,43 @@ import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
 import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
 import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim;
 import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaimLine;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
 
 /**
  * Transforms CCW {@link CarrierClaim} instances into FHIR
  * {@link ExplanationOfBenefit} resources.
  */
 final class CarrierClaimTransformer {
+	/**
+	 * The name of the {@link Timer} and {@link Tracer} span for
+	 * {@link #transform(MetricRegistry, Object)}, which is built once here
+	 * rather than on every call.
+	 */
+	private static final String METRIC_NAME_TRANSFORM = MetricRegistry
+			.name(CarrierClaimTransformer.class.getSimpleName(), "transform");
+
+	/**
+	 * The {@link ClaimCodeMapping} for the diagnosis code fields in
+	 * {@link CarrierClaim}s.
+	 */
+	private static final ClaimCodeMapping<CarrierClaim> CODE_MAPPING = ClaimCodeMapping.<CarrierClaim> builder()
+			.diagnosis(CarrierClaim::getDiagnosisPrincipalCode, CarrierClaim::getDiagnosisPrincipalCodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(CarrierClaim::getDiagnosis1Code, CarrierClaim::getDiagnosis1CodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(CarrierClaim::getDiagnosis2Code, CarrierClaim::getDiagnosis2CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis3Code, CarrierClaim::getDiagnosis3CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis4Code, CarrierClaim::getDiagnosis4CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis5Code, CarrierClaim::getDiagnosis5CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis6Code, CarrierClaim::getDiagnosis6CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis7Code, CarrierClaim::getDiagnosis7CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis8Code, CarrierClaim::getDiagnosis8CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis9Code, CarrierClaim::getDiagnosis9CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis10Code, CarrierClaim::getDiagnosis10CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis11Code, CarrierClaim::getDiagnosis11CodeVersion)
+			.diagnosis(CarrierClaim::getDiagnosis12Code, CarrierClaim::getDiagnosis12CodeVersion)
+			.build();
+
 	/**
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} to use
@@ -30,12 +62,12 @@ final class CarrierClaimTransformer {
 	 *         specified {@link CarrierClaim}
 	 */
 	static ExplanationOfBenefit transform(MetricRegistry metricRegistry, Object claim) {
-		Timer.Context timer = metricRegistry
-				.timer(MetricRegistry.name(CarrierClaimTransformer.class.getSimpleName(), "transform")).time();
+		Timer.Context timer = metricRegistry.timer(METRIC_NAME_TRANSFORM).time();
 
 		if (!(claim instanceof CarrierClaim))
 			throw new BadCodeMonkeyException();
-		ExplanationOfBenefit eob = transformClaim((CarrierClaim) claim);
+		ExplanationOfBenefit eob = Tracer.callInNewSpan(METRIC_NAME_TRANSFORM,
+				() -> transformClaim((CarrierClaim) claim, CODE_MAPPING));
 
 		timer.stop();
 		return eob;
@@ -44,10 +76,15 @@ final class CarrierClaimTransformer {
 	/**
 	 * @param claimGroup
 	 *            the CCW {@link CarrierClaim} to transform
+	 * @param codeMapping
+	 *            the mapping to use for the claim's diagnosis and procedure
+	 *            codes, which is always {@link #CODE_MAPPING}, other than in
+	 *            tests that check it against the original mapping code
 	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
 	 *         specified {@link CarrierClaim}
 	 */
-	private static ExplanationOfBenefit transformClaim(CarrierClaim claimGroup) {
+	static ExplanationOfBenefit transformClaim(CarrierClaim claimGroup,
+			BiConsumer<ExplanationOfBenefit, CarrierClaim> codeMapping) {
 		ExplanationOfBenefit eob = new ExplanationOfBenefit();
 		
 		// Common group level fields between all claim types
@@ -72,21 +109,7 @@ final class CarrierClaimTransformer {
 				claimGroup.getProviderPaymentAmount(), claimGroup.getBeneficiaryPaymentAmount(),
 				claimGroup.getSubmittedChargeAmount(), claimGroup.getAllowedChargeAmount());
 
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
-				claimGroup.getDiagnosisPrincipalCodeVersion(), 
-				claimGroup.getDiagnosis1Code(), claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
-				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
-				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
-				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
-				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
-				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
-				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
-				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
-				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
-				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
-				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
-				claimGroup.getDiagnosis12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		codeMapping.accept(eob, claimGroup);
 
 		for (CarrierClaimLine claimLine : claimGroup.getLines()) {
 			ItemComponent item = eob.addItem();
@@ -0,0 +1,170 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.hl7.fhir.dstu3.model.CodeableConcept;
+import org.hl7.fhir.dstu3.model.Coding;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.AdjudicationComponent;
+
+import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
+import gov.hhs.cms.bluebutton.data.codebook.model.Value;
+import gov.hhs.cms.bluebutton.data.codebook.model.Variable;
+
+/**
+ * <p>
+ * Precomputed, immutable mapping metadata for a single
+ * {@link CcwCodebookVariable}.
+ * </p>
+ * <p>
+ * The transformers create {@link Coding}s, {@link CodeableConcept}s,
+ * extensions, and identifiers for the same few hundred
+ * {@link CcwCodebookVariable}s over and over: thousands of times for a single
+ * large {@link ExplanationOfBenefit} search. Computing the reference URL,
+ * adjudication category, and display values for each of those every time (via
+ * <code>String.format(...)</code>, <code>toLowerCase()</code>, and linear
+ * scans of the {@link Value}s) was a significant share of the transformers'
+ * CPU time and garbage. Instead, all of that is computed once, here, when this
+ * class is first loaded.
+ * </p>
+ */
+final class CcwCodebookVariableMetadata {
+	/**
+	 * The {@link CcwCodebookVariableMetadata} for every
+	 * {@link CcwCodebookVariable}.
+	 */
+	private static final Map<CcwCodebookVariable, CcwCodebookVariableMetadata> METADATA = buildMetadata();
+
+	private final String referenceUrl;
+	private final String label;
+	private final CodeableConcept adjudicationCategory;
+	private final boolean coded;
+	private final Map<String, String> displaysByCode;
+	private final Set<String> duplicateCodes;
+
+	/**
+	 * Constructs a new {@link CcwCodebookVariableMetadata}.
+	 *
+	 * @param ccwVariable
+	 *            the {@link CcwCodebookVariable} to compute the metadata for
+	 */
+	private CcwCodebookVariableMetadata(CcwCodebookVariable ccwVariable) {
+		Variable variable = ccwVariable.getVariable();
+
+		this.referenceUrl = (TransformerConstants.BASE_URL_CCW_VARIABLES + "/" + variable.getId().toLowerCase())
+				.intern();
+		this.label = variable.getLabel();
+
+		/*
+		 * Adjudication.category is mapped a bit differently than other
+		 * Codings/CodeableConcepts: they all share the same Coding.system and use the
+		 * CcwCodebookVariable reference URL as their Coding.code. This looks weird, but
+		 * makes it easy for API developers to find more information about what the
+		 * specific adjudication they're looking at means.
+		 */
+		this.adjudicationCategory = TransformerUtils
+				.createCodeableConcept(TransformerConstants.CODING_CCW_ADJUDICATION_CATEGORY, referenceUrl);
+		this.adjudicationCategory.getCodingFirstRep().setDisplay(label);
+
+		this.coded = variable.getValueGroups().isPresent();
+		Map<String, String> displaysByCode = new HashMap<>();
+		Set<String> duplicateCodes = new HashSet<>();
+		if (coded) {
+			variable.getValueGroups().get().stream().flatMap(g -> g.getValues().stream()).forEach(v -> {
+				if (displaysByCode.putIfAbsent(v.getCode(), v.getDescription()) != null)
+					duplicateCodes.add(v.getCode());
+			});
+			displaysByCode.keySet().removeAll(duplicateCodes);
+		}
+		this.displaysByCode = Collections.unmodifiableMap(displaysByCode);
+		this.duplicateCodes = Collections.unmodifiableSet(duplicateCodes);
+	}
+
+	/**
+	 * @return the public URL at which documentation for this
+	 *         {@link CcwCodebookVariable} is published (interned, as it's used as
+	 *         a {@link Coding#getSystem()} in many, many places)
+	 */
+	String getReferenceUrl() {
+		return referenceUrl;
+	}
+
+	/**
+	 * @return the {@link Variable#getLabel()} value for this
+	 *         {@link CcwCodebookVariable}
+	 */
+	String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return a new copy of the {@link AdjudicationComponent#getCategory()}
+	 *         {@link CodeableConcept} to use for this {@link CcwCodebookVariable}
+	 *         (a copy, as FHIR model objects are mutable and can't safely be
+	 *         shared between resources)
+	 */
+	CodeableConcept createAdjudicationCategory() {
+		return adjudicationCategory.copy();
+	}
+
+	/**
+	 * @return <code>true</code> if this {@link CcwCodebookVariable} has
+	 *         {@link Variable#getValueGroups()} that its codes can be looked up
+	 *         in, <code>false</code> if not
+	 */
+	boolean isCoded() {
+		return coded;
+	}
+
+	/**
+	 * @param code
+	 *            the {@link Value#getCode()} to check
+	 * @return <code>true</code> if more than one of this
+	 *         {@link CcwCodebookVariable}'s {@link Value}s has the specified
+	 *         {@link Value#getCode()}, <code>false</code> if not
+	 */
+	boolean isDuplicateCode(String code) {
+		return duplicateCodes.contains(code);
+	}
+
+	/**
+	 * @param code
+	 *            the {@link Value#getCode()} to find the
+	 *            {@link Value#getDescription()} of
+	 * @return the {@link Value#getDescription()} of this
+	 *         {@link CcwCodebookVariable}'s only {@link Value} with the specified
+	 *         {@link Value#getCode()}, or {@link Optional#empty()} if there is no
+	 *         such {@link Value} or there's more than one (see
+	 *         {@link #isDuplicateCode(String)})
+	 */
+	Optional<String> lookupDisplay(String code) {
+		return Optional.ofNullable(displaysByCode.get(code));
+	}
+
+	/**
+	 * @param ccwVariable
+	 *            the {@link CcwCodebookVariable} to get the metadata for
+	 * @return the {@link CcwCodebookVariableMetadata} for the specified
+	 *         {@link CcwCodebookVariable}
+	 */
+	static CcwCodebookVariableMetadata of(CcwCodebookVariable ccwVariable) {
+		return METADATA.get(ccwVariable);
+	}
+
+	/**
+	 * @return the {@link CcwCodebookVariableMetadata} for every
+	 *         {@link CcwCodebookVariable}
+	 */
+	private static Map<CcwCodebookVariable, CcwCodebookVariableMetadata> buildMetadata() {
+		Map<CcwCodebookVariable, CcwCodebookVariableMetadata> metadata = new EnumMap<>(CcwCodebookVariable.class);
+		for (CcwCodebookVariable ccwVariable : CcwCodebookVariable.values())
+			metadata.put(ccwVariable, new CcwCodebookVariableMetadata(ccwVariable));
+		return Collections.unmodifiableMap(metadata);
+	}
+}
@@ -0,0 +1,265 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel;
+
+/**
+ * <p>
+ * A declarative table of the diagnosis and procedure code fields in a claim
+ * entity, and how each maps to the {@link ExplanationOfBenefit#getDiagnosis()}
+ * and {@link ExplanationOfBenefit#getProcedure()} entries.
+ * </p>
+ * <p>
+ * Each transformer builds one of these once, as a constant, listing its
+ * entity's getters in the order that the entries should be added. Mapping a
+ * claim is then a single pass over that table, with no intermediate
+ * {@link List}s and no {@link Diagnosis} or {@link CCWProcedure} instances
+ * created for empty fields.
+ * </p>
+ *
+ * @param <T>
+ *            the claim entity type being mapped, e.g.
+ *            {@link gov.hhs.cms.bluebutton.data.model.rif.InpatientClaim}
+ */
+final class ClaimCodeMapping<T> implements BiConsumer<ExplanationOfBenefit, T> {
+	private final DiagnosisField<T>[] diagnosisFields;
+	private final ProcedureField<T>[] procedureFields;
+
+	/**
+	 * Constructs a new {@link ClaimCodeMapping}. Use {@link #builder()} to
+	 * create instances.
+	 *
+	 * @param diagnosisFields
+	 *            the {@link DiagnosisField}s to map, in order
+	 * @param procedureFields
+	 *            the {@link ProcedureField}s to map, in order
+	 */
+	@SuppressWarnings("unchecked")
+	private ClaimCodeMapping(List<DiagnosisField<T>> diagnosisFields, List<ProcedureField<T>> procedureFields) {
+		this.diagnosisFields = diagnosisFields.toArray(new DiagnosisField[diagnosisFields.size()]);
+		this.procedureFields = procedureFields.toArray(new ProcedureField[procedureFields.size()]);
+	}
+
+	/**
+	 * Maps all of the specified claim's diagnosis codes, and then all of its
+	 * procedure codes.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claim
+	 *            the claim entity to map the codes from
+	 * @see #mapDiagnoses(ExplanationOfBenefit, Object)
+	 * @see #mapProcedures(ExplanationOfBenefit, Object)
+	 * @see java.util.function.BiConsumer#accept(java.lang.Object,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public void accept(ExplanationOfBenefit eob, T claim) {
+		mapDiagnoses(eob, claim);
+		mapProcedures(eob, claim);
+	}
+
+	/**
+	 * Adds a {@link ExplanationOfBenefit#getDiagnosis()} entry (if one isn't
+	 * already present) for each of the specified claim's diagnosis code fields
+	 * that has a value.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claim
+	 *            the claim entity to map the diagnosis codes from
+	 */
+	void mapDiagnoses(ExplanationOfBenefit eob, T claim) {
+		for (DiagnosisField<T> field : diagnosisFields) {
+			Optional<String> code = field.code.apply(claim);
+			if (!code.isPresent())
+				continue;
+
+			Optional<Diagnosis> diagnosis;
+			if (field.presentOnAdmission != null)
+				diagnosis = Diagnosis.from(code, field.version.apply(claim), field.presentOnAdmission.apply(claim),
+						field.labels);
+			else
+				diagnosis = Diagnosis.from(code, field.version.apply(claim), field.labels);
+			TransformerUtils.addDiagnosisCode(eob, diagnosis.get());
+		}
+	}
+
+	/**
+	 * Adds a {@link ExplanationOfBenefit#getProcedure()} entry (if one isn't
+	 * already present) for each of the specified claim's procedure code fields
+	 * that has a value.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claim
+	 *            the claim entity to map the procedure codes from
+	 */
+	void mapProcedures(ExplanationOfBenefit eob, T claim) {
+		for (ProcedureField<T> field : procedureFields) {
+			Optional<String> code = field.code.apply(claim);
+			if (!code.isPresent())
+				continue;
+
+			TransformerUtils.addProcedureCode(eob,
+					CCWProcedure.from(code, field.version.apply(claim), field.date.apply(claim)).get());
+		}
+	}
+
+	/**
+	 * @param <T>
+	 *            the claim entity type being mapped
+	 * @return a new {@link Builder} for a {@link ClaimCodeMapping}
+	 */
+	static <T> Builder<T> builder() {
+		return new Builder<>();
+	}
+
+	/**
+	 * Builds {@link ClaimCodeMapping} instances.
+	 *
+	 * @param <T>
+	 *            the claim entity type being mapped
+	 */
+	static final class Builder<T> {
+		private final List<DiagnosisField<T>> diagnosisFields = new ArrayList<>();
+		private final List<ProcedureField<T>> procedureFields = new ArrayList<>();
+
+		/**
+		 * Constructs a new {@link Builder}. Use {@link ClaimCodeMapping#builder()}
+		 * to create instances.
+		 */
+		private Builder() {
+		}
+
+		/**
+		 * @param code
+		 *            the getter for the field's ICD code
+		 * @param version
+		 *            the getter for the field's ICD version code
+		 * @param labels
+		 *            the {@link DiagnosisLabel}s to apply to the field's
+		 *            {@link Diagnosis}
+		 * @return this {@link Builder}, with the specified diagnosis field added
+		 */
+		Builder<T> diagnosis(Function<T, Optional<String>> code, Function<T, Optional<Character>> version,
+				DiagnosisLabel... labels) {
+			diagnosisFields.add(new DiagnosisField<>(code, version, null, labels));
+			return this;
+		}
+
+		/**
+		 * @param code
+		 *            the getter for the field's ICD code
+		 * @param version
+		 *            the getter for the field's ICD version code
+		 * @param presentOnAdmission
+		 *            the getter for the field's present-on-admission code
+		 * @param labels
+		 *            the {@link DiagnosisLabel}s to apply to the field's
+		 *            {@link Diagnosis}
+		 * @return this {@link Builder}, with the specified diagnosis field added
+		 */
+		Builder<T> diagnosisWithPresentOnAdmission(Function<T, Optional<String>> code,
+				Function<T, Optional<Character>> version, Function<T, Optional<Character>> presentOnAdmission,
+				DiagnosisLabel... labels) {
+			diagnosisFields.add(new DiagnosisField<>(code, version, presentOnAdmission, labels));
+			return this;
+		}
+
+		/**
+		 * @param code
+		 *            the getter for the field's ICD code
+		 * @param version
+		 *            the getter for the field's ICD version code
+		 * @param date
+		 *            the getter for the field's procedure date
+		 * @return this {@link Builder}, with the specified procedure field added
+		 */
+		Builder<T> procedure(Function<T, Optional<String>> code, Function<T, Optional<Character>> version,
+				Function<T, Optional<LocalDate>> date) {
+			procedureFields.add(new ProcedureField<>(code, version, date));
+			return this;
+		}
+
+		/**
+		 * @return a new {@link ClaimCodeMapping} with the fields that have been
+		 *         added to this {@link Builder}
+		 */
+		ClaimCodeMapping<T> build() {
+			return new ClaimCodeMapping<>(diagnosisFields, procedureFields);
+		}
+	}
+
+	/**
+	 * Models a single diagnosis code field in a claim entity.
+	 *
+	 * @param <T>
+	 *            the claim entity type
+	 */
+	private static final class DiagnosisField<T> {
+		private final Function<T, Optional<String>> code;
+		private final Function<T, Optional<Character>> version;
+		private final Function<T, Optional<Character>> presentOnAdmission;
+		private final DiagnosisLabel[] labels;
+
+		/**
+		 * Constructs a new {@link DiagnosisField}.
+		 *
+		 * @param code
+		 *            the getter for the field's ICD code
+		 * @param version
+		 *            the getter for the field's ICD version code
+		 * @param presentOnAdmission
+		 *            the getter for the field's present-on-admission code, or
+		 *            <code>null</code> if it doesn't have one
+		 * @param labels
+		 *            the {@link DiagnosisLabel}s to apply to the field's
+		 *            {@link Diagnosis}
+		 */
+		DiagnosisField(Function<T, Optional<String>> code, Function<T, Optional<Character>> version,
+				Function<T, Optional<Character>> presentOnAdmission, DiagnosisLabel[] labels) {
+			this.code = code;
+			this.version = version;
+			this.presentOnAdmission = presentOnAdmission;
+			this.labels = labels;
+		}
+	}
+
+	/**
+	 * Models a single procedure code field in a claim entity.
+	 *
+	 * @param <T>
+	 *            the claim entity type
+	 */
+	private static final class ProcedureField<T> {
+		private final Function<T, Optional<String>> code;
+		private final Function<T, Optional<Character>> version;
+		private final Function<T, Optional<LocalDate>> date;
+
+		/**
+		 * Constructs a new {@link ProcedureField}.
+		 *
+		 * @param code
+		 *            the getter for the field's ICD code
+		 * @param version
+		 *            the getter for the field's ICD version code
+		 * @param date
+		 *            the getter for the field's procedure date
+		 */
+		ProcedureField(Function<T, Optional<String>> code, Function<T, Optional<Character>> version,
+				Function<T, Optional<LocalDate>> date) {
+			this.code = code;
+			this.version = version;
+			this.date = date;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import gov.hhs.cms.bluebutton.server.app.tracing.Span;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
+
+/**
+ * <p>
+ * Transforms lists of claim entities into {@link ExplanationOfBenefit}s,
+ * splitting large lists up across a dedicated, bounded {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * Each claim's transform is independent and CPU-bound, so for beneficiaries
+ * with thousands of claims, doing them one at a time on the request thread
+ * left most of the server's cores idle while the client waited. Smaller lists
+ * (below the configured threshold) are still transformed on the request
+ * thread, as handing them off would cost more than it saves.
+ * </p>
+ * <p>
+ * The pool is separate from {@link ForkJoinPool#commonPool()}, so that a few
+ * large searches can't starve everything else in the JVM that relies on it,
+ * and its parallelism caps the number of cores that transforms can occupy, no
+ * matter how many requests are in flight.
+ * </p>
+ */
+public final class ClaimTransformExecutor implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ClaimTransformExecutor.class);
+
+	private final MetricRegistry metricRegistry;
+	private final EobCache eobCache;
+	private final int parallelThreshold;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructs a new {@link ClaimTransformExecutor}.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param eobCache
+	 *            the {@link EobCache} to check for (and add) transformed
+	 *            {@link ExplanationOfBenefit}s
+	 * @param parallelism
+	 *            the maximum number of threads to transform claims on, or
+	 *            <code>1</code> to always transform them on the request thread
+	 * @param parallelThreshold
+	 *            the minimum number of claims in a list for it to be split up
+	 *            across threads
+	 */
+	public ClaimTransformExecutor(MetricRegistry metricRegistry, EobCache eobCache, int parallelism,
+			int parallelThreshold) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+		if (parallelThreshold < 1)
+			throw new IllegalArgumentException("Invalid parallel threshold: " + parallelThreshold);
+
+		this.metricRegistry = metricRegistry;
+		this.eobCache = eobCache;
+		this.parallelThreshold = parallelThreshold;
+		this.pool = parallelism > 1 ? new ForkJoinPool(parallelism, forkJoinPool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+			thread.setName(ClaimTransformExecutor.class.getSimpleName() + "-" + thread.getPoolIndex());
+			thread.setDaemon(true);
+			return thread;
+		}, null, false) : null;
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of the claims being transformed
+	 * @param claims
+	 *            the claim entities to transform, which must already be fully
+	 *            loaded (e.g. with their lines fetched), as they may be read from
+	 *            other threads, and JPA <code>EntityManager</code>s aren't
+	 *            thread-safe
+	 * @return the transformed {@link ExplanationOfBenefit}s, one for each of the
+	 *         specified claims, in the same order
+	 */
+	public List<ExplanationOfBenefit> transform(ClaimType claimType, List<?> claims) {
+		if (pool == null || claims.size() < parallelThreshold)
+			return claims.stream().map(c -> transform(claimType, c)).collect(Collectors.toList());
+
+		/*
+		 * A parallel stream that's started from inside a ForkJoinPool task runs all of
+		 * its work in that pool, rather than in the common pool. Collecting from an
+		 * ordered stream preserves the order of the claims.
+		 */
+		Span parentSpan = Tracer.currentSpan();
+		Timer.Context timer = metricRegistry
+				.timer(MetricRegistry.name(ClaimTransformExecutor.class.getSimpleName(), "transform", "parallel"))
+				.time();
+		try {
+			return pool.submit(() -> claims.parallelStream()
+					.map(c -> Tracer.callInSpan(parentSpan, () -> transform(claimType, c)))
+					.collect(Collectors.toList())).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException("Interrupted while transforming claims.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new InternalErrorException(e.getCause());
+		} finally {
+			timer.stop();
+		}
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of the claim being transformed
+	 * @param claim
+	 *            the claim entity to transform
+	 * @return the transformed {@link ExplanationOfBenefit}, which may have come
+	 *         from the {@link EobCache}
+	 */
+	public ExplanationOfBenefit transform(ClaimType claimType, Object claim) {
+		return eobCache.get(claimType, claimType.getEntityIdFunction().apply(claim),
+				() -> claimType.getTransformer().apply(metricRegistry, claim));
+	}
+
+	/**
+	 * Shuts down the {@link ForkJoinPool} (if any) that claims are transformed
+	 * on, waiting briefly for any in-progress transforms to complete.
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		if (pool == null)
+			return;
+
+		pool.shutdown();
+		try {
+			if (!pool.awaitTermination(10, TimeUnit.SECONDS))
+				LOGGER.warn("Claim transforms still running after shutdown.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -40,30 +40,37 @@ import gov.hhs.cms.bluebutton.data.model.rif.SNFClaim_;
  * {@link ExplanationOfBenefitResourceProvider}.
  */
 public enum ClaimType {
-	CARRIER(CarrierClaim.class, CarrierClaim_.claimId, CarrierClaim_.beneficiaryId, CarrierClaimTransformer::transform,
-			CarrierClaim_.lines),
+	CARRIER(CarrierClaim.class, CarrierClaim_.claimId, c -> ((CarrierClaim) c).getClaimId(), CarrierClaim_.beneficiaryId,
+			CarrierClaimTransformer::transform, CarrierClaim_.lines),
 	
-	DME(DMEClaim.class, DMEClaim_.claimId, DMEClaim_.beneficiaryId, DMEClaimTransformer::transform, DMEClaim_.lines),
+	DME(DMEClaim.class, DMEClaim_.claimId, c -> ((DMEClaim) c).getClaimId(), DMEClaim_.beneficiaryId,
+			DMEClaimTransformer::transform, DMEClaim_.lines),
 	
-	HHA(HHAClaim.class, HHAClaim_.claimId, HHAClaim_.beneficiaryId, HHAClaimTransformer::transform, HHAClaim_.lines),
+	HHA(HHAClaim.class, HHAClaim_.claimId, c -> ((HHAClaim) c).getClaimId(), HHAClaim_.beneficiaryId,
+			HHAClaimTransformer::transform, HHAClaim_.lines),
 
-	HOSPICE(HospiceClaim.class, HospiceClaim_.claimId, HospiceClaim_.beneficiaryId, HospiceClaimTransformer::transform,
-			HospiceClaim_.lines),
+	HOSPICE(HospiceClaim.class, HospiceClaim_.claimId, c -> ((HospiceClaim) c).getClaimId(), HospiceClaim_.beneficiaryId,
+			HospiceClaimTransformer::transform, HospiceClaim_.lines),
 
-	INPATIENT(InpatientClaim.class, InpatientClaim_.claimId, InpatientClaim_.beneficiaryId,
+	INPATIENT(InpatientClaim.class, InpatientClaim_.claimId, c -> ((InpatientClaim) c).getClaimId(),
+			InpatientClaim_.beneficiaryId,
 			InpatientClaimTransformer::transform,
 			InpatientClaim_.lines),
 
-	OUTPATIENT(OutpatientClaim.class, OutpatientClaim_.claimId, OutpatientClaim_.beneficiaryId,
+	OUTPATIENT(OutpatientClaim.class, OutpatientClaim_.claimId, c -> ((OutpatientClaim) c).getClaimId(),
+			OutpatientClaim_.beneficiaryId,
 			OutpatientClaimTransformer::transform,
 			OutpatientClaim_.lines),
 
-	PDE(PartDEvent.class, PartDEvent_.eventId, PartDEvent_.beneficiaryId, PartDEventTransformer::transform),
+	PDE(PartDEvent.class, PartDEvent_.eventId, c -> ((PartDEvent) c).getEventId(), PartDEvent_.beneficiaryId,
+			PartDEventTransformer::transform),
 
-	SNF(SNFClaim.class, SNFClaim_.claimId, SNFClaim_.beneficiaryId, SNFClaimTransformer::transform, SNFClaim_.lines);
+	SNF(SNFClaim.class, SNFClaim_.claimId, c -> ((SNFClaim) c).getClaimId(), SNFClaim_.beneficiaryId,
+			SNFClaimTransformer::transform, SNFClaim_.lines);
 
 	private final Class<?> entityClass;
 	private final SingularAttribute<?, ?> entityIdAttribute;
+	private final Function<Object, String> entityIdFunction;
 	private final SingularAttribute<?, String> entityBeneficiaryIdAttribute;
 	private final BiFunction<MetricRegistry, Object, ExplanationOfBenefit> transformer;
 	private final Collection<PluralAttribute<?, ?, ?>> entityLazyAttributes;
@@ -75,6 +82,8 @@ public enum ClaimType {
 	 *            the value to use for {@link #getEntityClass()}
 	 * @param entityIdAttribute
 	 *            the value to use for {@link #getEntityIdAttribute()}
+	 * @param entityIdFunction
+	 *            the value to use for {@link #getEntityIdFunction()}
 	 * @param entityBeneficiaryIdAttribute
 	 *            the value to use for {@link #getEntityBeneficiaryIdAttribute()}
 	 * @param transformer
@@ -83,13 +92,16 @@ public enum ClaimType {
 	 *            the value to use for {@link #getEntityLazyAttributes()}
 	 */
 	private ClaimType(Class<?> entityClass, SingularAttribute<?, ?> entityIdAttribute,
+			Function<Object, String> entityIdFunction,
 			SingularAttribute<?, String> entityBeneficiaryIdAttribute,
 			BiFunction<MetricRegistry, Object, ExplanationOfBenefit> transformer,
 			PluralAttribute<?, ?, ?>... entityLazyAttributes) {
 		this.entityClass = entityClass;
 		this.entityIdAttribute = entityIdAttribute;
+		this.entityIdFunction = entityIdFunction;
 		this.entityBeneficiaryIdAttribute = entityBeneficiaryIdAttribute;
-		this.transformer = transformer;
+		// Drop each EOB's transient EobBuilderContext once it's been built.
+		this.transformer = transformer.andThen(EobBuilderContext::release);
 		this.entityLazyAttributes = entityLazyAttributes != null
 				? Collections.unmodifiableCollection(Arrays.asList(entityLazyAttributes))
 				: Collections.emptyList();
@@ -110,6 +122,16 @@ public enum ClaimType {
 		return entityIdAttribute;
 	}
 
+	/**
+	 * @return the {@link Function} to use to get the value of the
+	 *         {@link #getEntityIdAttribute()} field from the JPA {@link Entity}
+	 *         instances, which is also the claim ID used in the
+	 *         {@link ExplanationOfBenefit#getId()}
+	 */
+	public Function<Object, String> getEntityIdFunction() {
+		return entityIdFunction;
+	}
+
 	/**
 	 * @return the JPA {@link Entity} field that is a (foreign keyed) reference to
 	 *         {@link Beneficiary#getBeneficiaryId()}
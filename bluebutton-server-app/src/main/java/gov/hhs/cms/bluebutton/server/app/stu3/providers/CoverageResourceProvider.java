@@ -179,7 +179,7 @@ public final class CoverageResourceProvider implements IResourceProvider {
 	 *             A {@link NoResultException} will be thrown if no matching
 	 *             {@link Beneficiary} can be found in the database.
 	 */
-	private Beneficiary findBeneficiaryById(String beneficiaryId)
+	Beneficiary findBeneficiaryById(String beneficiaryId)
 			throws NoResultException {
 		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
 		CriteriaQuery<Beneficiary> criteria = builder.createQuery(Beneficiary.class);
@@ -2,6 +2,7 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent;
@@ -16,12 +17,42 @@ import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
 import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
 import gov.hhs.cms.bluebutton.data.model.rif.DMEClaim;
 import gov.hhs.cms.bluebutton.data.model.rif.DMEClaimLine;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
 
 /**
  * Transforms CCW {@link DMEClaim} instances into FHIR
  * {@link ExplanationOfBenefit} resources.
  */
 final class DMEClaimTransformer {
+	/**
+	 * The name of the {@link Timer} and {@link Tracer} span for
+	 * {@link #transform(MetricRegistry, Object)}, which is built once here
+	 * rather than on every call.
+	 */
+	private static final String METRIC_NAME_TRANSFORM = MetricRegistry
+			.name(DMEClaimTransformer.class.getSimpleName(), "transform");
+
+	/**
+	 * The {@link ClaimCodeMapping} for the diagnosis code fields in
+	 * {@link DMEClaim}s.
+	 */
+	private static final ClaimCodeMapping<DMEClaim> CODE_MAPPING = ClaimCodeMapping.<DMEClaim> builder()
+			.diagnosis(DMEClaim::getDiagnosisPrincipalCode, DMEClaim::getDiagnosisPrincipalCodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(DMEClaim::getDiagnosis1Code, DMEClaim::getDiagnosis1CodeVersion, DiagnosisLabel.PRINCIPAL)
+			.diagnosis(DMEClaim::getDiagnosis2Code, DMEClaim::getDiagnosis2CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis3Code, DMEClaim::getDiagnosis3CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis4Code, DMEClaim::getDiagnosis4CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis5Code, DMEClaim::getDiagnosis5CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis6Code, DMEClaim::getDiagnosis6CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis7Code, DMEClaim::getDiagnosis7CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis8Code, DMEClaim::getDiagnosis8CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis9Code, DMEClaim::getDiagnosis9CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis10Code, DMEClaim::getDiagnosis10CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis11Code, DMEClaim::getDiagnosis11CodeVersion)
+			.diagnosis(DMEClaim::getDiagnosis12Code, DMEClaim::getDiagnosis12CodeVersion)
+			.build();
+
 	/**
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} to use
@@ -31,12 +62,12 @@ final class DMEClaimTransformer {
 	 *         specified {@link DMEClaim}
 	 */
 	static ExplanationOfBenefit transform(MetricRegistry metricRegistry, Object claim) {
-		Timer.Context timer = metricRegistry
-				.timer(MetricRegistry.name(DMEClaimTransformer.class.getSimpleName(), "transform")).time();
+		Timer.Context timer = metricRegistry.timer(METRIC_NAME_TRANSFORM).time();
 
 		if (!(claim instanceof DMEClaim))
 			throw new BadCodeMonkeyException();
-		ExplanationOfBenefit eob = transformClaim((DMEClaim) claim);
+		ExplanationOfBenefit eob = Tracer.callInNewSpan(METRIC_NAME_TRANSFORM,
+				() -> transformClaim((DMEClaim) claim, CODE_MAPPING));
 
 		timer.stop();
 		return eob;
@@ -45,10 +76,15 @@ final class DMEClaimTransformer {
 	/**
 	 * @param claimGroup
 	 *            the CCW {@link DMEClaim} to transform
+	 * @param codeMapping
+	 *            the mapping to use for the claim's diagnosis and procedure
+	 *            codes, which is always {@link #CODE_MAPPING}, other than in
+	 *            tests that check it against the original mapping code
 	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
 	 *         specified {@link DMEClaim}
 	 */
-	private static ExplanationOfBenefit transformClaim(DMEClaim claimGroup) {
+	static ExplanationOfBenefit transformClaim(DMEClaim claimGroup,
+			BiConsumer<ExplanationOfBenefit, DMEClaim> codeMapping) {
 		ExplanationOfBenefit eob = new ExplanationOfBenefit();
 
 		// Common group level fields between all claim types
@@ -75,21 +111,7 @@ final class DMEClaimTransformer {
 				claimGroup.getBeneficiaryPaymentAmount(), claimGroup.getSubmittedChargeAmount(),
 				claimGroup.getAllowedChargeAmount());
 
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
-				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
-				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
-				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
-				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
-				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
-				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
-				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
-				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
-				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
-				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
-				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
-				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
-				claimGroup.getDiagnosis12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		codeMapping.accept(eob, claimGroup);
 
 		for (DMEClaimLine claimLine : claimGroup.getLines()) {
 			ItemComponent item = eob.addItem();
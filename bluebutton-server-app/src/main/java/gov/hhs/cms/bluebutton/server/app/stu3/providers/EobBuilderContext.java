@@ -0,0 +1,266 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.hl7.fhir.dstu3.model.CodeableConcept;
+import org.hl7.fhir.dstu3.model.Coding;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.BenefitBalanceComponent;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.CareTeamComponent;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.DiagnosisComponent;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ProcedureComponent;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.SupportingInformationComponent;
+import org.hl7.fhir.dstu3.model.Identifier;
+
+/**
+ * <p>
+ * Tracks transient lookup indexes for an {@link ExplanationOfBenefit} while
+ * it's being transformed, so that {@link TransformerUtils}' "find or add"
+ * methods (e.g.
+ * {@link TransformerUtils#addCareTeamPractitioner(ExplanationOfBenefit, org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent, String, String, org.hl7.fhir.dstu3.model.codesystems.ClaimCareteamrole)}
+ * and {@link TransformerUtils#addDiagnosisCode(ExplanationOfBenefit, Diagnosis)})
+ * don't have to scan all of the existing entries on every call. Without these,
+ * claims with hundreds of lines took quadratic time to transform.
+ * </p>
+ * <p>
+ * Instances are attached to the {@link ExplanationOfBenefit} as "user data"
+ * (which is never serialized), and are dropped by {@link #release(ExplanationOfBenefit)}
+ * once the transform is complete. Each index also catches up with any entries
+ * that were added to (or removed from) the {@link ExplanationOfBenefit}
+ * directly, rather than via {@link TransformerUtils}, so it's always safe to
+ * mix the two. It does not, however, notice changes made to the codes or
+ * identifiers of entries after they've been indexed.
+ * </p>
+ * <p>
+ * Not thread-safe, which is fine: each {@link ExplanationOfBenefit} is only
+ * ever built by a single thread.
+ * </p>
+ */
+final class EobBuilderContext {
+	/**
+	 * The {@link ExplanationOfBenefit#getUserData(String)} key that
+	 * {@link EobBuilderContext}s are stored under.
+	 */
+	static final String USER_DATA_KEY = EobBuilderContext.class.getName();
+
+	private final EntryIndex<CareTeamComponent> careTeamIndex = new EntryIndex<>((careTeamEntry, keys) -> {
+		if (careTeamEntry.getProvider().hasIdentifier()) {
+			Identifier identifier = careTeamEntry.getProvider().getIdentifier();
+			if (identifier.getSystem() != null && identifier.getValue() != null)
+				keys.put(key(identifier.getSystem(), identifier.getValue()), careTeamEntry);
+		}
+	});
+	private final EntryIndex<DiagnosisComponent> diagnosisIndex = new EntryIndex<>((diagnosisEntry, keys) -> {
+		if (diagnosisEntry.getDiagnosis() instanceof CodeableConcept)
+			putCodings((CodeableConcept) diagnosisEntry.getDiagnosis(), diagnosisEntry, keys);
+	});
+	private final EntryIndex<ProcedureComponent> procedureIndex = new EntryIndex<>((procedureEntry, keys) -> {
+		if (procedureEntry.getProcedure() instanceof CodeableConcept)
+			putCodings((CodeableConcept) procedureEntry.getProcedure(), procedureEntry, keys);
+	});
+	private final EntryIndex<BenefitBalanceComponent> benefitBalanceIndex = new EntryIndex<>(
+			(benefitBalanceEntry, keys) -> putCodings(benefitBalanceEntry.getCategory(), benefitBalanceEntry, keys));
+
+	private int informationIndexedCount = 0;
+	private int informationMaxSequence = 0;
+
+	/**
+	 * Constructs a new {@link EobBuilderContext}. Use {@link #of(ExplanationOfBenefit)}
+	 * to get one.
+	 */
+	private EobBuilderContext() {
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} being built
+	 * @param providerIdSystem
+	 *            the {@link Identifier#getSystem()} to find a match for
+	 * @param providerIdValue
+	 *            the {@link Identifier#getValue()} to find a match for
+	 * @return the first {@link ExplanationOfBenefit#getCareTeam()} entry whose
+	 *         {@link CareTeamComponent#getProvider()} has the specified
+	 *         {@link Identifier}, or <code>null</code> if there is none
+	 */
+	CareTeamComponent findCareTeam(ExplanationOfBenefit eob, String providerIdSystem, String providerIdValue) {
+		return careTeamIndex.find(eob.getCareTeam(), key(providerIdSystem, providerIdValue));
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} being built
+	 * @param codingSystem
+	 *            the {@link Coding#getSystem()} to find a match for
+	 * @param codingCode
+	 *            the {@link Coding#getCode()} to find a match for
+	 * @return the first {@link ExplanationOfBenefit#getDiagnosis()} entry that
+	 *         contains the specified {@link Coding}, or <code>null</code> if
+	 *         there is none
+	 */
+	DiagnosisComponent findDiagnosis(ExplanationOfBenefit eob, String codingSystem, String codingCode) {
+		return diagnosisIndex.find(eob.getDiagnosis(), key(codingSystem, codingCode));
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} being built
+	 * @param codingSystem
+	 *            the {@link Coding#getSystem()} to find a match for
+	 * @param codingCode
+	 *            the {@link Coding#getCode()} to find a match for
+	 * @return the first {@link ExplanationOfBenefit#getProcedure()} entry that
+	 *         contains the specified {@link Coding}, or <code>null</code> if
+	 *         there is none
+	 */
+	ProcedureComponent findProcedure(ExplanationOfBenefit eob, String codingSystem, String codingCode) {
+		return procedureIndex.find(eob.getProcedure(), key(codingSystem, codingCode));
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} being built
+	 * @param codingSystem
+	 *            the {@link Coding#getSystem()} to find a match for
+	 * @param codingCode
+	 *            the {@link Coding#getCode()} to find a match for
+	 * @return the first {@link ExplanationOfBenefit#getBenefitBalance()} entry
+	 *         whose {@link BenefitBalanceComponent#getCategory()} contains the
+	 *         specified {@link Coding}, or <code>null</code> if there is none
+	 */
+	BenefitBalanceComponent findBenefitBalance(ExplanationOfBenefit eob, String codingSystem, String codingCode) {
+		return benefitBalanceIndex.find(eob.getBenefitBalance(), key(codingSystem, codingCode));
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} being built
+	 * @return the highest {@link SupportingInformationComponent#getSequence()}
+	 *         value in the {@link ExplanationOfBenefit#getInformation()} entries,
+	 *         or <code>0</code> if there are none
+	 */
+	int findMaxInformationSequence(ExplanationOfBenefit eob) {
+		List<SupportingInformationComponent> information = eob.getInformation();
+		if (information.size() < informationIndexedCount) {
+			informationIndexedCount = 0;
+			informationMaxSequence = 0;
+		}
+		for (; informationIndexedCount < information.size(); informationIndexedCount++)
+			informationMaxSequence = Math.max(informationMaxSequence,
+					information.get(informationIndexedCount).getSequence());
+		return informationMaxSequence;
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} being built
+	 * @return the {@link EobBuilderContext} attached to the specified
+	 *         {@link ExplanationOfBenefit}, which will be created and attached if
+	 *         it doesn't yet exist
+	 */
+	static EobBuilderContext of(ExplanationOfBenefit eob) {
+		Object context = eob.getUserData(USER_DATA_KEY);
+		if (context instanceof EobBuilderContext)
+			return (EobBuilderContext) context;
+
+		EobBuilderContext newContext = new EobBuilderContext();
+		eob.setUserData(USER_DATA_KEY, newContext);
+		return newContext;
+	}
+
+	/**
+	 * Detaches the {@link EobBuilderContext} (if any) from the specified
+	 * {@link ExplanationOfBenefit}, so that its indexes can be garbage collected
+	 * once the transform is complete.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} that has been built
+	 * @return the specified {@link ExplanationOfBenefit}
+	 */
+	static ExplanationOfBenefit release(ExplanationOfBenefit eob) {
+		if (eob.getUserData(USER_DATA_KEY) != null)
+			eob.setUserData(USER_DATA_KEY, null);
+		return eob;
+	}
+
+	/**
+	 * @param system
+	 *            the system part of the key
+	 * @param value
+	 *            the value/code part of the key
+	 * @return a {@link String} key combining the specified values
+	 */
+	private static String key(String system, String value) {
+		return system + '|' + value;
+	}
+
+	/**
+	 * @param concept
+	 *            the {@link CodeableConcept} whose {@link Coding}s should be
+	 *            indexed
+	 * @param entry
+	 *            the entry that contains the {@link CodeableConcept}
+	 * @param keys
+	 *            the index {@link Map} to add the {@link Coding}s' keys to
+	 */
+	private static <C> void putCodings(CodeableConcept concept, C entry, Map<String, C> keys) {
+		for (Coding coding : concept.getCoding())
+			if (coding.getSystem() != null && coding.getCode() != null)
+				keys.put(key(coding.getSystem(), coding.getCode()), entry);
+	}
+
+	/**
+	 * Indexes the entries of one of an {@link ExplanationOfBenefit}'s
+	 * {@link List}s by their keys, catching up with whatever was added to the
+	 * {@link List} since it was last checked.
+	 *
+	 * @param <C>
+	 *            the type of the entries being indexed
+	 */
+	private static final class EntryIndex<C> {
+		private final BiConsumer<C, Map<String, C>> keyMapper;
+		private final Map<String, C> entriesByKey = new HashMap<>();
+		private int indexedCount = 0;
+
+		/**
+		 * Constructs a new {@link EntryIndex}.
+		 *
+		 * @param keyMapper
+		 *            adds each of an entry's keys to the specified {@link Map}
+		 */
+		EntryIndex(BiConsumer<C, Map<String, C>> keyMapper) {
+			this.keyMapper = keyMapper;
+		}
+
+		/**
+		 * @param entries
+		 *            the current entries to search
+		 * @param key
+		 *            the key to find a match for
+		 * @return the first of the specified entries with the specified key, or
+		 *         <code>null</code> if there is none
+		 */
+		C find(List<C> entries, String key) {
+			if (entries.size() < indexedCount) {
+				// Something was removed, so start over.
+				entriesByKey.clear();
+				indexedCount = 0;
+			}
+
+			/*
+			 * Keep the first entry for each key, to match what a linear scan would have
+			 * found.
+			 */
+			Map<String, C> newKeys = new HashMap<>();
+			for (; indexedCount < entries.size(); indexedCount++) {
+				keyMapper.accept(entries.get(indexedCount), newKeys);
+				newKeys.forEach(entriesByKey::putIfAbsent);
+				newKeys.clear();
+			}
+
+			return entriesByKey.get(key);
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
+/**
+ * <p>
+ * A size-bounded cache of transformed {@link ExplanationOfBenefit}s, keyed by
+ * {@link ClaimType} and claim ID (i.e. by {@link EobSortKey}), that's shared
+ * by the {@link ExplanationOfBenefitResourceProvider} reads and searches.
+ * </p>
+ * <p>
+ * Claims almost never change once they've been loaded, but the same ones get
+ * transformed over and over again, as clients page through a beneficiary's
+ * claims, re-run the same searches, and read individual EOBs. The exceptions
+ * (e.g. final action updates from a reload) are handled by expiring entries
+ * after a configurable time-to-live, and by the {@link #invalidate(ClaimType, String)}
+ * and {@link #invalidateAll()} hooks (see {@link EobCacheServlet}).
+ * </p>
+ * <p>
+ * The cache's capacity is measured in "weight", rather than entries: each
+ * {@link ExplanationOfBenefit} weighs one unit, plus one more per claim line,
+ * so that a few enormous inpatient claims can't crowd out thousands of small
+ * ones. The least recently used entries are evicted first.
+ * </p>
+ * <p>
+ * FHIR model objects are mutable, and the HAPI server modifies resources as
+ * it encodes them, so this only ever hands out copies of the cached
+ * {@link ExplanationOfBenefit}s. That's still far cheaper than re-transforming
+ * them.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public final class EobCache {
+	private final long maxWeight;
+	private final long timeToLiveNanoseconds;
+	private final Meter hits;
+	private final Meter misses;
+	private final Meter evictions;
+	private final AtomicLong generation = new AtomicLong();
+
+	/*
+	 * Guarded by this. In access-order, so that the eldest entry is always the
+	 * least recently used.
+	 */
+	private final LinkedHashMap<EobSortKey, CachedEob> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long weight = 0L;
+
+	/**
+	 * Constructs a new {@link EobCache}.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the cache's metrics in
+	 * @param maxWeight
+	 *            the maximum total weight of the {@link ExplanationOfBenefit}s to
+	 *            cache, or <code>0</code> to disable caching
+	 * @param timeToLiveSeconds
+	 *            the number of seconds after which cached
+	 *            {@link ExplanationOfBenefit}s expire
+	 */
+	public EobCache(MetricRegistry metricRegistry, long maxWeight, long timeToLiveSeconds) {
+		if (maxWeight < 0)
+			throw new IllegalArgumentException("Invalid max weight: " + maxWeight);
+		if (timeToLiveSeconds < 1)
+			throw new IllegalArgumentException("Invalid time-to-live: " + timeToLiveSeconds);
+
+		this.maxWeight = maxWeight;
+		this.timeToLiveNanoseconds = TimeUnit.SECONDS.toNanos(timeToLiveSeconds);
+
+		String metricPrefix = EobCache.class.getSimpleName();
+		this.hits = metricRegistry.meter(MetricRegistry.name(metricPrefix, "hits"));
+		this.misses = metricRegistry.meter(MetricRegistry.name(metricPrefix, "misses"));
+		this.evictions = metricRegistry.meter(MetricRegistry.name(metricPrefix, "evictions"));
+		metricRegistry.register(MetricRegistry.name(metricPrefix, "hit_ratio"), new RatioGauge() {
+			@Override
+			protected Ratio getRatio() {
+				return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+			}
+		});
+		metricRegistry.register(MetricRegistry.name(metricPrefix, "size"), (Gauge<Integer>) this::size);
+		metricRegistry.register(MetricRegistry.name(metricPrefix, "weight"), (Gauge<Long>) this::weight);
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of the {@link ExplanationOfBenefit} to get
+	 * @param claimId
+	 *            the claim ID of the {@link ExplanationOfBenefit} to get
+	 * @return a copy of the cached {@link ExplanationOfBenefit} for the specified
+	 *         claim, or <code>null</code> if it's not cached
+	 */
+	public ExplanationOfBenefit get(ClaimType claimType, String claimId) {
+		if (maxWeight == 0)
+			return null;
+
+		EobSortKey key = new EobSortKey(claimId, claimType);
+		CachedEob cachedEob;
+		synchronized (this) {
+			cachedEob = entries.get(key);
+			if (cachedEob != null && System.nanoTime() - cachedEob.cachedNanoTime > timeToLiveNanoseconds) {
+				remove(key);
+				cachedEob = null;
+			}
+		}
+
+		if (cachedEob == null) {
+			misses.mark();
+			return null;
+		}
+		hits.mark();
+		return copy(cachedEob.eob, key);
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of the {@link ExplanationOfBenefit} to get
+	 * @param claimId
+	 *            the claim ID of the {@link ExplanationOfBenefit} to get
+	 * @param transform
+	 *            the {@link Supplier} to call to transform the
+	 *            {@link ExplanationOfBenefit} if it's not cached
+	 * @return a copy of the cached {@link ExplanationOfBenefit} for the specified
+	 *         claim, or the newly transformed one (which will have been cached)
+	 */
+	public ExplanationOfBenefit get(ClaimType claimType, String claimId, Supplier<ExplanationOfBenefit> transform) {
+		ExplanationOfBenefit eob = get(claimType, claimId);
+		if (eob != null)
+			return eob;
+
+		eob = transform.get();
+		put(claimType, claimId, eob);
+		return eob;
+	}
+
+	/**
+	 * Caches a copy of the specified {@link ExplanationOfBenefit}, replacing
+	 * any previously cached one for the same claim.
+	 *
+	 * @param claimType
+	 *            the {@link ClaimType} of the {@link ExplanationOfBenefit}
+	 * @param claimId
+	 *            the claim ID of the {@link ExplanationOfBenefit}
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to cache
+	 */
+	public void put(ClaimType claimType, String claimId, ExplanationOfBenefit eob) {
+		long eobWeight = 1L + eob.getItem().size();
+		if (eobWeight > maxWeight)
+			return;
+
+		EobSortKey key = new EobSortKey(claimId, claimType);
+		CachedEob cachedEob = new CachedEob(copy(eob, key), eobWeight, System.nanoTime());
+		synchronized (this) {
+			remove(key);
+			entries.put(key, cachedEob);
+			weight += eobWeight;
+
+			Iterator<CachedEob> eldest = entries.values().iterator();
+			while (weight > maxWeight && eldest.hasNext()) {
+				weight -= eldest.next().weight;
+				eldest.remove();
+				evictions.mark();
+			}
+		}
+	}
+
+	/**
+	 * Removes the cached {@link ExplanationOfBenefit} (if any) for the specified
+	 * claim, e.g. after it's been updated.
+	 *
+	 * @param claimType
+	 *            the {@link ClaimType} of the claim to remove
+	 * @param claimId
+	 *            the claim ID of the claim to remove
+	 * @return <code>true</code> if something was removed, <code>false</code> if
+	 *         not
+	 */
+	public synchronized boolean invalidate(ClaimType claimType, String claimId) {
+		generation.incrementAndGet();
+		return remove(new EobSortKey(claimId, claimType));
+	}
+
+	/**
+	 * Removes all of the cached {@link ExplanationOfBenefit}s, e.g. after the
+	 * database has been reloaded.
+	 */
+	public synchronized void invalidateAll() {
+		generation.incrementAndGet();
+		entries.clear();
+		weight = 0L;
+	}
+
+	/**
+	 * @return a counter that's incremented every time anything in this
+	 *         {@link EobCache} is invalidated, which can be used to tell whether
+	 *         anything derived from the cached {@link ExplanationOfBenefit}s
+	 *         might be stale
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * @return the number of {@link ExplanationOfBenefit}s that are currently
+	 *         cached
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the total weight of the {@link ExplanationOfBenefit}s that are
+	 *         currently cached
+	 */
+	public synchronized long weight() {
+		return weight;
+	}
+
+	/**
+	 * Must only be called while holding this {@link EobCache}'s lock.
+	 *
+	 * @param key
+	 *            the {@link EobSortKey} of the entry to remove
+	 * @return <code>true</code> if something was removed, <code>false</code> if
+	 *         not
+	 */
+	private boolean remove(EobSortKey key) {
+		CachedEob removed = entries.remove(key);
+		if (removed == null)
+			return false;
+		weight -= removed.weight;
+		return true;
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to copy
+	 * @param key
+	 *            the {@link EobSortKey} for the {@link ExplanationOfBenefit}
+	 * @return a deep copy of the specified {@link ExplanationOfBenefit}, with its
+	 *         {@link EobSortKey} attached (as user data isn't copied)
+	 */
+	private static ExplanationOfBenefit copy(ExplanationOfBenefit eob, EobSortKey key) {
+		ExplanationOfBenefit copy = eob.copy();
+		copy.setUserData(EobSortKey.USER_DATA_KEY, key);
+		return copy;
+	}
+
+	/**
+	 * An {@link ExplanationOfBenefit} in the cache, along with its bookkeeping.
+	 */
+	private static final class CachedEob {
+		private final ExplanationOfBenefit eob;
+		private final long weight;
+		private final long cachedNanoTime;
+
+		/**
+		 * Constructs a new {@link CachedEob}.
+		 *
+		 * @param eob
+		 *            the cached {@link ExplanationOfBenefit}, which must never be
+		 *            modified or handed out
+		 * @param weight
+		 *            the weight of the {@link ExplanationOfBenefit}
+		 * @param cachedNanoTime
+		 *            the {@link System#nanoTime()} at which it was cached
+		 */
+		CachedEob(ExplanationOfBenefit eob, long weight, long cachedNanoTime) {
+			this.eob = eob;
+			this.weight = weight;
+			this.cachedNanoTime = cachedNanoTime;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.hhs.cms.bluebutton.server.app.ClientDistinguishedNames;
+
+/**
+ * <p>
+ * Exposes the {@link EobCache} invalidation hooks over HTTP, so that whatever
+ * reloads the claims data can tell the server to drop its stale
+ * {@link ExplanationOfBenefit}s:
+ * </p>
+ * <ul>
+ * <li><code>DELETE</code> (with no parameters): removes all cached
+ * {@link ExplanationOfBenefit}s.</li>
+ * <li><code>DELETE ?id=carrier-123</code>: removes the cached
+ * {@link ExplanationOfBenefit} with the specified
+ * {@link ExplanationOfBenefit#getId()}, if any.</li>
+ * </ul>
+ * <p>
+ * Only clients whose certificate DN (as found by
+ * {@link ClientDistinguishedNames#getClientDn(HttpServletRequest)}) is in the
+ * configured admin list may use this: all other (otherwise trusted) partner
+ * clients get a <code>403</code>.
+ * If no admin DNs are configured, the endpoint is effectively disabled.
+ * </p>
+ * <p>
+ * Note that the {@link EobCache} is local to each server node, and so is any
+ * invalidation made here: whatever reloads the data must call this on every
+ * node behind the load balancer, not just once via the load balancer.
+ * </p>
+ */
+public final class EobCacheServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EobCacheServlet.class);
+
+	private final transient EobCache eobCache;
+	private final Set<String> adminDns;
+
+	/**
+	 * Constructs a new {@link EobCacheServlet}.
+	 *
+	 * @param eobCache
+	 *            the {@link EobCache} to invalidate
+	 * @param adminDns
+	 *            the client certificate DNs that are allowed to invalidate the
+	 *            {@link EobCache}
+	 */
+	public EobCacheServlet(EobCache eobCache, Set<String> adminDns) {
+		this.eobCache = eobCache;
+		this.adminDns = Collections.unmodifiableSet(new HashSet<>(adminDns));
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServlet#doDelete(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		String clientDn = ClientDistinguishedNames.getClientDn(req);
+		if (clientDn == null || !adminDns.contains(clientDn)) {
+			LOGGER.warn("Rejected EOB cache invalidation from non-admin client '{}'.", clientDn);
+			resp.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+
+		String eobId = req.getParameter("id");
+		if (eobId == null) {
+			eobCache.invalidateAll();
+			LOGGER.info("Invalidated all cached EOBs on this node, for '{}'.", clientDn);
+			resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+			return;
+		}
+
+		Matcher eobIdMatcher = ExplanationOfBenefitResourceProvider.EOB_ID_PATTERN.matcher(eobId);
+		Optional<ClaimType> claimType = eobIdMatcher.matches() ? ClaimType.parse(eobIdMatcher.group(1))
+				: Optional.empty();
+		if (!claimType.isPresent()) {
+			resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid EOB ID.");
+			return;
+		}
+
+		boolean invalidated = eobCache.invalidate(claimType.get(), eobIdMatcher.group(2));
+		LOGGER.info("Invalidated cached EOB '{}' on this node, for '{}': {}.", eobId, clientDn, invalidated);
+		resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+	}
+
+	/**
+	 * Parses the admin DNs from a configuration value, e.g.
+	 * <code>CN=Data Loader,O=Example;CN=Ops</code>: a semicolon-separated list
+	 * of client certificate DNs (which themselves contain commas).
+	 *
+	 * @param adminDnsText
+	 *            the configuration value to parse
+	 * @return the parsed client certificate DNs
+	 */
+	public static Set<String> parseAdminDns(String adminDnsText) {
+		Set<String> adminDns = new HashSet<>();
+		if (adminDnsText == null)
+			return adminDns;
+
+		for (String adminDn : adminDnsText.split(";"))
+			if (!adminDn.trim().isEmpty())
+				adminDns.add(adminDn.trim());
+		return adminDns;
+	}
+}
@@ -0,0 +1,132 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.Objects;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+
+/**
+ * <p>
+ * The values that {@link ExplanationOfBenefit}s are sorted by when returned in
+ * search results: the claim ID, and then the {@link ClaimType}.
+ * </p>
+ * <p>
+ * These are attached to each {@link ExplanationOfBenefit} as "user data" (see
+ * {@link ExplanationOfBenefit#setUserData(String, Object)}) when it's
+ * transformed, which allows them to be read back during sorting without having
+ * to search through the {@link ExplanationOfBenefit#getIdentifier()} and
+ * {@link ExplanationOfBenefit#getType()} entries on every comparison. User data
+ * is never serialized to clients.
+ * </p>
+ */
+final class EobSortKey implements Comparable<EobSortKey> {
+	/**
+	 * The {@link ExplanationOfBenefit#getUserData(String)} key that
+	 * {@link EobSortKey}s are stored under.
+	 */
+	static final String USER_DATA_KEY = EobSortKey.class.getName();
+
+	private final String claimId;
+	private final ClaimType claimType;
+
+	/**
+	 * Constructs a new {@link EobSortKey}.
+	 *
+	 * @param claimId
+	 *            the value to use for {@link #getClaimId()}
+	 * @param claimType
+	 *            the value to use for {@link #getClaimType()}
+	 */
+	EobSortKey(String claimId, ClaimType claimType) {
+		this.claimId = Objects.requireNonNull(claimId);
+		this.claimType = Objects.requireNonNull(claimType);
+	}
+
+	/**
+	 * @return the unprefixed claim ID (or PDE event ID) of the claim that the
+	 *         {@link ExplanationOfBenefit} was transformed from
+	 */
+	String getClaimId() {
+		return claimId;
+	}
+
+	/**
+	 * @return the {@link ClaimType} of the claim that the
+	 *         {@link ExplanationOfBenefit} was transformed from
+	 */
+	ClaimType getClaimType() {
+		return claimType;
+	}
+
+	/**
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	@Override
+	public int compareTo(EobSortKey other) {
+		int claimIdComparison = claimId.compareTo(other.claimId);
+		if (claimIdComparison != 0)
+			return claimIdComparison;
+		return claimType.compareTo(other.claimType);
+	}
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof EobSortKey))
+			return false;
+		EobSortKey other = (EobSortKey) obj;
+		return claimId.equals(other.claimId) && claimType == other.claimType;
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return Objects.hash(claimId, claimType);
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return claimType + "-" + claimId;
+	}
+
+	/**
+	 * Attaches a new {@link EobSortKey} to the specified
+	 * {@link ExplanationOfBenefit}.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to attach the {@link EobSortKey}
+	 *            to
+	 * @param claimId
+	 *            the value to use for {@link #getClaimId()}
+	 * @param claimType
+	 *            the value to use for {@link #getClaimType()}
+	 */
+	static void attach(ExplanationOfBenefit eob, String claimId, ClaimType claimType) {
+		eob.setUserData(USER_DATA_KEY, new EobSortKey(claimId, claimType));
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to get the {@link EobSortKey}
+	 *            for
+	 * @return the {@link EobSortKey} that was attached to the specified
+	 *         {@link ExplanationOfBenefit} when it was transformed, or (for
+	 *         {@link ExplanationOfBenefit}s that didn't come from our
+	 *         transformers) a new one computed from its identifiers and type
+	 */
+	static EobSortKey of(ExplanationOfBenefit eob) {
+		Object sortKey = eob.getUserData(USER_DATA_KEY);
+		if (sortKey instanceof EobSortKey)
+			return (EobSortKey) sortKey;
+
+		return new EobSortKey(TransformerUtils.getUnprefixedClaimId(eob), TransformerUtils.parseClaimType(eob));
+	}
+}
@@ -2,14 +2,16 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -55,18 +57,28 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 	 * A {@link Pattern} that will match the
 	 * {@link ExplanationOfBenefit#getId()}s used in this application.
 	 */
-	private static final Pattern EOB_ID_PATTERN = Pattern.compile("(\\p{Alpha}+)-(\\p{Alnum}+)");
+	static final Pattern EOB_ID_PATTERN = Pattern.compile("(\\p{Alpha}+)-(\\p{Alnum}+)");
+
+	/**
+	 * The JPA persistence unit name for the connection pool (bulkhead) that
+	 * <code>ExplanationOfBenefit</code> searches use, so that they aren't
+	 * competing with other requests for connections.
+	 */
+	public static final String PERSISTENCE_UNIT_NAME = "eob";
 
 	private EntityManager entityManager;
 	private MetricRegistry metricRegistry;
 	private SamhsaMatcher samhsaMatcher;
+	private ClaimTransformExecutor claimTransformExecutor;
+	private EobCache eobCache;
+	private SearchCoalescer searchCoalescer;
 
 	/**
 	 * @param entityManager
 	 *            a JPA {@link EntityManager} connected to the application's
 	 *            database
 	 */
-	@PersistenceContext
+	@PersistenceContext(unitName = PERSISTENCE_UNIT_NAME)
 	public void setEntityManager(EntityManager entityManager) {
 		this.entityManager = entityManager;
 	}
@@ -89,6 +101,33 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		this.samhsaMatcher = samhsaMatcher;
 	}
 
+	/**
+	 * @param claimTransformExecutor
+	 *            the {@link ClaimTransformExecutor} to use
+	 */
+	@Inject
+	public void setClaimTransformExecutor(ClaimTransformExecutor claimTransformExecutor) {
+		this.claimTransformExecutor = claimTransformExecutor;
+	}
+
+	/**
+	 * @param eobCache
+	 *            the {@link EobCache} to use
+	 */
+	@Inject
+	public void setEobCache(EobCache eobCache) {
+		this.eobCache = eobCache;
+	}
+
+	/**
+	 * @param searchCoalescer
+	 *            the {@link SearchCoalescer} to use
+	 */
+	@Inject
+	public void setSearchCoalescer(SearchCoalescer searchCoalescer) {
+		this.searchCoalescer = searchCoalescer;
+	}
+
 	/**
 	 * @see ca.uhn.fhir.rest.server.IResourceProvider#getResourceType()
 	 */
@@ -136,6 +175,10 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 			throw new ResourceNotFoundException(eobId);
 		String eobIdClaimIdText = eobIdMatcher.group(2);
 
+		ExplanationOfBenefit cachedEob = eobCache.get(eobIdType.get(), eobIdClaimIdText);
+		if (cachedEob != null)
+			return cachedEob;
+
 		Class<?> entityClass = eobIdType.get().getEntityClass();
 		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
 		CriteriaQuery criteria = builder.createQuery(entityClass);
@@ -157,7 +200,7 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 			TransformerUtils.recordQueryInMdc("eob_by_id", eobByIdQueryNanoSeconds, claimEntity == null ? 0 : 1);
 		}
 
-		ExplanationOfBenefit eob = eobIdType.get().getTransformer().apply(metricRegistry, claimEntity);
+		ExplanationOfBenefit eob = claimTransformExecutor.transform(eobIdType.get(), claimEntity);
 		return eob;
 	}
 
@@ -206,49 +249,74 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 
 		String beneficiaryId = patient.getIdPart();
 		Set<ClaimType> types = parseTypeParam(type);
+		PagingArguments pagingArgs = new PagingArguments(requestDetails);
+
+		// Duplicate searches (e.g. retries, parallel page loads) can share one run.
+		String searchKey = String.format("%s|%s|%s|%s", beneficiaryId,
+				types.isEmpty() ? EnumSet.noneOf(ClaimType.class) : EnumSet.copyOf(types),
+				Boolean.parseBoolean(excludeSamhsa), pagingArgs.computeKey());
+		return searchCoalescer.search("ExplanationOfBenefit", searchKey,
+				() -> findByPatient(beneficiaryId, types, excludeSamhsa, pagingArgs));
+	}
 
-		List<IBaseResource> eobs = new ArrayList<IBaseResource>();
+	/**
+	 * @param beneficiaryId
+	 *            the {@link Beneficiary#getBeneficiaryId()} to find the claims
+	 *            of
+	 * @param types
+	 *            the {@link ClaimType}s to include
+	 * @param excludeSamhsa
+	 *            if <code>"true"</code>, SAMHSA-related claims will be filtered
+	 *            out of the results
+	 * @param pagingArgs
+	 *            the {@link PagingArguments} for the search
+	 * @return a {@link Bundle} of the matching {@link ExplanationOfBenefit}s
+	 */
+	private Bundle findByPatient(String beneficiaryId, Set<ClaimType> types, String excludeSamhsa,
+			PagingArguments pagingArgs) {
 		/*
 		 * The way our JPA/SQL schema is setup, we have to run a separate search for
 		 * each claim type, then combine the results. It's not super efficient, but it's
 		 * also not so inefficient that it's worth fixing.
 		 */
-		if (types.contains(ClaimType.CARRIER))
-			eobs.addAll(transformToEobs(ClaimType.CARRIER, findClaimTypeByPatient(ClaimType.CARRIER, beneficiaryId)));
-		if (types.contains(ClaimType.DME))
-			eobs.addAll(transformToEobs(ClaimType.DME, findClaimTypeByPatient(ClaimType.DME, beneficiaryId)));
-		if (types.contains(ClaimType.HHA))
-			eobs.addAll(transformToEobs(ClaimType.HHA, findClaimTypeByPatient(ClaimType.HHA, beneficiaryId)));
-		if (types.contains(ClaimType.HOSPICE))
-			eobs.addAll(transformToEobs(ClaimType.HOSPICE, findClaimTypeByPatient(ClaimType.HOSPICE, beneficiaryId)));
-		if (types.contains(ClaimType.INPATIENT))
-			eobs.addAll(
-					transformToEobs(ClaimType.INPATIENT, findClaimTypeByPatient(ClaimType.INPATIENT, beneficiaryId)));
-		if (types.contains(ClaimType.OUTPATIENT))
-			eobs.addAll(
-					transformToEobs(ClaimType.OUTPATIENT, findClaimTypeByPatient(ClaimType.OUTPATIENT, beneficiaryId)));
-		if (types.contains(ClaimType.PDE))
-			eobs.addAll(transformToEobs(ClaimType.PDE, findClaimTypeByPatient(ClaimType.PDE, beneficiaryId)));
-		if (types.contains(ClaimType.SNF))
-			eobs.addAll(transformToEobs(ClaimType.SNF, findClaimTypeByPatient(ClaimType.SNF, beneficiaryId)));
-
-		if (Boolean.parseBoolean(excludeSamhsa) == true)
-			filterSamhsa(eobs);
-
-		eobs.sort(ExplanationOfBenefitResourceProvider::compareByClaimIdThenClaimType);
+		Map<ClaimType, List<?>> claimsByType = new EnumMap<>(ClaimType.class);
+		for (ClaimType claimType : ClaimType.values())
+			if (types.contains(claimType))
+				claimsByType.put(claimType, findClaimTypeByPatient(claimType, beneficiaryId));
+
+		List<IBaseResource> eobs;
+		if (pagingArgs.isPagingRequested() && !Boolean.parseBoolean(excludeSamhsa)) {
+			/*
+			 * Only the claims on the requested page need to be transformed: the rest are
+			 * just sorted (by keys taken straight from the entities) and counted. SAMHSA
+			 * filtering needs the transformed EOBs, though, so it takes the slow path.
+			 */
+			eobs = new LazyEobList(claimTransformExecutor, claimsByType);
+		} else {
+			eobs = new ArrayList<IBaseResource>();
+			for (Map.Entry<ClaimType, List<?>> claimsForType : claimsByType.entrySet())
+				eobs.addAll(transformToEobs(claimsForType.getKey(), claimsForType.getValue()));
+
+			if (Boolean.parseBoolean(excludeSamhsa) == true)
+				filterSamhsa(eobs);
+
+			eobs.sort(ExplanationOfBenefitResourceProvider::compareByClaimIdThenClaimType);
+		}
 
-		PagingArguments pagingArgs = new PagingArguments(requestDetails);
 		Bundle bundle = TransformerUtils.createBundle(pagingArgs, "/ExplanationOfBenefit?",
 				ExplanationOfBenefit.SP_PATIENT, beneficiaryId, eobs);
 		return bundle;
 	}
 
-	/*
-	 * @param eob1 an {@link ExplanationOfBenefit} to be compared
-	 * 
-	 * @param eob2 an {@link ExplanationOfBenefit} to be compared
+	/**
+	 * @param res1
+	 *            an {@link ExplanationOfBenefit} to be compared
+	 * @param res2
+	 *            an {@link ExplanationOfBenefit} to be compared
+	 * @return the result of comparing the two {@link ExplanationOfBenefit}s'
+	 *         {@link EobSortKey}s
 	 */
-	private static int compareByClaimIdThenClaimType(IBaseResource res1, IBaseResource res2) {
+	static int compareByClaimIdThenClaimType(IBaseResource res1, IBaseResource res2) {
 		/*
 		 * In order for paging to be meaningful (and stable), the claims have to be
 		 * consistently sorted across different app server instances (in case page 1
@@ -257,13 +325,7 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		 * type). TODO once we have metadata from BLUEBUTTON-XXX on when each claim was
 		 * first loaded into our DB, we should sort by that.
 		 */
-		ExplanationOfBenefit eob1 = (ExplanationOfBenefit) res1;
-		ExplanationOfBenefit eob2 = (ExplanationOfBenefit) res2;
-		if (TransformerUtils.getUnprefixedClaimId(eob1) == TransformerUtils.getUnprefixedClaimId(eob2)) {
-			return TransformerUtils.getClaimType(eob1).compareTo(TransformerUtils.getClaimType(eob2));
-		} else {
-			return TransformerUtils.getUnprefixedClaimId(eob1).compareTo(TransformerUtils.getUnprefixedClaimId(eob2));
-		}
+		return EobSortKey.of((ExplanationOfBenefit) res1).compareTo(EobSortKey.of((ExplanationOfBenefit) res2));
 	}
 
 	/**
@@ -274,7 +336,7 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 	 * @return the matching claim/event entities
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked"})
-	private <T> List<T> findClaimTypeByPatient(ClaimType claimType, String patientId) {
+	<T> List<T> findClaimTypeByPatient(ClaimType claimType, String patientId) {
 		CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
 		CriteriaQuery criteria = criteriaBuilder.createQuery((Class) claimType.getEntityClass());
 		Root root = criteria.from(claimType.getEntityClass());
@@ -308,8 +370,7 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 	 *         specified claim/event
 	 */
 	private List<ExplanationOfBenefit> transformToEobs(ClaimType claimType, List<?> claims) {
-		return claims.stream().map(c -> claimType.getTransformer().apply(metricRegistry, c))
-				.collect(Collectors.toList());
+		return claimTransformExecutor.transform(claimType, claims);
 	}
 
 	/**
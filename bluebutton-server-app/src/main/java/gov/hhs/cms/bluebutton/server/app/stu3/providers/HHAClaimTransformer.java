@@ -2,6 +2,7 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -17,12 +18,81 @@ import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
 import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
 import gov.hhs.cms.bluebutton.data.model.rif.HHAClaim;
 import gov.hhs.cms.bluebutton.data.model.rif.HHAClaimLine;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
 
 /**
  * Transforms CCW {@link HHAClaim} instances into FHIR
  * {@link ExplanationOfBenefit} resources.
  */
 final class HHAClaimTransformer {
+	/**
+	 * The name of the {@link Timer} and {@link Tracer} span for
+	 * {@link #transform(MetricRegistry, Object)}, which is built once here
+	 * rather than on every call.
+	 */
+	private static final String METRIC_NAME_TRANSFORM = MetricRegistry
+			.name(HHAClaimTransformer.class.getSimpleName(), "transform");
+
+	/**
+	 * The {@link ClaimCodeMapping} for the diagnosis code fields in
+	 * {@link HHAClaim}s.
+	 */
+	private static final ClaimCodeMapping<HHAClaim> CODE_MAPPING = ClaimCodeMapping.<HHAClaim> builder()
+			.diagnosis(HHAClaim::getDiagnosisPrincipalCode, HHAClaim::getDiagnosisPrincipalCodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(HHAClaim::getDiagnosis1Code, HHAClaim::getDiagnosis1CodeVersion, DiagnosisLabel.PRINCIPAL)
+			.diagnosis(HHAClaim::getDiagnosis2Code, HHAClaim::getDiagnosis2CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis3Code, HHAClaim::getDiagnosis3CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis4Code, HHAClaim::getDiagnosis4CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis5Code, HHAClaim::getDiagnosis5CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis6Code, HHAClaim::getDiagnosis6CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis7Code, HHAClaim::getDiagnosis7CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis8Code, HHAClaim::getDiagnosis8CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis9Code, HHAClaim::getDiagnosis9CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis10Code, HHAClaim::getDiagnosis10CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis11Code, HHAClaim::getDiagnosis11CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis12Code, HHAClaim::getDiagnosis12CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis13Code, HHAClaim::getDiagnosis13CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis14Code, HHAClaim::getDiagnosis14CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis15Code, HHAClaim::getDiagnosis15CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis16Code, HHAClaim::getDiagnosis16CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis17Code, HHAClaim::getDiagnosis17CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis18Code, HHAClaim::getDiagnosis18CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis19Code, HHAClaim::getDiagnosis19CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis20Code, HHAClaim::getDiagnosis20CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis21Code, HHAClaim::getDiagnosis21CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis22Code, HHAClaim::getDiagnosis22CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis23Code, HHAClaim::getDiagnosis23CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis24Code, HHAClaim::getDiagnosis24CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosis25Code, HHAClaim::getDiagnosis25CodeVersion)
+			.diagnosis(HHAClaim::getDiagnosisExternalFirstCode, HHAClaim::getDiagnosisExternalFirstCodeVersion,
+					DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal1Code, HHAClaim::getDiagnosisExternal1CodeVersion,
+					DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal2Code, HHAClaim::getDiagnosisExternal2CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal3Code, HHAClaim::getDiagnosisExternal3CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal4Code, HHAClaim::getDiagnosisExternal4CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal5Code, HHAClaim::getDiagnosisExternal5CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal6Code, HHAClaim::getDiagnosisExternal6CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal7Code, HHAClaim::getDiagnosisExternal7CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal8Code, HHAClaim::getDiagnosisExternal8CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal9Code, HHAClaim::getDiagnosisExternal9CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal10Code, HHAClaim::getDiagnosisExternal10CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal11Code, HHAClaim::getDiagnosisExternal11CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HHAClaim::getDiagnosisExternal12Code, HHAClaim::getDiagnosisExternal12CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.build();
+
 	/**
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} to use
@@ -32,12 +102,12 @@ final class HHAClaimTransformer {
 	 *         specified {@link HHAClaim}
 	 */
 	static ExplanationOfBenefit transform(MetricRegistry metricRegistry, Object claim) {
-		Timer.Context timer = metricRegistry
-				.timer(MetricRegistry.name(HHAClaimTransformer.class.getSimpleName(), "transform")).time();
+		Timer.Context timer = metricRegistry.timer(METRIC_NAME_TRANSFORM).time();
 
 		if (!(claim instanceof HHAClaim))
 			throw new BadCodeMonkeyException();
-		ExplanationOfBenefit eob = transformClaim((HHAClaim) claim);
+		ExplanationOfBenefit eob = Tracer.callInNewSpan(METRIC_NAME_TRANSFORM,
+				() -> transformClaim((HHAClaim) claim, CODE_MAPPING));
 
 		timer.stop();
 		return eob;
@@ -46,10 +116,15 @@ final class HHAClaimTransformer {
 	/**
 	 * @param claimGroup
 	 *            the CCW {@link HHAClaim} to transform
+	 * @param codeMapping
+	 *            the mapping to use for the claim's diagnosis and procedure
+	 *            codes, which is always {@link #CODE_MAPPING}, other than in
+	 *            tests that check it against the original mapping code
 	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
 	 *         specified {@link HHAClaim}
 	 */
-	private static ExplanationOfBenefit transformClaim(HHAClaim claimGroup) {
+	static ExplanationOfBenefit transformClaim(HHAClaim claimGroup,
+			BiConsumer<ExplanationOfBenefit, HHAClaim> codeMapping) {
 		ExplanationOfBenefit eob = new ExplanationOfBenefit();
 
 		// Common group level fields between all claim types
@@ -73,53 +148,7 @@ final class HHAClaimTransformer {
 				claimGroup.getAttendingPhysicianNpi(), claimGroup.getTotalChargeAmount(),
 				claimGroup.getPrimaryPayerPaidAmount(), claimGroup.getFiscalIntermediaryNumber());
 
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
-				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
-				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
-				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
-				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
-				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
-				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
-				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
-				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
-				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
-				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
-				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
-				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
-				claimGroup.getDiagnosis12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses13Thru25(claimGroup.getDiagnosis13Code(),
-				claimGroup.getDiagnosis13CodeVersion(), claimGroup.getDiagnosis14Code(),
-				claimGroup.getDiagnosis14CodeVersion(), claimGroup.getDiagnosis15Code(),
-				claimGroup.getDiagnosis15CodeVersion(), claimGroup.getDiagnosis16Code(),
-				claimGroup.getDiagnosis16CodeVersion(), claimGroup.getDiagnosis17Code(),
-				claimGroup.getDiagnosis17CodeVersion(), claimGroup.getDiagnosis18Code(),
-				claimGroup.getDiagnosis18CodeVersion(), claimGroup.getDiagnosis19Code(),
-				claimGroup.getDiagnosis19CodeVersion(), claimGroup.getDiagnosis20Code(),
-				claimGroup.getDiagnosis20CodeVersion(), claimGroup.getDiagnosis21Code(),
-				claimGroup.getDiagnosis21CodeVersion(), claimGroup.getDiagnosis22Code(),
-				claimGroup.getDiagnosis22CodeVersion(), claimGroup.getDiagnosis23Code(),
-				claimGroup.getDiagnosis23CodeVersion(), claimGroup.getDiagnosis24Code(),
-				claimGroup.getDiagnosis24CodeVersion(), claimGroup.getDiagnosis25Code(),
-				claimGroup.getDiagnosis25CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (Diagnosis diagnosis : TransformerUtils.extractExternalDiagnoses1Thru12(
-				claimGroup.getDiagnosisExternalFirstCode(), claimGroup.getDiagnosisExternalFirstCodeVersion(),
-				claimGroup.getDiagnosisExternal1Code(), claimGroup.getDiagnosisExternal1CodeVersion(),
-				claimGroup.getDiagnosisExternal2Code(), claimGroup.getDiagnosisExternal2CodeVersion(),
-				claimGroup.getDiagnosisExternal3Code(), claimGroup.getDiagnosisExternal3CodeVersion(),
-				claimGroup.getDiagnosisExternal4Code(), claimGroup.getDiagnosisExternal4CodeVersion(),
-				claimGroup.getDiagnosisExternal5Code(), claimGroup.getDiagnosisExternal5CodeVersion(),
-				claimGroup.getDiagnosisExternal6Code(), claimGroup.getDiagnosisExternal6CodeVersion(),
-				claimGroup.getDiagnosisExternal7Code(), claimGroup.getDiagnosisExternal7CodeVersion(),
-				claimGroup.getDiagnosisExternal8Code(), claimGroup.getDiagnosisExternal8CodeVersion(),
-				claimGroup.getDiagnosisExternal9Code(), claimGroup.getDiagnosisExternal9CodeVersion(),
-				claimGroup.getDiagnosisExternal10Code(), claimGroup.getDiagnosisExternal10CodeVersion(),
-				claimGroup.getDiagnosisExternal11Code(), claimGroup.getDiagnosisExternal11CodeVersion(),
-				claimGroup.getDiagnosisExternal12Code(), claimGroup.getDiagnosisExternal12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		codeMapping.accept(eob, claimGroup);
 
 		if (claimGroup.getClaimLUPACode().isPresent()) {
 			TransformerUtils.addInformationWithCode(eob, CcwCodebookVariable.CLM_HHA_LUPA_IND_CD,
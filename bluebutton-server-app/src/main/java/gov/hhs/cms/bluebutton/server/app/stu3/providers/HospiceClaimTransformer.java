@@ -2,6 +2,7 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -14,12 +15,82 @@ import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
 import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
 import gov.hhs.cms.bluebutton.data.model.rif.HospiceClaim;
 import gov.hhs.cms.bluebutton.data.model.rif.HospiceClaimLine;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
 
 /**
  * Transforms CCW {@link HospiceClaim} instances into FHIR
  * {@link ExplanationOfBenefit} resources.
  */
 final class HospiceClaimTransformer {
+	/**
+	 * The name of the {@link Timer} and {@link Tracer} span for
+	 * {@link #transform(MetricRegistry, Object)}, which is built once here
+	 * rather than on every call.
+	 */
+	private static final String METRIC_NAME_TRANSFORM = MetricRegistry
+			.name(HospiceClaimTransformer.class.getSimpleName(), "transform");
+
+	/**
+	 * The {@link ClaimCodeMapping} for the diagnosis code fields in
+	 * {@link HospiceClaim}s.
+	 */
+	private static final ClaimCodeMapping<HospiceClaim> CODE_MAPPING = ClaimCodeMapping.<HospiceClaim> builder()
+			.diagnosis(HospiceClaim::getDiagnosisPrincipalCode, HospiceClaim::getDiagnosisPrincipalCodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(HospiceClaim::getDiagnosis1Code, HospiceClaim::getDiagnosis1CodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(HospiceClaim::getDiagnosis2Code, HospiceClaim::getDiagnosis2CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis3Code, HospiceClaim::getDiagnosis3CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis4Code, HospiceClaim::getDiagnosis4CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis5Code, HospiceClaim::getDiagnosis5CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis6Code, HospiceClaim::getDiagnosis6CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis7Code, HospiceClaim::getDiagnosis7CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis8Code, HospiceClaim::getDiagnosis8CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis9Code, HospiceClaim::getDiagnosis9CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis10Code, HospiceClaim::getDiagnosis10CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis11Code, HospiceClaim::getDiagnosis11CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis12Code, HospiceClaim::getDiagnosis12CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis13Code, HospiceClaim::getDiagnosis13CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis14Code, HospiceClaim::getDiagnosis14CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis15Code, HospiceClaim::getDiagnosis15CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis16Code, HospiceClaim::getDiagnosis16CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis17Code, HospiceClaim::getDiagnosis17CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis18Code, HospiceClaim::getDiagnosis18CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis19Code, HospiceClaim::getDiagnosis19CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis20Code, HospiceClaim::getDiagnosis20CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis21Code, HospiceClaim::getDiagnosis21CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis22Code, HospiceClaim::getDiagnosis22CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis23Code, HospiceClaim::getDiagnosis23CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis24Code, HospiceClaim::getDiagnosis24CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosis25Code, HospiceClaim::getDiagnosis25CodeVersion)
+			.diagnosis(HospiceClaim::getDiagnosisExternalFirstCode, HospiceClaim::getDiagnosisExternalFirstCodeVersion,
+					DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal1Code, HospiceClaim::getDiagnosisExternal1CodeVersion,
+					DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal2Code, HospiceClaim::getDiagnosisExternal2CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal3Code, HospiceClaim::getDiagnosisExternal3CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal4Code, HospiceClaim::getDiagnosisExternal4CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal5Code, HospiceClaim::getDiagnosisExternal5CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal6Code, HospiceClaim::getDiagnosisExternal6CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal7Code, HospiceClaim::getDiagnosisExternal7CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal8Code, HospiceClaim::getDiagnosisExternal8CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal9Code, HospiceClaim::getDiagnosisExternal9CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal10Code, HospiceClaim::getDiagnosisExternal10CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal11Code, HospiceClaim::getDiagnosisExternal11CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(HospiceClaim::getDiagnosisExternal12Code, HospiceClaim::getDiagnosisExternal12CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.build();
+
 	/**
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} to use
@@ -29,12 +100,12 @@ final class HospiceClaimTransformer {
 	 *         specified {@link HospiceClaim}
 	 */
 	static ExplanationOfBenefit transform(MetricRegistry metricRegistry, Object claim) {
-		Timer.Context timer = metricRegistry
-				.timer(MetricRegistry.name(HospiceClaimTransformer.class.getSimpleName(), "transform")).time();
+		Timer.Context timer = metricRegistry.timer(METRIC_NAME_TRANSFORM).time();
 
 		if (!(claim instanceof HospiceClaim))
 			throw new BadCodeMonkeyException();
-		ExplanationOfBenefit eob = transformClaim((HospiceClaim) claim);
+		ExplanationOfBenefit eob = Tracer.callInNewSpan(METRIC_NAME_TRANSFORM,
+				() -> transformClaim((HospiceClaim) claim, CODE_MAPPING));
 
 		timer.stop();
 		return eob;
@@ -43,10 +114,15 @@ final class HospiceClaimTransformer {
 	/**
 	 * @param claimGroup
 	 *            the CCW {@link HospiceClaim} to transform
+	 * @param codeMapping
+	 *            the mapping to use for the claim's diagnosis and procedure
+	 *            codes, which is always {@link #CODE_MAPPING}, other than in
+	 *            tests that check it against the original mapping code
 	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
 	 *         specified {@link HospiceClaim}
 	 */
-	private static ExplanationOfBenefit transformClaim(HospiceClaim claimGroup) {
+	static ExplanationOfBenefit transformClaim(HospiceClaim claimGroup,
+			BiConsumer<ExplanationOfBenefit, HospiceClaim> codeMapping) {
 		ExplanationOfBenefit eob = new ExplanationOfBenefit();
 
 		// Common group level fields between all claim types
@@ -85,53 +161,7 @@ final class HospiceClaimTransformer {
 				claimGroup.getAttendingPhysicianNpi(), claimGroup.getTotalChargeAmount(),
 				claimGroup.getPrimaryPayerPaidAmount(), claimGroup.getFiscalIntermediaryNumber());
 
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
-				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
-				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
-				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
-				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
-				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
-				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
-				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
-				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
-				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
-				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
-				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
-				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
-				claimGroup.getDiagnosis12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses13Thru25(claimGroup.getDiagnosis13Code(),
-				claimGroup.getDiagnosis13CodeVersion(), claimGroup.getDiagnosis14Code(),
-				claimGroup.getDiagnosis14CodeVersion(), claimGroup.getDiagnosis15Code(),
-				claimGroup.getDiagnosis15CodeVersion(), claimGroup.getDiagnosis16Code(),
-				claimGroup.getDiagnosis16CodeVersion(), claimGroup.getDiagnosis17Code(),
-				claimGroup.getDiagnosis17CodeVersion(), claimGroup.getDiagnosis18Code(),
-				claimGroup.getDiagnosis18CodeVersion(), claimGroup.getDiagnosis19Code(),
-				claimGroup.getDiagnosis19CodeVersion(), claimGroup.getDiagnosis20Code(),
-				claimGroup.getDiagnosis20CodeVersion(), claimGroup.getDiagnosis21Code(),
-				claimGroup.getDiagnosis21CodeVersion(), claimGroup.getDiagnosis22Code(),
-				claimGroup.getDiagnosis22CodeVersion(), claimGroup.getDiagnosis23Code(),
-				claimGroup.getDiagnosis23CodeVersion(), claimGroup.getDiagnosis24Code(),
-				claimGroup.getDiagnosis24CodeVersion(), claimGroup.getDiagnosis25Code(),
-				claimGroup.getDiagnosis25CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (Diagnosis diagnosis : TransformerUtils.extractExternalDiagnoses1Thru12(
-				claimGroup.getDiagnosisExternalFirstCode(), claimGroup.getDiagnosisExternalFirstCodeVersion(),
-				claimGroup.getDiagnosisExternal1Code(), claimGroup.getDiagnosisExternal1CodeVersion(),
-				claimGroup.getDiagnosisExternal2Code(), claimGroup.getDiagnosisExternal2CodeVersion(),
-				claimGroup.getDiagnosisExternal3Code(), claimGroup.getDiagnosisExternal3CodeVersion(),
-				claimGroup.getDiagnosisExternal4Code(), claimGroup.getDiagnosisExternal4CodeVersion(),
-				claimGroup.getDiagnosisExternal5Code(), claimGroup.getDiagnosisExternal5CodeVersion(),
-				claimGroup.getDiagnosisExternal6Code(), claimGroup.getDiagnosisExternal6CodeVersion(),
-				claimGroup.getDiagnosisExternal7Code(), claimGroup.getDiagnosisExternal7CodeVersion(),
-				claimGroup.getDiagnosisExternal8Code(), claimGroup.getDiagnosisExternal8CodeVersion(),
-				claimGroup.getDiagnosisExternal9Code(), claimGroup.getDiagnosisExternal9CodeVersion(),
-				claimGroup.getDiagnosisExternal10Code(), claimGroup.getDiagnosisExternal10CodeVersion(),
-				claimGroup.getDiagnosisExternal11Code(), claimGroup.getDiagnosisExternal11CodeVersion(),
-				claimGroup.getDiagnosisExternal12Code(), claimGroup.getDiagnosisExternal12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		codeMapping.accept(eob, claimGroup);
 
 		for (HospiceClaimLine claimLine : claimGroup.getLines()) {
 			ItemComponent item = eob.addItem();
@@ -1,10 +1,8 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.function.BiConsumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -18,12 +16,171 @@ import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
 import gov.hhs.cms.bluebutton.data.model.rif.InpatientClaim;
 import gov.hhs.cms.bluebutton.data.model.rif.InpatientClaimLine;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
 
 /**
  * Transforms CCW {@link InpatientClaim} instances into FHIR
  * {@link ExplanationOfBenefit} resources.
  */
 final class InpatientClaimTransformer {
+	/**
+	 * The name of the {@link Timer} and {@link Tracer} span for
+	 * {@link #transform(MetricRegistry, Object)}, which is built once here
+	 * rather than on every call.
+	 */
+	private static final String METRIC_NAME_TRANSFORM = MetricRegistry
+			.name(InpatientClaimTransformer.class.getSimpleName(), "transform");
+
+	/**
+	 * The {@link ClaimCodeMapping} for the diagnosis and procedure code fields in
+	 * {@link InpatientClaim}s.
+	 */
+	private static final ClaimCodeMapping<InpatientClaim> CODE_MAPPING = ClaimCodeMapping.<InpatientClaim> builder()
+			.diagnosis(InpatientClaim::getDiagnosisAdmittingCode, InpatientClaim::getDiagnosisAdmittingCodeVersion,
+					DiagnosisLabel.ADMITTING)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis1Code,
+					InpatientClaim::getDiagnosis1CodeVersion, InpatientClaim::getDiagnosis1PresentOnAdmissionCode,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(InpatientClaim::getDiagnosisPrincipalCode, InpatientClaim::getDiagnosisPrincipalCodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis2Code,
+					InpatientClaim::getDiagnosis2CodeVersion, InpatientClaim::getDiagnosis2PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis3Code,
+					InpatientClaim::getDiagnosis3CodeVersion, InpatientClaim::getDiagnosis3PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis4Code,
+					InpatientClaim::getDiagnosis4CodeVersion, InpatientClaim::getDiagnosis4PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis5Code,
+					InpatientClaim::getDiagnosis5CodeVersion, InpatientClaim::getDiagnosis5PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis6Code,
+					InpatientClaim::getDiagnosis6CodeVersion, InpatientClaim::getDiagnosis6PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis7Code,
+					InpatientClaim::getDiagnosis7CodeVersion, InpatientClaim::getDiagnosis7PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis8Code,
+					InpatientClaim::getDiagnosis8CodeVersion, InpatientClaim::getDiagnosis8PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis9Code,
+					InpatientClaim::getDiagnosis9CodeVersion, InpatientClaim::getDiagnosis9PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis10Code,
+					InpatientClaim::getDiagnosis10CodeVersion, InpatientClaim::getDiagnosis10PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis11Code,
+					InpatientClaim::getDiagnosis11CodeVersion, InpatientClaim::getDiagnosis11PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis12Code,
+					InpatientClaim::getDiagnosis12CodeVersion, InpatientClaim::getDiagnosis12PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis13Code,
+					InpatientClaim::getDiagnosis13CodeVersion, InpatientClaim::getDiagnosis13PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis14Code,
+					InpatientClaim::getDiagnosis14CodeVersion, InpatientClaim::getDiagnosis14PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis15Code,
+					InpatientClaim::getDiagnosis15CodeVersion, InpatientClaim::getDiagnosis15PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis16Code,
+					InpatientClaim::getDiagnosis16CodeVersion, InpatientClaim::getDiagnosis16PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis17Code,
+					InpatientClaim::getDiagnosis17CodeVersion, InpatientClaim::getDiagnosis17PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis18Code,
+					InpatientClaim::getDiagnosis18CodeVersion, InpatientClaim::getDiagnosis18PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis19Code,
+					InpatientClaim::getDiagnosis19CodeVersion, InpatientClaim::getDiagnosis19PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis20Code,
+					InpatientClaim::getDiagnosis20CodeVersion, InpatientClaim::getDiagnosis20PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis21Code,
+					InpatientClaim::getDiagnosis21CodeVersion, InpatientClaim::getDiagnosis21PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis22Code,
+					InpatientClaim::getDiagnosis22CodeVersion, InpatientClaim::getDiagnosis22PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis23Code,
+					InpatientClaim::getDiagnosis23CodeVersion, InpatientClaim::getDiagnosis23PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis24Code,
+					InpatientClaim::getDiagnosis24CodeVersion, InpatientClaim::getDiagnosis24PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosis25Code,
+					InpatientClaim::getDiagnosis25CodeVersion, InpatientClaim::getDiagnosis25PresentOnAdmissionCode)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal1Code,
+					InpatientClaim::getDiagnosisExternal1CodeVersion,
+					InpatientClaim::getDiagnosisExternal1PresentOnAdmissionCode, DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosis(InpatientClaim::getDiagnosisExternalFirstCode,
+					InpatientClaim::getDiagnosisExternalFirstCodeVersion, DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal2Code,
+					InpatientClaim::getDiagnosisExternal2CodeVersion,
+					InpatientClaim::getDiagnosisExternal2PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal3Code,
+					InpatientClaim::getDiagnosisExternal3CodeVersion,
+					InpatientClaim::getDiagnosisExternal3PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal4Code,
+					InpatientClaim::getDiagnosisExternal4CodeVersion,
+					InpatientClaim::getDiagnosisExternal4PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal5Code,
+					InpatientClaim::getDiagnosisExternal5CodeVersion,
+					InpatientClaim::getDiagnosisExternal5PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal6Code,
+					InpatientClaim::getDiagnosisExternal6CodeVersion,
+					InpatientClaim::getDiagnosisExternal6PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal7Code,
+					InpatientClaim::getDiagnosisExternal7CodeVersion,
+					InpatientClaim::getDiagnosisExternal7PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal8Code,
+					InpatientClaim::getDiagnosisExternal8CodeVersion,
+					InpatientClaim::getDiagnosisExternal8PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal9Code,
+					InpatientClaim::getDiagnosisExternal9CodeVersion,
+					InpatientClaim::getDiagnosisExternal9PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal10Code,
+					InpatientClaim::getDiagnosisExternal10CodeVersion,
+					InpatientClaim::getDiagnosisExternal10PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal11Code,
+					InpatientClaim::getDiagnosisExternal11CodeVersion,
+					InpatientClaim::getDiagnosisExternal11PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.diagnosisWithPresentOnAdmission(InpatientClaim::getDiagnosisExternal12Code,
+					InpatientClaim::getDiagnosisExternal12CodeVersion,
+					InpatientClaim::getDiagnosisExternal12PresentOnAdmissionCode, DiagnosisLabel.EXTERNAL)
+			.procedure(InpatientClaim::getProcedure1Code, InpatientClaim::getProcedure1CodeVersion,
+					InpatientClaim::getProcedure1Date)
+			.procedure(InpatientClaim::getProcedure2Code, InpatientClaim::getProcedure2CodeVersion,
+					InpatientClaim::getProcedure2Date)
+			.procedure(InpatientClaim::getProcedure3Code, InpatientClaim::getProcedure3CodeVersion,
+					InpatientClaim::getProcedure3Date)
+			.procedure(InpatientClaim::getProcedure4Code, InpatientClaim::getProcedure4CodeVersion,
+					InpatientClaim::getProcedure4Date)
+			.procedure(InpatientClaim::getProcedure5Code, InpatientClaim::getProcedure5CodeVersion,
+					InpatientClaim::getProcedure5Date)
+			.procedure(InpatientClaim::getProcedure6Code, InpatientClaim::getProcedure6CodeVersion,
+					InpatientClaim::getProcedure6Date)
+			.procedure(InpatientClaim::getProcedure7Code, InpatientClaim::getProcedure7CodeVersion,
+					InpatientClaim::getProcedure7Date)
+			.procedure(InpatientClaim::getProcedure8Code, InpatientClaim::getProcedure8CodeVersion,
+					InpatientClaim::getProcedure8Date)
+			.procedure(InpatientClaim::getProcedure9Code, InpatientClaim::getProcedure9CodeVersion,
+					InpatientClaim::getProcedure9Date)
+			.procedure(InpatientClaim::getProcedure10Code, InpatientClaim::getProcedure10CodeVersion,
+					InpatientClaim::getProcedure10Date)
+			.procedure(InpatientClaim::getProcedure11Code, InpatientClaim::getProcedure11CodeVersion,
+					InpatientClaim::getProcedure11Date)
+			.procedure(InpatientClaim::getProcedure12Code, InpatientClaim::getProcedure12CodeVersion,
+					InpatientClaim::getProcedure12Date)
+			.procedure(InpatientClaim::getProcedure13Code, InpatientClaim::getProcedure13CodeVersion,
+					InpatientClaim::getProcedure13Date)
+			.procedure(InpatientClaim::getProcedure14Code, InpatientClaim::getProcedure14CodeVersion,
+					InpatientClaim::getProcedure14Date)
+			.procedure(InpatientClaim::getProcedure15Code, InpatientClaim::getProcedure15CodeVersion,
+					InpatientClaim::getProcedure15Date)
+			.procedure(InpatientClaim::getProcedure16Code, InpatientClaim::getProcedure16CodeVersion,
+					InpatientClaim::getProcedure16Date)
+			.procedure(InpatientClaim::getProcedure17Code, InpatientClaim::getProcedure17CodeVersion,
+					InpatientClaim::getProcedure17Date)
+			.procedure(InpatientClaim::getProcedure18Code, InpatientClaim::getProcedure18CodeVersion,
+					InpatientClaim::getProcedure18Date)
+			.procedure(InpatientClaim::getProcedure19Code, InpatientClaim::getProcedure19CodeVersion,
+					InpatientClaim::getProcedure19Date)
+			.procedure(InpatientClaim::getProcedure20Code, InpatientClaim::getProcedure20CodeVersion,
+					InpatientClaim::getProcedure20Date)
+			.procedure(InpatientClaim::getProcedure21Code, InpatientClaim::getProcedure21CodeVersion,
+					InpatientClaim::getProcedure21Date)
+			.procedure(InpatientClaim::getProcedure22Code, InpatientClaim::getProcedure22CodeVersion,
+					InpatientClaim::getProcedure22Date)
+			.procedure(InpatientClaim::getProcedure23Code, InpatientClaim::getProcedure23CodeVersion,
+					InpatientClaim::getProcedure23Date)
+			.procedure(InpatientClaim::getProcedure24Code, InpatientClaim::getProcedure24CodeVersion,
+					InpatientClaim::getProcedure24Date)
+			.procedure(InpatientClaim::getProcedure25Code, InpatientClaim::getProcedure25CodeVersion,
+					InpatientClaim::getProcedure25Date)
+			.build();
+
 	/**
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} to use
@@ -33,12 +190,12 @@ final class InpatientClaimTransformer {
 	 *         specified {@link InpatientClaim}
 	 */
 	static ExplanationOfBenefit transform(MetricRegistry metricRegistry, Object claim) {
-		Timer.Context timer = metricRegistry
-				.timer(MetricRegistry.name(InpatientClaimTransformer.class.getSimpleName(), "transform")).time();
+		Timer.Context timer = metricRegistry.timer(METRIC_NAME_TRANSFORM).time();
 
 		if (!(claim instanceof InpatientClaim))
 			throw new BadCodeMonkeyException();
-		ExplanationOfBenefit eob = transformClaim((InpatientClaim) claim);
+		ExplanationOfBenefit eob = Tracer.callInNewSpan(METRIC_NAME_TRANSFORM,
+				() -> transformClaim((InpatientClaim) claim, CODE_MAPPING));
 
 		timer.stop();
 		return eob;
@@ -47,10 +204,15 @@ final class InpatientClaimTransformer {
 	/**
 	 * @param claimGroup
 	 *            the CCW {@link InpatientClaim} to transform
+	 * @param codeMapping
+	 *            the mapping to use for the claim's diagnosis and procedure
+	 *            codes, which is always {@link #CODE_MAPPING}, other than in
+	 *            tests that check it against the original mapping code
 	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
 	 *         specified {@link InpatientClaim}
 	 */
-	private static ExplanationOfBenefit transformClaim(InpatientClaim claimGroup) {
+	static ExplanationOfBenefit transformClaim(InpatientClaim claimGroup,
+			BiConsumer<ExplanationOfBenefit, InpatientClaim> codeMapping) {
 		ExplanationOfBenefit eob = new ExplanationOfBenefit();
 
 		// Common group level fields between all claim types
@@ -140,44 +302,7 @@ final class InpatientClaimTransformer {
 		TransformerUtils.mapEobCommonGroupInpHHAHospiceSNF(eob, claimGroup.getClaimAdmissionDate(),
 				claimGroup.getBeneficiaryDischargeDate(), Optional.of(claimGroup.getUtilizationDayCount()));
 
-		for (Diagnosis diagnosis : extractDiagnoses(claimGroup))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (CCWProcedure procedure : TransformerUtils.extractCCWProcedures(claimGroup.getProcedure1Code(),
-				claimGroup.getProcedure1CodeVersion(), claimGroup.getProcedure1Date(), claimGroup.getProcedure2Code(),
-				claimGroup.getProcedure2CodeVersion(), claimGroup.getProcedure2Date(), claimGroup.getProcedure3Code(),
-				claimGroup.getProcedure3CodeVersion(), claimGroup.getProcedure3Date(), claimGroup.getProcedure4Code(),
-				claimGroup.getProcedure4CodeVersion(), claimGroup.getProcedure4Date(), claimGroup.getProcedure5Code(),
-				claimGroup.getProcedure5CodeVersion(), claimGroup.getProcedure5Date(), claimGroup.getProcedure6Code(),
-				claimGroup.getProcedure6CodeVersion(), claimGroup.getProcedure6Date(), claimGroup.getProcedure7Code(),
-				claimGroup.getProcedure7CodeVersion(), claimGroup.getProcedure7Date(), claimGroup.getProcedure8Code(),
-				claimGroup.getProcedure8CodeVersion(), claimGroup.getProcedure8Date(), claimGroup.getProcedure9Code(),
-				claimGroup.getProcedure9CodeVersion(), claimGroup.getProcedure9Date(), claimGroup.getProcedure10Code(),
-				claimGroup.getProcedure10CodeVersion(), claimGroup.getProcedure10Date(),
-				claimGroup.getProcedure11Code(), claimGroup.getProcedure11CodeVersion(),
-				claimGroup.getProcedure11Date(), claimGroup.getProcedure12Code(),
-				claimGroup.getProcedure12CodeVersion(), claimGroup.getProcedure12Date(),
-				claimGroup.getProcedure13Code(), claimGroup.getProcedure13CodeVersion(),
-				claimGroup.getProcedure13Date(), claimGroup.getProcedure14Code(),
-				claimGroup.getProcedure14CodeVersion(), claimGroup.getProcedure14Date(),
-				claimGroup.getProcedure15Code(), claimGroup.getProcedure15CodeVersion(),
-				claimGroup.getProcedure15Date(), claimGroup.getProcedure16Code(),
-				claimGroup.getProcedure16CodeVersion(), claimGroup.getProcedure16Date(),
-				claimGroup.getProcedure17Code(), claimGroup.getProcedure17CodeVersion(),
-				claimGroup.getProcedure17Date(), claimGroup.getProcedure18Code(),
-				claimGroup.getProcedure18CodeVersion(), claimGroup.getProcedure18Date(),
-				claimGroup.getProcedure19Code(), claimGroup.getProcedure19CodeVersion(),
-				claimGroup.getProcedure19Date(), claimGroup.getProcedure20Code(),
-				claimGroup.getProcedure20CodeVersion(), claimGroup.getProcedure20Date(),
-				claimGroup.getProcedure21Code(), claimGroup.getProcedure21CodeVersion(),
-				claimGroup.getProcedure21Date(), claimGroup.getProcedure22Code(),
-				claimGroup.getProcedure22CodeVersion(), claimGroup.getProcedure22Date(),
-				claimGroup.getProcedure23Code(), claimGroup.getProcedure23CodeVersion(),
-				claimGroup.getProcedure23Date(), claimGroup.getProcedure24Code(),
-				claimGroup.getProcedure24CodeVersion(), claimGroup.getProcedure24Date(),
-				claimGroup.getProcedure25Code(), claimGroup.getProcedure25CodeVersion(),
-				claimGroup.getProcedure25Date()))
-			TransformerUtils.addProcedureCode(eob, procedure);
+		codeMapping.accept(eob, claimGroup);
 
 		for (InpatientClaimLine claimLine : claimGroup.getLines()) {
 			ItemComponent item = eob.addItem();
@@ -200,122 +325,5 @@ final class InpatientClaimTransformer {
 		}
 		return eob;
 	}
-
-	/**
-	 * @param claim
-	 *            the {@link InpatientClaim} to extract the {@link Diagnosis}es
-	 *            from
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 *         {@link InpatientClaim}
-	 */
-	private static List<Diagnosis> extractDiagnoses(InpatientClaim claim) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
-		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisAdmittingCode(),
-				claim.getDiagnosisAdmittingCodeVersion(), DiagnosisLabel.ADMITTING));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis1Code(), claim.getDiagnosis1CodeVersion(),
-				claim.getDiagnosis1PresentOnAdmissionCode(), DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisPrincipalCode(),
-				claim.getDiagnosisPrincipalCodeVersion(), DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis2Code(), claim.getDiagnosis2CodeVersion(),
-				claim.getDiagnosis2PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis3Code(), claim.getDiagnosis3CodeVersion(),
-				claim.getDiagnosis3PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis4Code(), claim.getDiagnosis4CodeVersion(),
-				claim.getDiagnosis4PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis5Code(), claim.getDiagnosis5CodeVersion(),
-				claim.getDiagnosis5PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis6Code(), claim.getDiagnosis6CodeVersion(),
-				claim.getDiagnosis6PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis7Code(), claim.getDiagnosis7CodeVersion(),
-				claim.getDiagnosis7PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis8Code(), claim.getDiagnosis8CodeVersion(),
-				claim.getDiagnosis8PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis9Code(), claim.getDiagnosis9CodeVersion(),
-				claim.getDiagnosis9PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis10Code(), claim.getDiagnosis10CodeVersion(),
-				claim.getDiagnosis10PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis11Code(), claim.getDiagnosis11CodeVersion(),
-				claim.getDiagnosis11PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis12Code(), claim.getDiagnosis12CodeVersion(),
-				claim.getDiagnosis12PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis13Code(), claim.getDiagnosis13CodeVersion(),
-				claim.getDiagnosis13PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis14Code(), claim.getDiagnosis14CodeVersion(),
-				claim.getDiagnosis14PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis15Code(), claim.getDiagnosis15CodeVersion(),
-				claim.getDiagnosis15PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis16Code(), claim.getDiagnosis16CodeVersion(),
-				claim.getDiagnosis16PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis17Code(), claim.getDiagnosis17CodeVersion(),
-				claim.getDiagnosis17PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis18Code(), claim.getDiagnosis18CodeVersion(),
-				claim.getDiagnosis18PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis19Code(), claim.getDiagnosis19CodeVersion(),
-				claim.getDiagnosis19PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis20Code(), claim.getDiagnosis20CodeVersion(),
-				claim.getDiagnosis20PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis21Code(), claim.getDiagnosis21CodeVersion(),
-				claim.getDiagnosis21PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis22Code(), claim.getDiagnosis22CodeVersion(),
-				claim.getDiagnosis22PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis23Code(), claim.getDiagnosis23CodeVersion(),
-				claim.getDiagnosis23PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis24Code(), claim.getDiagnosis24CodeVersion(),
-				claim.getDiagnosis24PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis25Code(), claim.getDiagnosis25CodeVersion(),
-				claim.getDiagnosis25PresentOnAdmissionCode()));
-
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal1Code(), claim.getDiagnosisExternal1CodeVersion(),
-						claim.getDiagnosisExternal1PresentOnAdmissionCode(), DiagnosisLabel.FIRSTEXTERNAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisExternalFirstCode(),
-				claim.getDiagnosisExternalFirstCodeVersion(), DiagnosisLabel.FIRSTEXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal2Code(), claim.getDiagnosisExternal2CodeVersion(),
-						claim.getDiagnosisExternal2PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal3Code(), claim.getDiagnosisExternal3CodeVersion(),
-						claim.getDiagnosisExternal3PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal4Code(), claim.getDiagnosisExternal4CodeVersion(),
-						claim.getDiagnosisExternal4PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal5Code(), claim.getDiagnosisExternal5CodeVersion(),
-						claim.getDiagnosisExternal5PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal6Code(), claim.getDiagnosisExternal6CodeVersion(),
-						claim.getDiagnosisExternal6PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal7Code(), claim.getDiagnosisExternal7CodeVersion(),
-						claim.getDiagnosisExternal7PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal8Code(), claim.getDiagnosisExternal8CodeVersion(),
-						claim.getDiagnosisExternal8PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal9Code(), claim.getDiagnosisExternal9CodeVersion(),
-						claim.getDiagnosisExternal9PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal10Code(), claim.getDiagnosisExternal10CodeVersion(),
-						claim.getDiagnosisExternal10PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal11Code(), claim.getDiagnosisExternal11CodeVersion(),
-						claim.getDiagnosisExternal11PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal12Code(), claim.getDiagnosisExternal12CodeVersion(),
-						claim.getDiagnosisExternal12PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
-
-		return diagnoses;
-	}
-
 }
 
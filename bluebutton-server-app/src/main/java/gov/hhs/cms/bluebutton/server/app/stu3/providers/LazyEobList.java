@@ -0,0 +1,125 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+/**
+ * <p>
+ * A read-only, sorted {@link List} of {@link ExplanationOfBenefit}s that only
+ * transforms each claim entity when (and if) its element is actually read.
+ * </p>
+ * <p>
+ * For a paged {@link ExplanationOfBenefit} search, all of a beneficiary's
+ * claims have to be sorted to find the page, but only the handful of claims on
+ * that page ever get serialized, so transforming every claim into a full
+ * {@link ExplanationOfBenefit} object graph just to sort it threw most of that
+ * work away. Instead, the entities are sorted by their {@link EobSortKey}s,
+ * which can be computed from the entities directly, and then only transformed
+ * as {@link TransformerUtils#createBundle(PagingArguments, String, String, String, List)}
+ * pulls them out of the requested page.
+ * </p>
+ * <p>
+ * This only helps paged searches that don't exclude SAMHSA claims, and those
+ * are the only ones it's used for. Unpaged searches serialize every EOB anyway,
+ * and the SAMHSA filter works on transformed EOBs (and has to run on all of
+ * them to get the total), so both of those still transform every claim up
+ * front, and still encode through the HAPI object model.
+ * </p>
+ * <p>
+ * Not thread-safe, which is fine: each instance is only ever used by the
+ * request thread that created it.
+ * </p>
+ */
+final class LazyEobList extends AbstractList<IBaseResource> implements RandomAccess {
+	private final ClaimTransformExecutor claimTransformExecutor;
+	private final EobSortKey[] sortKeys;
+	private final Object[] claims;
+	private final ExplanationOfBenefit[] eobs;
+
+	/**
+	 * Constructs a new {@link LazyEobList}.
+	 *
+	 * @param claimTransformExecutor
+	 *            the {@link ClaimTransformExecutor} to transform the claims with
+	 * @param claimsByType
+	 *            the claim entities to include, grouped by {@link ClaimType}
+	 */
+	LazyEobList(ClaimTransformExecutor claimTransformExecutor, Map<ClaimType, List<?>> claimsByType) {
+		this.claimTransformExecutor = claimTransformExecutor;
+
+		List<SortableClaim> sortableClaims = new ArrayList<>();
+		for (Map.Entry<ClaimType, List<?>> claimsForType : claimsByType.entrySet()) {
+			ClaimType claimType = claimsForType.getKey();
+			for (Object claim : claimsForType.getValue())
+				sortableClaims.add(new SortableClaim(
+						new EobSortKey(claimType.getEntityIdFunction().apply(claim), claimType), claim));
+		}
+		sortableClaims.sort((c1, c2) -> c1.sortKey.compareTo(c2.sortKey));
+
+		this.sortKeys = new EobSortKey[sortableClaims.size()];
+		this.claims = new Object[sortableClaims.size()];
+		for (int i = 0; i < sortableClaims.size(); i++) {
+			this.sortKeys[i] = sortableClaims.get(i).sortKey;
+			this.claims[i] = sortableClaims.get(i).claim;
+		}
+		this.eobs = new ExplanationOfBenefit[sortableClaims.size()];
+	}
+
+	/**
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	public ExplanationOfBenefit get(int index) {
+		if (eobs[index] == null) {
+			eobs[index] = claimTransformExecutor.transform(sortKeys[index].getClaimType(), claims[index]);
+			// Not needed once transformed, so let it be collected.
+			claims[index] = null;
+		}
+		return eobs[index];
+	}
+
+	/**
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+		return eobs.length;
+	}
+
+	/**
+	 * @param index
+	 *            the index of the element to get the {@link EobSortKey} for
+	 * @return the {@link EobSortKey} of the element at the specified index,
+	 *         without transforming it
+	 */
+	EobSortKey getSortKey(int index) {
+		return sortKeys[index];
+	}
+
+	/**
+	 * A claim entity, paired with its {@link EobSortKey}.
+	 */
+	private static final class SortableClaim {
+		private final EobSortKey sortKey;
+		private final Object claim;
+
+		/**
+		 * Constructs a new {@link SortableClaim}.
+		 *
+		 * @param sortKey
+		 *            the {@link EobSortKey} for the claim entity
+		 * @param claim
+		 *            the claim entity
+		 */
+		SortableClaim(EobSortKey sortKey, Object claim) {
+			this.sortKey = sortKey;
+			this.claim = claim;
+		}
+	}
+}
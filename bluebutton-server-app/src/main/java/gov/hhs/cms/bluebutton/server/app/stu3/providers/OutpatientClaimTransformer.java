@@ -2,6 +2,7 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -15,12 +16,138 @@ import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
 import gov.hhs.cms.bluebutton.data.model.rif.OutpatientClaim;
 import gov.hhs.cms.bluebutton.data.model.rif.OutpatientClaimLine;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
 
 /**
  * Transforms CCW {@link OutpatientClaim} instances into FHIR
  * {@link ExplanationOfBenefit} resources.
  */
 final class OutpatientClaimTransformer {
+	/**
+	 * The name of the {@link Timer} and {@link Tracer} span for
+	 * {@link #transform(MetricRegistry, Object)}, which is built once here
+	 * rather than on every call.
+	 */
+	private static final String METRIC_NAME_TRANSFORM = MetricRegistry
+			.name(OutpatientClaimTransformer.class.getSimpleName(), "transform");
+
+	/**
+	 * The {@link ClaimCodeMapping} for the diagnosis and procedure code fields in
+	 * {@link OutpatientClaim}s.
+	 */
+	private static final ClaimCodeMapping<OutpatientClaim> CODE_MAPPING = ClaimCodeMapping.<OutpatientClaim> builder()
+			.diagnosis(OutpatientClaim::getDiagnosisPrincipalCode, OutpatientClaim::getDiagnosisPrincipalCodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(OutpatientClaim::getDiagnosis1Code, OutpatientClaim::getDiagnosis1CodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(OutpatientClaim::getDiagnosis2Code, OutpatientClaim::getDiagnosis2CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis3Code, OutpatientClaim::getDiagnosis3CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis4Code, OutpatientClaim::getDiagnosis4CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis5Code, OutpatientClaim::getDiagnosis5CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis6Code, OutpatientClaim::getDiagnosis6CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis7Code, OutpatientClaim::getDiagnosis7CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis8Code, OutpatientClaim::getDiagnosis8CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis9Code, OutpatientClaim::getDiagnosis9CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis10Code, OutpatientClaim::getDiagnosis10CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis11Code, OutpatientClaim::getDiagnosis11CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis12Code, OutpatientClaim::getDiagnosis12CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis13Code, OutpatientClaim::getDiagnosis13CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis14Code, OutpatientClaim::getDiagnosis14CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis15Code, OutpatientClaim::getDiagnosis15CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis16Code, OutpatientClaim::getDiagnosis16CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis17Code, OutpatientClaim::getDiagnosis17CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis18Code, OutpatientClaim::getDiagnosis18CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis19Code, OutpatientClaim::getDiagnosis19CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis20Code, OutpatientClaim::getDiagnosis20CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis21Code, OutpatientClaim::getDiagnosis21CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis22Code, OutpatientClaim::getDiagnosis22CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis23Code, OutpatientClaim::getDiagnosis23CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis24Code, OutpatientClaim::getDiagnosis24CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosis25Code, OutpatientClaim::getDiagnosis25CodeVersion)
+			.diagnosis(OutpatientClaim::getDiagnosisExternalFirstCode,
+					OutpatientClaim::getDiagnosisExternalFirstCodeVersion, DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal1Code, OutpatientClaim::getDiagnosisExternal1CodeVersion,
+					DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal2Code, OutpatientClaim::getDiagnosisExternal2CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal3Code, OutpatientClaim::getDiagnosisExternal3CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal4Code, OutpatientClaim::getDiagnosisExternal4CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal5Code, OutpatientClaim::getDiagnosisExternal5CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal6Code, OutpatientClaim::getDiagnosisExternal6CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal7Code, OutpatientClaim::getDiagnosisExternal7CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal8Code, OutpatientClaim::getDiagnosisExternal8CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal9Code, OutpatientClaim::getDiagnosisExternal9CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal10Code, OutpatientClaim::getDiagnosisExternal10CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal11Code, OutpatientClaim::getDiagnosisExternal11CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisExternal12Code, OutpatientClaim::getDiagnosisExternal12CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(OutpatientClaim::getDiagnosisAdmission1Code, OutpatientClaim::getDiagnosisAdmission1CodeVersion,
+					DiagnosisLabel.REASONFORVISIT)
+			.diagnosis(OutpatientClaim::getDiagnosisAdmission2Code, OutpatientClaim::getDiagnosisAdmission2CodeVersion,
+					DiagnosisLabel.REASONFORVISIT)
+			.diagnosis(OutpatientClaim::getDiagnosisAdmission3Code, OutpatientClaim::getDiagnosisAdmission3CodeVersion,
+					DiagnosisLabel.REASONFORVISIT)
+			.procedure(OutpatientClaim::getProcedure1Code, OutpatientClaim::getProcedure1CodeVersion,
+					OutpatientClaim::getProcedure1Date)
+			.procedure(OutpatientClaim::getProcedure2Code, OutpatientClaim::getProcedure2CodeVersion,
+					OutpatientClaim::getProcedure2Date)
+			.procedure(OutpatientClaim::getProcedure3Code, OutpatientClaim::getProcedure3CodeVersion,
+					OutpatientClaim::getProcedure3Date)
+			.procedure(OutpatientClaim::getProcedure4Code, OutpatientClaim::getProcedure4CodeVersion,
+					OutpatientClaim::getProcedure4Date)
+			.procedure(OutpatientClaim::getProcedure5Code, OutpatientClaim::getProcedure5CodeVersion,
+					OutpatientClaim::getProcedure5Date)
+			.procedure(OutpatientClaim::getProcedure6Code, OutpatientClaim::getProcedure6CodeVersion,
+					OutpatientClaim::getProcedure6Date)
+			.procedure(OutpatientClaim::getProcedure7Code, OutpatientClaim::getProcedure7CodeVersion,
+					OutpatientClaim::getProcedure7Date)
+			.procedure(OutpatientClaim::getProcedure8Code, OutpatientClaim::getProcedure8CodeVersion,
+					OutpatientClaim::getProcedure8Date)
+			.procedure(OutpatientClaim::getProcedure9Code, OutpatientClaim::getProcedure9CodeVersion,
+					OutpatientClaim::getProcedure9Date)
+			.procedure(OutpatientClaim::getProcedure10Code, OutpatientClaim::getProcedure10CodeVersion,
+					OutpatientClaim::getProcedure10Date)
+			.procedure(OutpatientClaim::getProcedure11Code, OutpatientClaim::getProcedure11CodeVersion,
+					OutpatientClaim::getProcedure11Date)
+			.procedure(OutpatientClaim::getProcedure12Code, OutpatientClaim::getProcedure12CodeVersion,
+					OutpatientClaim::getProcedure12Date)
+			.procedure(OutpatientClaim::getProcedure13Code, OutpatientClaim::getProcedure13CodeVersion,
+					OutpatientClaim::getProcedure13Date)
+			.procedure(OutpatientClaim::getProcedure14Code, OutpatientClaim::getProcedure14CodeVersion,
+					OutpatientClaim::getProcedure14Date)
+			.procedure(OutpatientClaim::getProcedure15Code, OutpatientClaim::getProcedure15CodeVersion,
+					OutpatientClaim::getProcedure15Date)
+			.procedure(OutpatientClaim::getProcedure16Code, OutpatientClaim::getProcedure16CodeVersion,
+					OutpatientClaim::getProcedure16Date)
+			.procedure(OutpatientClaim::getProcedure17Code, OutpatientClaim::getProcedure17CodeVersion,
+					OutpatientClaim::getProcedure17Date)
+			.procedure(OutpatientClaim::getProcedure18Code, OutpatientClaim::getProcedure18CodeVersion,
+					OutpatientClaim::getProcedure18Date)
+			.procedure(OutpatientClaim::getProcedure19Code, OutpatientClaim::getProcedure19CodeVersion,
+					OutpatientClaim::getProcedure19Date)
+			.procedure(OutpatientClaim::getProcedure20Code, OutpatientClaim::getProcedure20CodeVersion,
+					OutpatientClaim::getProcedure20Date)
+			.procedure(OutpatientClaim::getProcedure21Code, OutpatientClaim::getProcedure21CodeVersion,
+					OutpatientClaim::getProcedure21Date)
+			.procedure(OutpatientClaim::getProcedure22Code, OutpatientClaim::getProcedure22CodeVersion,
+					OutpatientClaim::getProcedure22Date)
+			.procedure(OutpatientClaim::getProcedure23Code, OutpatientClaim::getProcedure23CodeVersion,
+					OutpatientClaim::getProcedure23Date)
+			.procedure(OutpatientClaim::getProcedure24Code, OutpatientClaim::getProcedure24CodeVersion,
+					OutpatientClaim::getProcedure24Date)
+			.procedure(OutpatientClaim::getProcedure25Code, OutpatientClaim::getProcedure25CodeVersion,
+					OutpatientClaim::getProcedure25Date)
+			.build();
+
 	/**
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} to use
@@ -30,12 +157,12 @@ final class OutpatientClaimTransformer {
 	 *         specified {@link OutpatientClaim}
 	 */
 	static ExplanationOfBenefit transform(MetricRegistry metricRegistry, Object claim) {
-		Timer.Context timer = metricRegistry
-				.timer(MetricRegistry.name(OutpatientClaimTransformer.class.getSimpleName(), "transform")).time();
+		Timer.Context timer = metricRegistry.timer(METRIC_NAME_TRANSFORM).time();
 
 		if (!(claim instanceof OutpatientClaim))
 			throw new BadCodeMonkeyException();
-		ExplanationOfBenefit eob = transformClaim((OutpatientClaim) claim);
+		ExplanationOfBenefit eob = Tracer.callInNewSpan(METRIC_NAME_TRANSFORM,
+				() -> transformClaim((OutpatientClaim) claim, CODE_MAPPING));
 
 		timer.stop();
 		return eob;
@@ -44,10 +171,15 @@ final class OutpatientClaimTransformer {
 	/**
 	 * @param claimGroup
 	 *            the CCW {@link OutpatientClaim} to transform
+	 * @param codeMapping
+	 *            the mapping to use for the claim's diagnosis and procedure
+	 *            codes, which is always {@link #CODE_MAPPING}, other than in
+	 *            tests that check it against the original mapping code
 	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
 	 *         specified {@link OutpatientClaim}
 	 */
-	private static ExplanationOfBenefit transformClaim(OutpatientClaim claimGroup) {
+	static ExplanationOfBenefit transformClaim(OutpatientClaim claimGroup,
+			BiConsumer<ExplanationOfBenefit, OutpatientClaim> codeMapping) {
 		ExplanationOfBenefit eob = new ExplanationOfBenefit();
 
 		// Common group level fields between all claim types
@@ -106,103 +238,7 @@ final class OutpatientClaimTransformer {
 				claimGroup.getAttendingPhysicianNpi(), claimGroup.getTotalChargeAmount(),
 				claimGroup.getPrimaryPayerPaidAmount(), claimGroup.getFiscalIntermediaryNumber());
 
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
-				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
-				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
-				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
-				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
-				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
-				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
-				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
-				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
-				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
-				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
-				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
-				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
-				claimGroup.getDiagnosis12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses13Thru25(claimGroup.getDiagnosis13Code(),
-				claimGroup.getDiagnosis13CodeVersion(), claimGroup.getDiagnosis14Code(),
-				claimGroup.getDiagnosis14CodeVersion(), claimGroup.getDiagnosis15Code(),
-				claimGroup.getDiagnosis15CodeVersion(), claimGroup.getDiagnosis16Code(),
-				claimGroup.getDiagnosis16CodeVersion(), claimGroup.getDiagnosis17Code(),
-				claimGroup.getDiagnosis17CodeVersion(), claimGroup.getDiagnosis18Code(),
-				claimGroup.getDiagnosis18CodeVersion(), claimGroup.getDiagnosis19Code(),
-				claimGroup.getDiagnosis19CodeVersion(), claimGroup.getDiagnosis20Code(),
-				claimGroup.getDiagnosis20CodeVersion(), claimGroup.getDiagnosis21Code(),
-				claimGroup.getDiagnosis21CodeVersion(), claimGroup.getDiagnosis22Code(),
-				claimGroup.getDiagnosis22CodeVersion(), claimGroup.getDiagnosis23Code(),
-				claimGroup.getDiagnosis23CodeVersion(), claimGroup.getDiagnosis24Code(),
-				claimGroup.getDiagnosis24CodeVersion(), claimGroup.getDiagnosis25Code(),
-				claimGroup.getDiagnosis25CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (Diagnosis diagnosis : TransformerUtils.extractExternalDiagnoses1Thru12(
-				claimGroup.getDiagnosisExternalFirstCode(), claimGroup.getDiagnosisExternalFirstCodeVersion(),
-				claimGroup.getDiagnosisExternal1Code(), claimGroup.getDiagnosisExternal1CodeVersion(),
-				claimGroup.getDiagnosisExternal2Code(), claimGroup.getDiagnosisExternal2CodeVersion(),
-				claimGroup.getDiagnosisExternal3Code(), claimGroup.getDiagnosisExternal3CodeVersion(),
-				claimGroup.getDiagnosisExternal4Code(), claimGroup.getDiagnosisExternal4CodeVersion(),
-				claimGroup.getDiagnosisExternal5Code(), claimGroup.getDiagnosisExternal5CodeVersion(),
-				claimGroup.getDiagnosisExternal6Code(), claimGroup.getDiagnosisExternal6CodeVersion(),
-				claimGroup.getDiagnosisExternal7Code(), claimGroup.getDiagnosisExternal7CodeVersion(),
-				claimGroup.getDiagnosisExternal8Code(), claimGroup.getDiagnosisExternal8CodeVersion(),
-				claimGroup.getDiagnosisExternal9Code(), claimGroup.getDiagnosisExternal9CodeVersion(),
-				claimGroup.getDiagnosisExternal10Code(), claimGroup.getDiagnosisExternal10CodeVersion(),
-				claimGroup.getDiagnosisExternal11Code(), claimGroup.getDiagnosisExternal11CodeVersion(),
-				claimGroup.getDiagnosisExternal12Code(), claimGroup.getDiagnosisExternal12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		if (claimGroup.getDiagnosisAdmission1Code().isPresent())
-			TransformerUtils.addDiagnosisCode(eob, Diagnosis
-					.from(claimGroup.getDiagnosisAdmission1Code(), claimGroup.getDiagnosisAdmission1CodeVersion(),
-							DiagnosisLabel.REASONFORVISIT).get());
-		if (claimGroup.getDiagnosisAdmission2Code().isPresent())
-			TransformerUtils.addDiagnosisCode(eob, Diagnosis
-					.from(claimGroup.getDiagnosisAdmission2Code(), claimGroup.getDiagnosisAdmission2CodeVersion()
-					, DiagnosisLabel.REASONFORVISIT).get());
-
-		if (claimGroup.getDiagnosisAdmission3Code().isPresent())
-			TransformerUtils.addDiagnosisCode(eob, Diagnosis
-					.from(claimGroup.getDiagnosisAdmission2Code(), claimGroup.getDiagnosisAdmission3CodeVersion()
-					, DiagnosisLabel.REASONFORVISIT).get());
-
-		for (CCWProcedure procedure : TransformerUtils.extractCCWProcedures(claimGroup.getProcedure1Code(),
-				claimGroup.getProcedure1CodeVersion(), claimGroup.getProcedure1Date(), claimGroup.getProcedure2Code(),
-				claimGroup.getProcedure2CodeVersion(), claimGroup.getProcedure2Date(), claimGroup.getProcedure3Code(),
-				claimGroup.getProcedure3CodeVersion(), claimGroup.getProcedure3Date(), claimGroup.getProcedure4Code(),
-				claimGroup.getProcedure4CodeVersion(), claimGroup.getProcedure4Date(), claimGroup.getProcedure5Code(),
-				claimGroup.getProcedure5CodeVersion(), claimGroup.getProcedure5Date(), claimGroup.getProcedure6Code(),
-				claimGroup.getProcedure6CodeVersion(), claimGroup.getProcedure6Date(), claimGroup.getProcedure7Code(),
-				claimGroup.getProcedure7CodeVersion(), claimGroup.getProcedure7Date(), claimGroup.getProcedure8Code(),
-				claimGroup.getProcedure8CodeVersion(), claimGroup.getProcedure8Date(), claimGroup.getProcedure9Code(),
-				claimGroup.getProcedure9CodeVersion(), claimGroup.getProcedure9Date(), claimGroup.getProcedure10Code(),
-				claimGroup.getProcedure10CodeVersion(), claimGroup.getProcedure10Date(),
-				claimGroup.getProcedure11Code(), claimGroup.getProcedure11CodeVersion(),
-				claimGroup.getProcedure11Date(), claimGroup.getProcedure12Code(),
-				claimGroup.getProcedure12CodeVersion(), claimGroup.getProcedure12Date(),
-				claimGroup.getProcedure13Code(), claimGroup.getProcedure13CodeVersion(),
-				claimGroup.getProcedure13Date(), claimGroup.getProcedure14Code(),
-				claimGroup.getProcedure14CodeVersion(), claimGroup.getProcedure14Date(),
-				claimGroup.getProcedure15Code(), claimGroup.getProcedure15CodeVersion(),
-				claimGroup.getProcedure15Date(), claimGroup.getProcedure16Code(),
-				claimGroup.getProcedure16CodeVersion(), claimGroup.getProcedure16Date(),
-				claimGroup.getProcedure17Code(), claimGroup.getProcedure17CodeVersion(),
-				claimGroup.getProcedure17Date(), claimGroup.getProcedure18Code(),
-				claimGroup.getProcedure18CodeVersion(), claimGroup.getProcedure18Date(),
-				claimGroup.getProcedure19Code(), claimGroup.getProcedure19CodeVersion(),
-				claimGroup.getProcedure19Date(), claimGroup.getProcedure20Code(),
-				claimGroup.getProcedure20CodeVersion(), claimGroup.getProcedure20Date(),
-				claimGroup.getProcedure21Code(), claimGroup.getProcedure21CodeVersion(),
-				claimGroup.getProcedure21Date(), claimGroup.getProcedure22Code(),
-				claimGroup.getProcedure22CodeVersion(), claimGroup.getProcedure22Date(),
-				claimGroup.getProcedure23Code(), claimGroup.getProcedure23CodeVersion(),
-				claimGroup.getProcedure23Date(), claimGroup.getProcedure24Code(),
-				claimGroup.getProcedure24CodeVersion(), claimGroup.getProcedure24Date(),
-				claimGroup.getProcedure25Code(), claimGroup.getProcedure25CodeVersion(),
-				claimGroup.getProcedure25Date()))
-			TransformerUtils.addProcedureCode(eob, procedure);
+		codeMapping.accept(eob, claimGroup);
 
 		for (OutpatientClaimLine claimLine : claimGroup.getLines()) {
 			ItemComponent item = eob.addItem();
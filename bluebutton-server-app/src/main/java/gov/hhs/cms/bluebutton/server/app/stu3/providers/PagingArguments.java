@@ -29,6 +29,23 @@ public final class PagingArguments {
 		serverBase = requestDetails.getServerBaseForRequest();
 	}
 
+	/**
+	 * Constructs a new {@link PagingArguments} directly from its values, for
+	 * use in tests and benchmarks, where there's no {@link RequestDetails}.
+	 * 
+	 * @param pageSize
+	 *            the requested page size, if any
+	 * @param startIndex
+	 *            the requested start index, if any
+	 * @param serverBase
+	 *            the value to use for {@link #getServerBase()}
+	 */
+	PagingArguments(Optional<Integer> pageSize, Optional<Integer> startIndex, String serverBase) {
+		this.pageSize = pageSize;
+		this.startIndex = startIndex;
+		this.serverBase = serverBase;
+	}
+
 	/**
 	 * @param requestDetails
 	 *            the {@link RequestDetails} containing additional parameters for
@@ -100,6 +117,14 @@ public final class PagingArguments {
 		return 0;
 	}
 
+	/**
+	 * @return a normalized representation of these {@link PagingArguments},
+	 *         suitable for use in (e.g.) {@link SearchCoalescer} keys
+	 */
+	String computeKey() {
+		return String.format("%s,%s,%s", pageSize.orElse(null), startIndex.orElse(null), serverBase);
+	}
+
 	/**
 	 * @return Returns the serverBase.
 	 */
@@ -55,15 +55,23 @@ public final class PatientResourceProvider implements IResourceProvider {
 	private static final List<String> SUPPORTED_HICN_HASH_IDENTIFIER_SYSTEMS = Arrays.asList(
 			TransformerConstants.CODING_BBAPI_BENE_HICN_HASH, TransformerConstants.CODING_BBAPI_BENE_HICN_HASH_OLD);
 
+	/**
+	 * The JPA persistence unit name for the connection pool (bulkhead) that
+	 * <code>Patient</code> lookups use, so that they aren't competing with other requests for
+	 * connections.
+	 */
+	public static final String PERSISTENCE_UNIT_NAME = "patient";
+
 	private EntityManager entityManager;
 	private MetricRegistry metricRegistry;
+	private SearchCoalescer searchCoalescer;
 
 	/**
 	 * @param entityManager
 	 *            a JPA {@link EntityManager} connected to the application's
 	 *            database
 	 */
-	@PersistenceContext
+	@PersistenceContext(unitName = PERSISTENCE_UNIT_NAME)
 	public void setEntityManager(EntityManager entityManager) {
 		this.entityManager = entityManager;
 	}
@@ -77,6 +85,15 @@ public final class PatientResourceProvider implements IResourceProvider {
 		this.metricRegistry = metricRegistry;
 	}
 
+	/**
+	 * @param searchCoalescer
+	 *            the {@link SearchCoalescer} to use
+	 */
+	@Inject
+	public void setSearchCoalescer(SearchCoalescer searchCoalescer) {
+		this.searchCoalescer = searchCoalescer;
+	}
+
 	/**
 	 * @see ca.uhn.fhir.rest.server.IResourceProvider#getResourceType()
 	 */
@@ -189,17 +206,21 @@ public final class PatientResourceProvider implements IResourceProvider {
 		if (logicalId.getValueNotNull().isEmpty())
 			throw new InvalidRequestException("Unsupported query parameter value: " + logicalId.getValue());
 
-		List<IBaseResource> patients;
-		try {
-			patients = Arrays.asList(read(new IdType(logicalId.getValue()), requestDetails));
-		} catch (ResourceNotFoundException e) {
-			patients = new LinkedList<>();
-		}
-
 		PagingArguments pagingArgs = new PagingArguments(requestDetails);
-		Bundle bundle = TransformerUtils.createBundle(pagingArgs, "/Patient?", Patient.SP_RES_ID, logicalId.getValue(),
-				patients);
-		return bundle;
+		String searchKey = String.format("%s|%s|%s|%s", Patient.SP_RES_ID, logicalId.getValue(),
+				IncludeIdentifiersMode.determineIncludeIdentifiersMode(requestDetails), pagingArgs.computeKey());
+		return searchCoalescer.search("Patient", searchKey, () -> {
+			List<IBaseResource> patients;
+			try {
+				patients = Arrays.asList(read(new IdType(logicalId.getValue()), requestDetails));
+			} catch (ResourceNotFoundException e) {
+				patients = new LinkedList<>();
+			}
+
+			Bundle bundle = TransformerUtils.createBundle(pagingArgs, "/Patient?", Patient.SP_RES_ID,
+					logicalId.getValue(), patients);
+			return bundle;
+		});
 	}
 
 	/**
@@ -245,17 +266,22 @@ public final class PatientResourceProvider implements IResourceProvider {
 		if (!SUPPORTED_HICN_HASH_IDENTIFIER_SYSTEMS.contains(identifier.getSystem()))
 			throw new InvalidRequestException("Unsupported identifier system: " + identifier.getSystem());
 
-		List<IBaseResource> patients;
-		try {
-			patients = Arrays.asList(queryDatabaseByHicnHash(identifier.getValue(), requestDetails));
-		} catch (NoResultException e) {
-			patients = new LinkedList<>();
-		}
-
 		PagingArguments pagingArgs = new PagingArguments(requestDetails);
-		Bundle bundle = TransformerUtils.createBundle(pagingArgs, "/Patient?", Patient.SP_IDENTIFIER,
-				identifier.getValue(), patients);
-		return bundle;
+		String searchKey = String.format("%s|%s|%s|%s|%s", Patient.SP_IDENTIFIER, identifier.getSystem(),
+				identifier.getValue(), IncludeIdentifiersMode.determineIncludeIdentifiersMode(requestDetails),
+				pagingArgs.computeKey());
+		return searchCoalescer.search("Patient", searchKey, () -> {
+			List<IBaseResource> patients;
+			try {
+				patients = Arrays.asList(queryDatabaseByHicnHash(identifier.getValue(), requestDetails));
+			} catch (NoResultException e) {
+				patients = new LinkedList<>();
+			}
+
+			Bundle bundle = TransformerUtils.createBundle(pagingArgs, "/Patient?", Patient.SP_IDENTIFIER,
+					identifier.getValue(), patients);
+			return bundle;
+		});
 	}
 
 	/**
@@ -3,6 +3,7 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -19,12 +20,108 @@ import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
 import gov.hhs.cms.bluebutton.data.model.rif.SNFClaim;
 import gov.hhs.cms.bluebutton.data.model.rif.SNFClaimLine;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
 
 /**
  * Transforms CCW {@link SNFClaim} instances into FHIR
  * {@link ExplanationOfBenefit} resources.
  */
 final class SNFClaimTransformer {
+	/**
+	 * The name of the {@link Timer} and {@link Tracer} span for
+	 * {@link #transform(MetricRegistry, Object)}, which is built once here
+	 * rather than on every call.
+	 */
+	private static final String METRIC_NAME_TRANSFORM = MetricRegistry
+			.name(SNFClaimTransformer.class.getSimpleName(), "transform");
+
+	/**
+	 * The {@link ClaimCodeMapping} for the diagnosis and procedure code fields in
+	 * {@link SNFClaim}s.
+	 */
+	private static final ClaimCodeMapping<SNFClaim> CODE_MAPPING = ClaimCodeMapping.<SNFClaim> builder()
+			.diagnosis(SNFClaim::getDiagnosisAdmittingCode, SNFClaim::getDiagnosisAdmittingCodeVersion,
+					DiagnosisLabel.ADMITTING)
+			.diagnosis(SNFClaim::getDiagnosisPrincipalCode, SNFClaim::getDiagnosisPrincipalCodeVersion,
+					DiagnosisLabel.PRINCIPAL)
+			.diagnosis(SNFClaim::getDiagnosis1Code, SNFClaim::getDiagnosis1CodeVersion, DiagnosisLabel.PRINCIPAL)
+			.diagnosis(SNFClaim::getDiagnosis2Code, SNFClaim::getDiagnosis2CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis3Code, SNFClaim::getDiagnosis3CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis4Code, SNFClaim::getDiagnosis4CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis5Code, SNFClaim::getDiagnosis5CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis6Code, SNFClaim::getDiagnosis6CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis7Code, SNFClaim::getDiagnosis7CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis8Code, SNFClaim::getDiagnosis8CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis9Code, SNFClaim::getDiagnosis9CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis10Code, SNFClaim::getDiagnosis10CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis11Code, SNFClaim::getDiagnosis11CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis12Code, SNFClaim::getDiagnosis12CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis13Code, SNFClaim::getDiagnosis13CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis14Code, SNFClaim::getDiagnosis14CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis15Code, SNFClaim::getDiagnosis15CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis16Code, SNFClaim::getDiagnosis16CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis17Code, SNFClaim::getDiagnosis17CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis18Code, SNFClaim::getDiagnosis18CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis19Code, SNFClaim::getDiagnosis19CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis20Code, SNFClaim::getDiagnosis20CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis21Code, SNFClaim::getDiagnosis21CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis22Code, SNFClaim::getDiagnosis22CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis23Code, SNFClaim::getDiagnosis23CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis24Code, SNFClaim::getDiagnosis24CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosis25Code, SNFClaim::getDiagnosis25CodeVersion)
+			.diagnosis(SNFClaim::getDiagnosisExternalFirstCode, SNFClaim::getDiagnosisExternalFirstCodeVersion,
+					DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal1Code, SNFClaim::getDiagnosisExternal1CodeVersion,
+					DiagnosisLabel.FIRSTEXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal2Code, SNFClaim::getDiagnosisExternal2CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal3Code, SNFClaim::getDiagnosisExternal3CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal4Code, SNFClaim::getDiagnosisExternal4CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal5Code, SNFClaim::getDiagnosisExternal5CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal6Code, SNFClaim::getDiagnosisExternal6CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal7Code, SNFClaim::getDiagnosisExternal7CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal8Code, SNFClaim::getDiagnosisExternal8CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal9Code, SNFClaim::getDiagnosisExternal9CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal10Code, SNFClaim::getDiagnosisExternal10CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal11Code, SNFClaim::getDiagnosisExternal11CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.diagnosis(SNFClaim::getDiagnosisExternal12Code, SNFClaim::getDiagnosisExternal12CodeVersion,
+					DiagnosisLabel.EXTERNAL)
+			.procedure(SNFClaim::getProcedure1Code, SNFClaim::getProcedure1CodeVersion, SNFClaim::getProcedure1Date)
+			.procedure(SNFClaim::getProcedure2Code, SNFClaim::getProcedure2CodeVersion, SNFClaim::getProcedure2Date)
+			.procedure(SNFClaim::getProcedure3Code, SNFClaim::getProcedure3CodeVersion, SNFClaim::getProcedure3Date)
+			.procedure(SNFClaim::getProcedure4Code, SNFClaim::getProcedure4CodeVersion, SNFClaim::getProcedure4Date)
+			.procedure(SNFClaim::getProcedure5Code, SNFClaim::getProcedure5CodeVersion, SNFClaim::getProcedure5Date)
+			.procedure(SNFClaim::getProcedure6Code, SNFClaim::getProcedure6CodeVersion, SNFClaim::getProcedure6Date)
+			.procedure(SNFClaim::getProcedure7Code, SNFClaim::getProcedure7CodeVersion, SNFClaim::getProcedure7Date)
+			.procedure(SNFClaim::getProcedure8Code, SNFClaim::getProcedure8CodeVersion, SNFClaim::getProcedure8Date)
+			.procedure(SNFClaim::getProcedure9Code, SNFClaim::getProcedure9CodeVersion, SNFClaim::getProcedure9Date)
+			.procedure(SNFClaim::getProcedure10Code, SNFClaim::getProcedure10CodeVersion, SNFClaim::getProcedure10Date)
+			.procedure(SNFClaim::getProcedure11Code, SNFClaim::getProcedure11CodeVersion, SNFClaim::getProcedure11Date)
+			.procedure(SNFClaim::getProcedure12Code, SNFClaim::getProcedure12CodeVersion, SNFClaim::getProcedure12Date)
+			.procedure(SNFClaim::getProcedure13Code, SNFClaim::getProcedure13CodeVersion, SNFClaim::getProcedure13Date)
+			.procedure(SNFClaim::getProcedure14Code, SNFClaim::getProcedure14CodeVersion, SNFClaim::getProcedure14Date)
+			.procedure(SNFClaim::getProcedure15Code, SNFClaim::getProcedure15CodeVersion, SNFClaim::getProcedure15Date)
+			.procedure(SNFClaim::getProcedure16Code, SNFClaim::getProcedure16CodeVersion, SNFClaim::getProcedure16Date)
+			.procedure(SNFClaim::getProcedure17Code, SNFClaim::getProcedure17CodeVersion, SNFClaim::getProcedure17Date)
+			.procedure(SNFClaim::getProcedure18Code, SNFClaim::getProcedure18CodeVersion, SNFClaim::getProcedure18Date)
+			.procedure(SNFClaim::getProcedure19Code, SNFClaim::getProcedure19CodeVersion, SNFClaim::getProcedure19Date)
+			.procedure(SNFClaim::getProcedure20Code, SNFClaim::getProcedure20CodeVersion, SNFClaim::getProcedure20Date)
+			.procedure(SNFClaim::getProcedure21Code, SNFClaim::getProcedure21CodeVersion, SNFClaim::getProcedure21Date)
+			.procedure(SNFClaim::getProcedure22Code, SNFClaim::getProcedure22CodeVersion, SNFClaim::getProcedure22Date)
+			.procedure(SNFClaim::getProcedure23Code, SNFClaim::getProcedure23CodeVersion, SNFClaim::getProcedure23Date)
+			.procedure(SNFClaim::getProcedure24Code, SNFClaim::getProcedure24CodeVersion, SNFClaim::getProcedure24Date)
+			.procedure(SNFClaim::getProcedure25Code, SNFClaim::getProcedure25CodeVersion, SNFClaim::getProcedure25Date)
+			.build();
+
 	/**
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} to use
@@ -34,23 +131,29 @@ final class SNFClaimTransformer {
 	 *         specified {@link SNFClaim}
 	 */
 	static ExplanationOfBenefit transform(MetricRegistry metricRegistry, Object claim) {
-		Timer.Context timer = metricRegistry
-				.timer(MetricRegistry.name(SNFClaimTransformer.class.getSimpleName(), "transform")).time();
+		Timer.Context timer = metricRegistry.timer(METRIC_NAME_TRANSFORM).time();
 
 		if (!(claim instanceof SNFClaim))
 			throw new BadCodeMonkeyException();
+		ExplanationOfBenefit eob = Tracer.callInNewSpan(METRIC_NAME_TRANSFORM,
+				() -> transformClaim((SNFClaim) claim, CODE_MAPPING));
 
 		timer.stop();
-		return transformClaim((SNFClaim) claim);
+		return eob;
 	}
 
 	/**
 	 * @param claimGroup
 	 *            the CCW {@link SNFClaim} to transform
+	 * @param codeMapping
+	 *            the mapping to use for the claim's diagnosis and procedure
+	 *            codes, which is always {@link #CODE_MAPPING}, other than in
+	 *            tests that check it against the original mapping code
 	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
 	 *         specified {@link SNFClaim}
 	 */
-	private static ExplanationOfBenefit transformClaim(SNFClaim claimGroup) {
+	static ExplanationOfBenefit transformClaim(SNFClaim claimGroup,
+			BiConsumer<ExplanationOfBenefit, SNFClaim> codeMapping) {
 		ExplanationOfBenefit eob = new ExplanationOfBenefit();
 
 		// Common group level fields between all claim types
@@ -123,95 +226,7 @@ final class SNFClaimTransformer {
 				claimGroup.getAttendingPhysicianNpi(), claimGroup.getTotalChargeAmount(),
 				claimGroup.getPrimaryPayerPaidAmount(), claimGroup.getFiscalIntermediaryNumber());
 
-		Optional<Diagnosis> admittingDiagnosis = Diagnosis.from(claimGroup.getDiagnosisAdmittingCode(),
-				claimGroup.getDiagnosisAdmittingCodeVersion(), DiagnosisLabel.ADMITTING);
-		if (admittingDiagnosis.isPresent()) {
-			TransformerUtils.addDiagnosisCode(eob, admittingDiagnosis.get());
-		}
-
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
-				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
-				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
-				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
-				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
-				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
-				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
-				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
-				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
-				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
-				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
-				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
-				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
-				claimGroup.getDiagnosis12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (Diagnosis diagnosis : TransformerUtils.extractDiagnoses13Thru25(claimGroup.getDiagnosis13Code(),
-				claimGroup.getDiagnosis13CodeVersion(), claimGroup.getDiagnosis14Code(),
-				claimGroup.getDiagnosis14CodeVersion(), claimGroup.getDiagnosis15Code(),
-				claimGroup.getDiagnosis15CodeVersion(), claimGroup.getDiagnosis16Code(),
-				claimGroup.getDiagnosis16CodeVersion(), claimGroup.getDiagnosis17Code(),
-				claimGroup.getDiagnosis17CodeVersion(), claimGroup.getDiagnosis18Code(),
-				claimGroup.getDiagnosis18CodeVersion(), claimGroup.getDiagnosis19Code(),
-				claimGroup.getDiagnosis19CodeVersion(), claimGroup.getDiagnosis20Code(),
-				claimGroup.getDiagnosis20CodeVersion(), claimGroup.getDiagnosis21Code(),
-				claimGroup.getDiagnosis21CodeVersion(), claimGroup.getDiagnosis22Code(),
-				claimGroup.getDiagnosis22CodeVersion(), claimGroup.getDiagnosis23Code(),
-				claimGroup.getDiagnosis23CodeVersion(), claimGroup.getDiagnosis24Code(),
-				claimGroup.getDiagnosis24CodeVersion(), claimGroup.getDiagnosis25Code(),
-				claimGroup.getDiagnosis25CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (Diagnosis diagnosis : TransformerUtils.extractExternalDiagnoses1Thru12(
-				claimGroup.getDiagnosisExternalFirstCode(), claimGroup.getDiagnosisExternalFirstCodeVersion(),
-				claimGroup.getDiagnosisExternal1Code(), claimGroup.getDiagnosisExternal1CodeVersion(),
-				claimGroup.getDiagnosisExternal2Code(), claimGroup.getDiagnosisExternal2CodeVersion(),
-				claimGroup.getDiagnosisExternal3Code(), claimGroup.getDiagnosisExternal3CodeVersion(),
-				claimGroup.getDiagnosisExternal4Code(), claimGroup.getDiagnosisExternal4CodeVersion(),
-				claimGroup.getDiagnosisExternal5Code(), claimGroup.getDiagnosisExternal5CodeVersion(),
-				claimGroup.getDiagnosisExternal6Code(), claimGroup.getDiagnosisExternal6CodeVersion(),
-				claimGroup.getDiagnosisExternal7Code(), claimGroup.getDiagnosisExternal7CodeVersion(),
-				claimGroup.getDiagnosisExternal8Code(), claimGroup.getDiagnosisExternal8CodeVersion(),
-				claimGroup.getDiagnosisExternal9Code(), claimGroup.getDiagnosisExternal9CodeVersion(),
-				claimGroup.getDiagnosisExternal10Code(), claimGroup.getDiagnosisExternal10CodeVersion(),
-				claimGroup.getDiagnosisExternal11Code(), claimGroup.getDiagnosisExternal11CodeVersion(),
-				claimGroup.getDiagnosisExternal12Code(), claimGroup.getDiagnosisExternal12CodeVersion()))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (CCWProcedure procedure : TransformerUtils.extractCCWProcedures(claimGroup.getProcedure1Code(),
-				claimGroup.getProcedure1CodeVersion(), claimGroup.getProcedure1Date(), claimGroup.getProcedure2Code(),
-				claimGroup.getProcedure2CodeVersion(), claimGroup.getProcedure2Date(), claimGroup.getProcedure3Code(),
-				claimGroup.getProcedure3CodeVersion(), claimGroup.getProcedure3Date(), claimGroup.getProcedure4Code(),
-				claimGroup.getProcedure4CodeVersion(), claimGroup.getProcedure4Date(), claimGroup.getProcedure5Code(),
-				claimGroup.getProcedure5CodeVersion(), claimGroup.getProcedure5Date(), claimGroup.getProcedure6Code(),
-				claimGroup.getProcedure6CodeVersion(), claimGroup.getProcedure6Date(), claimGroup.getProcedure7Code(),
-				claimGroup.getProcedure7CodeVersion(), claimGroup.getProcedure7Date(), claimGroup.getProcedure8Code(),
-				claimGroup.getProcedure8CodeVersion(), claimGroup.getProcedure8Date(), claimGroup.getProcedure9Code(),
-				claimGroup.getProcedure9CodeVersion(), claimGroup.getProcedure9Date(), claimGroup.getProcedure10Code(),
-				claimGroup.getProcedure10CodeVersion(), claimGroup.getProcedure10Date(),
-				claimGroup.getProcedure11Code(), claimGroup.getProcedure11CodeVersion(),
-				claimGroup.getProcedure11Date(), claimGroup.getProcedure12Code(),
-				claimGroup.getProcedure12CodeVersion(), claimGroup.getProcedure12Date(),
-				claimGroup.getProcedure13Code(), claimGroup.getProcedure13CodeVersion(),
-				claimGroup.getProcedure13Date(), claimGroup.getProcedure14Code(),
-				claimGroup.getProcedure14CodeVersion(), claimGroup.getProcedure14Date(),
-				claimGroup.getProcedure15Code(), claimGroup.getProcedure15CodeVersion(),
-				claimGroup.getProcedure15Date(), claimGroup.getProcedure16Code(),
-				claimGroup.getProcedure16CodeVersion(), claimGroup.getProcedure16Date(),
-				claimGroup.getProcedure17Code(), claimGroup.getProcedure17CodeVersion(),
-				claimGroup.getProcedure17Date(), claimGroup.getProcedure18Code(),
-				claimGroup.getProcedure18CodeVersion(), claimGroup.getProcedure18Date(),
-				claimGroup.getProcedure19Code(), claimGroup.getProcedure19CodeVersion(),
-				claimGroup.getProcedure19Date(), claimGroup.getProcedure20Code(),
-				claimGroup.getProcedure20CodeVersion(), claimGroup.getProcedure20Date(),
-				claimGroup.getProcedure21Code(), claimGroup.getProcedure21CodeVersion(),
-				claimGroup.getProcedure21Date(), claimGroup.getProcedure22Code(),
-				claimGroup.getProcedure22CodeVersion(), claimGroup.getProcedure22Date(),
-				claimGroup.getProcedure23Code(), claimGroup.getProcedure23CodeVersion(),
-				claimGroup.getProcedure23Date(), claimGroup.getProcedure24Code(),
-				claimGroup.getProcedure24CodeVersion(), claimGroup.getProcedure24Date(),
-				claimGroup.getProcedure25Code(), claimGroup.getProcedure25CodeVersion(),
-				claimGroup.getProcedure25Date()))
-			TransformerUtils.addProcedureCode(eob, procedure);
+		codeMapping.accept(eob, claimGroup);
 
 		for (SNFClaimLine claimLine : claimGroup.getLines()) {
 			ItemComponent item = eob.addItem();
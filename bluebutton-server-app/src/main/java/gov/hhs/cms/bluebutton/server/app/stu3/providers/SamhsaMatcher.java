@@ -6,7 +6,9 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -24,6 +26,8 @@ import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
 import com.justdavis.karl.misc.exceptions.unchecked.UncheckedIoException;
 
 import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
+import gov.hhs.cms.bluebutton.server.app.tracing.Span;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
 
 /**
  * A {@link Predicate} that, when <code>true</code>, indicates that an
@@ -104,11 +108,40 @@ public final class SamhsaMatcher implements Predicate<ExplanationOfBenefit> {
 		}
 	}
 
+	/**
+	 * @return the number of codes in each of the SAMHSA-related code sets, keyed
+	 *         by the code set's name
+	 */
+	public Map<String, Integer> getCodeSetSizes() {
+		Map<String, Integer> codeSetSizes = new LinkedHashMap<>();
+		codeSetSizes.put("drg", drgCodes.size());
+		codeSetSizes.put("cpt", cptCodes.size());
+		codeSetSizes.put("icd9_procedure", icd9ProcedureCodes.size());
+		codeSetSizes.put("icd9_diagnosis", icd9DiagnosisCodes.size());
+		codeSetSizes.put("icd10_procedure", icd10ProcedureCodes.size());
+		codeSetSizes.put("icd10_diagnosis", icd10DiagnosisCodes.size());
+		return codeSetSizes;
+	}
+
 	/**
 	 * @see java.util.function.Predicate#test(java.lang.Object)
 	 */
 	@Override
 	public boolean test(ExplanationOfBenefit eob) {
+		try (Span span = Tracer.startSpan("samhsa_filter")) {
+			boolean samhsaRelated = testByClaimType(eob);
+			span.setAttribute("samhsa_related", samhsaRelated);
+			return samhsaRelated;
+		}
+	}
+
+	/**
+	 * @param eob the {@link ExplanationOfBenefit} to check
+	 * @return <code>true</code> if the specified {@link ExplanationOfBenefit}
+	 *         contains any known-SAMHSA-related codes, <code>false</code> if it
+	 *         does not
+	 */
+	private boolean testByClaimType(ExplanationOfBenefit eob) {
 		ClaimType claimType = TransformerUtils.getClaimType(eob);
 		if (claimType == ClaimType.CARRIER) {
 			return testCarrierOrDmeClaim(eob);
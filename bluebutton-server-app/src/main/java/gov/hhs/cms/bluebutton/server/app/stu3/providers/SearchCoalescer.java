@@ -0,0 +1,118 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * <p>
+ * A "single-flight" layer for the resource providers' searches: concurrent
+ * searches with the same normalized key share a single execution (i.e. a
+ * single set of database queries and transforms), rather than each running
+ * their own.
+ * </p>
+ * <p>
+ * Partner applications often fire the exact same search for a beneficiary
+ * several times within a few milliseconds (from retries, or parallel page
+ * loads), so this saves a surprising amount of database time. Nothing is
+ * cached past the end of the shared execution, though: a search that starts
+ * after it finishes will run again.
+ * </p>
+ * <p>
+ * FHIR model objects are mutable, and the HAPI server modifies resources as
+ * it encodes them, so each caller gets its own copy of the {@link Bundle}.
+ * </p>
+ * <p>
+ * The following metrics are recorded, per resource type:
+ * </p>
+ * <ul>
+ * <li><code>SearchCoalescer.&lt;resource&gt;.executed</code>: a meter for the
+ * searches that actually ran.</li>
+ * <li><code>SearchCoalescer.&lt;resource&gt;.coalesced</code>: a meter for the
+ * searches that shared another's results instead.</li>
+ * </ul>
+ * <p>
+ * Along with a <code>SearchCoalescer.in_flight</code> gauge for the number of
+ * distinct searches currently running.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public final class SearchCoalescer {
+	private final MetricRegistry metricRegistry;
+	private final ConcurrentMap<String, CompletableFuture<Bundle>> searchesInFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a new {@link SearchCoalescer}.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the coalescer's metrics in
+	 */
+	public SearchCoalescer(MetricRegistry metricRegistry) {
+		this.metricRegistry = metricRegistry;
+		metricRegistry.register(MetricRegistry.name(SearchCoalescer.class.getSimpleName(), "in_flight"),
+				(Gauge<Integer>) this::getSearchesInFlight);
+	}
+
+	/**
+	 * Runs the specified search, unless an identical one is already running,
+	 * in which case its results will be used instead.
+	 *
+	 * @param resourceType
+	 *            the name of the FHIR resource type being searched for, which
+	 *            is used in the metric names
+	 * @param searchKey
+	 *            the normalized key of the search, which must capture every
+	 *            input that could affect its results
+	 * @param search
+	 *            the search to run
+	 * @return a copy of the search's results, just for this caller
+	 */
+	public Bundle search(String resourceType, String searchKey, Supplier<Bundle> search) {
+		String key = resourceType + "|" + searchKey;
+		CompletableFuture<Bundle> execution = new CompletableFuture<>();
+		CompletableFuture<Bundle> existingExecution = searchesInFlight.putIfAbsent(key, execution);
+		if (existingExecution != null) {
+			metricRegistry.meter(MetricRegistry.name(SearchCoalescer.class.getSimpleName(), resourceType, "coalesced"))
+					.mark();
+			try {
+				return existingExecution.join().copy();
+			} catch (CompletionException e) {
+				// Callers should see the same exception as the original search threw.
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				if (e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw e;
+			}
+		}
+
+		metricRegistry.meter(MetricRegistry.name(SearchCoalescer.class.getSimpleName(), resourceType, "executed"))
+				.mark();
+		try {
+			Bundle results = search.get();
+			execution.complete(results);
+			return results.copy();
+		} catch (RuntimeException | Error e) {
+			execution.completeExceptionally(e);
+			throw e;
+		} finally {
+			searchesInFlight.remove(key, execution);
+		}
+	}
+
+	/**
+	 * @return the number of distinct searches currently running
+	 */
+	int getSearchesInFlight() {
+		return searchesInFlight.size();
+	}
+}
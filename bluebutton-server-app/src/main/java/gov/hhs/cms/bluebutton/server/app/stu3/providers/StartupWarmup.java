@@ -0,0 +1,403 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.sql.DataSource;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheck;
+import com.zaxxer.hikari.HikariDataSource;
+
+import ca.uhn.fhir.context.FhirContext;
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.PatientResourceProvider.IncludeIdentifiersMode;
+
+/**
+ * <p>
+ * Warms up the application after it's deployed, so that the first real
+ * requests don't have to pay for lazy initialization and a cold JIT. In
+ * order, it:
+ * </p>
+ * <ol>
+ * <li>Loads the reference data files used by {@link TransformerUtils}.</li>
+ * <li>Opens (at least) the minimum number of idle connections in each of the
+ * application's connection pools.</li>
+ * <li>Reads a few sample {@link Beneficiary}s and claims of every
+ * {@link ClaimType} from the database.</li>
+ * <li>Repeatedly transforms those samples into FHIR resources and encodes
+ * them as JSON and XML, until their latency stops improving (or a maximum
+ * number of iterations has been run).</li>
+ * </ol>
+ * <p>
+ * This all runs on a background thread, and this class is also a
+ * {@link HealthCheck} that reports unhealthy until it has finished. A failed
+ * warm-up is logged, but still counts as finished: the application will
+ * work, just slowly at first.
+ * </p>
+ * <p>
+ * The following metrics are recorded:
+ * </p>
+ * <ul>
+ * <li><code>StartupWarmup.iteration</code>: a timer for each pass over the
+ * samples.</li>
+ * <li><code>StartupWarmup.time_to_ready_millis</code>: a gauge for how long
+ * the whole warm-up took, or <code>-1</code> if it's still running.</li>
+ * <li><code>StartupWarmup.time_to_steady_state_millis</code>: a gauge for how
+ * long it took for the sample transforms' latency to level off, or
+ * <code>-1</code> if that hasn't (yet) happened.</li>
+ * <li><code>StartupWarmup.time_to_first_request_millis</code>: a gauge for
+ * how long after the JVM started that the first FHIR request was served, or
+ * <code>-1</code> if none have been, yet. Unlike the other metrics, this one
+ * covers the container's and the application's own startup, too.</li>
+ * </ul>
+ */
+public final class StartupWarmup extends HealthCheck implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(StartupWarmup.class);
+
+	/**
+	 * The number of consecutive iterations that must fail to meaningfully
+	 * improve on the best iteration seen so far, before latency is considered
+	 * to have reached a steady state.
+	 */
+	static final int STEADY_STATE_ITERATIONS = 10;
+
+	/**
+	 * How much faster than the best iteration seen so far an iteration must be
+	 * to count as a meaningful improvement.
+	 */
+	static final double STEADY_STATE_IMPROVEMENT = 0.1;
+
+	private final MetricRegistry metricRegistry;
+	private final List<DataSource> dataSources;
+	private final EntityManagerFactory patientEntityManagerFactory;
+	private final EntityManagerFactory eobEntityManagerFactory;
+	private final boolean enabled;
+	private final int samples;
+	private final int iterationsMax;
+
+	/**
+	 * The {@link MetricRegistry} that the sample transforms record their
+	 * metrics in, to keep them out of the application's real ones.
+	 */
+	private final MetricRegistry transformMetricRegistry = new MetricRegistry();
+
+	private volatile Thread warmupThread;
+	private volatile long timeToReadyMillis = -1L;
+	private volatile long timeToSteadyStateMillis = -1L;
+	private final AtomicLong timeToFirstRequestMillis = new AtomicLong(-1L);
+
+	/**
+	 * Constructs a new {@link StartupWarmup}, which won't do anything until
+	 * {@link #start(FhirContext)} is called.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the warm-up's metrics in
+	 * @param dataSources
+	 *            the application's {@link DataSource}s, whose pools should be
+	 *            filled
+	 * @param patientEntityManagerFactory
+	 *            the {@link EntityManagerFactory} used by
+	 *            {@link PatientResourceProvider}
+	 * @param eobEntityManagerFactory
+	 *            the {@link EntityManagerFactory} used by
+	 *            {@link ExplanationOfBenefitResourceProvider}
+	 * @param enabled
+	 *            <code>false</code> to skip the warm-up (other than loading the
+	 *            reference data, which the application can't be ready
+	 *            without), in which case it will be reported as ready right
+	 *            away
+	 * @param samples
+	 *            the (maximum) number of sample entities of each type to
+	 *            transform
+	 * @param iterationsMax
+	 *            the maximum number of passes to make over the samples
+	 */
+	public StartupWarmup(MetricRegistry metricRegistry, List<DataSource> dataSources,
+			EntityManagerFactory patientEntityManagerFactory, EntityManagerFactory eobEntityManagerFactory,
+			boolean enabled, int samples, int iterationsMax) {
+		this.metricRegistry = metricRegistry;
+		this.dataSources = dataSources;
+		this.patientEntityManagerFactory = patientEntityManagerFactory;
+		this.eobEntityManagerFactory = eobEntityManagerFactory;
+		this.enabled = enabled;
+		this.samples = samples;
+		this.iterationsMax = iterationsMax;
+
+		metricRegistry.register(MetricRegistry.name(StartupWarmup.class.getSimpleName(), "time_to_ready_millis"),
+				(Gauge<Long>) () -> timeToReadyMillis);
+		metricRegistry.register(
+				MetricRegistry.name(StartupWarmup.class.getSimpleName(), "time_to_steady_state_millis"),
+				(Gauge<Long>) () -> timeToSteadyStateMillis);
+		metricRegistry.register(
+				MetricRegistry.name(StartupWarmup.class.getSimpleName(), "time_to_first_request_millis"),
+				(Gauge<Long>) timeToFirstRequestMillis::get);
+	}
+
+	/**
+	 * Starts the warm-up on a background thread.
+	 *
+	 * @param fhirContext
+	 *            the {@link FhirContext} that will be used to encode responses,
+	 *            which will be warmed up, too
+	 */
+	public synchronized void start(FhirContext fhirContext) {
+		if (warmupThread != null)
+			throw new IllegalStateException();
+		if (enabled) {
+			warmupThread = new Thread(() -> run(fhirContext), StartupWarmup.class.getSimpleName());
+		} else {
+			LOGGER.info("Startup warm-up disabled: only loading reference data.");
+			timeToReadyMillis = 0L;
+			warmupThread = new Thread(StartupWarmup::loadReferenceData, StartupWarmup.class.getSimpleName());
+		}
+		warmupThread.setDaemon(true);
+		warmupThread.start();
+	}
+
+	/**
+	 * @return <code>true</code> if the warm-up has finished (or was disabled),
+	 *         <code>false</code> if it's still running
+	 */
+	public boolean isReady() {
+		return timeToReadyMillis >= 0L;
+	}
+
+	/**
+	 * Records that a FHIR request has been served. Only the first call to this
+	 * does anything, so it's cheap to call for every request.
+	 */
+	public void recordRequestServed() {
+		if (timeToFirstRequestMillis.get() >= 0L)
+			return;
+
+		long millisSinceJvmStart = System.currentTimeMillis()
+				- ManagementFactory.getRuntimeMXBean().getStartTime();
+		if (timeToFirstRequestMillis.compareAndSet(-1L, millisSinceJvmStart))
+			LOGGER.info("First request served {} ms after JVM start.", millisSinceJvmStart);
+	}
+
+	/**
+	 * @see com.codahale.metrics.health.HealthCheck#check()
+	 */
+	@Override
+	protected Result check() throws Exception {
+		if (!isReady())
+			return Result.unhealthy("Warming up.");
+		return Result.healthy("Warmed up in %d ms.", timeToReadyMillis);
+	}
+
+	/**
+	 * Interrupts the warm-up, if it's still running.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		Thread thread = warmupThread;
+		if (thread != null)
+			thread.interrupt();
+	}
+
+	/**
+	 * Loads the reference data used by {@link TransformerUtils}, on the current
+	 * thread, logging (rather than propagating) any failures.
+	 */
+	private static void loadReferenceData() {
+		try {
+			TransformerUtils.loadReferenceData();
+		} catch (RuntimeException e) {
+			LOGGER.warn("Reference data load failed.", e);
+		}
+	}
+
+	/**
+	 * Runs the warm-up, on the current thread.
+	 *
+	 * @param fhirContext
+	 *            the {@link FhirContext} to encode the samples with
+	 */
+	private void run(FhirContext fhirContext) {
+		LOGGER.info("Startup warm-up starting...");
+		long start = System.nanoTime();
+		try {
+			TransformerUtils.loadReferenceData();
+			fillConnectionPools();
+
+			List<Object> beneficiaries = readSamples(patientEntityManagerFactory, Beneficiary.class,
+					this::transformBeneficiary);
+			List<List<Object>> claimsByType = new ArrayList<>();
+			for (ClaimType claimType : ClaimType.values())
+				claimsByType.add(readSamples(eobEntityManagerFactory, claimType.getEntityClass(),
+						claim -> transform(claimType, claim)));
+
+			Timer iterationTimer = metricRegistry
+					.timer(MetricRegistry.name(StartupWarmup.class.getSimpleName(), "iteration"));
+			SteadyStateTracker steadyStateTracker = new SteadyStateTracker();
+			for (int i = 0; i < iterationsMax && !Thread.currentThread().isInterrupted(); i++) {
+				long iterationStart = System.nanoTime();
+				for (Object beneficiary : beneficiaries)
+					encode(fhirContext, transformBeneficiary(beneficiary));
+				for (int t = 0; t < claimsByType.size(); t++)
+					for (Object claim : claimsByType.get(t))
+						encode(fhirContext, transform(ClaimType.values()[t], claim));
+				long iterationNanos = System.nanoTime() - iterationStart;
+				iterationTimer.update(iterationNanos, TimeUnit.NANOSECONDS);
+
+				if (steadyStateTracker.record(iterationNanos)) {
+					timeToSteadyStateMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+					LOGGER.info("Startup warm-up reached steady state after {} iterations and {} ms.", i + 1,
+							timeToSteadyStateMillis);
+					break;
+				}
+			}
+		} catch (RuntimeException e) {
+			LOGGER.warn("Startup warm-up failed.", e);
+		} finally {
+			timeToReadyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			LOGGER.info("Startup warm-up completed in {} ms.", timeToReadyMillis);
+		}
+	}
+
+	/**
+	 * Opens (at least) the minimum number of idle connections in each of the
+	 * application's connection pools, and then returns them to their pool.
+	 */
+	private void fillConnectionPools() {
+		for (DataSource dataSource : dataSources) {
+			List<Connection> connections = new ArrayList<>();
+			try {
+				if (!dataSource.isWrapperFor(HikariDataSource.class))
+					continue;
+				HikariDataSource poolingDataSource = dataSource.unwrap(HikariDataSource.class);
+				int connectionsToOpen = Math.min(poolingDataSource.getMinimumIdle(),
+						poolingDataSource.getMaximumPoolSize());
+				for (int i = 0; i < connectionsToOpen; i++)
+					connections.add(dataSource.getConnection());
+			} catch (SQLException e) {
+				LOGGER.warn("Unable to fill connection pool.", e);
+			} finally {
+				for (Connection connection : connections) {
+					try {
+						connection.close();
+					} catch (SQLException e) {
+						LOGGER.warn("Unable to close connection.", e);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a few sample entities from the database, and transforms each one
+	 * once before the {@link EntityManager} is closed, which ensures that all of
+	 * their lazy associations have been loaded. Samples that can't be
+	 * transformed are logged and skipped.
+	 *
+	 * @param entityManagerFactory
+	 *            the {@link EntityManagerFactory} to read the samples with
+	 * @param entityClass
+	 *            the JPA entity {@link Class} to read samples of
+	 * @param transform
+	 *            the transform to run on each sample
+	 * @return the (detached, but fully loaded) sample entities
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private List<Object> readSamples(EntityManagerFactory entityManagerFactory, Class<?> entityClass,
+			Function<Object, IBaseResource> transform) {
+		List<Object> samplesRead = new ArrayList<>();
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			CriteriaQuery criteria = entityManager.getCriteriaBuilder().createQuery(entityClass);
+			criteria.select(criteria.from(entityClass));
+			List<?> entities = entityManager.createQuery(criteria).setMaxResults(samples).getResultList();
+			for (Object entity : entities) {
+				try {
+					transform.apply(entity);
+					samplesRead.add(entity);
+				} catch (RuntimeException e) {
+					LOGGER.warn(String.format("Unable to transform sample '%s'.", entityClass.getSimpleName()), e);
+				}
+			}
+		} finally {
+			entityManager.close();
+		}
+		return samplesRead;
+	}
+
+	/**
+	 * @param beneficiary
+	 *            the {@link Beneficiary} to transform
+	 * @return the transformed {@link Patient}
+	 */
+	private Patient transformBeneficiary(Object beneficiary) {
+		return BeneficiaryTransformer.transform(transformMetricRegistry, (Beneficiary) beneficiary,
+				IncludeIdentifiersMode.OMIT_HICNS_AND_MBIS);
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of the claim to transform
+	 * @param claim
+	 *            the claim to transform
+	 * @return the transformed {@link ExplanationOfBenefit}
+	 */
+	private ExplanationOfBenefit transform(ClaimType claimType, Object claim) {
+		return claimType.getTransformer().apply(transformMetricRegistry, claim);
+	}
+
+	/**
+	 * @param fhirContext
+	 *            the {@link FhirContext} to encode with
+	 * @param resource
+	 *            the {@link IBaseResource} to encode as both JSON and XML
+	 */
+	private static void encode(FhirContext fhirContext, IBaseResource resource) {
+		fhirContext.newJsonParser().encodeResourceToString(resource);
+		fhirContext.newXmlParser().encodeResourceToString(resource);
+	}
+
+	/**
+	 * Decides when the warm-up's iterations have stopped getting faster.
+	 */
+	static final class SteadyStateTracker {
+		private long bestNanos = Long.MAX_VALUE;
+		private int iterationsWithoutImprovement = 0;
+
+		/**
+		 * @param iterationNanos
+		 *            how long the latest iteration took, in nanoseconds
+		 * @return <code>true</code> if the iterations have now reached a steady
+		 *         state, <code>false</code> if they haven't
+		 */
+		boolean record(long iterationNanos) {
+			if (iterationNanos < bestNanos * (1.0 - STEADY_STATE_IMPROVEMENT)) {
+				bestNanos = iterationNanos;
+				iterationsWithoutImprovement = 0;
+				return false;
+			}
+
+			bestNanos = Math.min(bestNanos, iterationNanos);
+			iterationsWithoutImprovement++;
+			return iterationsWithoutImprovement >= STEADY_STATE_ITERATIONS;
+		}
+	}
+}
@@ -17,17 +17,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
-import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent;
 import org.hl7.fhir.dstu3.model.Bundle.BundleLinkComponent;
@@ -106,6 +102,7 @@ import gov.hhs.cms.bluebutton.data.model.rif.SNFClaimColumn;
 import gov.hhs.cms.bluebutton.data.model.rif.SNFClaimLine;
 import gov.hhs.cms.bluebutton.data.model.rif.parse.InvalidRifValueException;
 import gov.hhs.cms.bluebutton.server.app.FDADrugDataUtilityApp;
+import gov.hhs.cms.bluebutton.server.app.NdcIndex;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.BeneficiaryTransformer.CurrencyIdentifier;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel;
 
@@ -125,7 +122,7 @@ public final class TransformerUtils {
 	 *
 	 * @see #calculateCodingDisplay(IAnyResource, CcwCodebookVariable, String)
 	 */
-	private static final Set<CcwCodebookVariable> codebookLookupMissingFailures = new HashSet<>();
+	private static final Set<CcwCodebookVariable> codebookLookupMissingFailures = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Tracks the {@link CcwCodebookVariable}s that have already had code lookup
@@ -136,47 +133,47 @@ public final class TransformerUtils {
 	 *
 	 * @see #calculateCodingDisplay(IAnyResource, CcwCodebookVariable, String)
 	 */
-	private static final Set<CcwCodebookVariable> codebookLookupDuplicateFailures = new HashSet<>();
+	private static final Set<CcwCodebookVariable> codebookLookupDuplicateFailures = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Stores the PRODUCTNDC and SUBSTANCENAME from the downloaded NDC file.
 	 */
-	private static Map<String, String> ndcProductMap = null;
+	private static volatile NdcIndex ndcIndex = null;
 
 	/**
 	 * Tracks the national drug codes that have already had code lookup failures.
 	 */
-	private static final Set<String> drugCodeLookupMissingFailures = new HashSet<>();
+	private static final Set<String> drugCodeLookupMissingFailures = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Stores the diagnosis ICD codes and their display values
 	 */
-	private static Map<String, String> icdMap = null;
+	private static volatile Map<String, String> icdMap = null;
 
 	/**
 	 * Tracks the diagnosis ICD codes that have already had code lookup failures.
 	 */
-	private static final Set<String> icdLookupMissingFailures = new HashSet<>();
+	private static final Set<String> icdLookupMissingFailures = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Stores the procedure codes and their display values
 	 */
-	private static Map<String, String> procedureMap = null;
+	private static volatile Map<String, String> procedureMap = null;
 
 	/**
 	 * Tracks the procedure codes that have already had code lookup failures.
 	 */
-	private static final Set<String> procedureLookupMissingFailures = new HashSet<>();
+	private static final Set<String> procedureLookupMissingFailures = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Stores the NPI codes and their display values
 	 */
-	private static Map<String, String> npiMap = null;
+	private static volatile Map<String, String> npiMap = null;
 
 	/**
 	 * Tracks the NPI codes that have already had code lookup failures.
 	 */
-	private static final Set<String> npiCodeLookupMissingFailures = new HashSet<>();
+	private static final Set<String> npiCodeLookupMissingFailures = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * @param eob
@@ -280,7 +277,7 @@ public final class TransformerUtils {
 
 		CodeableConcept financialTypeConcept = TransformerUtils.createCodeableConcept(
 				TransformerConstants.CODING_BBAPI_BENEFIT_BALANCE_TYPE, calculateVariableReferenceUrl(financialType));
-		financialTypeConcept.getCodingFirstRep().setDisplay(financialType.getVariable().getLabel());
+		financialTypeConcept.getCodingFirstRep().setDisplay(CcwCodebookVariableMetadata.of(financialType).getLabel());
 
 		BenefitComponent financialEntry = new BenefitComponent(financialTypeConcept);
 		eobPrimaryBenefitBalance.getFinancial().add(financialEntry);
@@ -300,11 +297,10 @@ public final class TransformerUtils {
 	 */
 	private static BenefitBalanceComponent findOrAddBenefitBalance(ExplanationOfBenefit eob,
 			BenefitCategory benefitCategory) {
-		Optional<BenefitBalanceComponent> matchingBenefitBalance = eob.getBenefitBalance().stream()
-				.filter(bb -> isCodeInConcept(bb.getCategory(), benefitCategory.getSystem(), benefitCategory.toCode()))
-				.findAny();
-		if (matchingBenefitBalance.isPresent())
-			return matchingBenefitBalance.get();
+		BenefitBalanceComponent matchingBenefitBalance = EobBuilderContext.of(eob).findBenefitBalance(eob,
+				benefitCategory.getSystem(), benefitCategory.toCode());
+		if (matchingBenefitBalance != null)
+			return matchingBenefitBalance;
 
 		CodeableConcept benefitCategoryConcept = new CodeableConcept();
 		benefitCategoryConcept.addCoding().setSystem(benefitCategory.getSystem()).setCode(benefitCategory.toCode())
@@ -340,10 +336,8 @@ public final class TransformerUtils {
 	static CareTeamComponent addCareTeamPractitioner(ExplanationOfBenefit eob, ItemComponent eobItem,
 			String practitionerIdSystem, String practitionerIdValue, ClaimCareteamrole careTeamRole) {
 		// Try to find a matching pre-existing entry.
-		CareTeamComponent careTeamEntry = eob.getCareTeam().stream().filter(ctc -> ctc.getProvider().hasIdentifier())
-				.filter(ctc -> practitionerIdSystem.equals(ctc.getProvider().getIdentifier().getSystem())
-						&& practitionerIdValue.equals(ctc.getProvider().getIdentifier().getValue()))
-				.findAny().orElse(null);
+		CareTeamComponent careTeamEntry = EobBuilderContext.of(eob).findCareTeam(eob, practitionerIdSystem,
+				practitionerIdValue);
 
 		// If no match was found, add one to the EOB.
 		if (careTeamEntry == null) {
@@ -379,11 +373,10 @@ public final class TransformerUtils {
 	 *         newly-added entry
 	 */
 	static int addDiagnosisCode(ExplanationOfBenefit eob, Diagnosis diagnosis) {
-		Optional<DiagnosisComponent> existingDiagnosis = eob.getDiagnosis().stream()
-				.filter(d -> d.getDiagnosis() instanceof CodeableConcept)
-				.filter(d -> diagnosis.isContainedIn((CodeableConcept) d.getDiagnosis())).findAny();
-		if (existingDiagnosis.isPresent())
-			return existingDiagnosis.get().getSequenceElement().getValue();
+		DiagnosisComponent existingDiagnosis = EobBuilderContext.of(eob).findDiagnosis(eob, diagnosis.getFhirSystem(),
+				diagnosis.getCode());
+		if (existingDiagnosis != null)
+			return existingDiagnosis.getSequenceElement().getValue();
 
 		DiagnosisComponent diagnosisComponent = new DiagnosisComponent().setSequence(eob.getDiagnosis().size() + 1);
 		diagnosisComponent.setDiagnosis(diagnosis.toCodeableConcept());
@@ -522,7 +515,7 @@ public final class TransformerUtils {
 	 */
 	static SupportingInformationComponent addInformation(ExplanationOfBenefit eob,
 			CcwCodebookVariable categoryVariable) {
-		int maxSequence = eob.getInformation().stream().mapToInt(i -> i.getSequence()).max().orElse(0);
+		int maxSequence = EobBuilderContext.of(eob).findMaxInformationSequence(eob);
 
 		SupportingInformationComponent infoComponent = new SupportingInformationComponent();
 		infoComponent.setSequence(maxSequence + 1);
@@ -600,13 +593,10 @@ public final class TransformerUtils {
 	 */
 	static int addProcedureCode(ExplanationOfBenefit eob, CCWProcedure procedure) {
 
-		Optional<ProcedureComponent> existingProcedure = eob.getProcedure().stream()
-				.filter(pc -> pc.getProcedure() instanceof CodeableConcept)
-				.filter(pc -> isCodeInConcept((CodeableConcept) pc.getProcedure(), procedure.getFhirSystem(),
-						procedure.getCode()))
-				.findAny();
-		if (existingProcedure.isPresent())
-			return existingProcedure.get().getSequenceElement().getValue();
+		ProcedureComponent existingProcedure = EobBuilderContext.of(eob).findProcedure(eob,
+				procedure.getFhirSystem(), procedure.getCode());
+		if (existingProcedure != null)
+			return existingProcedure.getSequenceElement().getValue();
 
 		ProcedureComponent procedureComponent = new ProcedureComponent().setSequence(eob.getProcedure().size() + 1);
 		procedureComponent.setProcedure(createCodeableConcept(procedure.getFhirSystem(), null,
@@ -657,6 +647,18 @@ public final class TransformerUtils {
 	 * @return the {@link ClaimType}
 	 */
 	static ClaimType getClaimType(ExplanationOfBenefit eob) {
+		return EobSortKey.of(eob).getClaimType();
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to extract the claim type from
+	 * @return the {@link ClaimType}, as parsed from the
+	 *         {@link ExplanationOfBenefit#getType()} entries (prefer
+	 *         {@link #getClaimType(ExplanationOfBenefit)}, which avoids that
+	 *         when it can)
+	 */
+	static ClaimType parseClaimType(ExplanationOfBenefit eob) {
 		String type = eob.getType().getCoding().stream()
 				.filter(c -> c.getSystem().equals(TransformerConstants.CODING_SYSTEM_BBAPI_EOB_TYPE))
 				.findFirst().get().getCode();
@@ -1080,8 +1082,8 @@ public final class TransformerUtils {
 	 */
 	private static CodeableConcept createCodeableConceptForFieldId(IAnyResource rootResource, String codingSystem,
 			CcwCodebookVariable ccwVariable) {
-		String code = calculateVariableReferenceUrl(ccwVariable);
-		Coding coding = new Coding(codingSystem, code, ccwVariable.getVariable().getLabel());
+		CcwCodebookVariableMetadata metadata = CcwCodebookVariableMetadata.of(ccwVariable);
+		Coding coding = new Coding(codingSystem, metadata.getReferenceUrl(), metadata.getLabel());
 
 		return new CodeableConcept().addCoding(coding);
 	}
@@ -1109,15 +1111,15 @@ public final class TransformerUtils {
 		else
 			throw new BadCodeMonkeyException("Unsupported: " + code);
 
-		String system = calculateVariableReferenceUrl(ccwVariable);
+		CcwCodebookVariableMetadata metadata = CcwCodebookVariableMetadata.of(ccwVariable);
 
 		String display;
-		if (ccwVariable.getVariable().getValueGroups().isPresent())
+		if (metadata.isCoded())
 			display = calculateCodingDisplay(rootResource, ccwVariable, codeString).orElse(null);
 		else
 			display = null;
 
-		return new Coding(system, codeString, display);
+		return new Coding(metadata.getReferenceUrl(), codeString, display);
 	}
 
 	/**
@@ -1141,8 +1143,7 @@ public final class TransformerUtils {
 	 *         {@link CcwCodebookVariable} is published
 	 */
 	static String calculateVariableReferenceUrl(CcwCodebookVariable ccwVariable) {
-		return String.format("%s/%s", TransformerConstants.BASE_URL_CCW_VARIABLES,
-				ccwVariable.getVariable().getId().toLowerCase());
+		return CcwCodebookVariableMetadata.of(ccwVariable).getReferenceUrl();
 	}
 
 	/**
@@ -1153,19 +1154,8 @@ public final class TransformerUtils {
 	 *         {@link CcwCodebookVariable}
 	 */
 	static CodeableConcept createAdjudicationCategory(CcwCodebookVariable ccwVariable) {
-		/*
-		 * Adjudication.category is mapped a bit differently than other
-		 * Codings/CodeableConcepts: they all share the same Coding.system and use the
-		 * CcwCodebookVariable reference URL as their Coding.code. This looks weird, but
-		 * makes it easy for API developers to find more information about what the
-		 * specific adjudication they're looking at means.
-		 */
-
-		String conceptCode = calculateVariableReferenceUrl(ccwVariable);
-		CodeableConcept categoryConcept = createCodeableConcept(TransformerConstants.CODING_CCW_ADJUDICATION_CATEGORY,
-				conceptCode);
-		categoryConcept.getCodingFirstRep().setDisplay(ccwVariable.getVariable().getLabel());
-		return categoryConcept;
+		// See CcwCodebookVariableMetadata for how these are mapped.
+		return CcwCodebookVariableMetadata.of(ccwVariable).createAdjudicationCategory();
 	}
 
 	/**
@@ -1184,11 +1174,7 @@ public final class TransformerUtils {
 	static AdjudicationComponent createAdjudicationWithReason(IAnyResource rootResource,
 			CcwCodebookVariable ccwVariable, Object reasonCode) {
 		// Cheating here, since they use the same URL.
-		String categoryConceptCode = calculateVariableReferenceUrl(ccwVariable);
-
-		CodeableConcept category = createCodeableConcept(TransformerConstants.CODING_CCW_ADJUDICATION_CATEGORY,
-				categoryConceptCode);
-		category.getCodingFirstRep().setDisplay(ccwVariable.getVariable().getLabel());
+		CodeableConcept category = createAdjudicationCategory(ccwVariable);
 
 		AdjudicationComponent adjudication = new AdjudicationComponent(category);
 		adjudication.setReason(createCodeableConcept(rootResource, ccwVariable, reasonCode));
@@ -1218,7 +1204,8 @@ public final class TransformerUtils {
 			throw new IllegalArgumentException();
 		if (code == null)
 			throw new IllegalArgumentException();
-		if (!ccwVariable.getVariable().getValueGroups().isPresent())
+		CcwCodebookVariableMetadata metadata = CcwCodebookVariableMetadata.of(ccwVariable);
+		if (!metadata.isCoded())
 			throw new BadCodeMonkeyException("No display values for Variable: " + ccwVariable);
 
 		/*
@@ -1229,31 +1216,23 @@ public final class TransformerUtils {
 		 * there's a chance that the CCW Variable data itself is messy, and that the
 		 * Coding's code matches more than one value -- we just log those events, too.
 		 */
-		List<Value> matchingVariableValues = ccwVariable.getVariable().getValueGroups().get().stream()
-				.flatMap(g -> g.getValues().stream()).filter(v -> v.getCode().equals(code))
-				.collect(Collectors.toList());
-		if (matchingVariableValues.size() == 1) {
-			return Optional.of(matchingVariableValues.get(0).getDescription());
-		} else if (matchingVariableValues.isEmpty()) {
-			if (!codebookLookupMissingFailures.contains(ccwVariable)) {
-				// Note: The race condition here (from concurrent requests) is harmless.
-				codebookLookupMissingFailures.add(ccwVariable);
+		Optional<String> matchingDisplay = metadata.lookupDisplay(code);
+		if (matchingDisplay.isPresent()) {
+			return matchingDisplay;
+		} else if (!metadata.isDuplicateCode(code)) {
+			if (codebookLookupMissingFailures.add(ccwVariable)) {
 				LOGGER.info("No display value match found for {}.{} in resource '{}/{}'.",
 						CcwCodebookVariable.class.getSimpleName(), ccwVariable.name(),
 						rootResource.getClass().getSimpleName(), rootResource.getId());
 			}
 			return Optional.empty();
-		} else if (matchingVariableValues.size() > 1) {
-			if (!codebookLookupDuplicateFailures.contains(ccwVariable)) {
-				// Note: The race condition here (from concurrent requests) is harmless.
-				codebookLookupDuplicateFailures.add(ccwVariable);
+		} else {
+			if (codebookLookupDuplicateFailures.add(ccwVariable)) {
 				LOGGER.info("Multiple display value matches found for {}.{} in resource '{}/{}'.",
 						CcwCodebookVariable.class.getSimpleName(), ccwVariable.name(),
 						rootResource.getClass().getSimpleName(), rootResource.getId());
 			}
 			return Optional.empty();
-		} else {
-			throw new BadCodeMonkeyException();
 		}
 	}
 
@@ -1679,6 +1658,7 @@ public final class TransformerUtils {
 			Optional<LocalDate> dateThrough, Optional<BigDecimal> paymentAmount, char finalAction) {
 
 		eob.setId(buildEobId(claimType, claimId));
+		EobSortKey.attach(eob, claimId, claimType);
 
 		if (claimType.equals(ClaimType.PDE))
 			eob.addIdentifier(createIdentifier(CcwCodebookVariable.PDE_ID, claimId));
@@ -2292,275 +2272,6 @@ public final class TransformerUtils {
 
 	}
 
-	/**
-	 * Extract the Diagnosis values for codes 1-12
-	 * 
-	 * @param diagnosisPrincipalCode
-	 * @param diagnosisPrincipalCodeVersion
-	 * @param diagnosis1Code
-	 *            through diagnosis12Code
-	 * @param diagnosis1CodeVersion
-	 *            through diagnosis12CodeVersion
-	 * 
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 * 
-	 */
-	public static List<Diagnosis> extractDiagnoses1Thru12(Optional<String> diagnosisPrincipalCode,
-			Optional<Character> diagnosisPrincipalCodeVersion, Optional<String> diagnosis1Code,
-			Optional<Character> diagnosis1CodeVersion, Optional<String> diagnosis2Code,
-			Optional<Character> diagnosis2CodeVersion, Optional<String> diagnosis3Code,
-			Optional<Character> diagnosis3CodeVersion, Optional<String> diagnosis4Code,
-			Optional<Character> diagnosis4CodeVersion, Optional<String> diagnosis5Code,
-			Optional<Character> diagnosis5CodeVersion, Optional<String> diagnosis6Code,
-			Optional<Character> diagnosis6CodeVersion, Optional<String> diagnosis7Code,
-			Optional<Character> diagnosis7CodeVersion, Optional<String> diagnosis8Code,
-			Optional<Character> diagnosis8CodeVersion, Optional<String> diagnosis9Code,
-			Optional<Character> diagnosis9CodeVersion, Optional<String> diagnosis10Code,
-			Optional<Character> diagnosis10CodeVersion, Optional<String> diagnosis11Code,
-			Optional<Character> diagnosis11CodeVersion, Optional<String> diagnosis12Code,
-			Optional<Character> diagnosis12CodeVersion) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners, rather than
-		 * requiring if-blocks.
-		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(
-				Diagnosis.from(diagnosisPrincipalCode, diagnosisPrincipalCodeVersion, DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis1Code, diagnosis1CodeVersion, DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis2Code, diagnosis2CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis3Code, diagnosis3CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis4Code, diagnosis4CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis5Code, diagnosis5CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis6Code, diagnosis6CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis7Code, diagnosis7CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis8Code, diagnosis8CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis9Code, diagnosis9CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis10Code, diagnosis10CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis11Code, diagnosis11CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis12Code, diagnosis12CodeVersion));
-
-		return diagnoses;
-	}
-
-	/**
-	 * Extract the Diagnosis values for codes 13-25
-	 * 
-	 * @param diagnosis13Code
-	 *            through diagnosis25Code
-	 * @param diagnosis13CodeVersion
-	 *            through diagnosis25CodeVersion
-	 * 
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 * 
-	 */
-	public static List<Diagnosis> extractDiagnoses13Thru25(Optional<String> diagnosis13Code,
-			Optional<Character> diagnosis13CodeVersion, Optional<String> diagnosis14Code,
-			Optional<Character> diagnosis14CodeVersion, Optional<String> diagnosis15Code,
-			Optional<Character> diagnosis15CodeVersion, Optional<String> diagnosis16Code,
-			Optional<Character> diagnosis16CodeVersion, Optional<String> diagnosis17Code,
-			Optional<Character> diagnosis17CodeVersion, Optional<String> diagnosis18Code,
-			Optional<Character> diagnosis18CodeVersion, Optional<String> diagnosis19Code,
-			Optional<Character> diagnosis19CodeVersion, Optional<String> diagnosis20Code,
-			Optional<Character> diagnosis20CodeVersion, Optional<String> diagnosis21Code,
-			Optional<Character> diagnosis21CodeVersion, Optional<String> diagnosis22Code,
-			Optional<Character> diagnosis22CodeVersion, Optional<String> diagnosis23Code,
-			Optional<Character> diagnosis23CodeVersion, Optional<String> diagnosis24Code,
-			Optional<Character> diagnosis24CodeVersion, Optional<String> diagnosis25Code,
-			Optional<Character> diagnosis25CodeVersion) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners, rather than
-		 * requiring if-blocks.
-		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(diagnosis13Code, diagnosis13CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis14Code, diagnosis14CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis15Code, diagnosis15CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis16Code, diagnosis16CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis17Code, diagnosis17CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis18Code, diagnosis18CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis19Code, diagnosis19CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis20Code, diagnosis20CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis21Code, diagnosis21CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis22Code, diagnosis22CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis23Code, diagnosis23CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis24Code, diagnosis24CodeVersion));
-		diagnosisAdder.accept(Diagnosis.from(diagnosis25Code, diagnosis25CodeVersion));
-
-		return diagnoses;
-	}
-
-	/**
-	 * Extract the External Diagnosis values for codes 1-12
-	 * 
-	 * @param diagnosisExternalFirstCode
-	 * @param diagnosisExternalFirstCodeVersion
-	 * @param diagnosisExternal1Code
-	 *            through diagnosisExternal12Code
-	 * @param diagnosisExternal1CodeVersion
-	 *            through diagnosisExternal12CodeVersion
-	 * 
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 * 
-	 */
-	public static List<Diagnosis> extractExternalDiagnoses1Thru12(Optional<String> diagnosisExternalFirstCode,
-			Optional<Character> diagnosisExternalFirstCodeVersion, Optional<String> diagnosisExternal1Code,
-			Optional<Character> diagnosisExternal1CodeVersion, Optional<String> diagnosisExternal2Code,
-			Optional<Character> diagnosisExternal2CodeVersion, Optional<String> diagnosisExternal3Code,
-			Optional<Character> diagnosisExternal3CodeVersion, Optional<String> diagnosisExternal4Code,
-			Optional<Character> diagnosisExternal4CodeVersion, Optional<String> diagnosisExternal5Code,
-			Optional<Character> diagnosisExternal5CodeVersion, Optional<String> diagnosisExternal6Code,
-			Optional<Character> diagnosisExternal6CodeVersion, Optional<String> diagnosisExternal7Code,
-			Optional<Character> diagnosisExternal7CodeVersion, Optional<String> diagnosisExternal8Code,
-			Optional<Character> diagnosisExternal8CodeVersion, Optional<String> diagnosisExternal9Code,
-			Optional<Character> diagnosisExternal9CodeVersion, Optional<String> diagnosisExternal10Code,
-			Optional<Character> diagnosisExternal10CodeVersion, Optional<String> diagnosisExternal11Code,
-			Optional<Character> diagnosisExternal11CodeVersion, Optional<String> diagnosisExternal12Code,
-			Optional<Character> diagnosisExternal12CodeVersion) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners, rather than
-		 * requiring if-blocks.
-		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(diagnosisExternalFirstCode, diagnosisExternalFirstCodeVersion,
-				DiagnosisLabel.FIRSTEXTERNAL));
-		diagnosisAdder.accept(
-				Diagnosis.from(diagnosisExternal1Code, diagnosisExternal1CodeVersion, DiagnosisLabel.FIRSTEXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(diagnosisExternal2Code, diagnosisExternal2CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(diagnosisExternal3Code, diagnosisExternal3CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(diagnosisExternal4Code, diagnosisExternal4CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(diagnosisExternal5Code, diagnosisExternal5CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(diagnosisExternal6Code, diagnosisExternal6CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(diagnosisExternal7Code, diagnosisExternal7CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(diagnosisExternal8Code, diagnosisExternal8CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(diagnosisExternal9Code, diagnosisExternal9CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder.accept(
-				Diagnosis.from(diagnosisExternal10Code, diagnosisExternal10CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder.accept(
-				Diagnosis.from(diagnosisExternal11Code, diagnosisExternal11CodeVersion, DiagnosisLabel.EXTERNAL));
-		diagnosisAdder.accept(
-				Diagnosis.from(diagnosisExternal12Code, diagnosisExternal12CodeVersion, DiagnosisLabel.EXTERNAL));
-
-		return diagnoses;
-	}
-
-	/**
-	 * Extract the Procedure values for codes 1-25
-	 * 
-	 * @param procedure1Code
-	 *            through procedure25Code,
-	 * @param procedure1CodeVersion
-	 *            through procedure25CodeVersion
-	 * @param procedure1Date
-	 *            through procedure25Date
-	 * 
-	 * @return the {@link CCWProcedure}es that can be extracted from the specified
-	 *         claim types
-	 */
-	public static List<CCWProcedure> extractCCWProcedures(Optional<String> procedure1Code,
-			Optional<Character> procedure1CodeVersion, Optional<LocalDate> procedure1Date,
-			Optional<String> procedure2Code, Optional<Character> procedure2CodeVersion,
-			Optional<LocalDate> procedure2Date, Optional<String> procedure3Code,
-			Optional<Character> procedure3CodeVersion, Optional<LocalDate> procedure3Date,
-			Optional<String> procedure4Code, Optional<Character> procedure4CodeVersion,
-			Optional<LocalDate> procedure4Date, Optional<String> procedure5Code,
-			Optional<Character> procedure5CodeVersion, Optional<LocalDate> procedure5Date,
-			Optional<String> procedure6Code, Optional<Character> procedure6CodeVersion,
-			Optional<LocalDate> procedure6Date, Optional<String> procedure7Code,
-			Optional<Character> procedure7CodeVersion, Optional<LocalDate> procedure7Date,
-			Optional<String> procedure8Code, Optional<Character> procedure8CodeVersion,
-			Optional<LocalDate> procedure8Date, Optional<String> procedure9Code,
-			Optional<Character> procedure9CodeVersion, Optional<LocalDate> procedure9Date,
-			Optional<String> procedure10Code, Optional<Character> procedure10CodeVersion,
-			Optional<LocalDate> procedure10Date, Optional<String> procedure11Code,
-			Optional<Character> procedure11CodeVersion, Optional<LocalDate> procedure11Date,
-			Optional<String> procedure12Code, Optional<Character> procedure12CodeVersion,
-			Optional<LocalDate> procedure12Date, Optional<String> procedure13Code,
-			Optional<Character> procedure13CodeVersion, Optional<LocalDate> procedure13Date,
-			Optional<String> procedure14Code, Optional<Character> procedure14CodeVersion,
-			Optional<LocalDate> procedure14Date, Optional<String> procedure15Code,
-			Optional<Character> procedure15CodeVersion, Optional<LocalDate> procedure15Date,
-			Optional<String> procedure16Code, Optional<Character> procedure16CodeVersion,
-			Optional<LocalDate> procedure16Date, Optional<String> procedure17Code,
-			Optional<Character> procedure17CodeVersion, Optional<LocalDate> procedure17Date,
-			Optional<String> procedure18Code, Optional<Character> procedure18CodeVersion,
-			Optional<LocalDate> procedure18Date, Optional<String> procedure19Code,
-			Optional<Character> procedure19CodeVersion, Optional<LocalDate> procedure19Date,
-			Optional<String> procedure20Code, Optional<Character> procedure20CodeVersion,
-			Optional<LocalDate> procedure20Date, Optional<String> procedure21Code,
-			Optional<Character> procedure21CodeVersion, Optional<LocalDate> procedure21Date,
-			Optional<String> procedure22Code, Optional<Character> procedure22CodeVersion,
-			Optional<LocalDate> procedure22Date, Optional<String> procedure23Code,
-			Optional<Character> procedure23CodeVersion, Optional<LocalDate> procedure23Date,
-			Optional<String> procedure24Code, Optional<Character> procedure24CodeVersion,
-			Optional<LocalDate> procedure24Date, Optional<String> procedure25Code,
-			Optional<Character> procedure25CodeVersion, Optional<LocalDate> procedure25Date) {
-
-		List<CCWProcedure> ccwProcedures = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners, rather than
-		 * requiring if-blocks.
-		 */
-		Consumer<Optional<CCWProcedure>> ccwProcedureAdder = p -> {
-			if (p.isPresent())
-				ccwProcedures.add(p.get());
-		};
-
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure1Code, procedure1CodeVersion, procedure1Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure2Code, procedure2CodeVersion, procedure2Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure3Code, procedure3CodeVersion, procedure3Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure4Code, procedure4CodeVersion, procedure4Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure5Code, procedure5CodeVersion, procedure5Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure6Code, procedure6CodeVersion, procedure6Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure7Code, procedure7CodeVersion, procedure7Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure8Code, procedure8CodeVersion, procedure8Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure9Code, procedure9CodeVersion, procedure9Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure10Code, procedure10CodeVersion, procedure10Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure11Code, procedure11CodeVersion, procedure11Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure12Code, procedure12CodeVersion, procedure12Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure13Code, procedure13CodeVersion, procedure13Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure14Code, procedure14CodeVersion, procedure14Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure15Code, procedure15CodeVersion, procedure15Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure16Code, procedure16CodeVersion, procedure16Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure17Code, procedure17CodeVersion, procedure17Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure18Code, procedure18CodeVersion, procedure18Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure19Code, procedure19CodeVersion, procedure19Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure20Code, procedure20CodeVersion, procedure20Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure21Code, procedure21CodeVersion, procedure21Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure22Code, procedure22CodeVersion, procedure22Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure23Code, procedure23CodeVersion, procedure23Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure24Code, procedure24CodeVersion, procedure24Date));
-		ccwProcedureAdder.accept(CCWProcedure.from(procedure25Code, procedure25CodeVersion, procedure25Date));
-
-		return ccwProcedures;
-	}
-
 	/**
 	 * Sets the provider number field which is common among these claim types:
 	 * Inpatient, Outpatient, Hospice, HHA and SNF.
@@ -2622,6 +2333,31 @@ public final class TransformerUtils {
 		});
 	}
 
+	/**
+	 * Eagerly loads all of the reference data files (ICD, procedure, NPI, and FDA
+	 * NDC codes) that would otherwise be lazily loaded by the first requests to
+	 * need them. Does nothing for any that have already been loaded.
+	 */
+	public static void loadReferenceData() {
+		if (icdMap == null)
+			icdMap = readIcdCodeFile();
+		if (procedureMap == null)
+			procedureMap = readProcedureCodeFile();
+		if (npiMap == null)
+			npiMap = readNpiCodeFile();
+		if (ndcIndex == null)
+			ndcIndex = readFDADrugCodeIndex();
+	}
+
+	/**
+	 * @return <code>true</code> if all of the reference data files loaded by
+	 *         {@link #loadReferenceData()} have been loaded, <code>false</code>
+	 *         if any haven't been, yet
+	 */
+	public static boolean isReferenceDataLoaded() {
+		return icdMap != null && procedureMap != null && npiMap != null && ndcIndex != null;
+	}
+
 	/**
 	 * Retrieves the Diagnosis display value from a Diagnosis code look up file
 	 * 
@@ -2650,8 +2386,7 @@ public final class TransformerUtils {
 		}
 
 		// log which NDC codes we couldn't find a match for in our downloaded NDC file
-		if (!drugCodeLookupMissingFailures.contains(icdCode)) {
-			drugCodeLookupMissingFailures.add(icdCode);
+		if (drugCodeLookupMissingFailures.add(icdCode)) {
 			LOGGER.info("No ICD code display value match found for ICD code {} in resource {}.", icdCode,
 					"DGNS_CD.txt");
 		}
@@ -2720,8 +2455,7 @@ public final class TransformerUtils {
 		}
 
 		// log which NPI codes we couldn't find a match for in our downloaded NPI file
-		if (!npiCodeLookupMissingFailures.contains(npiCode)) {
-			npiCodeLookupMissingFailures.add(npiCode);
+		if (npiCodeLookupMissingFailures.add(npiCode)) {
 			LOGGER.info("No NPI code display value match found for NPI code {} in resource {}.", npiCode,
 					"NPI_Coded_Display_Values_Tab.txt");
 		}
@@ -2804,8 +2538,7 @@ public final class TransformerUtils {
 
 		// log which Procedure codes we couldn't find a match for in our procedure codes
 		// file
-		if (!procedureLookupMissingFailures.contains(procedureCode)) {
-			procedureLookupMissingFailures.add(procedureCode);
+		if (procedureLookupMissingFailures.add(procedureCode)) {
 			LOGGER.info("No procedure code display value match found for procedure code {} in resource {}.",
 					procedureCode, "PRCDR_CD.txt");
 		}
@@ -2869,69 +2602,66 @@ public final class TransformerUtils {
 		 * is atomic, so the race and reinitialization is harmless other than maybe
 		 * wasting a bit of time.
 		 */
-		// read the entire NDC file the first time and put in a Map
-		if (ndcProductMap == null) {
-			ndcProductMap = readFDADrugCodeFile();
+		// read the NDC index the first time
+		if (ndcIndex == null) {
+			ndcIndex = readFDADrugCodeIndex();
 		}
 
-		String claimDrugCodeReformatted = null;
-
-		claimDrugCodeReformatted = claimDrugCode.substring(0, 5) + "-" + claimDrugCode.substring(5, 9);
-
-		if (ndcProductMap.containsKey(claimDrugCodeReformatted)) {
-			String ndcSubstanceName = ndcProductMap.get(claimDrugCodeReformatted);
+		// The index is keyed by the first 9 digits (the product NDC) of the drug code.
+		String ndcSubstanceName = ndcIndex.get(claimDrugCode);
+		if (ndcSubstanceName != null)
 			return ndcSubstanceName;
-		}
 
 		// log which NDC codes we couldn't find a match for in our downloaded NDC file
-		if (!drugCodeLookupMissingFailures.contains(claimDrugCode)) {
-			drugCodeLookupMissingFailures.add(claimDrugCode);
+		if (drugCodeLookupMissingFailures.add(claimDrugCode)) {
 			LOGGER.info("No national drug code value (PRODUCTNDC column) match found for drug code {} in resource {}.",
-					claimDrugCode, "fda_products_utf8.tsv");
+					claimDrugCode, FDADrugDataUtilityApp.FDA_PRODUCTS_RESOURCE);
 		}
 
 		return null;
 	}
 
 	/**
-	 * Reads all the <code>PRODUCTNDC</code> and <code>SUBSTANCENAME</code> fields
-	 * from the FDA NDC Products file which was downloaded during the build process.
+	 * Reads the {@link NdcIndex} of <code>PRODUCTNDC</code> and
+	 * <code>SUBSTANCENAME</code> fields from the FDA NDC Products file which was
+	 * built during the build process.
 	 * 
 	 * See {@link FDADrugDataUtilityApp} for details.
 	 */
-	public static Map<String, String> readFDADrugCodeFile() {
-		Map<String, String> ndcProductHashMap = new HashMap<String, String>();
-		InputStream ndcProductStream = Thread.currentThread().getContextClassLoader()
-				.getResourceAsStream(FDADrugDataUtilityApp.FDA_PRODUCTS_RESOURCE);
+	private static NdcIndex readFDADrugCodeIndex() {
+		try (InputStream ndcIndexStream = Thread.currentThread().getContextClassLoader()
+				.getResourceAsStream(FDADrugDataUtilityApp.FDA_PRODUCTS_RESOURCE)) {
+			if (ndcIndexStream == null)
+				throw new IllegalStateException(
+						"Unable to find NDC code data resource: " + FDADrugDataUtilityApp.FDA_PRODUCTS_RESOURCE);
 
-		BufferedReader ndcProductsIn = null;
-		ndcProductsIn = new BufferedReader(new InputStreamReader(ndcProductStream));
-
-		/*
-		 * We want to extract the PRODUCTNDC and PROPRIETARYNAME/SUBSTANCENAME from the
-		 * FDA Products file (fda_products_utf8.tsv is in /target/classes directory) and
-		 * put in a Map for easy retrieval to get the display value which is a
-		 * combination of PROPRIETARYNAME & SUBSTANCENAME
-		 */
-		String line = "";
-		try {
-			ndcProductsIn.readLine();
-			while ((line = ndcProductsIn.readLine()) != null) {
-				String ndcProductColumns[] = line.split("\t");
-				String nationalDrugCodeManufacturer = StringUtils
-						.leftPad(ndcProductColumns[1].substring(0, ndcProductColumns[1].indexOf("-")), 5, '0');
-				String nationalDrugCodeIngredient = StringUtils.leftPad(ndcProductColumns[1]
-						.substring(ndcProductColumns[1].indexOf("-") + 1, ndcProductColumns[1].length()), 4, '0');
-				// ndcProductColumns[3] - Proprietary Name
-				// ndcProductColumns[13] - Substance Name
-				ndcProductHashMap.put(String.format("%s-%s", nationalDrugCodeManufacturer, nationalDrugCodeIngredient),
-						ndcProductColumns[3] + " - " + ndcProductColumns[13]);
-			}
-			ndcProductsIn.close();
+			/*
+			 * Note: the index can't be memory-mapped here, as it's a resource inside the
+			 * WAR. It's small enough that a heap copy is fine.
+			 */
+			return NdcIndex.read(ndcIndexStream);
 		} catch (IOException e) {
 			throw new UncheckedIOException("Unable to read NDC code data.", e);
 		}
+	}
 
+	/**
+	 * Reads all the <code>PRODUCTNDC</code> and <code>SUBSTANCENAME</code> fields
+	 * from the FDA NDC Products file which was downloaded during the build process.
+	 * 
+	 * See {@link FDADrugDataUtilityApp} for details.
+	 * 
+	 * @return the display values for all of the products, keyed by their
+	 *         <code>MMMMM-IIII</code> formatted product NDCs
+	 */
+	public static Map<String, String> readFDADrugCodeFile() {
+		NdcIndex index = ndcIndex != null ? ndcIndex : readFDADrugCodeIndex();
+
+		Map<String, String> ndcProductHashMap = new HashMap<String, String>();
+		for (Map.Entry<String, String> entry : index.toMap().entrySet())
+			ndcProductHashMap.put(
+					String.format("%s-%s", entry.getKey().substring(0, 5), entry.getKey().substring(5)),
+					entry.getValue());
 		return ndcProductHashMap;
 	}
 
@@ -0,0 +1,67 @@
+package gov.hhs.cms.bluebutton.server.app.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A {@link SpanExporter} that just holds onto the most recent {@link Span}s in
+ * memory, which is mostly useful for testing.
+ */
+public final class InMemorySpanExporter implements SpanExporter {
+	/**
+	 * The default value for {@link #InMemorySpanExporter(int)}'s
+	 * <code>maxSpans</code> parameter.
+	 */
+	static final int DEFAULT_MAX_SPANS = 10000;
+
+	private final int maxSpans;
+	private final Deque<Span> spans;
+
+	/**
+	 * Constructs a new {@link InMemorySpanExporter}.
+	 *
+	 * @param maxSpans the maximum number of {@link Span}s to retain, after which
+	 *                 the oldest ones will be dropped
+	 */
+	public InMemorySpanExporter(int maxSpans) {
+		if (maxSpans < 1)
+			throw new IllegalArgumentException();
+
+		this.maxSpans = maxSpans;
+		this.spans = new ArrayDeque<>();
+	}
+
+	/**
+	 * Constructs a new {@link InMemorySpanExporter} with the
+	 * {@link #DEFAULT_MAX_SPANS} limit.
+	 */
+	public InMemorySpanExporter() {
+		this(DEFAULT_MAX_SPANS);
+	}
+
+	/**
+	 * @see gov.hhs.cms.bluebutton.server.app.tracing.SpanExporter#export(gov.hhs.cms.bluebutton.server.app.tracing.Span)
+	 */
+	@Override
+	public synchronized void export(Span span) {
+		if (spans.size() >= maxSpans)
+			spans.removeFirst();
+		spans.addLast(span);
+	}
+
+	/**
+	 * @return a copy of the {@link Span}s that have been exported, oldest first
+	 */
+	public synchronized List<Span> getSpans() {
+		return new ArrayList<>(spans);
+	}
+
+	/**
+	 * Discards all of the {@link Span}s that have been exported so far.
+	 */
+	public synchronized void reset() {
+		spans.clear();
+	}
+}
@@ -0,0 +1,64 @@
+package gov.hhs.cms.bluebutton.server.app.tracing;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * A {@link SpanExporter} that writes each {@link Span} out as a separate event
+ * to the <code>TRACE_SPANS</code> logger, which <code>logback.xml</code> routes
+ * to its own NDJSON file. Like the other structured logs, the {@link Span}'s
+ * fields are passed along as {@link MDC} entries.
+ */
+public final class LoggingSpanExporter implements SpanExporter {
+	private static final Logger LOGGER_TRACE_SPANS = LoggerFactory.getLogger("TRACE_SPANS");
+
+	/**
+	 * @see gov.hhs.cms.bluebutton.server.app.tracing.SpanExporter#export(gov.hhs.cms.bluebutton.server.app.tracing.Span)
+	 */
+	@Override
+	public void export(Span span) {
+		if (!LOGGER_TRACE_SPANS.isInfoEnabled())
+			return;
+
+		/*
+		 * Spans are exported on request threads, whose MDC is full of entries for
+		 * the access log. Swap those out while logging the span, so that each span
+		 * event only carries its own fields.
+		 */
+		Map<String, String> requestMdc = MDC.getCopyOfContextMap();
+		MDC.clear();
+		try {
+			MDC.put(computeMdcKey("name"), span.getName());
+			MDC.put(computeMdcKey("trace_id"), span.getContext().getTraceId());
+			MDC.put(computeMdcKey("span_id"), span.getContext().getSpanId());
+			if (span.getParentSpanId().isPresent())
+				MDC.put(computeMdcKey("parent_span_id"), span.getParentSpanId().get());
+			MDC.put(computeMdcKey("start_epoch_milliseconds"), Long.toString(span.getStartEpochMilliseconds()));
+			MDC.put(computeMdcKey("duration_nanoseconds"), Long.toString(span.getDurationNanoseconds()));
+			for (Map.Entry<String, String> attribute : span.getAttributes().entrySet())
+				MDC.put(computeMdcKey("attribute." + attribute.getKey()), attribute.getValue());
+
+			/*
+			 * The message here isn't actually the payload; the MDC context that will get
+			 * automatically included with it is!
+			 */
+			LOGGER_TRACE_SPANS.info("span complete");
+		} finally {
+			if (requestMdc != null)
+				MDC.setContextMap(requestMdc);
+			else
+				MDC.clear();
+		}
+	}
+
+	/**
+	 * @param keySuffix the suffix to build a full key for
+	 * @return the key to use for {@link MDC#put(String, String)}
+	 */
+	private static String computeMdcKey(String keySuffix) {
+		return String.format("%s.%s", "span", keySuffix);
+	}
+}
@@ -0,0 +1,189 @@
+package gov.hhs.cms.bluebutton.server.app.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <p>
+ * Represents a single timed operation within a trace, e.g. a database query or
+ * the transformation of a single claim. {@link Span}s are created via
+ * {@link Tracer#startSpan(String)} and must be {@link #close()}d on the same
+ * thread that created them, typically via a <code>try</code>-with-resources
+ * block.
+ * </p>
+ * <p>
+ * When a trace isn't sampled, {@link Tracer} hands out a shared no-op instance
+ * instead, so unsampled requests pay only for a {@link ThreadLocal} lookup per
+ * {@link Span}.
+ * </p>
+ */
+public final class Span implements AutoCloseable {
+	/**
+	 * The shared {@link Span} that is used for all unsampled/untraced operations.
+	 */
+	static final Span NOOP = new Span();
+
+	private final String name;
+	private final SpanContext context;
+	private final String parentSpanId;
+	private final Span previous;
+	private final long startEpochMilliseconds;
+	private final long startNanoTime;
+	private Map<String, String> attributes;
+	private long durationNanoseconds;
+	private boolean closed;
+
+	/**
+	 * Constructs the {@link #NOOP} {@link Span}.
+	 */
+	private Span() {
+		this.name = "noop";
+		this.context = null;
+		this.parentSpanId = null;
+		this.previous = null;
+		this.startEpochMilliseconds = 0L;
+		this.startNanoTime = 0L;
+		this.closed = true;
+	}
+
+	/**
+	 * Constructs a new recording {@link Span}.
+	 *
+	 * @param name         the value to use for {@link #getName()}
+	 * @param context      the value to use for {@link #getContext()}
+	 * @param parentSpanId the value to use for {@link #getParentSpanId()}, or
+	 *                     <code>null</code> if this is a root {@link Span}
+	 * @param previous     the {@link Span} that was active on the current thread
+	 *                     when this one was started, which will be restored when
+	 *                     this one is closed, or <code>null</code> if none was
+	 */
+	Span(String name, SpanContext context, String parentSpanId, Span previous) {
+		this.name = name;
+		this.context = context;
+		this.parentSpanId = parentSpanId;
+		this.previous = previous;
+		this.startEpochMilliseconds = System.currentTimeMillis();
+		this.startNanoTime = System.nanoTime();
+		this.closed = false;
+	}
+
+	/**
+	 * @return the name of the operation that this {@link Span} represents
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the {@link SpanContext} that identifies this {@link Span}, or
+	 *         <code>null</code> for unsampled {@link Span}s
+	 */
+	public SpanContext getContext() {
+		return context;
+	}
+
+	/**
+	 * @return the {@link SpanContext#getSpanId()} of this {@link Span}'s parent,
+	 *         if any
+	 */
+	public Optional<String> getParentSpanId() {
+		return Optional.ofNullable(parentSpanId);
+	}
+
+	/**
+	 * @return <code>true</code> if this {@link Span} is being recorded and will be
+	 *         exported, <code>false</code> if it's a no-op
+	 */
+	public boolean isRecording() {
+		return this != NOOP;
+	}
+
+	/**
+	 * @return the {@link System#currentTimeMillis()} value at which this
+	 *         {@link Span} was started
+	 */
+	public long getStartEpochMilliseconds() {
+		return startEpochMilliseconds;
+	}
+
+	/**
+	 * @return the number of nanoseconds between this {@link Span} being started
+	 *         and {@link #close()}d, or <code>0</code> if it's still open
+	 */
+	public long getDurationNanoseconds() {
+		return durationNanoseconds;
+	}
+
+	/**
+	 * @return the (unmodifiable) attributes that have been recorded for this
+	 *         {@link Span}
+	 */
+	public Map<String, String> getAttributes() {
+		if (attributes == null)
+			return Collections.emptyMap();
+		return Collections.unmodifiableMap(attributes);
+	}
+
+	/**
+	 * @param key   the key of the attribute to record
+	 * @param value the value of the attribute to record, which will be recorded
+	 *              via {@link String#valueOf(Object)}
+	 * @return this {@link Span}, for call chaining
+	 */
+	public Span setAttribute(String key, Object value) {
+		if (!isRecording())
+			return this;
+
+		if (attributes == null)
+			attributes = new LinkedHashMap<>();
+		attributes.put(key, String.valueOf(value));
+		return this;
+	}
+
+	/**
+	 * @return the {@link Span} that was active on the current thread when this one
+	 *         was started, or <code>null</code> if none was
+	 */
+	Span getPrevious() {
+		return previous;
+	}
+
+	/**
+	 * Ends this {@link Span}, restoring whichever {@link Span} was previously
+	 * active on the current thread and exporting it. Calling this more than once
+	 * has no effect.
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+
+		closed = true;
+		durationNanoseconds = System.nanoTime() - startNanoTime;
+		Tracer.end(this);
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Span [name=");
+		builder.append(name);
+		builder.append(", context=");
+		builder.append(context);
+		builder.append(", parentSpanId=");
+		builder.append(parentSpanId);
+		builder.append(", durationNanoseconds=");
+		builder.append(durationNanoseconds);
+		builder.append(", attributes=");
+		builder.append(attributes);
+		builder.append("]");
+		return builder.toString();
+	}
+}
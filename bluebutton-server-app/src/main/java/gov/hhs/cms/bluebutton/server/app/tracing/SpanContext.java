@@ -0,0 +1,161 @@
+package gov.hhs.cms.bluebutton.server.app.tracing;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Models the identifying information for a {@link Span} that is propagated
+ * between services, per the
+ * <a href="https://www.w3.org/TR/trace-context/">W3C Trace Context</a>
+ * specification.
+ */
+public final class SpanContext {
+	/**
+	 * The name of the HTTP header used to propagate {@link SpanContext}s.
+	 */
+	public static final String HEADER_NAME_TRACEPARENT = "traceparent";
+
+	/**
+	 * Matches version <code>00</code> <code>traceparent</code> header values.
+	 * Per the spec, later versions must also start with these same fields, so
+	 * any trailing content is ignored.
+	 */
+	private static final Pattern TRACEPARENT_PATTERN = Pattern
+			.compile("^([0-9a-f]{2})-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})(-.*)?$");
+
+	private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+	private static final String INVALID_SPAN_ID = "0000000000000000";
+	private static final int FLAG_SAMPLED = 0x01;
+
+	private final String traceId;
+	private final String spanId;
+	private final boolean sampled;
+
+	/**
+	 * Constructs a new {@link SpanContext}.
+	 *
+	 * @param traceId the value to use for {@link #getTraceId()}
+	 * @param spanId  the value to use for {@link #getSpanId()}
+	 * @param sampled the value to use for {@link #isSampled()}
+	 */
+	SpanContext(String traceId, String spanId, boolean sampled) {
+		this.traceId = Objects.requireNonNull(traceId);
+		this.spanId = Objects.requireNonNull(spanId);
+		this.sampled = sampled;
+	}
+
+	/**
+	 * @return the 32-character lowercase hex ID of the trace that this
+	 *         {@link SpanContext} is part of
+	 */
+	public String getTraceId() {
+		return traceId;
+	}
+
+	/**
+	 * @return the 16-character lowercase hex ID of the {@link Span} that this
+	 *         {@link SpanContext} identifies
+	 */
+	public String getSpanId() {
+		return spanId;
+	}
+
+	/**
+	 * @return <code>true</code> if the trace that this {@link SpanContext} is part
+	 *         of has been selected for recording, <code>false</code> if not
+	 */
+	public boolean isSampled() {
+		return sampled;
+	}
+
+	/**
+	 * @return the <code>traceparent</code> header value that represents this
+	 *         {@link SpanContext}
+	 */
+	public String toTraceparent() {
+		return String.format("00-%s-%s-%s", traceId, spanId, sampled ? "01" : "00");
+	}
+
+	/**
+	 * @param traceparent the <code>traceparent</code> header value to parse, which
+	 *                    may be <code>null</code>
+	 * @return the {@link SpanContext} represented by the specified header value, or
+	 *         {@link Optional#empty()} if it was missing or invalid (per the spec,
+	 *         invalid values are ignored and a new trace is started)
+	 */
+	public static Optional<SpanContext> parseTraceparent(String traceparent) {
+		if (traceparent == null)
+			return Optional.empty();
+
+		Matcher traceparentMatcher = TRACEPARENT_PATTERN.matcher(traceparent.trim());
+		if (!traceparentMatcher.matches())
+			return Optional.empty();
+
+		String version = traceparentMatcher.group(1);
+		String traceId = traceparentMatcher.group(2);
+		String spanId = traceparentMatcher.group(3);
+		int flags = Integer.parseInt(traceparentMatcher.group(4), 16);
+
+		// Version ff is explicitly forbidden, and v00 headers can't have extra fields.
+		if ("ff".equals(version))
+			return Optional.empty();
+		if ("00".equals(version) && traceparentMatcher.group(5) != null)
+			return Optional.empty();
+		if (INVALID_TRACE_ID.equals(traceId) || INVALID_SPAN_ID.equals(spanId))
+			return Optional.empty();
+
+		return Optional.of(new SpanContext(traceId, spanId, (flags & FLAG_SAMPLED) != 0));
+	}
+
+	/**
+	 * @return a new random trace ID
+	 */
+	static String generateTraceId() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String traceId;
+		do {
+			traceId = toHex(random.nextLong()) + toHex(random.nextLong());
+		} while (INVALID_TRACE_ID.equals(traceId));
+		return traceId;
+	}
+
+	/**
+	 * @return a new random span ID
+	 */
+	static String generateSpanId() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String spanId;
+		do {
+			spanId = toHex(random.nextLong());
+		} while (INVALID_SPAN_ID.equals(spanId));
+		return spanId;
+	}
+
+	/**
+	 * @param value the value to encode
+	 * @return the 16-character, zero-padded, lowercase hex encoding of the
+	 *         specified value
+	 */
+	private static String toHex(long value) {
+		String hex = Long.toHexString(value);
+		if (hex.length() == 16)
+			return hex;
+
+		StringBuilder paddedHex = new StringBuilder(16);
+		for (int i = hex.length(); i < 16; i++)
+			paddedHex.append('0');
+		paddedHex.append(hex);
+		return paddedHex.toString();
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return toTraceparent();
+	}
+}
@@ -0,0 +1,13 @@
+package gov.hhs.cms.bluebutton.server.app.tracing;
+
+/**
+ * Implementations of this interface receive each sampled {@link Span} once it
+ * has been {@link Span#close()}d. Implementations must be thread-safe, and
+ * should be fast: they're called inline on request threads.
+ */
+public interface SpanExporter {
+	/**
+	 * @param span the completed {@link Span} to export
+	 */
+	void export(Span span);
+}
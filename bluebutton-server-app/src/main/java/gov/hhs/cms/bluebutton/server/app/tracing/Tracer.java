@@ -0,0 +1,211 @@
+package gov.hhs.cms.bluebutton.server.app.tracing;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Creates and tracks the {@link Span}s for the application. The active
+ * {@link Span} is tracked per-thread, which allows code deep in the call stack
+ * (e.g. the claim transformers, which are all <code>static</code>) to add
+ * child {@link Span}s without having anything passed to it.
+ * </p>
+ * <p>
+ * Sampling decisions are made once, when each root {@link Span} is started
+ * (see {@link TracingFilter}): a trace that arrives with a sampled W3C
+ * <code>traceparent</code> header is always recorded, and all others are
+ * recorded at the configured sample rate. Everything started under an
+ * unsampled root is a no-op.
+ * </p>
+ */
+public final class Tracer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(Tracer.class);
+
+	private static final ThreadLocal<Span> CURRENT_SPAN = new ThreadLocal<>();
+
+	/*
+	 * Until configure(...) is called, nothing gets sampled.
+	 */
+	private static volatile double sampleRate = 0.0;
+	private static volatile SpanExporter exporter = span -> {
+	};
+
+	/**
+	 * Not used: this class only has static methods.
+	 */
+	private Tracer() {
+	}
+
+	/**
+	 * Configures the application's tracing. Should only be called once, at
+	 * application startup.
+	 *
+	 * @param sampleRate the fraction (<code>0.0</code> to <code>1.0</code>,
+	 *                   inclusive) of new traces to record
+	 * @param exporter   the {@link SpanExporter} to pass all completed, sampled
+	 *                   {@link Span}s to
+	 */
+	public static void configure(double sampleRate, SpanExporter exporter) {
+		if (sampleRate < 0.0 || sampleRate > 1.0)
+			throw new IllegalArgumentException("Invalid sample rate: " + sampleRate);
+
+		Tracer.sampleRate = sampleRate;
+		Tracer.exporter = Objects.requireNonNull(exporter);
+		LOGGER.info("Tracing configured: sample rate '{}', exporter '{}'.", sampleRate,
+				exporter.getClass().getSimpleName());
+	}
+
+	/**
+	 * Starts a new root {@link Span} on the current thread, which will be the
+	 * parent of all {@link Span}s started on this thread until it's closed.
+	 *
+	 * @param name         the value to use for {@link Span#getName()}
+	 * @param remoteParent the {@link SpanContext} received from the caller, if
+	 *                     any
+	 * @return the new {@link Span}, or the no-op {@link Span} if the trace was not
+	 *         sampled
+	 */
+	public static Span startRootSpan(String name, Optional<SpanContext> remoteParent) {
+		boolean sampled;
+		if (remoteParent.isPresent())
+			sampled = remoteParent.get().isSampled();
+		else
+			sampled = sampleRate > 0.0 && (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+		if (!sampled)
+			return Span.NOOP;
+
+		String traceId = remoteParent.isPresent() ? remoteParent.get().getTraceId() : SpanContext.generateTraceId();
+		String parentSpanId = remoteParent.isPresent() ? remoteParent.get().getSpanId() : null;
+		return start(name, new SpanContext(traceId, SpanContext.generateSpanId(), true), parentSpanId);
+	}
+
+	/**
+	 * Starts a new child {@link Span} of whichever {@link Span} is currently
+	 * active on this thread.
+	 *
+	 * @param name the value to use for {@link Span#getName()}
+	 * @return the new {@link Span}, or the no-op {@link Span} if there's no
+	 *         sampled trace active on the current thread
+	 */
+	public static Span startSpan(String name) {
+		Span parent = CURRENT_SPAN.get();
+		if (parent == null)
+			return Span.NOOP;
+
+		return start(name, new SpanContext(parent.getContext().getTraceId(), SpanContext.generateSpanId(), true),
+				parent.getContext().getSpanId());
+	}
+
+	/**
+	 * @return the {@link Span} that's currently active on this thread, or the
+	 *         no-op {@link Span} if there isn't one
+	 */
+	public static Span currentSpan() {
+		Span current = CURRENT_SPAN.get();
+		return current != null ? current : Span.NOOP;
+	}
+
+	/**
+	 * Runs the specified action with the specified {@link Span} as this thread's
+	 * active {@link Span}, restoring whatever was active before once it's done.
+	 * This is how work handed off to other threads (e.g. the parallel claim
+	 * transforms) stays part of the request's trace: capture
+	 * {@link #currentSpan()} on the request thread, and pass it in here on the
+	 * worker thread.
+	 *
+	 * @param <T>    the type of result produced by the action
+	 * @param parent the {@link Span} to make active while running the action,
+	 *               which may be the no-op {@link Span}
+	 * @param action the action to run
+	 * @return the result of the action
+	 */
+	public static <T> T callInSpan(Span parent, Supplier<T> action) {
+		Span previous = CURRENT_SPAN.get();
+		if (parent.isRecording())
+			CURRENT_SPAN.set(parent);
+		else
+			CURRENT_SPAN.remove();
+
+		try {
+			return action.get();
+		} finally {
+			if (previous != null)
+				CURRENT_SPAN.set(previous);
+			else
+				CURRENT_SPAN.remove();
+		}
+	}
+
+	/**
+	 * Runs the specified action inside a new child {@link Span} of whichever
+	 * {@link Span} is currently active on this thread (see
+	 * {@link #startSpan(String)}), closing it once the action is done. Callers
+	 * should pass in a constant name, so that unsampled requests don't pay to
+	 * build it.
+	 *
+	 * @param <T>    the type of result produced by the action
+	 * @param name   the value to use for {@link Span#getName()}
+	 * @param action the action to run
+	 * @return the result of the action
+	 */
+	public static <T> T callInNewSpan(String name, Supplier<T> action) {
+		Span span = startSpan(name);
+		try {
+			return action.get();
+		} finally {
+			span.close();
+		}
+	}
+
+	/**
+	 * @param name         the value to use for {@link Span#getName()}
+	 * @param context      the value to use for {@link Span#getContext()}
+	 * @param parentSpanId the value to use for {@link Span#getParentSpanId()}
+	 * @return the new {@link Span}, which will have been made the current thread's
+	 *         active {@link Span}
+	 */
+	private static Span start(String name, SpanContext context, String parentSpanId) {
+		Span span = new Span(name, context, parentSpanId, CURRENT_SPAN.get());
+		CURRENT_SPAN.set(span);
+		return span;
+	}
+
+	/**
+	 * Clears any {@link Span} still active on the current thread, e.g. one that
+	 * was leaked by code that failed to close it. Should be called whenever a
+	 * thread is done with a request, as container threads get reused.
+	 */
+	static void clearCurrentSpan() {
+		CURRENT_SPAN.remove();
+	}
+
+	/**
+	 * Called by {@link Span#close()} to restore the thread's previous {@link Span}
+	 * and export the completed one.
+	 *
+	 * @param span the recording {@link Span} that was just closed
+	 */
+	static void end(Span span) {
+		if (CURRENT_SPAN.get() == span) {
+			if (span.getPrevious() != null)
+				CURRENT_SPAN.set(span.getPrevious());
+			else
+				CURRENT_SPAN.remove();
+		}
+
+		/*
+		 * Tracing must never break a request, so any exporter problems just get
+		 * logged.
+		 */
+		try {
+			exporter.export(span);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Unable to export span: " + span, e);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package gov.hhs.cms.bluebutton.server.app.tracing;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.MDC;
+
+import gov.hhs.cms.bluebutton.server.app.RequestResponseLoggingFilter;
+
+/**
+ * Starts the root {@link Span} for each HTTP request, continuing the caller's
+ * trace if it sent a W3C <code>traceparent</code> header. Sampled requests get
+ * their trace ID recorded in the {@link MDC} (so that it lands in the access
+ * log) and echoed back to the caller in a <code>traceparent</code> response
+ * header. This {@link Filter} must be declared after
+ * {@link RequestResponseLoggingFilter} in the <code>web.xml</code>.
+ */
+public final class TracingFilter implements Filter {
+	/**
+	 * The {@link MDC} key that the trace ID of sampled requests is recorded
+	 * under.
+	 */
+	static final String MDC_KEY_TRACE_ID = "http_access.trace_id";
+
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		HttpServletRequest servletRequest = (HttpServletRequest) request;
+		Optional<SpanContext> remoteParent = SpanContext
+				.parseTraceparent(servletRequest.getHeader(SpanContext.HEADER_NAME_TRACEPARENT));
+		Span rootSpan = Tracer.startRootSpan("http_request", remoteParent);
+		boolean asyncStarted = false;
+		try {
+			if (rootSpan.isRecording()) {
+				rootSpan.setAttribute("http.method", servletRequest.getMethod());
+				rootSpan.setAttribute("http.uri", servletRequest.getRequestURI());
+				MDC.put(MDC_KEY_TRACE_ID, rootSpan.getContext().getTraceId());
+				if (response instanceof HttpServletResponse)
+					((HttpServletResponse) response).setHeader(SpanContext.HEADER_NAME_TRACEPARENT,
+							rootSpan.getContext().toTraceparent());
+			}
+
+			chain.doFilter(request, response);
+			asyncStarted = request.isAsyncStarted();
+		} finally {
+			if (asyncStarted) {
+				// The request is still running elsewhere, so end its Span once it's done.
+				request.getAsyncContext().addListener(new AsyncListener() {
+					@Override
+					public void onComplete(AsyncEvent event) {
+						endRootSpan(rootSpan, response);
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) {
+						// Nothing to do here: onComplete(...) will still be called.
+					}
+
+					@Override
+					public void onError(AsyncEvent event) {
+						// Nothing to do here: onComplete(...) will still be called.
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) {
+						// Nothing to do here.
+					}
+				});
+			} else {
+				endRootSpan(rootSpan, response);
+			}
+			Tracer.clearCurrentSpan();
+		}
+	}
+
+	/**
+	 * @param rootSpan
+	 *            the root {@link Span} for the request, to be ended
+	 * @param response
+	 *            the {@link ServletResponse} for the request
+	 */
+	private static void endRootSpan(Span rootSpan, ServletResponse response) {
+		if (rootSpan.isRecording() && response instanceof HttpServletResponse)
+			rootSpan.setAttribute("http.status", ((HttpServletResponse) response).getStatus());
+		rootSpan.close();
+	}
+
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		// Nothing to do here.
+	}
+}
@@ -0,0 +1,105 @@
+package gov.hhs.cms.bluebutton.server.app.tracing;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+
+/**
+ * <p>
+ * A HAPI {@link IServerInterceptor} that records two {@link Span}s for each
+ * FHIR operation:
+ * </p>
+ * <ul>
+ * <li><code>provider.&lt;resource&gt;.&lt;operation&gt;</code>: covers the
+ * resource provider's handling of the request, which all of the query and
+ * transform {@link Span}s will be children of.</li>
+ * <li><code>encode</code>: covers HAPI's serialization of the resulting
+ * resource or bundle and the writing of it to the response.</li>
+ * </ul>
+ */
+public final class TracingInterceptor extends InterceptorAdapter {
+	private static final String USER_DATA_PROVIDER_SPAN = TracingInterceptor.class.getName() + ".providerSpan";
+	private static final String USER_DATA_ENCODE_SPAN = TracingInterceptor.class.getName() + ".encodeSpan";
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#incomingRequestPreHandled(ca.uhn.fhir.rest.api.RestOperationTypeEnum,
+	 *      ca.uhn.fhir.rest.server.interceptor.IServerInterceptor.ActionRequestDetails)
+	 */
+	@Override
+	public void incomingRequestPreHandled(RestOperationTypeEnum operation, ActionRequestDetails processedRequest) {
+		if (!Tracer.currentSpan().isRecording())
+			return;
+
+		String resourceType = processedRequest.getResourceType() != null ? processedRequest.getResourceType()
+				: "system";
+		Span providerSpan = Tracer
+				.startSpan(String.format("provider.%s.%s", resourceType, operation.getCode().replace('-', '_')));
+		processedRequest.getRequestDetails().getUserData().put(USER_DATA_PROVIDER_SPAN, providerSpan);
+	}
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#outgoingResponse(ca.uhn.fhir.rest.api.server.RequestDetails,
+	 *      org.hl7.fhir.instance.model.api.IBaseResource,
+	 *      javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	public boolean outgoingResponse(RequestDetails requestDetails, IBaseResource responseObject,
+			HttpServletRequest servletRequest, HttpServletResponse servletResponse) {
+		closeSpan(requestDetails, USER_DATA_PROVIDER_SPAN);
+
+		if (Tracer.currentSpan().isRecording()) {
+			Span encodeSpan = Tracer.startSpan("encode");
+			if (responseObject != null)
+				encodeSpan.setAttribute("resource_type", responseObject.getClass().getSimpleName());
+			requestDetails.getUserData().put(USER_DATA_ENCODE_SPAN, encodeSpan);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#processingCompletedNormally(ca.uhn.fhir.rest.server.servlet.ServletRequestDetails)
+	 */
+	@Override
+	public void processingCompletedNormally(ServletRequestDetails requestDetails) {
+		closeSpan(requestDetails, USER_DATA_ENCODE_SPAN);
+	}
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#handleException(ca.uhn.fhir.rest.api.server.RequestDetails,
+	 *      ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException,
+	 *      javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	public boolean handleException(RequestDetails requestDetails, BaseServerResponseException exception,
+			HttpServletRequest servletRequest, HttpServletResponse servletResponse) {
+		Object providerSpan = requestDetails.getUserData().get(USER_DATA_PROVIDER_SPAN);
+		if (providerSpan != null)
+			((Span) providerSpan).setAttribute("error", exception.getStatusCode());
+		closeSpan(requestDetails, USER_DATA_PROVIDER_SPAN);
+		closeSpan(requestDetails, USER_DATA_ENCODE_SPAN);
+		return true;
+	}
+
+	/**
+	 * @param requestDetails the {@link RequestDetails} that the {@link Span} was
+	 *                       stashed in
+	 * @param userDataKey    the {@link RequestDetails#getUserData()} key that the
+	 *                       {@link Span} was stashed under
+	 */
+	private static void closeSpan(RequestDetails requestDetails, String userDataKey) {
+		Object span = requestDetails.getUserData().remove(userDataKey);
+		if (span != null)
+			((Span) span).close();
+	}
+}
@@ -0,0 +1,7 @@
+/**
+ * Contains the application's lightweight tracing support: {@link Span}s
+ * recorded around the provider, query, transform, and encoding phases of each
+ * request, propagated via W3C <code>traceparent</code> headers, and handed off
+ * to a pluggable {@link SpanExporter}.
+ */
+package gov.hhs.cms.bluebutton.server.app.tracing;
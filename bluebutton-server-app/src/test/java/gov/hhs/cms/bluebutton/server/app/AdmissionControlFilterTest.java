@@ -0,0 +1,134 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.server.app.AdmissionControlFilter.Admission;
+import gov.hhs.cms.bluebutton.server.app.AdmissionControlFilter.ClientState;
+import gov.hhs.cms.bluebutton.server.app.AdmissionControlFilter.Limits;
+
+/**
+ * Unit tests for {@link AdmissionControlFilter}.
+ */
+public final class AdmissionControlFilterTest {
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Verifies that {@link ClientState} enforces its rate limit, and refills
+	 * it over time.
+	 */
+	@Test
+	public void rateLimit() {
+		ClientState client = new ClientState(new Limits(100, 2.0), SECOND, 0L);
+
+		Assert.assertEquals(Admission.ADMITTED, client.tryAcquire(0L));
+		Assert.assertEquals(Admission.ADMITTED, client.tryAcquire(0L));
+		Assert.assertEquals(Admission.REJECTED_RATE, client.tryAcquire(0L));
+		Assert.assertEquals(Admission.ADMITTED, client.tryAcquire(SECOND / 2));
+		Assert.assertEquals(Admission.REJECTED_RATE, client.tryAcquire(SECOND / 2));
+	}
+
+	/**
+	 * Verifies that {@link ClientState}'s concurrency limit is enforced, backs
+	 * off when requests are slow, and recovers once they're fast again.
+	 */
+	@Test
+	public void concurrencyLimit() {
+		ClientState client = new ClientState(new Limits(2, 1000.0), SECOND, 0L);
+
+		Assert.assertEquals(Admission.ADMITTED, client.tryAcquire(0L));
+		Assert.assertEquals(Admission.ADMITTED, client.tryAcquire(0L));
+		Assert.assertEquals(Admission.REJECTED_CONCURRENCY, client.tryAcquire(0L));
+		Assert.assertEquals(2, client.getInFlight());
+
+		// Both are slow, but that only counts once.
+		client.release(0L, 2 * SECOND);
+		client.release(0L, 2 * SECOND);
+		Assert.assertEquals(1, client.getLimit());
+		Assert.assertEquals(0, client.getInFlight());
+
+		Assert.assertEquals(Admission.ADMITTED, client.tryAcquire(3 * SECOND));
+		Assert.assertEquals(Admission.REJECTED_CONCURRENCY, client.tryAcquire(3 * SECOND));
+
+		// Fast requests should grow it back, but never past the max.
+		for (int i = 0; i < 10; i++) {
+			client.release(3 * SECOND, 3 * SECOND + 1);
+			Assert.assertEquals(Admission.ADMITTED, client.tryAcquire(4 * SECOND));
+		}
+		Assert.assertEquals(2, client.getLimit());
+	}
+
+	/**
+	 * Verifies that {@link AdmissionControlFilter#getClient(String)} applies
+	 * the per-partner {@link Limits}, and registers each client's metrics.
+	 */
+	@Test
+	public void partnerLimits() {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		AdmissionControlFilter filter = new AdmissionControlFilter(metricRegistry, new Limits(1, 1.0),
+				Collections.singletonMap("CN=Partner A", new Limits(5, 10.0)), 1000L, () -> 0L);
+
+		Assert.assertEquals(5, filter.getClient("CN=Partner A").getLimit());
+		Assert.assertEquals(1, filter.getClient("CN=Partner B").getLimit());
+		Assert.assertSame(filter.getClient("CN=Partner A"), filter.getClient("CN=Partner A"));
+		Assert.assertTrue(metricRegistry.getGauges().containsKey("AdmissionControlFilter.clients.CN=Partner_A.limit"));
+	}
+
+	/**
+	 * Verifies that {@link AdmissionControlFilter#getClient(String)} discards
+	 * idle clients and their gauges, but keeps busy ones.
+	 */
+	@Test
+	public void idleClientsEvicted() {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		AtomicLong nowNanos = new AtomicLong(0L);
+		AdmissionControlFilter filter = new AdmissionControlFilter(metricRegistry, new Limits(5, 1000.0),
+				Collections.emptyMap(), 1000L, nowNanos::get);
+
+		ClientState idleClient = filter.getClient("CN=Partner A");
+		ClientState busyClient = filter.getClient("CN=Partner B");
+		Assert.assertEquals(Admission.ADMITTED, busyClient.tryAcquire(nowNanos.get()));
+		Assert.assertEquals(4, metricRegistry.getGauges().size());
+
+		nowNanos.addAndGet(TimeUnit.MINUTES.toNanos(AdmissionControlFilter.CLIENT_IDLE_MINUTES));
+		Assert.assertSame(busyClient, filter.getClient("CN=Partner B"));
+		Assert.assertEquals(2, metricRegistry.getGauges().size());
+		Assert.assertFalse(metricRegistry.getGauges().containsKey("AdmissionControlFilter.clients.CN=Partner_A.limit"));
+		Assert.assertTrue(metricRegistry.getGauges().containsKey("AdmissionControlFilter.clients.CN=Partner_B.limit"));
+
+		// A returning client should get a fresh state, with its gauges registered again.
+		Assert.assertNotSame(idleClient, filter.getClient("CN=Partner A"));
+		Assert.assertEquals(4, metricRegistry.getGauges().size());
+	}
+
+	/**
+	 * Verifies that {@link AdmissionControlFilter#parsePartnerLimits(String)}
+	 * works as expected.
+	 */
+	@Test
+	public void parsePartnerLimits() {
+		Assert.assertTrue(AdmissionControlFilter.parsePartnerLimits("").isEmpty());
+
+		Map<String, Limits> partnerLimits = AdmissionControlFilter
+				.parsePartnerLimits("CN=Partner A,O=Example|20|50; CN=Partner B|5|0.5;");
+		Assert.assertEquals(2, partnerLimits.size());
+		Assert.assertEquals(20, partnerLimits.get("CN=Partner A,O=Example").getMaxConcurrency());
+		Assert.assertEquals(0.5, partnerLimits.get("CN=Partner B").getRequestsPerSecond(), 0.0);
+	}
+
+	/**
+	 * Verifies that {@link AdmissionControlFilter#parsePartnerLimits(String)}
+	 * rejects malformed entries.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void parsePartnerLimitsInvalid() {
+		AdmissionControlFilter.parsePartnerLimits("CN=Partner A|20");
+	}
+}
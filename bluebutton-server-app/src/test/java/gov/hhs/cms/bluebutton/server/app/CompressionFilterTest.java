@@ -0,0 +1,236 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Unit tests for {@link CompressionFilter}.
+ */
+public final class CompressionFilterTest {
+	/**
+	 * Verifies that {@link CompressionFilter#negotiateEncoding(String)} handles
+	 * the various <code>Accept-Encoding</code> forms correctly.
+	 */
+	@Test
+	public void negotiateEncoding() {
+		Assert.assertNull(CompressionFilter.negotiateEncoding(null));
+		Assert.assertNull(CompressionFilter.negotiateEncoding("identity"));
+		Assert.assertNull(CompressionFilter.negotiateEncoding("br"));
+		Assert.assertEquals(CompressionFilter.ENCODING_GZIP, CompressionFilter.negotiateEncoding("gzip"));
+		Assert.assertEquals(CompressionFilter.ENCODING_GZIP, CompressionFilter.negotiateEncoding("deflate, gzip"));
+		Assert.assertEquals(CompressionFilter.ENCODING_GZIP, CompressionFilter.negotiateEncoding("*"));
+		Assert.assertEquals(CompressionFilter.ENCODING_DEFLATE,
+				CompressionFilter.negotiateEncoding("gzip;q=0.5, deflate"));
+		Assert.assertEquals(CompressionFilter.ENCODING_DEFLATE,
+				CompressionFilter.negotiateEncoding("gzip;q=0, *"));
+		Assert.assertNull(CompressionFilter.negotiateEncoding("gzip;q=0, deflate;q=0"));
+	}
+
+	/**
+	 * Verifies that {@link CompressionFilter#parseEndpoint(String)} works as
+	 * expected.
+	 */
+	@Test
+	public void parseEndpoint() {
+		Assert.assertEquals("root", CompressionFilter.parseEndpoint(null));
+		Assert.assertEquals("root", CompressionFilter.parseEndpoint("/"));
+		Assert.assertEquals("ExplanationOfBenefit", CompressionFilter.parseEndpoint("/ExplanationOfBenefit"));
+		Assert.assertEquals("Patient", CompressionFilter.parseEndpoint("/Patient/123"));
+		Assert.assertEquals("other", CompressionFilter.parseEndpoint("/Patient.bad/123"));
+	}
+
+	/**
+	 * Verifies that {@link CompressionFilter#parseFormat(String)} works as
+	 * expected.
+	 */
+	@Test
+	public void parseFormat() {
+		Assert.assertEquals("other", CompressionFilter.parseFormat(null));
+		Assert.assertEquals("json", CompressionFilter.parseFormat("application/fhir+json;charset=UTF-8"));
+		Assert.assertEquals("xml", CompressionFilter.parseFormat("application/fhir+xml;charset=UTF-8"));
+		Assert.assertEquals("other", CompressionFilter.parseFormat("text/html"));
+	}
+
+	/**
+	 * Verifies that {@link CompressionFilter} sends responses smaller than its
+	 * threshold as-is, with their exact <code>Content-Length</code>.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 * @throws ServletException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void smallResponsesNotCompressed() throws IOException, ServletException {
+		CompressionFilter filter = new CompressionFilter(new MetricRegistry(), 1024, 1);
+		String body = createBody(1000);
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(createRequest("gzip"), response, createChain(body));
+
+		Assert.assertNull(response.getHeader("Content-Encoding"));
+		Assert.assertEquals("1000", response.getHeader("Content-Length"));
+		Assert.assertEquals("Accept-Encoding", response.getHeader("Vary"));
+		Assert.assertEquals(body, response.getBodyAsString());
+	}
+
+	/**
+	 * Verifies that {@link CompressionFilter} compresses responses larger than
+	 * its threshold with the negotiated encoding, and hides the
+	 * <code>Accept-Encoding</code> header from the rest of the chain.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 * @throws ServletException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void largeResponsesCompressed() throws IOException, ServletException {
+		CompressionFilter filter = new CompressionFilter(new MetricRegistry(), 1024, 1);
+		String body = createBody(100000);
+
+		for (String encoding : new String[] { CompressionFilter.ENCODING_GZIP,
+				CompressionFilter.ENCODING_DEFLATE }) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			filter.doFilter(createRequest(encoding), response, createChain(body));
+
+			Assert.assertEquals(encoding, response.getHeader("Content-Encoding"));
+			// The compressed length isn't known until it's all been sent.
+			Assert.assertNull(response.getHeader("Content-Length"));
+			Assert.assertTrue(response.getBody().length < body.length());
+			Assert.assertEquals(body, decode(encoding, response.getBody()));
+		}
+	}
+
+	/**
+	 * Verifies that {@link CompressionFilter} passes large responses through
+	 * as-is (keeping any <code>Content-Length</code> that was set) for clients
+	 * that don't accept compression.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 * @throws ServletException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void largeResponsesNotAccepted() throws IOException, ServletException {
+		CompressionFilter filter = new CompressionFilter(new MetricRegistry(), 1024, 1);
+		String body = createBody(100000);
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(createRequest(null), response, (request, chainResponse) -> {
+			chainResponse.setContentLength(body.length());
+			createChain(body).doFilter(request, chainResponse);
+		});
+
+		Assert.assertNull(response.getHeader("Content-Encoding"));
+		Assert.assertEquals("100000", response.getHeader("Content-Length"));
+		Assert.assertEquals(body, response.getBodyAsString());
+	}
+
+	/**
+	 * Verifies that {@link CompressionFilter} records its metrics for
+	 * successful responses, and not for failed ones (which might be for
+	 * made-up endpoints).
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 * @throws ServletException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void metricsForSuccessfulResponses() throws IOException, ServletException {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		CompressionFilter filter = new CompressionFilter(metricRegistry, 1024, 1);
+
+		filter.doFilter(createRequest("gzip"), new MockHttpServletResponse(), createChain(createBody(100000)));
+		Assert.assertEquals(1L, metricRegistry.histogram("CompressionFilter.Patient.bytes.body").getCount());
+		Assert.assertEquals(1L, metricRegistry.histogram("CompressionFilter.Patient.bytes.wire").getCount());
+		Assert.assertEquals(1L, metricRegistry.timer("CompressionFilter.Patient.compress").getCount());
+		Assert.assertEquals(1L, metricRegistry.timer("CompressionFilter.Patient.encode.json").getCount());
+
+		MockHttpServletRequest madeUpRequest = new MockHttpServletRequest("GET", "/v1/fhir/MadeUp")
+				.setPathInfo("/MadeUp").addHeader("Accept-Encoding", "gzip");
+		filter.doFilter(madeUpRequest, new MockHttpServletResponse(),
+				(request, response) -> ((HttpServletResponse) response).sendError(HttpServletResponse.SC_NOT_FOUND));
+		Assert.assertFalse(metricRegistry.getNames().stream().anyMatch(name -> name.contains("MadeUp")));
+	}
+
+	/**
+	 * @param acceptEncoding
+	 *            the <code>Accept-Encoding</code> header value to use, if any
+	 * @return a new {@link MockHttpServletRequest} for a <code>Patient</code>
+	 *         read
+	 */
+	private static MockHttpServletRequest createRequest(String acceptEncoding) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/fhir/Patient/1")
+				.setPathInfo("/Patient/1");
+		if (acceptEncoding != null)
+			request.addHeader("Accept-Encoding", acceptEncoding);
+		return request;
+	}
+
+	/**
+	 * @param body
+	 *            the response body to write
+	 * @return a {@link FilterChain} that writes the specified JSON response body
+	 *         (in several chunks, via the response's writer), after checking that
+	 *         the <code>Accept-Encoding</code> header is hidden from it
+	 */
+	private static FilterChain createChain(String body) {
+		return (request, response) -> {
+			Assert.assertNull(((HttpServletRequest) request).getHeader("Accept-Encoding"));
+			response.setContentType("application/fhir+json");
+			for (int i = 0; i < body.length(); i += 700)
+				response.getWriter().write(body, i, Math.min(700, body.length() - i));
+		};
+	}
+
+	/**
+	 * @param length
+	 *            the number of characters to return
+	 * @return a compressible (ASCII) response body of the specified length
+	 */
+	private static String createBody(int length) {
+		StringBuilder body = new StringBuilder(length);
+		for (int i = 0; body.length() < length; i++)
+			body.append("{\"resourceType\":\"Patient\",\"id\":\"").append(i).append("\"}");
+		return body.substring(0, length);
+	}
+
+	/**
+	 * @param encoding
+	 *            the <code>Content-Encoding</code> that the body was sent with
+	 * @param body
+	 *            the response body bytes that were sent
+	 * @return the decoded response body
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	private static String decode(String encoding, byte[] body) throws IOException {
+		ByteArrayOutputStream decodedBytes = new ByteArrayOutputStream();
+		try (InputStream decodingStream = CompressionFilter.ENCODING_GZIP.equals(encoding)
+				? new GZIPInputStream(new ByteArrayInputStream(body))
+				: new InflaterInputStream(new ByteArrayInputStream(body))) {
+			byte[] buffer = new byte[8192];
+			for (int read = decodingStream.read(buffer); read >= 0; read = decodingStream.read(buffer))
+				decodedBytes.write(buffer, 0, read);
+		}
+		return new String(decodedBytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,43 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ConnectionBudget}.
+ */
+public final class ConnectionBudgetTest {
+	/**
+	 * Verifies that {@link ConnectionBudget} splits the total between the pools
+	 * by default, without exceeding it.
+	 */
+	@Test
+	public void defaultShares() {
+		ConnectionBudget connectionBudget = new ConnectionBudget(40, -1, -1);
+		Assert.assertEquals(40, connectionBudget.getTotalConnections());
+		Assert.assertEquals(8, connectionBudget.getPatientConnections());
+		Assert.assertEquals(24, connectionBudget.getEobConnections());
+		Assert.assertEquals(8, connectionBudget.getMainConnections());
+	}
+
+	/**
+	 * Verifies that {@link ConnectionBudget} takes configured bulkhead sizes out
+	 * of the total, too.
+	 */
+	@Test
+	public void configuredShares() {
+		ConnectionBudget connectionBudget = new ConnectionBudget(20, 2, -1);
+		Assert.assertEquals(2, connectionBudget.getPatientConnections());
+		Assert.assertEquals(12, connectionBudget.getEobConnections());
+		Assert.assertEquals(6, connectionBudget.getMainConnections());
+	}
+
+	/**
+	 * Verifies that {@link ConnectionBudget} rejects bulkhead sizes that leave
+	 * nothing for the main pool.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void bulkheadsExceedTotal() {
+		new ConnectionBudget(20, 10, 10);
+	}
+}
@@ -0,0 +1,130 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gov.hhs.cms.bluebutton.server.app.ConnectionPoolMonitor.Tuning;
+
+/**
+ * Unit tests for {@link ConnectionPoolMonitor}.
+ */
+public final class ConnectionPoolMonitorTest {
+	private static final Tuning TUNING = new Tuning(true, 2, 2.0, 5.0, 500L, 10L);
+
+	/**
+	 * How long (in milliseconds) each simulated query in
+	 * {@link #measureAverageWaitMillis(int, int)} holds its connection for.
+	 */
+	private static final long QUERY_MILLIS = 20L;
+
+	/**
+	 * Verifies that {@link ConnectionPoolMonitor#computeTargetSize(Tuning, int, int, int, double, double)}
+	 * grows starved pools, but only up to the configured limit.
+	 */
+	@Test
+	public void growsStarvedPools() {
+		Assert.assertEquals(22, ConnectionPoolMonitor.computeTargetSize(TUNING, 20, 20, 20, 50.0, 10.0));
+		Assert.assertEquals(40, ConnectionPoolMonitor.computeTargetSize(TUNING, 20, 40, 40, 50.0, 10.0));
+	}
+
+	/**
+	 * Verifies that {@link ConnectionPoolMonitor#computeTargetSize(Tuning, int, int, int, double, double)}
+	 * shrinks pools when the database itself is slow, even if callers are
+	 * also waiting for connections.
+	 */
+	@Test
+	public void shrinksWhenDatabaseIsSlow() {
+		Assert.assertEquals(18, ConnectionPoolMonitor.computeTargetSize(TUNING, 20, 20, 20, 50.0, 1000.0));
+		Assert.assertEquals(2, ConnectionPoolMonitor.computeTargetSize(TUNING, 20, 2, 2, 50.0, 1000.0));
+	}
+
+	/**
+	 * Verifies that {@link ConnectionPoolMonitor#computeTargetSize(Tuning, int, int, int, double, double)}
+	 * slowly shrinks idle pools, and leaves healthy ones alone.
+	 */
+	@Test
+	public void shrinksIdlePools() {
+		Assert.assertEquals(19, ConnectionPoolMonitor.computeTargetSize(TUNING, 20, 20, 1, 0.0, 10.0));
+		Assert.assertEquals(20, ConnectionPoolMonitor.computeTargetSize(TUNING, 20, 20, 15, 1.0, 10.0));
+	}
+
+	/**
+	 * Verifies that {@link Tuning#getMaxSize(int)} only allows pools to grow if
+	 * resizing is enabled.
+	 */
+	@Test
+	public void maxSize() {
+		Assert.assertEquals(40, TUNING.getMaxSize(20));
+		Assert.assertEquals(5, new Tuning(true, 2, 1.5, 5.0, 500L, 10L).getMaxSize(3));
+		Assert.assertEquals(20, Tuning.DISABLED.getMaxSize(20));
+	}
+
+	/**
+	 * Verifies that a pool does get grown when its request threads are all
+	 * busy, as long as there are more of them than the pool has connections
+	 * (as there are by default, since they're sized to
+	 * {@link Tuning#getMaxSize(int)}). With only as many threads as
+	 * connections, nobody ever waits for a connection, and so the pool would
+	 * never grow, no matter how backed up the requests were.
+	 *
+	 * @throws InterruptedException
+	 *             (indicates test failure)
+	 */
+	@Test(timeout = 30000L)
+	public void growsUnderExecutorBoundLoad() throws InterruptedException {
+		int poolSize = 10;
+
+		double waitMillisWithoutSpareThreads = measureAverageWaitMillis(poolSize, poolSize);
+		Assert.assertEquals(poolSize, ConnectionPoolMonitor.computeTargetSize(TUNING, poolSize, poolSize, poolSize,
+				waitMillisWithoutSpareThreads, QUERY_MILLIS));
+
+		double waitMillis = measureAverageWaitMillis(TUNING.getMaxSize(poolSize), poolSize);
+		Assert.assertEquals(poolSize + 1, ConnectionPoolMonitor.computeTargetSize(TUNING, poolSize, poolSize, poolSize,
+				waitMillis, QUERY_MILLIS));
+	}
+
+	/**
+	 * Runs a backlog of simulated requests on a fixed pool of threads, each of
+	 * which has to hold one of a limited number of connections while its
+	 * query runs.
+	 *
+	 * @param threads
+	 *            the number of request threads to use
+	 * @param connections
+	 *            the number of connections available
+	 * @return the average time (in milliseconds) that the requests spent
+	 *         waiting for a connection
+	 * @throws InterruptedException
+	 *             (indicates test failure)
+	 */
+	private static double measureAverageWaitMillis(int threads, int connections) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Semaphore pool = new Semaphore(connections, true);
+		LongAdder waitNanos = new LongAdder();
+		int requests = threads * 5;
+		for (int i = 0; i < requests; i++) {
+			executor.execute(() -> {
+				long startNanos = System.nanoTime();
+				pool.acquireUninterruptibly();
+				waitNanos.add(System.nanoTime() - startNanos);
+				try {
+					Thread.sleep(QUERY_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					pool.release();
+				}
+			});
+		}
+
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+		return waitNanos.sum() / (double) requests / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,174 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link FDADrugDataUtilityApp} and {@link NdcIndex}.
+ */
+public final class FDADrugDataUtilityAppTest {
+	/**
+	 * Verifies that {@link FDADrugDataUtilityApp#buildIndex(InputStream, Path)}
+	 * builds a correct {@link NdcIndex} from a (local) FDA NDC zip file.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void buildIndexFromLocalZip() throws IOException {
+		byte[] ndcZip = createNdcZip(createProducts(productLine("0002-3227", "Strattera", "ATOMOXETINE HYDROCHLORIDE"),
+				productLine("12345-678", "Caf\u00e9 Tabs\u00ae", "CAFFEINE"),
+				productLine("0002-3227", "Strattera", "ATOMOXETINE"), productLine("1-1", "Tiny", "NOTHING")));
+
+		Path outputDir = Files.createTempDirectory("ndc-index");
+		Path indexFile = outputDir.resolve(FDADrugDataUtilityApp.FDA_PRODUCTS_RESOURCE);
+		try {
+			FDADrugDataUtilityApp.buildIndex(new ByteArrayInputStream(ndcZip), indexFile);
+
+			NdcIndex index;
+			try (InputStream indexStream = Files.newInputStream(indexFile)) {
+				index = NdcIndex.read(indexStream);
+			}
+
+			// The duplicate product NDC should have been collapsed, with the last one winning.
+			Assert.assertEquals(3, index.size());
+			Assert.assertEquals("Strattera - ATOMOXETINE", index.get("00002322701"));
+			Assert.assertEquals("Caf\u00e9 Tabs\u00ae - CAFFEINE", index.get("123450678"));
+			Assert.assertEquals("Tiny - NOTHING", index.get("0000100011"));
+			Assert.assertNull(index.get("00002322801"));
+			Assert.assertNull(index.get("99999999999"));
+			Assert.assertNull(index.get("0000"));
+
+			// Only the index itself should be left behind in the output directory.
+			try (Stream<Path> outputFiles = Files.list(outputDir)) {
+				Assert.assertEquals(1, outputFiles.count());
+			}
+		} finally {
+			Files.deleteIfExists(indexFile);
+			Files.delete(outputDir);
+		}
+	}
+
+	/**
+	 * Verifies that {@link FDADrugDataUtilityApp#readProducts(InputStream)}
+	 * replaces bytes that aren't valid Windows-1252 and skips products with
+	 * invalid NDCs, rather than failing.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void readProductsWithInvalidData() throws IOException {
+		// 0x81 is one of the few bytes that Windows-1252 leaves undefined.
+		byte[] products = createProducts(productLine("0002-3227", "Strattera", "ATOMOXETINE"),
+				productLine("0002-3228", "Bad~Byte", "NOTHING"), productLine("00023229", "No", "DASH"),
+				productLine("0002-32290", "Too", "LONG"), productLine("0002-ABCD", "Not", "DIGITS"), "short\tline");
+		for (int i = 0; i < products.length; i++)
+			if (products[i] == '~')
+				products[i] = (byte) 0x81;
+
+		SortedMap<String, String> productDisplays = FDADrugDataUtilityApp
+				.readProducts(new ByteArrayInputStream(createNdcZip(products)));
+
+		Assert.assertEquals(2, productDisplays.size());
+		Assert.assertEquals("Strattera - ATOMOXETINE", productDisplays.get("000023227"));
+		Assert.assertEquals("Bad\ufffdByte - NOTHING", productDisplays.get("000023228"));
+	}
+
+	/**
+	 * Verifies that {@link FDADrugDataUtilityApp#readProducts(InputStream)}
+	 * fails if the FDA NDC zip file doesn't contain the products file.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test(expected = IOException.class)
+	public void readProductsFromZipWithoutProducts() throws IOException {
+		ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOut = new ZipOutputStream(zipBytes)) {
+			zipOut.putNextEntry(new ZipEntry("package.txt"));
+			zipOut.closeEntry();
+		}
+
+		FDADrugDataUtilityApp.readProducts(new ByteArrayInputStream(zipBytes.toByteArray()));
+	}
+
+	/**
+	 * Verifies that {@link NdcIndex#NdcIndex(java.nio.ByteBuffer)} rejects
+	 * data that isn't an {@link NdcIndex}.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void readInvalidIndex() throws IOException {
+		NdcIndex.read(new ByteArrayInputStream("PRODUCTID\tPRODUCTNDC".getBytes(Charset.forName("windows-1252"))));
+	}
+
+	/**
+	 * @param productNdc
+	 *            the <code>PRODUCTNDC</code> column value to use
+	 * @param proprietaryName
+	 *            the <code>PROPRIETARYNAME</code> column value to use
+	 * @param substanceName
+	 *            the <code>SUBSTANCENAME</code> column value to use
+	 * @return a line for the FDA NDC products file, with the specified values
+	 *         and blanks for all of the other columns
+	 */
+	private static String productLine(String productNdc, String proprietaryName, String substanceName) {
+		String[] columns = new String[20];
+		Arrays.fill(columns, "");
+		columns[0] = "id_" + productNdc;
+		columns[1] = productNdc;
+		columns[3] = proprietaryName;
+		columns[13] = substanceName;
+		return String.join("\t", columns);
+	}
+
+	/**
+	 * @param productLines
+	 *            the lines (other than the header) for the FDA NDC products file
+	 * @return the FDA NDC products file, with the specified products, encoded
+	 *         as Windows-1252 (just like the real one)
+	 */
+	private static byte[] createProducts(String... productLines) {
+		StringBuilder products = new StringBuilder("PRODUCTID\tPRODUCTNDC\tPRODUCTTYPENAME\tPROPRIETARYNAME\r\n");
+		for (String productLine : productLines)
+			products.append(productLine).append("\r\n");
+		return products.toString().getBytes(Charset.forName("windows-1252"));
+	}
+
+	/**
+	 * @param products
+	 *            the FDA NDC products file to include
+	 * @return an FDA NDC zip file containing the specified products file
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	private static byte[] createNdcZip(byte[] products) throws IOException {
+		ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOut = new ZipOutputStream(zipBytes)) {
+			zipOut.putNextEntry(new ZipEntry("package.txt"));
+			zipOut.write("PRODUCTID\tPRODUCTNDC\r\n".getBytes(Charset.forName("windows-1252")));
+			zipOut.closeEntry();
+
+			zipOut.putNextEntry(new ZipEntry("product.txt"));
+			zipOut.write(products);
+			zipOut.closeEntry();
+		}
+		return zipBytes.toByteArray();
+	}
+}
@@ -0,0 +1,180 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * The {@link AsyncContext} used by {@link MockHttpServletRequest}. Calling
+ * {@link #complete()} notifies its {@link AsyncListener}s, just as a container
+ * would, and tests can wait for that with {@link #awaitCompletion(long)}.
+ * Dispatching isn't supported.
+ */
+public final class MockAsyncContext implements AsyncContext {
+	private final ServletRequest request;
+	private final ServletResponse response;
+	private final List<AsyncListener> listeners = new CopyOnWriteArrayList<>();
+	private final CountDownLatch completed = new CountDownLatch(1);
+	private volatile long timeout = 30000L;
+
+	/**
+	 * Constructs a new {@link MockAsyncContext}.
+	 *
+	 * @param request
+	 *            the value to use for {@link #getRequest()}
+	 * @param response
+	 *            the value to use for {@link #getResponse()}
+	 */
+	MockAsyncContext(ServletRequest request, ServletResponse response) {
+		this.request = request;
+		this.response = response;
+	}
+
+	/**
+	 * @return <code>true</code> if {@link #complete()} has been called,
+	 *         <code>false</code> if not
+	 */
+	public boolean isCompleted() {
+		return completed.getCount() == 0;
+	}
+
+	/**
+	 * @param timeoutMillis
+	 *            the maximum number of milliseconds to wait for
+	 * @return <code>true</code> if {@link #complete()} was called in time,
+	 *         <code>false</code> if not
+	 * @throws InterruptedException
+	 *             Any {@link InterruptedException}s encountered will be bubbled
+	 *             up.
+	 */
+	public boolean awaitCompletion(long timeoutMillis) throws InterruptedException {
+		return completed.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#getRequest()
+	 */
+	@Override
+	public ServletRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#getResponse()
+	 */
+	@Override
+	public ServletResponse getResponse() {
+		return response;
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#hasOriginalRequestAndResponse()
+	 */
+	@Override
+	public boolean hasOriginalRequestAndResponse() {
+		return true;
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#dispatch()
+	 */
+	@Override
+	public void dispatch() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#dispatch(java.lang.String)
+	 */
+	@Override
+	public void dispatch(String path) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#dispatch(javax.servlet.ServletContext,
+	 *      java.lang.String)
+	 */
+	@Override
+	public void dispatch(ServletContext context, String path) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#complete()
+	 */
+	@Override
+	public void complete() {
+		if (isCompleted())
+			throw new IllegalStateException("Already completed.");
+
+		for (AsyncListener listener : listeners) {
+			try {
+				listener.onComplete(new AsyncEvent(this, request, response));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		completed.countDown();
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#start(java.lang.Runnable)
+	 */
+	@Override
+	public void start(Runnable run) {
+		new Thread(run).start();
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#addListener(javax.servlet.AsyncListener)
+	 */
+	@Override
+	public void addListener(AsyncListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#addListener(javax.servlet.AsyncListener,
+	 *      javax.servlet.ServletRequest, javax.servlet.ServletResponse)
+	 */
+	@Override
+	public void addListener(AsyncListener listener, ServletRequest servletRequest,
+			ServletResponse servletResponse) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#createListener(java.lang.Class)
+	 */
+	@Override
+	public <T extends AsyncListener> T createListener(Class<T> clazz) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#setTimeout(long)
+	 */
+	@Override
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * @see javax.servlet.AsyncContext#getTimeout()
+	 */
+	@Override
+	public long getTimeout() {
+		return timeout;
+	}
+}
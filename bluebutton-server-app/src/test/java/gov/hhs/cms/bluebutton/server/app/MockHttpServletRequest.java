@@ -0,0 +1,275 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * A simple in-memory {@link HttpServletRequest}, for unit tests of the
+ * application's filters and servlets. Only the methods that those use are
+ * supported: everything else throws an
+ * {@link UnsupportedOperationException}.
+ */
+public final class MockHttpServletRequest extends HttpServletRequestWrapper {
+	private final String method;
+	private final String requestUri;
+	private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	private final Map<String, Object> attributes = new HashMap<>();
+	private final Map<String, String> parameters = new HashMap<>();
+	private String queryString;
+	private String pathInfo;
+	private String remoteUser;
+	private MockAsyncContext asyncContext;
+
+	/**
+	 * Constructs a new {@link MockHttpServletRequest}.
+	 *
+	 * @param method
+	 *            the value to use for {@link #getMethod()}
+	 * @param requestUri
+	 *            the value to use for {@link #getRequestURI()}
+	 */
+	public MockHttpServletRequest(String method, String requestUri) {
+		super((HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, (proxy, proxyMethod, args) -> {
+					throw new UnsupportedOperationException(proxyMethod.getName());
+				}));
+		this.method = method;
+		this.requestUri = requestUri;
+	}
+
+	/**
+	 * @param queryString
+	 *            the value to use for {@link #getQueryString()}
+	 * @return this {@link MockHttpServletRequest}
+	 */
+	public MockHttpServletRequest setQueryString(String queryString) {
+		this.queryString = queryString;
+		return this;
+	}
+
+	/**
+	 * @param pathInfo
+	 *            the value to use for {@link #getPathInfo()}
+	 * @return this {@link MockHttpServletRequest}
+	 */
+	public MockHttpServletRequest setPathInfo(String pathInfo) {
+		this.pathInfo = pathInfo;
+		return this;
+	}
+
+	/**
+	 * @param remoteUser
+	 *            the value to use for {@link #getRemoteUser()}
+	 * @return this {@link MockHttpServletRequest}
+	 */
+	public MockHttpServletRequest setRemoteUser(String remoteUser) {
+		this.remoteUser = remoteUser;
+		return this;
+	}
+
+	/**
+	 * @param name
+	 *            the name of the header to add a value for
+	 * @param value
+	 *            the header value to add
+	 * @return this {@link MockHttpServletRequest}
+	 */
+	public MockHttpServletRequest addHeader(String name, String value) {
+		headers.computeIfAbsent(name, n -> new ArrayList<>()).add(value);
+		return this;
+	}
+
+	/**
+	 * @param name
+	 *            the name of the parameter to set
+	 * @param value
+	 *            the value to use for {@link #getParameter(String)}
+	 * @return this {@link MockHttpServletRequest}
+	 */
+	public MockHttpServletRequest setParameter(String name, String value) {
+		parameters.put(name, value);
+		return this;
+	}
+
+	/**
+	 * @return the {@link MockAsyncContext} started for this request, or
+	 *         <code>null</code> if async processing hasn't been started
+	 */
+	public MockAsyncContext getMockAsyncContext() {
+		return asyncContext;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getMethod()
+	 */
+	@Override
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getRequestURI()
+	 */
+	@Override
+	public String getRequestURI() {
+		return requestUri;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getRequestURL()
+	 */
+	@Override
+	public StringBuffer getRequestURL() {
+		String host = getHeader("Host") != null ? getHeader("Host") : "localhost";
+		return new StringBuffer("https://").append(host).append(requestUri);
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getQueryString()
+	 */
+	@Override
+	public String getQueryString() {
+		return queryString;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getPathInfo()
+	 */
+	@Override
+	public String getPathInfo() {
+		return pathInfo;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getRemoteUser()
+	 */
+	@Override
+	public String getRemoteUser() {
+		return remoteUser;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getHeader(java.lang.String)
+	 */
+	@Override
+	public String getHeader(String name) {
+		List<String> values = headers.get(name);
+		return values != null ? values.get(0) : null;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getHeaders(java.lang.String)
+	 */
+	@Override
+	public Enumeration<String> getHeaders(String name) {
+		return Collections.enumeration(headers.getOrDefault(name, Collections.emptyList()));
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getHeaderNames()
+	 */
+	@Override
+	public Enumeration<String> getHeaderNames() {
+		return Collections.enumeration(headers.keySet());
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#getAttribute(java.lang.String)
+	 */
+	@Override
+	public Object getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#setAttribute(java.lang.String,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public void setAttribute(String name, Object value) {
+		attributes.put(name, value);
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#removeAttribute(java.lang.String)
+	 */
+	@Override
+	public void removeAttribute(String name) {
+		attributes.remove(name);
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#getParameter(java.lang.String)
+	 */
+	@Override
+	public String getParameter(String name) {
+		return parameters.get(name);
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#getDispatcherType()
+	 */
+	@Override
+	public DispatcherType getDispatcherType() {
+		return DispatcherType.REQUEST;
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#isAsyncSupported()
+	 */
+	@Override
+	public boolean isAsyncSupported() {
+		return true;
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#isAsyncStarted()
+	 */
+	@Override
+	public boolean isAsyncStarted() {
+		return asyncContext != null && !asyncContext.isCompleted();
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#startAsync()
+	 */
+	@Override
+	public AsyncContext startAsync() {
+		throw new UnsupportedOperationException("Use startAsync(request, response), as the filters do.");
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#startAsync(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse)
+	 */
+	@Override
+	public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+		if (isAsyncStarted())
+			throw new IllegalStateException();
+		asyncContext = new MockAsyncContext(servletRequest, servletResponse);
+		return asyncContext;
+	}
+
+	/**
+	 * @see javax.servlet.ServletRequestWrapper#getAsyncContext()
+	 */
+	@Override
+	public AsyncContext getAsyncContext() {
+		if (asyncContext == null)
+			throw new IllegalStateException();
+		return asyncContext;
+	}
+}
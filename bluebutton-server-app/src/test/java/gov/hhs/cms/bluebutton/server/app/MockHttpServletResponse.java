@@ -0,0 +1,303 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * A simple in-memory {@link HttpServletResponse}, for unit tests of the
+ * application's filters and servlets, which captures the status, headers, and
+ * body written to it. Only the methods that those use are supported:
+ * everything else throws an {@link UnsupportedOperationException}.
+ */
+public final class MockHttpServletResponse extends HttpServletResponseWrapper {
+	private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+	private final ServletOutputStream outputStream = new ServletOutputStream() {
+		@Override
+		public void write(int b) {
+			committed = true;
+			body.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			committed = true;
+			body.write(b, off, len);
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			throw new UnsupportedOperationException();
+		}
+	};
+	private PrintWriter writer;
+	private volatile int status = SC_OK;
+	private volatile String errorMessage;
+	private volatile boolean committed = false;
+	private String contentType;
+	private String characterEncoding = StandardCharsets.ISO_8859_1.name();
+
+	/**
+	 * Constructs a new {@link MockHttpServletResponse}.
+	 */
+	public MockHttpServletResponse() {
+		super((HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, (proxy, proxyMethod, args) -> {
+					throw new UnsupportedOperationException(proxyMethod.getName());
+				}));
+	}
+
+	/**
+	 * @return the message passed to {@link #sendError(int, String)}, if any
+	 */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/**
+	 * @return the bytes written to the response body so far
+	 */
+	public byte[] getBody() {
+		if (writer != null)
+			writer.flush();
+		return body.toByteArray();
+	}
+
+	/**
+	 * @return the response body written so far, decoded as UTF-8
+	 */
+	public String getBodyAsString() {
+		return new String(getBody(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#setStatus(int)
+	 */
+	@Override
+	public void setStatus(int sc) {
+		if (!committed)
+			this.status = sc;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#getStatus()
+	 */
+	@Override
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int)
+	 */
+	@Override
+	public void sendError(int sc) {
+		sendError(sc, null);
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int,
+	 *      java.lang.String)
+	 */
+	@Override
+	public void sendError(int sc, String msg) {
+		if (committed)
+			throw new IllegalStateException("Response already committed.");
+		this.status = sc;
+		this.errorMessage = msg;
+		this.committed = true;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#setHeader(java.lang.String,
+	 *      java.lang.String)
+	 */
+	@Override
+	public void setHeader(String name, String value) {
+		if (committed)
+			return;
+		List<String> values = new ArrayList<>();
+		values.add(value);
+		headers.put(name, values);
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#addHeader(java.lang.String,
+	 *      java.lang.String)
+	 */
+	@Override
+	public void addHeader(String name, String value) {
+		if (!committed)
+			headers.computeIfAbsent(name, n -> new ArrayList<>()).add(value);
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#setIntHeader(java.lang.String,
+	 *      int)
+	 */
+	@Override
+	public void setIntHeader(String name, int value) {
+		setHeader(name, Integer.toString(value));
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#addIntHeader(java.lang.String,
+	 *      int)
+	 */
+	@Override
+	public void addIntHeader(String name, int value) {
+		addHeader(name, Integer.toString(value));
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#containsHeader(java.lang.String)
+	 */
+	@Override
+	public boolean containsHeader(String name) {
+		return headers.containsKey(name);
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#getHeader(java.lang.String)
+	 */
+	@Override
+	public String getHeader(String name) {
+		List<String> values = headers.get(name);
+		return values != null ? values.get(0) : null;
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#getHeaders(java.lang.String)
+	 */
+	@Override
+	public Collection<String> getHeaders(String name) {
+		return new ArrayList<>(headers.getOrDefault(name, Collections.emptyList()));
+	}
+
+	/**
+	 * @see javax.servlet.http.HttpServletResponseWrapper#getHeaderNames()
+	 */
+	@Override
+	public Collection<String> getHeaderNames() {
+		return new ArrayList<>(headers.keySet());
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#setContentType(java.lang.String)
+	 */
+	@Override
+	public void setContentType(String type) {
+		if (!committed)
+			this.contentType = type;
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#getContentType()
+	 */
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#setCharacterEncoding(java.lang.String)
+	 */
+	@Override
+	public void setCharacterEncoding(String charset) {
+		if (!committed && writer == null)
+			this.characterEncoding = charset;
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#getCharacterEncoding()
+	 */
+	@Override
+	public String getCharacterEncoding() {
+		return characterEncoding;
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#setContentLength(int)
+	 */
+	@Override
+	public void setContentLength(int len) {
+		setContentLengthLong(len);
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#setContentLengthLong(long)
+	 */
+	@Override
+	public void setContentLengthLong(long len) {
+		setHeader("Content-Length", Long.toString(len));
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+	 */
+	@Override
+	public ServletOutputStream getOutputStream() {
+		if (writer != null)
+			throw new IllegalStateException("getWriter() already called.");
+		return outputStream;
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#getWriter()
+	 */
+	@Override
+	public PrintWriter getWriter() {
+		if (writer == null)
+			writer = new PrintWriter(new OutputStreamWriter(outputStream,
+					"UTF-8".equalsIgnoreCase(characterEncoding) ? StandardCharsets.UTF_8
+							: StandardCharsets.ISO_8859_1));
+		return writer;
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#flushBuffer()
+	 */
+	@Override
+	public void flushBuffer() {
+		if (writer != null)
+			writer.flush();
+		committed = true;
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#isCommitted()
+	 */
+	@Override
+	public boolean isCommitted() {
+		return committed;
+	}
+
+	/**
+	 * @see javax.servlet.ServletResponseWrapper#resetBuffer()
+	 */
+	@Override
+	public void resetBuffer() {
+		if (committed)
+			throw new IllegalStateException("Response already committed.");
+		body.reset();
+	}
+}
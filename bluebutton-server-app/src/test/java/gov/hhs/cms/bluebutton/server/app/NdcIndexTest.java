@@ -0,0 +1,130 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link NdcIndex}.
+ */
+public final class NdcIndexTest {
+	/**
+	 * Verifies that {@link NdcIndex#get(CharSequence)} finds every entry in a
+	 * large index, and nothing else.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void getFindsAllEntries() throws IOException {
+		Random random = new Random(42L);
+		SortedMap<String, String> entries = new TreeMap<>();
+		while (entries.size() < 10000)
+			entries.put(String.format("%09d", random.nextInt(1000000000)), "product " + entries.size());
+		entries.put("000000000", "zero");
+		entries.put("999999999", "nines");
+
+		NdcIndex index = writeAndRead(entries);
+		Assert.assertEquals(entries.size(), index.size());
+		Assert.assertEquals(entries, index.toMap());
+		for (Map.Entry<String, String> entry : entries.entrySet()) {
+			Assert.assertEquals(entry.getValue(), index.get(entry.getKey()));
+			Assert.assertEquals(entry.getValue(), index.get(entry.getKey() + "01"));
+		}
+
+		for (int i = 0; i < 10000; i++) {
+			String key = String.format("%09d", random.nextInt(1000000000));
+			Assert.assertEquals(entries.get(key), index.get(key));
+		}
+	}
+
+	/**
+	 * Verifies that {@link NdcIndex#get(CharSequence)} doesn't match drug codes
+	 * that aren't valid product NDCs.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void getRejectsInvalidDrugCodes() throws IOException {
+		SortedMap<String, String> entries = new TreeMap<>();
+		entries.put("000023227", "Strattera - ATOMOXETINE");
+		NdcIndex index = writeAndRead(entries);
+
+		Assert.assertEquals("Strattera - ATOMOXETINE", index.get("00002322701"));
+		Assert.assertNull(index.get(""));
+		Assert.assertNull(index.get("00002322"));
+		Assert.assertNull(index.get("0000-3227"));
+		Assert.assertNull(index.get("00002322A"));
+		Assert.assertNull(index.get("000023228"));
+	}
+
+	/**
+	 * Verifies that {@link NdcIndex#packKey(CharSequence)} packs product NDCs
+	 * as expected.
+	 */
+	@Test
+	public void packKey() {
+		Assert.assertEquals(0L, NdcIndex.packKey("000000000"));
+		Assert.assertEquals(23227L, NdcIndex.packKey("00002322701"));
+		Assert.assertEquals(999999999L, NdcIndex.packKey("999999999"));
+		Assert.assertEquals(-1L, NdcIndex.packKey("12345"));
+		Assert.assertEquals(-1L, NdcIndex.packKey("12345-678"));
+	}
+
+	/**
+	 * Verifies that {@link NdcIndex#NdcIndex(java.nio.ByteBuffer)} rejects
+	 * indexes whose keys aren't sorted, which it couldn't search.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnsortedIndex() throws IOException {
+		SortedMap<String, String> entries = new TreeMap<>();
+		entries.put("000000001", "first");
+		entries.put("000000002", "second");
+		ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+		NdcIndex.write(entries, indexBytes);
+
+		// Swap the last digits of the two keys, which follow the 8 byte header.
+		byte[] index = indexBytes.toByteArray();
+		index[8 + NdcIndex.KEY_LENGTH - 1] = '2';
+		index[8 + 2 * NdcIndex.KEY_LENGTH - 1] = '1';
+		NdcIndex.read(new ByteArrayInputStream(index));
+	}
+
+	/**
+	 * Verifies that an empty {@link NdcIndex} works as expected.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void emptyIndex() throws IOException {
+		NdcIndex index = writeAndRead(new TreeMap<>());
+		Assert.assertEquals(0, index.size());
+		Assert.assertNull(index.get("00002322701"));
+	}
+
+	/**
+	 * @param entries
+	 *            the entries to write out
+	 * @return the {@link NdcIndex} read back in after writing out the specified
+	 *         entries
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	private static NdcIndex writeAndRead(SortedMap<String, String> entries) throws IOException {
+		ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+		NdcIndex.write(entries, indexBytes);
+		return NdcIndex.read(new ByteArrayInputStream(indexBytes.toByteArray()));
+	}
+}
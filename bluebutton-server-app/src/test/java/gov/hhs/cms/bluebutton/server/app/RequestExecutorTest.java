@@ -0,0 +1,167 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.server.app.tracing.InMemorySpanExporter;
+import gov.hhs.cms.bluebutton.server.app.tracing.Span;
+import gov.hhs.cms.bluebutton.server.app.tracing.Tracer;
+
+/**
+ * Unit tests for {@link RequestExecutor}.
+ */
+public final class RequestExecutorTest {
+	private static final String EXECUTOR_NAME = "test";
+
+	/**
+	 * Resets the global {@link Tracer} and {@link MDC} state after each test
+	 * case. (The test cases close their own {@link Span}s.)
+	 */
+	@After
+	public void resetThreadState() {
+		MDC.clear();
+		Tracer.configure(0.0, new InMemorySpanExporter());
+	}
+
+	/**
+	 * Verifies that {@link RequestExecutor} runs requests on its own threads,
+	 * with the request's {@link MDC} entries and {@link Span}, and completes
+	 * them once they're done.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void runsRequestsAsynchronously() throws Exception {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		Tracer.configure(1.0, new InMemorySpanExporter());
+		MDC.put("test_key", "test_value");
+		Span span = Tracer.startRootSpan("test", Optional.empty());
+
+		AtomicReference<Thread> handlerThread = new AtomicReference<>();
+		AtomicReference<String> handlerMdcValue = new AtomicReference<>();
+		AtomicReference<Span> handlerSpan = new AtomicReference<>();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/fhir/Patient/1");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		try (RequestExecutor executor = new RequestExecutor(metricRegistry, EXECUTOR_NAME, 1, 1)) {
+			executor.execute(request, response, (handlerRequest, handlerResponse) -> {
+				handlerThread.set(Thread.currentThread());
+				handlerMdcValue.set(MDC.get("test_key"));
+				handlerSpan.set(Tracer.currentSpan());
+				MDC.put("handler_key", "handler_value");
+				handlerResponse.setStatus(HttpServletResponse.SC_OK);
+			});
+
+			Assert.assertTrue(request.getMockAsyncContext().awaitCompletion(TimeUnit.SECONDS.toMillis(10)));
+		} finally {
+			span.close();
+		}
+
+		Assert.assertNotSame(Thread.currentThread(), handlerThread.get());
+		Assert.assertEquals("test_value", handlerMdcValue.get());
+		Assert.assertSame(span, handlerSpan.get());
+		Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+
+		// The entries added while running are handed back for the logging filter.
+		@SuppressWarnings("unchecked")
+		Map<String, String> asyncMdc = (Map<String, String>) request
+				.getAttribute(RequestResponseLoggingFilter.REQUEST_ATTRIB_MDC);
+		Assert.assertEquals("handler_value", asyncMdc.get("handler_key"));
+
+		Assert.assertEquals(1L, metricRegistry.timer(metricName("queue")).getCount());
+		Assert.assertEquals(1L, metricRegistry.timer(metricName("run")).getCount());
+		Assert.assertEquals(0L, metricRegistry.meter(metricName("rejected")).getCount());
+	}
+
+	/**
+	 * Verifies that {@link RequestExecutor} turns requests away with a
+	 * <code>503 Service Unavailable</code> once its queue is full, and only
+	 * counts them in its <code>rejected</code> meter.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void rejectsRequestsWhenFull() throws Exception {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		CountDownLatch handlerStarted = new CountDownLatch(1);
+		CountDownLatch releaseHandlers = new CountDownLatch(1);
+		RequestExecutor.RequestHandler blockingHandler = (handlerRequest, handlerResponse) -> {
+			handlerStarted.countDown();
+			try {
+				releaseHandlers.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+
+		try (RequestExecutor executor = new RequestExecutor(metricRegistry, EXECUTOR_NAME, 1, 1)) {
+			// The first request takes the only thread, and the second the only queue slot.
+			MockHttpServletRequest runningRequest = new MockHttpServletRequest("GET", "/v1/fhir/Patient/1");
+			executor.execute(runningRequest, new MockHttpServletResponse(), blockingHandler);
+			Assert.assertTrue(handlerStarted.await(10, TimeUnit.SECONDS));
+			MockHttpServletRequest queuedRequest = new MockHttpServletRequest("GET", "/v1/fhir/Patient/2");
+			executor.execute(queuedRequest, new MockHttpServletResponse(), blockingHandler);
+
+			MockHttpServletRequest rejectedRequest = new MockHttpServletRequest("GET", "/v1/fhir/Patient/3");
+			MockHttpServletResponse rejectedResponse = new MockHttpServletResponse();
+			executor.execute(rejectedRequest, rejectedResponse, (handlerRequest, handlerResponse) -> {
+				throw new AssertionError("Rejected requests must not be run.");
+			});
+			Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rejectedResponse.getStatus());
+			Assert.assertEquals("1", rejectedResponse.getHeader("Retry-After"));
+			Assert.assertTrue(rejectedRequest.getMockAsyncContext().isCompleted());
+
+			releaseHandlers.countDown();
+			Assert.assertTrue(runningRequest.getMockAsyncContext().awaitCompletion(TimeUnit.SECONDS.toMillis(10)));
+			Assert.assertTrue(queuedRequest.getMockAsyncContext().awaitCompletion(TimeUnit.SECONDS.toMillis(10)));
+		}
+
+		Assert.assertEquals(1L, metricRegistry.meter(metricName("rejected")).getCount());
+		Assert.assertEquals(2L, metricRegistry.timer(metricName("queue")).getCount());
+		Assert.assertEquals(2L, metricRegistry.timer(metricName("run")).getCount());
+	}
+
+	/**
+	 * Verifies that {@link RequestExecutor} still completes requests whose
+	 * handler fails, with a <code>500 Internal Server Error</code>.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void completesFailedRequests() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/fhir/Patient/1");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		try (RequestExecutor executor = new RequestExecutor(new MetricRegistry(), EXECUTOR_NAME, 1, 1)) {
+			executor.execute(request, response, (handlerRequest, handlerResponse) -> {
+				throw new IllegalStateException("Expected failure.");
+			});
+
+			Assert.assertTrue(request.getMockAsyncContext().awaitCompletion(TimeUnit.SECONDS.toMillis(10)));
+		}
+
+		Assert.assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, response.getStatus());
+	}
+
+	/**
+	 * @param metric
+	 *            the last part of the metric's name
+	 * @return the full name of the specified {@link RequestExecutor} metric
+	 */
+	private static String metricName(String metric) {
+		return MetricRegistry.name(RequestExecutor.class.getSimpleName(), EXECUTOR_NAME, metric);
+	}
+}
@@ -0,0 +1,315 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Unit tests for {@link ResponseCacheFilter}.
+ */
+public final class ResponseCacheFilterTest {
+	/**
+	 * Verifies that
+	 * {@link ResponseCacheFilter#computeEtag(String, String, byte[])} produces
+	 * stable, strong <code>ETag</code>s that change along with the response's
+	 * representation.
+	 */
+	@Test
+	public void etagsFollowContent() {
+		byte[] body = "{\"resourceType\":\"Bundle\"}".getBytes(StandardCharsets.UTF_8);
+		String etagA = ResponseCacheFilter.computeEtag("application/fhir+json", "gzip", body);
+		Assert.assertTrue(etagA.startsWith("\"") && etagA.endsWith("\""));
+		Assert.assertEquals(etagA, ResponseCacheFilter.computeEtag("application/fhir+json", "gzip", body.clone()));
+
+		byte[] changedBody = "{\"resourceType\":\"Bundle\",\"total\":1}".getBytes(StandardCharsets.UTF_8);
+		Assert.assertNotEquals(etagA, ResponseCacheFilter.computeEtag("application/fhir+json", "gzip", changedBody));
+		Assert.assertNotEquals(etagA, ResponseCacheFilter.computeEtag("application/fhir+json", null, body));
+		Assert.assertNotEquals(etagA, ResponseCacheFilter.computeEtag("application/fhir+xml", "gzip", body));
+	}
+
+	/**
+	 * Verifies that
+	 * {@link ResponseCacheFilter#computeEtag(String, String, byte[])} gives two
+	 * independently built copies of the same <code>Bundle</code> the same
+	 * <code>ETag</code>, even though HAPI gives each one its own
+	 * <code>id</code> and <code>meta.lastUpdated</code>.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void etagsIgnoreBundleIdAndLastUpdated() throws IOException {
+		String jsonA = createJsonBundle("5c8a7d1e", "2019-01-07T10:15:30.123-05:00", "carrier-1", "1");
+		String jsonB = createJsonBundle("e0f3b9a2", "2019-01-07T10:16:02.456-05:00", "carrier-1", "1");
+		assertSameEtag("application/fhir+json", jsonA, jsonB);
+
+		String xmlA = createXmlBundle("5c8a7d1e", "2019-01-07T10:15:30.123-05:00", "carrier-1", "1");
+		String xmlB = createXmlBundle("e0f3b9a2", "2019-01-07T10:16:02.456-05:00", "carrier-1", "1");
+		assertSameEtag("application/fhir+xml", xmlA, xmlB);
+
+		// Anything else that changes, including the entries' ids, still counts.
+		String jsonOtherEntry = createJsonBundle("5c8a7d1e", "2019-01-07T10:15:30.123-05:00", "carrier-2", "1");
+		String jsonOtherContent = createJsonBundle("5c8a7d1e", "2019-01-07T10:15:30.123-05:00", "carrier-1", "2");
+		String xmlOtherEntry = createXmlBundle("5c8a7d1e", "2019-01-07T10:15:30.123-05:00", "carrier-2", "1");
+		for (String encoding : new String[] { null, "gzip", "deflate" }) {
+			String etag = ResponseCacheFilter.computeEtag("application/fhir+json", encoding, encode(encoding, jsonA));
+			Assert.assertNotEquals(etag, ResponseCacheFilter.computeEtag("application/fhir+json", encoding,
+					encode(encoding, jsonOtherEntry)));
+			Assert.assertNotEquals(etag, ResponseCacheFilter.computeEtag("application/fhir+json", encoding,
+					encode(encoding, jsonOtherContent)));
+			Assert.assertNotEquals(
+					ResponseCacheFilter.computeEtag("application/fhir+xml", encoding, encode(encoding, xmlA)),
+					ResponseCacheFilter.computeEtag("application/fhir+xml", encoding, encode(encoding, xmlOtherEntry)));
+		}
+
+		// A single resource's id is part of its content, though.
+		String eobA = "{\"resourceType\":\"ExplanationOfBenefit\",\"id\":\"carrier-1\"}";
+		String eobB = "{\"resourceType\":\"ExplanationOfBenefit\",\"id\":\"carrier-2\"}";
+		Assert.assertNotEquals(ResponseCacheFilter.computeEtag("application/fhir+json", null, encode(null, eobA)),
+				ResponseCacheFilter.computeEtag("application/fhir+json", null, encode(null, eobB)));
+	}
+
+	/**
+	 * Verifies that
+	 * {@link ResponseCacheFilter#computeCacheKey(javax.servlet.http.HttpServletRequest)}
+	 * distinguishes between requests whose <code>Bundle</code> links would
+	 * have different base URLs.
+	 */
+	@Test
+	public void cacheKeysIncludeServerBase() {
+		String uri = "/v1/fhir/ExplanationOfBenefit";
+		String query = "patient=Patient%2F1";
+		String key = ResponseCacheFilter
+				.computeCacheKey(new MockHttpServletRequest("GET", uri).setQueryString(query).addHeader("Host", "a"));
+		Assert.assertEquals(key, ResponseCacheFilter
+				.computeCacheKey(new MockHttpServletRequest("GET", uri).setQueryString(query).addHeader("Host", "a")));
+
+		Assert.assertNotEquals(key, ResponseCacheFilter
+				.computeCacheKey(new MockHttpServletRequest("GET", uri).setQueryString(query).addHeader("Host", "b")));
+		Assert.assertNotEquals(key, ResponseCacheFilter.computeCacheKey(new MockHttpServletRequest("GET", uri)
+				.setQueryString(query).addHeader("Host", "a").addHeader("X-Forwarded-Host", "proxy.example.com")));
+		Assert.assertNotEquals(key, ResponseCacheFilter.computeCacheKey(new MockHttpServletRequest("GET", uri)
+				.setQueryString(query).addHeader("Host", "a").addHeader("X-Forwarded-Proto", "http")));
+		Assert.assertNotEquals(key, ResponseCacheFilter.computeCacheKey(
+				new MockHttpServletRequest("GET", uri).setQueryString(query + "&_count=5").addHeader("Host", "a")));
+	}
+
+	/**
+	 * Verifies that
+	 * {@link ResponseCacheFilter#matchesIfNoneMatch(String, String)} handles the
+	 * various <code>If-None-Match</code> forms correctly.
+	 */
+	@Test
+	public void matchesIfNoneMatch() {
+		Assert.assertFalse(ResponseCacheFilter.matchesIfNoneMatch(null, "\"a\""));
+		Assert.assertTrue(ResponseCacheFilter.matchesIfNoneMatch("\"a\"", "\"a\""));
+		Assert.assertFalse(ResponseCacheFilter.matchesIfNoneMatch("\"b\"", "\"a\""));
+		Assert.assertTrue(ResponseCacheFilter.matchesIfNoneMatch("\"b\", W/\"a\"", "\"a\""));
+		Assert.assertTrue(ResponseCacheFilter.matchesIfNoneMatch("*", "\"a\""));
+
+		// Nothing matches a resource that doesn't exist (e.g. a 404).
+		Assert.assertFalse(ResponseCacheFilter.matchesIfNoneMatch("*", null));
+		Assert.assertFalse(ResponseCacheFilter.matchesIfNoneMatch("\"a\"", null));
+	}
+
+	/**
+	 * Verifies that {@link ResponseCacheFilter} replays cached responses (or
+	 * answers them with a <code>304 Not Modified</code>) without running the
+	 * rest of the chain, until the data generation changes.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 * @throws ServletException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void replaysCachedResponses() throws IOException, ServletException {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		AtomicLong generation = new AtomicLong();
+		ResponseCacheFilter filter = new ResponseCacheFilter(metricRegistry, generation::get, 1024 * 1024, 60);
+
+		// Builds a new Bundle every time, just like the EOB searches.
+		AtomicInteger chainCalls = new AtomicInteger();
+		FilterChain chain = (request, response) -> {
+			chainCalls.incrementAndGet();
+			response.setContentType("application/fhir+json");
+			response.getOutputStream().write(createJsonBundle(UUID.randomUUID().toString(),
+					"2019-01-07T10:15:30.123-05:00", "carrier-1", "1").getBytes(StandardCharsets.UTF_8));
+		};
+
+		MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+		filter.doFilter(createEobSearchRequest(), firstResponse, chain);
+		Assert.assertEquals(1, chainCalls.get());
+		Assert.assertEquals(HttpServletResponse.SC_OK, firstResponse.getStatus());
+		String etag = firstResponse.getHeader("ETag");
+		Assert.assertNotNull(etag);
+		Assert.assertEquals("Accept, Accept-Encoding", firstResponse.getHeader("Vary"));
+		Assert.assertEquals(Integer.toString(firstResponse.getBody().length),
+				firstResponse.getHeader("Content-Length"));
+
+		MockHttpServletResponse replayedResponse = new MockHttpServletResponse();
+		filter.doFilter(createEobSearchRequest(), replayedResponse, chain);
+		Assert.assertEquals(1, chainCalls.get());
+		Assert.assertEquals(HttpServletResponse.SC_OK, replayedResponse.getStatus());
+		Assert.assertEquals(etag, replayedResponse.getHeader("ETag"));
+		Assert.assertEquals("application/fhir+json", replayedResponse.getContentType());
+		Assert.assertArrayEquals(firstResponse.getBody(), replayedResponse.getBody());
+
+		MockHttpServletResponse notModifiedResponse = new MockHttpServletResponse();
+		filter.doFilter(createEobSearchRequest().addHeader("If-None-Match", etag), notModifiedResponse, chain);
+		Assert.assertEquals(1, chainCalls.get());
+		Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, notModifiedResponse.getStatus());
+		Assert.assertEquals(etag, notModifiedResponse.getHeader("ETag"));
+		Assert.assertEquals(0, notModifiedResponse.getBody().length);
+
+		/*
+		 * Once the generation changes, the response is rebuilt, with a new Bundle
+		 * id. As nothing else changed, though, it's still not modified.
+		 */
+		generation.incrementAndGet();
+		MockHttpServletResponse rebuiltResponse = new MockHttpServletResponse();
+		filter.doFilter(createEobSearchRequest().addHeader("If-None-Match", etag), rebuiltResponse, chain);
+		Assert.assertEquals(2, chainCalls.get());
+		Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, rebuiltResponse.getStatus());
+		Assert.assertEquals(0, rebuiltResponse.getBody().length);
+
+		Assert.assertEquals(2L, metricRegistry.meter("ResponseCacheFilter.hits").getCount());
+		Assert.assertEquals(2L, metricRegistry.meter("ResponseCacheFilter.misses").getCount());
+		Assert.assertEquals(2L, metricRegistry.meter("ResponseCacheFilter.not_modified").getCount());
+	}
+
+	/**
+	 * Verifies that {@link ResponseCacheFilter} neither caches nor tags
+	 * unsuccessful responses.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 * @throws ServletException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void doesNotCacheErrors() throws IOException, ServletException {
+		ResponseCacheFilter filter = new ResponseCacheFilter(new MetricRegistry(), () -> 0L, 1024 * 1024, 60);
+		AtomicInteger chainCalls = new AtomicInteger();
+		FilterChain chain = (request, response) -> {
+			chainCalls.incrementAndGet();
+			((HttpServletResponse) response).sendError(HttpServletResponse.SC_NOT_FOUND);
+		};
+
+		for (int i = 1; i <= 2; i++) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			filter.doFilter(createEobSearchRequest().addHeader("If-None-Match", "*"), response, chain);
+			Assert.assertEquals(i, chainCalls.get());
+			Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, response.getStatus());
+			Assert.assertNull(response.getHeader("ETag"));
+		}
+		Assert.assertEquals(0L, filter.getCachedBytes());
+	}
+
+	/**
+	 * @return a new {@link MockHttpServletRequest} for an EOB search
+	 */
+	private static MockHttpServletRequest createEobSearchRequest() {
+		return new MockHttpServletRequest("GET", "/v1/fhir/ExplanationOfBenefit")
+				.setQueryString("patient=Patient%2F1").addHeader("Accept", "application/fhir+json");
+	}
+
+	/**
+	 * Asserts that the specified responses get the same <code>ETag</code>s as
+	 * each other, with each of the supported encodings.
+	 *
+	 * @param contentType
+	 *            the responses' <code>Content-Type</code>
+	 * @param bodyA
+	 *            the first response's (unencoded) body
+	 * @param bodyB
+	 *            the second response's (unencoded) body
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	private static void assertSameEtag(String contentType, String bodyA, String bodyB) throws IOException {
+		Assert.assertNotEquals(bodyA, bodyB);
+		for (String encoding : new String[] { null, "gzip", "deflate" }) {
+			byte[] encodedA = encode(encoding, bodyA);
+			byte[] encodedB = encode(encoding, bodyB);
+			Assert.assertEquals(ResponseCacheFilter.computeEtag(contentType, encoding, encodedA),
+					ResponseCacheFilter.computeEtag(contentType, encoding, encodedB));
+		}
+	}
+
+	/**
+	 * @param encoding
+	 *            the <code>Content-Encoding</code> to use, or <code>null</code>
+	 *            for none
+	 * @param body
+	 *            the response body to encode
+	 * @return the specified response body, encoded as the
+	 *         {@link CompressionFilter} would
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	private static byte[] encode(String encoding, String body) throws IOException {
+		ByteArrayOutputStream encodedBytes = new ByteArrayOutputStream();
+		try (OutputStream encodingStream = "gzip".equals(encoding) ? new GZIPOutputStream(encodedBytes)
+				: "deflate".equals(encoding) ? new DeflaterOutputStream(encodedBytes) : encodedBytes) {
+			encodingStream.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return encodedBytes.toByteArray();
+	}
+
+	/**
+	 * @param bundleId
+	 *            the <code>Bundle</code>'s <code>id</code>
+	 * @param lastUpdated
+	 *            the <code>Bundle</code>'s <code>meta.lastUpdated</code>
+	 * @param eobId
+	 *            the <code>id</code> of the <code>Bundle</code>'s one entry
+	 * @param claimId
+	 *            the claim identifier value of the <code>Bundle</code>'s one
+	 *            entry
+	 * @return a JSON search result <code>Bundle</code>, laid out as HAPI
+	 *         encodes them
+	 */
+	private static String createJsonBundle(String bundleId, String lastUpdated, String eobId, String claimId) {
+		return "{\"resourceType\":\"Bundle\",\"id\":\"" + bundleId + "\",\"meta\":{\"lastUpdated\":\""
+				+ lastUpdated + "\"},\"type\":\"searchset\",\"total\":1,\"link\":[{\"relation\":\"self\","
+				+ "\"url\":\"https://localhost/v1/fhir/ExplanationOfBenefit?patient=1\"}],\"entry\":[{\"resource\":{"
+				+ "\"resourceType\":\"ExplanationOfBenefit\",\"id\":\"" + eobId + "\",\"identifier\":[{\"value\":\""
+				+ claimId + "\"}]}}]}";
+	}
+
+	/**
+	 * @param bundleId
+	 *            the <code>Bundle</code>'s <code>id</code>
+	 * @param lastUpdated
+	 *            the <code>Bundle</code>'s <code>meta.lastUpdated</code>
+	 * @param eobId
+	 *            the <code>id</code> of the <code>Bundle</code>'s one entry
+	 * @param claimId
+	 *            the claim identifier value of the <code>Bundle</code>'s one
+	 *            entry
+	 * @return an XML search result <code>Bundle</code>, laid out as HAPI
+	 *         encodes them
+	 */
+	private static String createXmlBundle(String bundleId, String lastUpdated, String eobId, String claimId) {
+		return "<Bundle xmlns=\"http://hl7.org/fhir\"><id value=\"" + bundleId + "\"/><meta><lastUpdated value=\""
+				+ lastUpdated + "\"/></meta><type value=\"searchset\"/><total value=\"1\"/><entry><resource>"
+				+ "<ExplanationOfBenefit xmlns=\"http://hl7.org/fhir\"><id value=\"" + eobId + "\"/><identifier>"
+				+ "<value value=\"" + claimId + "\"/></identifier></ExplanationOfBenefit></resource></entry></Bundle>";
+	}
+}
@@ -27,12 +27,16 @@ import java.util.stream.Collectors;
 import javax.management.MBeanServer;
 import javax.net.ssl.SSLContext;
 
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.ssl.SSLContextBuilder;
@@ -173,7 +177,7 @@ public final class ServerTestUtils {
 	 * @return the local {@link Path} that development/test key and trust stores
 	 *         can be found in
 	 */
-	static Path getSslStoresDirectory() {
+	public static Path getSslStoresDirectory() {
 		/*
 		 * The working directory for tests will either be the module directory
 		 * or their parent directory. With that knowledge, we're searching for
@@ -255,10 +259,31 @@ public final class ServerTestUtils {
 	}
 
 	/**
-	 * Calls {@link RifLoaderTestUtils#cleanDatabaseServer(LoadAppOptions)}.
+	 * Calls {@link RifLoaderTestUtils#cleanDatabaseServer(LoadAppOptions)}, and
+	 * then {@link #invalidateServerCaches()}, as the server would otherwise keep
+	 * serving the deleted records from its caches.
 	 */
 	public static void cleanDatabaseServer() {
 		RifLoaderTestUtils.cleanDatabaseServerViaDeletes(createRifLoaderOptions());
+		invalidateServerCaches();
+	}
+
+	/**
+	 * Tells the server to drop everything in its caches, via the
+	 * <code>EobCacheServlet</code>. This relies on the server having been
+	 * launched with {@link ClientSslIdentity#TRUSTED}'s DN as an admin (see
+	 * <code>server-start.sh</code>).
+	 */
+	public static void invalidateServerCaches() {
+		SSLContext sslContext = createSslContext(Optional.of(ClientSslIdentity.TRUSTED));
+		try (CloseableHttpClient httpClient = HttpClients.custom().setSSLContext(sslContext).build();
+				CloseableHttpResponse response = httpClient
+						.execute(new HttpDelete(getServerBaseUrl() + "/admin/cache/eob"))) {
+			if (response.getStatusLine().getStatusCode() != HttpStatus.SC_NO_CONTENT)
+				throw new IllegalStateException("Unable to invalidate server caches: " + response.getStatusLine());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	/**
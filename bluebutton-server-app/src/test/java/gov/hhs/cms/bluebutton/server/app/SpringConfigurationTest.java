@@ -0,0 +1,55 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import javax.persistence.Entity;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+
+/**
+ * Unit tests for {@link SpringConfiguration}.
+ */
+public final class SpringConfigurationTest {
+	/**
+	 * Verifies that {@link SpringConfiguration}'s numeric property parsers
+	 * fall back to the default for unset and invalid values.
+	 */
+	@Test
+	public void parseProperties() {
+		Assert.assertEquals(42, SpringConfiguration.parseIntProperty("test.int", " 42 ", 7));
+		Assert.assertEquals(7, SpringConfiguration.parseIntProperty("test.int", "", 7));
+		Assert.assertEquals(7, SpringConfiguration.parseIntProperty("test.int", null, 7));
+		Assert.assertEquals(7, SpringConfiguration.parseIntProperty("test.int", "forty-two", 7));
+
+		Assert.assertEquals(3000000000L, SpringConfiguration.parseLongProperty("test.long", "3000000000", 7L));
+		Assert.assertEquals(7L, SpringConfiguration.parseLongProperty("test.long", "1.5", 7L));
+
+		Assert.assertEquals(0.25, SpringConfiguration.parseDoubleProperty("test.double", "0.25", 1.0), 0.0);
+		Assert.assertEquals(1.0, SpringConfiguration.parseDoubleProperty("test.double", "a quarter", 1.0), 0.0);
+	}
+
+	/**
+	 * Verifies that {@link SpringConfiguration#ENTITY_CLASSES} lists exactly the
+	 * JPA entities in the data model package, which the persistence units used
+	 * to be scanned for, so that a new entity can't be silently left out.
+	 */
+	@Test
+	public void entityClassesMatchScan() {
+		ClassPathScanningCandidateComponentProvider entityScanner = new ClassPathScanningCandidateComponentProvider(
+				false);
+		entityScanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+		Set<String> scannedEntities = entityScanner.findCandidateComponents("gov.hhs.cms.bluebutton.data.model.rif")
+				.stream().map(BeanDefinition::getBeanClassName).collect(Collectors.toCollection(TreeSet::new));
+		Set<String> listedEntities = SpringConfiguration.ENTITY_CLASSES.stream().map(Class::getName)
+				.collect(Collectors.toCollection(TreeSet::new));
+
+		Assert.assertFalse(scannedEntities.isEmpty());
+		Assert.assertEquals(scannedEntities, listedEntities);
+	}
+}
@@ -0,0 +1,41 @@
+package gov.hhs.cms.bluebutton.server.app.health;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Unit tests for {@link ConnectionPoolHealthCheck}.
+ */
+public final class ConnectionPoolHealthCheckTest {
+	/**
+	 * Verifies that {@link ConnectionPoolHealthCheck#recordWaiting(int, long)}
+	 * only reports threads as waiting for as long as every check has seen them
+	 * waiting.
+	 */
+	@Test
+	public void recordWaiting() {
+		ConnectionPoolHealthCheck healthCheck = new ConnectionPoolHealthCheck(new HikariDataSource(), 30000L);
+
+		Assert.assertEquals(-1L, healthCheck.recordWaiting(0, 1000L));
+		Assert.assertEquals(0L, healthCheck.recordWaiting(3, 2000L));
+		Assert.assertEquals(10000L, healthCheck.recordWaiting(1, 12000L));
+
+		// Once nobody's waiting, the window starts over.
+		Assert.assertEquals(-1L, healthCheck.recordWaiting(0, 13000L));
+		Assert.assertEquals(0L, healthCheck.recordWaiting(2, 14000L));
+		Assert.assertEquals(30000L, healthCheck.recordWaiting(2, 44000L));
+	}
+
+	/**
+	 * Verifies that {@link ConnectionPoolHealthCheck} reports pools that
+	 * haven't been started yet as healthy.
+	 */
+	@Test
+	public void poolNotStarted() {
+		try (HikariDataSource poolingDataSource = new HikariDataSource()) {
+			Assert.assertTrue(new ConnectionPoolHealthCheck(poolingDataSource, 30000L).execute().isHealthy());
+		}
+	}
+}
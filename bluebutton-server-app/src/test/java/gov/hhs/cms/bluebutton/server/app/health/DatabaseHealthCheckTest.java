@@ -0,0 +1,41 @@
+package gov.hhs.cms.bluebutton.server.app.health;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.health.HealthCheck.Result;
+
+/**
+ * Unit tests for {@link DatabaseHealthCheck}.
+ */
+public final class DatabaseHealthCheckTest {
+	/**
+	 * Verifies that {@link DatabaseHealthCheck} reports a reachable database as
+	 * healthy, and a slow one as unhealthy.
+	 */
+	@Test
+	public void check() {
+		JDBCDataSource dataSource = new JDBCDataSource();
+		dataSource.setUrl("jdbc:hsqldb:mem:DatabaseHealthCheckTest");
+
+		Result result = new DatabaseHealthCheck(dataSource, 10000L).execute();
+		Assert.assertTrue(result.getMessage(), result.isHealthy());
+		Assert.assertTrue(result.getDetails().containsKey("latency_millis"));
+
+		// No database is fast enough for this.
+		Assert.assertFalse(new DatabaseHealthCheck(dataSource, -1L).execute().isHealthy());
+	}
+
+	/**
+	 * Verifies that {@link DatabaseHealthCheck} reports an unreachable database
+	 * as unhealthy.
+	 */
+	@Test
+	public void unreachable() {
+		JDBCDataSource dataSource = new JDBCDataSource();
+		dataSource.setUrl("jdbc:hsqldb:hsql://localhost:1/nonexistent");
+
+		Assert.assertFalse(new DatabaseHealthCheck(dataSource, 10000L).execute().isHealthy());
+	}
+}
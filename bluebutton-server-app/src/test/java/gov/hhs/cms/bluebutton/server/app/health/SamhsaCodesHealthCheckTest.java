@@ -0,0 +1,24 @@
+package gov.hhs.cms.bluebutton.server.app.health;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.health.HealthCheck.Result;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.SamhsaMatcher;
+
+/**
+ * Unit tests for {@link SamhsaCodesHealthCheck}.
+ */
+public final class SamhsaCodesHealthCheckTest {
+	/**
+	 * Verifies that {@link SamhsaCodesHealthCheck} reports the real SAMHSA code
+	 * sets as healthy.
+	 */
+	@Test
+	public void check() {
+		Result result = new SamhsaCodesHealthCheck(new SamhsaMatcher()).execute();
+		Assert.assertTrue(result.getMessage(), result.isHealthy());
+		Assert.assertEquals(6, result.getDetails().size());
+	}
+}
@@ -0,0 +1,155 @@
+package gov.hhs.cms.bluebutton.server.app.loadtest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
+
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import gov.hhs.cms.bluebutton.server.app.ClientSslIdentity;
+import gov.hhs.cms.bluebutton.server.app.ServerTestUtils;
+
+/**
+ * Drives concurrent traffic at the server for a {@link SyntheticPopulation},
+ * per the {@link LoadTestOptions}. Each client thread has its own FHIR client,
+ * connecting over HTTPS with the {@link ClientSslIdentity#TRUSTED} client
+ * certificate, and sends requests back-to-back (i.e. a closed workload) for
+ * random beneficiaries.
+ */
+final class LoadTestDriver {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestDriver.class);
+
+	/**
+	 * The size of the {@link UniformReservoir} used for each request type's
+	 * latencies. Large enough that the reported percentiles are exact for most
+	 * runs, and only sampled for very long ones.
+	 */
+	private static final int LATENCY_RESERVOIR_SIZE = 1_000_000;
+
+	private final LoadTestOptions options;
+	private final SyntheticPopulation population;
+	private final Map<LoadTestRequestType, Timer> latencies;
+	private final Map<LoadTestRequestType, Counter> failures;
+
+	/**
+	 * Constructs a new {@link LoadTestDriver}.
+	 *
+	 * @param options
+	 *            the {@link LoadTestOptions} to use
+	 * @param population
+	 *            the {@link SyntheticPopulation} to send requests for
+	 */
+	LoadTestDriver(LoadTestOptions options, SyntheticPopulation population) {
+		this.options = options;
+		this.population = population;
+		this.latencies = new EnumMap<>(LoadTestRequestType.class);
+		this.failures = new EnumMap<>(LoadTestRequestType.class);
+		for (LoadTestRequestType requestType : options.getRequestMix().keySet()) {
+			latencies.put(requestType, new Timer(new UniformReservoir(LATENCY_RESERVOIR_SIZE)));
+			failures.put(requestType, new Counter());
+		}
+	}
+
+	/**
+	 * Runs the load test: a warmup period, whose results are discarded,
+	 * followed by the measured period.
+	 *
+	 * @return a {@link LoadTestReport} with the results of the measured period
+	 * @throws InterruptedException
+	 *             (indicates that the run was interrupted)
+	 */
+	LoadTestReport run() throws InterruptedException {
+		LOGGER.info("Starting load test, with options: {}", options);
+		Instant startedAt = Instant.now();
+		long measurementStartNanos = System.nanoTime() + options.getWarmup().toNanos();
+		long measurementEndNanos = measurementStartNanos + options.getDuration().toNanos();
+
+		ExecutorService clientThreads = Executors.newFixedThreadPool(options.getThreadCount());
+		List<Future<?>> clients = new ArrayList<>();
+		for (int i = 0; i < options.getThreadCount(); i++)
+			clients.add(clientThreads.submit(() -> runClient(measurementStartNanos, measurementEndNanos)));
+		clientThreads.shutdown();
+
+		for (Future<?> client : clients) {
+			try {
+				client.get();
+			} catch (ExecutionException e) {
+				clientThreads.shutdownNow();
+				throw new IllegalStateException("Load test client failed.", e.getCause());
+			}
+		}
+		clientThreads.awaitTermination(1, TimeUnit.MINUTES);
+
+		LOGGER.info("Completed load test.");
+		return new LoadTestReport(startedAt, options, population, options.getDuration(), latencies, failures);
+	}
+
+	/**
+	 * Sends requests back-to-back until the end of the run.
+	 *
+	 * @param measurementStartNanos
+	 *            the {@link System#nanoTime()} value that the warmup period ends
+	 *            and measurement starts at
+	 * @param measurementEndNanos
+	 *            the {@link System#nanoTime()} value that the run ends at
+	 */
+	private void runClient(long measurementStartNanos, long measurementEndNanos) {
+		IGenericClient fhirClient = ServerTestUtils.createFhirClient();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		List<String> beneficiaryIds = population.getBeneficiaryIds();
+
+		while (!Thread.currentThread().isInterrupted()) {
+			long requestStartNanos = System.nanoTime();
+			if (requestStartNanos >= measurementEndNanos)
+				break;
+
+			LoadTestRequestType requestType = LoadTestOptions.chooseWeighted(options.getRequestMix(), random);
+			String beneficiaryId = beneficiaryIds.get(random.nextInt(beneficiaryIds.size()));
+			boolean succeeded;
+			try {
+				requestType.execute(fhirClient, beneficiaryId);
+				succeeded = true;
+			} catch (RuntimeException e) {
+				LOGGER.debug("Request failed: {} for '{}'.", requestType, beneficiaryId, e);
+				succeeded = false;
+			}
+			long requestEndNanos = System.nanoTime();
+
+			// Only count requests that were entirely within the measured period.
+			if (requestStartNanos < measurementStartNanos || requestEndNanos > measurementEndNanos)
+				continue;
+			if (succeeded)
+				latencies.get(requestType).update(requestEndNanos - requestStartNanos, TimeUnit.NANOSECONDS);
+			else
+				failures.get(requestType).inc();
+		}
+	}
+
+	/**
+	 * @param options
+	 *            the {@link LoadTestOptions} to use
+	 * @param population
+	 *            the {@link SyntheticPopulation} to send requests for
+	 * @return a {@link LoadTestReport} with the results of the run
+	 * @throws InterruptedException
+	 *             (indicates that the run was interrupted)
+	 * @see #run()
+	 */
+	static LoadTestReport run(LoadTestOptions options, SyntheticPopulation population) throws InterruptedException {
+		return new LoadTestDriver(options, population).run();
+	}
+}
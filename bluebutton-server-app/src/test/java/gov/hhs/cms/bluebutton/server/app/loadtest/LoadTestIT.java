@@ -0,0 +1,73 @@
+package gov.hhs.cms.bluebutton.server.app.loadtest;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.hhs.cms.bluebutton.data.pipeline.rif.load.RifLoaderTestUtils;
+import gov.hhs.cms.bluebutton.server.app.ServerTestUtils;
+
+/**
+ * <p>
+ * Runs a load test against the test server, writing a JSON report of the
+ * results (by default, to <code>target/loadtest-report.json</code>).
+ * </p>
+ * <p>
+ * This is skipped unless explicitly enabled, as it takes several minutes and
+ * its results are only meaningful on a quiet machine, e.g.:
+ * </p>
+ * <pre>
+ * mvn clean verify -Dit.test=LoadTestIT -Dloadtest.enabled=true
+ * </pre>
+ * <p>
+ * See {@link LoadTestOptions} for the other <code>loadtest.*</code> options.
+ * </p>
+ * <p>
+ * Note that the {@link SyntheticPopulation} is loaded directly via batched JPA
+ * inserts, rather than through the data pipeline's <code>RifLoader</code>.
+ * <code>RifLoader</code> only accepts records that were parsed from RIF files,
+ * so generated claims with arbitrary numbers of lines would have to be
+ * serialized back out to RIF first, and its per-record processing made
+ * populations of realistic size take far longer to load than to test. The
+ * trade-off is that <code>RifLoader</code>'s own processing (e.g. its HICN
+ * hashing) isn't exercised: the synthetic HICNs are stored as-is, which is fine
+ * as {@link LoadTestDriver} only looks beneficiaries up by ID.
+ * </p>
+ */
+public final class LoadTestIT {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestIT.class);
+
+	/**
+	 * Generates and loads a {@link SyntheticPopulation}, drives traffic at the
+	 * server for it, and then writes out the {@link LoadTestReport}.
+	 *
+	 * @throws InterruptedException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void runLoadTest() throws InterruptedException {
+		Assume.assumeTrue(LoadTestOptions.isEnabled());
+		LoadTestOptions options = LoadTestOptions.readFromSystemProperties();
+
+		SyntheticPopulation population = SyntheticPopulation.generateAndLoad(options,
+				RifLoaderTestUtils.createDataSouce(ServerTestUtils.createRifLoaderOptions()));
+		LoadTestReport report = LoadTestDriver.run(options, population);
+		report.writeJson(options.getReportPath());
+		LOGGER.info("Load test report (written to '{}'): {}", options.getReportPath().toAbsolutePath(), report);
+
+		Assert.assertTrue(report.getTotalSucceeded() > 0);
+	}
+
+	/**
+	 * Ensures that {@link ServerTestUtils#cleanDatabaseServer()} is called after
+	 * each test case.
+	 */
+	@After
+	public void cleanDatabaseServerAfterEachTestCase() {
+		if (LoadTestOptions.isEnabled())
+			ServerTestUtils.cleanDatabaseServer();
+	}
+}
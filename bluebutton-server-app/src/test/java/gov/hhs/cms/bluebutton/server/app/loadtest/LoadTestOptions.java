@@ -0,0 +1,379 @@
+package gov.hhs.cms.bluebutton.server.app.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimType;
+
+/**
+ * <p>
+ * Models the (immutable) configuration options for a load test run. Each
+ * option can be overridden via a <code>loadtest.*</code> system property, e.g.
+ * <code>mvn verify -Dit.test=LoadTestIT -Dloadtest.enabled=true -Dloadtest.beneficiaries=5000</code>.
+ * </p>
+ * <p>
+ * The weighted-mix options (claim types and requests) are specified as
+ * comma-separated <code>KEY=weight</code> pairs, e.g.
+ * <code>-Dloadtest.claimTypeMix=CARRIER=60,PDE=30,INPATIENT=10</code>.
+ * </p>
+ */
+final class LoadTestOptions {
+	static final String PROP_ENABLED = "loadtest.enabled";
+	static final String PROP_BENEFICIARIES = "loadtest.beneficiaries";
+	static final String PROP_CLAIMS_PER_BENEFICIARY = "loadtest.claimsPerBeneficiary";
+	static final String PROP_LINES_PER_CLAIM = "loadtest.linesPerClaim";
+	static final String PROP_CLAIM_TYPE_MIX = "loadtest.claimTypeMix";
+	static final String PROP_REQUEST_MIX = "loadtest.requestMix";
+	static final String PROP_THREADS = "loadtest.threads";
+	static final String PROP_WARMUP_SECONDS = "loadtest.warmupSeconds";
+	static final String PROP_DURATION_SECONDS = "loadtest.durationSeconds";
+	static final String PROP_SEED = "loadtest.seed";
+	static final String PROP_REPORT = "loadtest.report";
+
+	private final int beneficiaryCount;
+	private final CountDistribution claimsPerBeneficiary;
+	private final CountDistribution linesPerClaim;
+	private final Map<ClaimType, Integer> claimTypeMix;
+	private final Map<LoadTestRequestType, Integer> requestMix;
+	private final int threadCount;
+	private final Duration warmup;
+	private final Duration duration;
+	private final long seed;
+	private final Path reportPath;
+
+	/**
+	 * Constructs a new {@link LoadTestOptions} instance.
+	 *
+	 * @param beneficiaryCount
+	 *            the value to use for {@link #getBeneficiaryCount()}
+	 * @param claimsPerBeneficiary
+	 *            the value to use for {@link #getClaimsPerBeneficiary()}
+	 * @param linesPerClaim
+	 *            the value to use for {@link #getLinesPerClaim()}
+	 * @param claimTypeMix
+	 *            the value to use for {@link #getClaimTypeMix()}
+	 * @param requestMix
+	 *            the value to use for {@link #getRequestMix()}
+	 * @param threadCount
+	 *            the value to use for {@link #getThreadCount()}
+	 * @param warmup
+	 *            the value to use for {@link #getWarmup()}
+	 * @param duration
+	 *            the value to use for {@link #getDuration()}
+	 * @param seed
+	 *            the value to use for {@link #getSeed()}
+	 * @param reportPath
+	 *            the value to use for {@link #getReportPath()}
+	 */
+	LoadTestOptions(int beneficiaryCount, CountDistribution claimsPerBeneficiary, CountDistribution linesPerClaim,
+			Map<ClaimType, Integer> claimTypeMix, Map<LoadTestRequestType, Integer> requestMix, int threadCount,
+			Duration warmup, Duration duration, long seed, Path reportPath) {
+		if (beneficiaryCount < 1)
+			throw new IllegalArgumentException();
+		if (threadCount < 1)
+			throw new IllegalArgumentException();
+		if (duration.isNegative() || duration.isZero())
+			throw new IllegalArgumentException();
+
+		this.beneficiaryCount = beneficiaryCount;
+		this.claimsPerBeneficiary = claimsPerBeneficiary;
+		this.linesPerClaim = linesPerClaim;
+		this.claimTypeMix = Collections.unmodifiableMap(claimTypeMix);
+		this.requestMix = Collections.unmodifiableMap(requestMix);
+		this.threadCount = threadCount;
+		this.warmup = warmup;
+		this.duration = duration;
+		this.seed = seed;
+		this.reportPath = reportPath;
+	}
+
+	/**
+	 * @return the number of synthetic beneficiaries to generate and load
+	 */
+	int getBeneficiaryCount() {
+		return beneficiaryCount;
+	}
+
+	/**
+	 * @return the {@link CountDistribution} that each synthetic
+	 *         beneficiary's number of claims will be drawn from
+	 */
+	CountDistribution getClaimsPerBeneficiary() {
+		return claimsPerBeneficiary;
+	}
+
+	/**
+	 * @return the {@link CountDistribution} that each synthetic claim's number
+	 *         of lines will be drawn from
+	 */
+	CountDistribution getLinesPerClaim() {
+		return linesPerClaim;
+	}
+
+	/**
+	 * @return the relative weights of each {@link ClaimType} in the generated
+	 *         claims ({@link ClaimType}s not present won't be generated)
+	 */
+	Map<ClaimType, Integer> getClaimTypeMix() {
+		return claimTypeMix;
+	}
+
+	/**
+	 * @return the relative weights of each {@link LoadTestRequestType} in the
+	 *         traffic that will be sent to the server
+	 */
+	Map<LoadTestRequestType, Integer> getRequestMix() {
+		return requestMix;
+	}
+
+	/**
+	 * @return the number of concurrent client threads to run
+	 */
+	int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * @return how long to drive traffic for before starting measurement
+	 */
+	Duration getWarmup() {
+		return warmup;
+	}
+
+	/**
+	 * @return how long to drive (and measure) traffic for, after the
+	 *         {@link #getWarmup()} period
+	 */
+	Duration getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return the {@link Random} seed used when generating the synthetic
+	 *         population, so that runs are repeatable
+	 */
+	long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the {@link Path} to write the JSON report to
+	 */
+	Path getReportPath() {
+		return reportPath;
+	}
+
+	/**
+	 * @return <code>true</code> if load tests have been enabled via the
+	 *         {@link #PROP_ENABLED} system property, <code>false</code> if not
+	 */
+	static boolean isEnabled() {
+		return Boolean.getBoolean(PROP_ENABLED);
+	}
+
+	/**
+	 * @return a {@link LoadTestOptions} instance built from the
+	 *         <code>loadtest.*</code> system properties, falling back to defaults
+	 *         suitable for a quick run on a developer's machine
+	 */
+	static LoadTestOptions readFromSystemProperties() {
+		int beneficiaryCount = Integer.parseInt(System.getProperty(PROP_BENEFICIARIES, "1000"));
+		CountDistribution claimsPerBeneficiary = CountDistribution
+				.parse(System.getProperty(PROP_CLAIMS_PER_BENEFICIARY, "geometric:10"));
+		CountDistribution linesPerClaim = CountDistribution
+				.parse(System.getProperty(PROP_LINES_PER_CLAIM, "uniform:1-10"));
+
+		Map<ClaimType, Integer> claimTypeMix = new EnumMap<>(ClaimType.class);
+		for (Map.Entry<String, Integer> weight : parseWeights(System.getProperty(PROP_CLAIM_TYPE_MIX,
+				"CARRIER=45,PDE=35,OUTPATIENT=8,DME=5,INPATIENT=3,SNF=2,HHA=1,HOSPICE=1")).entrySet())
+			claimTypeMix.put(ClaimType.valueOf(weight.getKey()), weight.getValue());
+
+		Map<LoadTestRequestType, Integer> requestMix = new EnumMap<>(LoadTestRequestType.class);
+		for (Map.Entry<String, Integer> weight : parseWeights(
+				System.getProperty(PROP_REQUEST_MIX, "PATIENT_READ=20,COVERAGE_SEARCH=20,EOB_SEARCH=60")).entrySet())
+			requestMix.put(LoadTestRequestType.valueOf(weight.getKey()), weight.getValue());
+
+		int threadCount = Integer.parseInt(System.getProperty(PROP_THREADS, "8"));
+		Duration warmup = Duration.ofSeconds(Long.parseLong(System.getProperty(PROP_WARMUP_SECONDS, "30")));
+		Duration duration = Duration.ofSeconds(Long.parseLong(System.getProperty(PROP_DURATION_SECONDS, "120")));
+		long seed = Long.parseLong(System.getProperty(PROP_SEED, "42"));
+		Path reportPath = Paths.get(System.getProperty(PROP_REPORT, "target/loadtest-report.json"));
+
+		return new LoadTestOptions(beneficiaryCount, claimsPerBeneficiary, linesPerClaim, claimTypeMix, requestMix,
+				threadCount, warmup, duration, seed, reportPath);
+	}
+
+	/**
+	 * @param weights
+	 *            the relative weights of each option, as returned by e.g.
+	 *            {@link #getClaimTypeMix()}
+	 * @param random
+	 *            the {@link Random} to use
+	 * @return one of the specified options, chosen at random in proportion to
+	 *         its weight
+	 */
+	static <K> K chooseWeighted(Map<K, Integer> weights, Random random) {
+		int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+		int choice = random.nextInt(totalWeight);
+		for (Map.Entry<K, Integer> weight : weights.entrySet()) {
+			choice -= weight.getValue();
+			if (choice < 0)
+				return weight.getKey();
+		}
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * @param weightsText
+	 *            the comma-separated <code>KEY=weight</code> pairs to parse
+	 * @return the parsed weights
+	 */
+	private static Map<String, Integer> parseWeights(String weightsText) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		for (String weightText : weightsText.split(",")) {
+			String[] weightPair = weightText.trim().split("=");
+			if (weightPair.length != 2)
+				throw new IllegalArgumentException("Invalid weight: " + weightText);
+			int weight = Integer.parseInt(weightPair[1].trim());
+			if (weight < 0)
+				throw new IllegalArgumentException("Invalid weight: " + weightText);
+			weights.put(weightPair[0].trim(), weight);
+		}
+		if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0)
+			throw new IllegalArgumentException("No positive weights: " + weightsText);
+		return weights;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("LoadTestOptions [beneficiaryCount=");
+		builder.append(beneficiaryCount);
+		builder.append(", claimsPerBeneficiary=");
+		builder.append(claimsPerBeneficiary);
+		builder.append(", linesPerClaim=");
+		builder.append(linesPerClaim);
+		builder.append(", claimTypeMix=");
+		builder.append(claimTypeMix);
+		builder.append(", requestMix=");
+		builder.append(requestMix);
+		builder.append(", threadCount=");
+		builder.append(threadCount);
+		builder.append(", warmup=");
+		builder.append(warmup);
+		builder.append(", duration=");
+		builder.append(duration);
+		builder.append(", seed=");
+		builder.append(seed);
+		builder.append(", reportPath=");
+		builder.append(reportPath);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Models the (discrete) distribution that synthetic counts, e.g.
+	 * beneficiaries' claim counts, are drawn from. Parsed from text of the form
+	 * <code>fixed:&lt;n&gt;</code>, <code>uniform:&lt;min&gt;-&lt;max&gt;</code>,
+	 * or <code>geometric:&lt;mean&gt;</code>. The geometric distribution is the
+	 * default for claim counts, as it approximates the long tail of real
+	 * beneficiaries: most have a few claims, a handful have very many.
+	 */
+	static final class CountDistribution {
+		private final String text;
+		private final String kind;
+		private final int first;
+		private final int second;
+
+		/**
+		 * Constructs a new {@link CountDistribution}.
+		 *
+		 * @param text
+		 *            the text that this {@link CountDistribution} was
+		 *            parsed from
+		 * @param kind
+		 *            the type of distribution
+		 * @param first
+		 *            the first parameter for the distribution
+		 * @param second
+		 *            the second parameter for the distribution, if any
+		 */
+		private CountDistribution(String text, String kind, int first, int second) {
+			this.text = text;
+			this.kind = kind;
+			this.first = first;
+			this.second = second;
+		}
+
+		/**
+		 * @param random
+		 *            the {@link Random} to use
+		 * @return a count drawn from this distribution
+		 */
+		int sample(Random random) {
+			switch (kind) {
+			case "fixed":
+				return first;
+			case "uniform":
+				return first + random.nextInt(second - first + 1);
+			case "geometric":
+				/*
+				 * Inverse transform sampling of a geometric distribution (on
+				 * 0..infinity) with the configured mean.
+				 */
+				double p = 1.0 / (first + 1.0);
+				return (int) Math.floor(Math.log(1.0 - random.nextDouble()) / Math.log(1.0 - p));
+			default:
+				throw new IllegalStateException();
+			}
+		}
+
+		/**
+		 * @param text
+		 *            the text to parse
+		 * @return the {@link CountDistribution} represented by the specified
+		 *         text
+		 */
+		static CountDistribution parse(String text) {
+			String[] kindAndParams = text.trim().split(":");
+			if (kindAndParams.length != 2)
+				throw new IllegalArgumentException("Invalid distribution: " + text);
+
+			String kind = kindAndParams[0];
+			if ("fixed".equals(kind) || "geometric".equals(kind)) {
+				int value = Integer.parseInt(kindAndParams[1]);
+				if (value < 0)
+					throw new IllegalArgumentException("Invalid distribution: " + text);
+				return new CountDistribution(text, kind, value, 0);
+			} else if ("uniform".equals(kind)) {
+				String[] range = kindAndParams[1].split("-");
+				if (range.length != 2)
+					throw new IllegalArgumentException("Invalid distribution: " + text);
+				int min = Integer.parseInt(range[0]);
+				int max = Integer.parseInt(range[1]);
+				if (min < 0 || max < min)
+					throw new IllegalArgumentException("Invalid distribution: " + text);
+				return new CountDistribution(text, kind, min, max);
+			}
+
+			throw new IllegalArgumentException("Invalid distribution: " + text);
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
+}
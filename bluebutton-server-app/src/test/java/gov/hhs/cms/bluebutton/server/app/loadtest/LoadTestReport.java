@@ -0,0 +1,184 @@
+package gov.hhs.cms.bluebutton.server.app.loadtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimType;
+
+/**
+ * <p>
+ * The results of a load test run: the throughput and latency percentiles for
+ * each {@link LoadTestRequestType}, along with the options and population that
+ * produced them.
+ * </p>
+ * <p>
+ * The JSON written by {@link #writeJson(Path)} is intended to be compared
+ * across releases, so its structure should only be added to, never changed.
+ * All latencies are in milliseconds, and throughputs in requests per second.
+ * </p>
+ */
+final class LoadTestReport {
+	/**
+	 * The version of the report format, to be bumped if its structure ever has
+	 * to change incompatibly.
+	 */
+	static final int FORMAT_VERSION = 1;
+
+	private final Map<String, Object> report;
+	private final long totalSucceeded;
+
+	/**
+	 * Constructs a new {@link LoadTestReport}.
+	 *
+	 * @param startedAt
+	 *            when the run started
+	 * @param options
+	 *            the {@link LoadTestOptions} for the run
+	 * @param population
+	 *            the {@link SyntheticPopulation} for the run
+	 * @param measuredDuration
+	 *            the length of the measured period of the run
+	 * @param latencies
+	 *            the latencies of the successful requests of each
+	 *            {@link LoadTestRequestType}
+	 * @param failures
+	 *            the count of failed requests of each
+	 *            {@link LoadTestRequestType}
+	 */
+	LoadTestReport(Instant startedAt, LoadTestOptions options, SyntheticPopulation population,
+			Duration measuredDuration, Map<LoadTestRequestType, Timer> latencies,
+			Map<LoadTestRequestType, Counter> failures) {
+		double measuredSeconds = measuredDuration.toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+
+		Map<String, Object> optionsNode = new LinkedHashMap<>();
+		optionsNode.put("beneficiaries", options.getBeneficiaryCount());
+		optionsNode.put("claimsPerBeneficiary", options.getClaimsPerBeneficiary().toString());
+		optionsNode.put("linesPerClaim", options.getLinesPerClaim().toString());
+		optionsNode.put("claimTypeMix", options.getClaimTypeMix());
+		optionsNode.put("requestMix", options.getRequestMix());
+		optionsNode.put("threads", options.getThreadCount());
+		optionsNode.put("warmupSeconds", options.getWarmup().getSeconds());
+		optionsNode.put("durationSeconds", options.getDuration().getSeconds());
+		optionsNode.put("seed", options.getSeed());
+
+		Map<String, Object> populationNode = new LinkedHashMap<>();
+		populationNode.put("beneficiaries", population.getBeneficiaryIds().size());
+		Map<ClaimType, Integer> claimCounts = population.getClaimCounts();
+		populationNode.put("claims", claimCounts);
+		populationNode.put("claimsTotal", claimCounts.values().stream().mapToInt(Integer::intValue).sum());
+
+		Map<String, Object> requestsNode = new LinkedHashMap<>();
+		long totalSucceeded = 0;
+		long totalFailed = 0;
+		for (Map.Entry<LoadTestRequestType, Timer> latency : latencies.entrySet()) {
+			long failed = failures.get(latency.getKey()).getCount();
+			requestsNode.put(latency.getKey().name(), createRequestStats(latency.getValue(), failed, measuredSeconds));
+			totalSucceeded += latency.getValue().getCount();
+			totalFailed += failed;
+		}
+
+		Map<String, Object> totalNode = new LinkedHashMap<>();
+		totalNode.put("succeeded", totalSucceeded);
+		totalNode.put("failed", totalFailed);
+		totalNode.put("throughput", totalSucceeded / measuredSeconds);
+
+		this.report = new LinkedHashMap<>();
+		report.put("formatVersion", FORMAT_VERSION);
+		report.put("startedAt", startedAt.toString());
+		report.put("options", optionsNode);
+		report.put("population", populationNode);
+		report.put("total", totalNode);
+		report.put("requests", requestsNode);
+		this.totalSucceeded = totalSucceeded;
+	}
+
+	/**
+	 * @return the total number of requests that succeeded during the measured
+	 *         period
+	 */
+	long getTotalSucceeded() {
+		return totalSucceeded;
+	}
+
+	/**
+	 * @param reportPath
+	 *            the {@link Path} to write this {@link LoadTestReport} to, as
+	 *            JSON
+	 */
+	void writeJson(Path reportPath) {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.enable(SerializationFeature.INDENT_OUTPUT);
+		try {
+			if (reportPath.toAbsolutePath().getParent() != null)
+				Files.createDirectories(reportPath.toAbsolutePath().getParent());
+			mapper.writeValue(reportPath.toFile(), report);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		try {
+			return new ObjectMapper().writeValueAsString(report);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @param latencies
+	 *            the {@link Timer} with the latencies of the successful requests
+	 * @param failed
+	 *            the number of failed requests
+	 * @param measuredSeconds
+	 *            the length of the measured period, in seconds
+	 * @return the report node for a single {@link LoadTestRequestType}
+	 */
+	private static Map<String, Object> createRequestStats(Timer latencies, long failed, double measuredSeconds) {
+		Snapshot snapshot = latencies.getSnapshot();
+
+		Map<String, Object> latenciesNode = new LinkedHashMap<>();
+		latenciesNode.put("min", toMilliseconds(snapshot.getMin()));
+		latenciesNode.put("mean", toMilliseconds(snapshot.getMean()));
+		latenciesNode.put("p50", toMilliseconds(snapshot.getMedian()));
+		latenciesNode.put("p75", toMilliseconds(snapshot.get75thPercentile()));
+		latenciesNode.put("p90", toMilliseconds(snapshot.getValue(0.90)));
+		latenciesNode.put("p95", toMilliseconds(snapshot.get95thPercentile()));
+		latenciesNode.put("p99", toMilliseconds(snapshot.get99thPercentile()));
+		latenciesNode.put("p999", toMilliseconds(snapshot.get999thPercentile()));
+		latenciesNode.put("max", toMilliseconds(snapshot.getMax()));
+
+		Map<String, Object> requestStats = new LinkedHashMap<>();
+		requestStats.put("succeeded", latencies.getCount());
+		requestStats.put("failed", failed);
+		requestStats.put("throughput", latencies.getCount() / measuredSeconds);
+		requestStats.put("latencyMilliseconds", latenciesNode);
+		return requestStats;
+	}
+
+	/**
+	 * @param nanoseconds
+	 *            the duration to convert, in nanoseconds
+	 * @return the specified duration, in (fractional) milliseconds
+	 */
+	private static double toMilliseconds(double nanoseconds) {
+		return nanoseconds / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,51 @@
+package gov.hhs.cms.bluebutton.server.app.loadtest;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Coverage;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.Patient;
+
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.TransformerUtils;
+
+/**
+ * Enumerates the types of requests that a load test will send, which mirror
+ * the calls made by the Blue Button frontend for each beneficiary.
+ */
+enum LoadTestRequestType {
+	PATIENT_READ {
+		@Override
+		void execute(IGenericClient fhirClient, String beneficiaryId) {
+			fhirClient.read().resource(Patient.class).withId(beneficiaryId).execute();
+		}
+	},
+
+	COVERAGE_SEARCH {
+		@Override
+		void execute(IGenericClient fhirClient, String beneficiaryId) {
+			fhirClient.search().forResource(Coverage.class)
+					.where(Coverage.BENEFICIARY.hasId(TransformerUtils.buildPatientId(beneficiaryId)))
+					.returnBundle(Bundle.class).execute();
+		}
+	},
+
+	EOB_SEARCH {
+		@Override
+		void execute(IGenericClient fhirClient, String beneficiaryId) {
+			fhirClient.search().forResource(ExplanationOfBenefit.class)
+					.where(ExplanationOfBenefit.PATIENT.hasId(TransformerUtils.buildPatientId(beneficiaryId)))
+					.returnBundle(Bundle.class).execute();
+		}
+	};
+
+	/**
+	 * Sends a request of this type to the server, blocking until the response
+	 * has been received and parsed.
+	 *
+	 * @param fhirClient
+	 *            the {@link IGenericClient} to send the request with
+	 * @param beneficiaryId
+	 *            the beneficiary ID to send the request for
+	 */
+	abstract void execute(IGenericClient fhirClient, String beneficiaryId);
+}
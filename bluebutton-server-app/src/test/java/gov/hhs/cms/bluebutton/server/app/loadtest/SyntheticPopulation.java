@@ -0,0 +1,122 @@
+package gov.hhs.cms.bluebutton.server.app.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+import gov.hhs.cms.bluebutton.data.model.rif.PartDEvent;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimType;
+import gov.hhs.cms.bluebutton.server.app.synthetic.SyntheticDataGenerator;
+import gov.hhs.cms.bluebutton.server.app.synthetic.SyntheticDataLoader;
+
+/**
+ * <p>
+ * A synthetic population of beneficiaries and claims, generated by a
+ * {@link SyntheticDataGenerator} and loaded into the database via a
+ * {@link SyntheticDataLoader}. The IDs used are from ranges that the sample
+ * data doesn't use, so a population can be loaded alongside other test data.
+ * </p>
+ * <p>
+ * Note that this does <em>not</em> load the population through the data
+ * pipeline's <code>RifLoader</code>: see {@link LoadTestIT} for why.
+ * </p>
+ */
+final class SyntheticPopulation {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticPopulation.class);
+
+	/**
+	 * The first {@link Beneficiary#getBeneficiaryId()} value that will be
+	 * generated.
+	 */
+	static final long BENEFICIARY_ID_START = 900_000_000L;
+
+	/**
+	 * The first claim ID (or {@link PartDEvent#getEventId()}) value that will be
+	 * generated.
+	 */
+	static final long CLAIM_ID_START = 900_000_000_000L;
+
+	private final List<String> beneficiaryIds;
+	private final Map<ClaimType, Integer> claimCounts;
+
+	/**
+	 * Constructs a new {@link SyntheticPopulation}.
+	 *
+	 * @param beneficiaryIds
+	 *            the value to use for {@link #getBeneficiaryIds()}
+	 * @param claimCounts
+	 *            the value to use for {@link #getClaimCounts()}
+	 */
+	private SyntheticPopulation(List<String> beneficiaryIds, Map<ClaimType, Integer> claimCounts) {
+		this.beneficiaryIds = Collections.unmodifiableList(beneficiaryIds);
+		this.claimCounts = Collections.unmodifiableMap(claimCounts);
+	}
+
+	/**
+	 * @return the {@link Beneficiary#getBeneficiaryId()} values of the synthetic
+	 *         beneficiaries
+	 */
+	List<String> getBeneficiaryIds() {
+		return beneficiaryIds;
+	}
+
+	/**
+	 * @return the number of synthetic claims of each {@link ClaimType} that were
+	 *         loaded
+	 */
+	Map<ClaimType, Integer> getClaimCounts() {
+		return claimCounts;
+	}
+
+	/**
+	 * Generates a new {@link SyntheticPopulation} per the specified
+	 * {@link LoadTestOptions}, and loads it into the database.
+	 *
+	 * @param options
+	 *            the {@link LoadTestOptions} specifying the population's scale
+	 *            and shape
+	 * @param dataSource
+	 *            the {@link DataSource} for the database to load the population
+	 *            into
+	 * @return the {@link SyntheticPopulation} that was loaded
+	 */
+	static SyntheticPopulation generateAndLoad(LoadTestOptions options, DataSource dataSource) {
+		Random random = new Random(options.getSeed());
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(options.getSeed());
+		List<String> beneficiaryIds = new ArrayList<>(options.getBeneficiaryCount());
+		for (int i = 0; i < options.getBeneficiaryCount(); i++)
+			beneficiaryIds.add(Long.toString(BENEFICIARY_ID_START + i));
+
+		Map<ClaimType, Integer> claimCounts = new EnumMap<>(ClaimType.class);
+		try (SyntheticDataLoader loader = new SyntheticDataLoader(dataSource)) {
+			// The beneficiaries have to go in first, as the claims reference them.
+			LOGGER.info("Loading {} synthetic beneficiaries...", beneficiaryIds.size());
+			loader.load(beneficiaryIds.stream().map(generator::generateBeneficiary));
+
+			LOGGER.info("Loading synthetic claims...");
+			AtomicLong nextClaimId = new AtomicLong(CLAIM_ID_START);
+			long claimsLoaded = loader.load(beneficiaryIds.stream().flatMap(beneficiaryId -> IntStream
+					.range(0, options.getClaimsPerBeneficiary().sample(random)).mapToObj(i -> {
+						ClaimType claimType = LoadTestOptions.chooseWeighted(options.getClaimTypeMix(), random);
+						claimCounts.merge(claimType, 1, Integer::sum);
+						return generator.generateClaim(claimType, beneficiaryId,
+								Long.toString(nextClaimId.getAndIncrement()),
+								options.getLinesPerClaim().sample(random));
+					})));
+			LOGGER.info("Loaded {} synthetic claims: {}.", claimsLoaded, claimCounts);
+		}
+
+		return new SyntheticPopulation(beneficiaryIds, claimCounts);
+	}
+}
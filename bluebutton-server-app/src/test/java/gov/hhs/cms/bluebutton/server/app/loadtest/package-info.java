@@ -0,0 +1,8 @@
+/**
+ * Contains a load-test harness that generates a synthetic population, loads it
+ * into the test database, and then drives concurrent traffic at the server,
+ * producing a machine-readable throughput and latency report. See
+ * {@link gov.hhs.cms.bluebutton.server.app.loadtest.LoadTestIT} for how to run
+ * it.
+ */
+package gov.hhs.cms.bluebutton.server.app.loadtest;
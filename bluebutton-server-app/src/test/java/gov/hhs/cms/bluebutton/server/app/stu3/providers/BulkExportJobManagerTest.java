@@ -0,0 +1,130 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Unit tests for {@link BulkExportJobManager}.
+ */
+public final class BulkExportJobManagerTest {
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/**
+	 * Verifies that {@link BulkExportJobManager#cancelJob(BulkExportJob)}
+	 * returns right away, and leaves the job's files in place until its running
+	 * chunk has stopped writing.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test(timeout = 60000L)
+	public void cancelJobDoesNotWaitForRunningChunks() throws Exception {
+		CountDownLatch exporting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		BulkExportJobManager jobManager = new BulkExportJobManager(new MetricRegistry(),
+				(parser, writers, beneficiaryId) -> {
+					exporting.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException();
+					}
+
+					// A write that's still in progress when the job is cancelled.
+					writers.get("Patient").write("{}\n");
+				}, tempFolder.getRoot().toPath(), 1, 1, 1, 3600L);
+		try {
+			String statusUrl = jobManager.startJob("CN=client", "https://localhost/v1/fhir/$export",
+					"https://localhost/v1/fhir", Arrays.asList("Patient"), Arrays.asList("1", "2")).get();
+			BulkExportJob job = jobManager.getJob(statusUrl.substring(statusUrl.lastIndexOf('/') + 1)).get();
+			exporting.await();
+
+			jobManager.cancelJob(job);
+			Assert.assertTrue(job.isCancelled());
+			Assert.assertFalse(jobManager.getJob(job.getId()).isPresent());
+			Thread.sleep(500L);
+			Assert.assertTrue(Files.exists(job.getDirectory()));
+
+			// Once the chunk stops, the files should be deleted without waiting for a sweep.
+			release.countDown();
+			while (Files.exists(job.getDirectory()))
+				Thread.sleep(10L);
+		} finally {
+			jobManager.close();
+		}
+	}
+
+	/**
+	 * Verifies that {@link BulkExportJobManager} deletes leftover cancelled jobs
+	 * at startup, and that {@link BulkExportJobManager#sweepJobs(Instant)}
+	 * deletes finished jobs once they're past the retention period.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void sweepJobs() throws IOException {
+		Path exportDirectory = tempFolder.getRoot().toPath();
+		BulkExportJob completedJob = createJob(exportDirectory, "completed", Collections.emptyList());
+		BulkExportJob failedJob = createJob(exportDirectory, "failed", Arrays.asList("1"));
+		failedJob.markFailed("oops");
+		BulkExportJob cancelledJob = createJob(exportDirectory, "cancelled", Arrays.asList("1"));
+		cancelledJob.markCancelled();
+
+		BulkExportJobManager jobManager = new BulkExportJobManager(new MetricRegistry(),
+				(parser, writers, beneficiaryId) -> {
+					throw new AssertionError();
+				}, exportDirectory, 1, 1, 1, 3600L);
+		try {
+			Assert.assertFalse(Files.exists(cancelledJob.getDirectory()));
+			Assert.assertFalse(jobManager.getJob("cancelled").isPresent());
+
+			jobManager.sweepJobs(Instant.now());
+			Assert.assertTrue(jobManager.getJob("completed").isPresent());
+			Assert.assertTrue(jobManager.getJob("failed").isPresent());
+
+			jobManager.sweepJobs(Instant.now().plusSeconds(3601L));
+			Assert.assertFalse(jobManager.getJob("completed").isPresent());
+			Assert.assertFalse(Files.exists(completedJob.getDirectory()));
+			Assert.assertFalse(jobManager.getJob("failed").isPresent());
+			Assert.assertFalse(Files.exists(failedJob.getDirectory()));
+		} finally {
+			jobManager.close();
+		}
+	}
+
+	/**
+	 * @param exportDirectory
+	 *            the export directory to create the job in
+	 * @param jobId
+	 *            the {@link BulkExportJob#getId()} to use
+	 * @param beneficiaryIds
+	 *            the IDs of the beneficiaries to export
+	 * @return a new {@link BulkExportJob}, which has been written to disk
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	private static BulkExportJob createJob(Path exportDirectory, String jobId, List<String> beneficiaryIds)
+			throws IOException {
+		BulkExportJob job = new BulkExportJob(jobId, exportDirectory.resolve(jobId), "CN=client",
+				"https://localhost/v1/fhir/$export", "https://localhost/v1/fhir/$export-status/" + jobId,
+				Instant.now(), Arrays.asList("Patient"), beneficiaryIds, 1);
+		job.write();
+		return job;
+	}
+}
@@ -0,0 +1,105 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link BulkExportJob}.
+ */
+public final class BulkExportJobTest {
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/**
+	 * Verifies that {@link BulkExportJob}s split their beneficiaries into chunks
+	 * as expected.
+	 */
+	@Test
+	public void chunks() throws IOException {
+		BulkExportJob job = createJob(tempFolder.getRoot().toPath().resolve("job"));
+
+		Assert.assertEquals(3, job.getChunkCount());
+		Assert.assertEquals(Arrays.asList("1", "2"), job.getChunkBeneficiaryIds(0));
+		Assert.assertEquals(Arrays.asList("5"), job.getChunkBeneficiaryIds(2));
+		Assert.assertTrue(job.isActive());
+
+		job.markChunkCompleted(0);
+		job.markChunkCompleted(1);
+		job.markChunkCompleted(2);
+		Assert.assertTrue(job.isCompleted());
+		Assert.assertFalse(job.isActive());
+	}
+
+	/**
+	 * Verifies that {@link BulkExportJob}s can be resumed from what they
+	 * {@link BulkExportJob#write()} to disk, along with their progress.
+	 */
+	@Test
+	public void writeThenRead() throws IOException {
+		Path jobDirectory = tempFolder.getRoot().toPath().resolve("job");
+		BulkExportJob job = createJob(jobDirectory);
+		job.write();
+		Files.createFile(job.getChunkMarkerFile(1));
+
+		BulkExportJob resumedJob = BulkExportJob.read(jobDirectory);
+		Assert.assertEquals(job.getId(), resumedJob.getId());
+		Assert.assertEquals(job.getOwner(), resumedJob.getOwner());
+		Assert.assertEquals(job.getStatusUrl(), resumedJob.getStatusUrl());
+		Assert.assertEquals(job.getTransactionTime(), resumedJob.getTransactionTime());
+		Assert.assertEquals(job.getTypes(), resumedJob.getTypes());
+		Assert.assertEquals(job.getChunkBeneficiaryIds(2), resumedJob.getChunkBeneficiaryIds(2));
+		Assert.assertFalse(resumedJob.isChunkCompleted(0));
+		Assert.assertTrue(resumedJob.isChunkCompleted(1));
+		Assert.assertTrue(resumedJob.isActive());
+
+		resumedJob.markFailed("oops");
+		Assert.assertEquals("oops", BulkExportJob.read(jobDirectory).getFailure());
+		Assert.assertFalse(BulkExportJob.read(jobDirectory).isActive());
+
+		Assert.assertNull(BulkExportJob.read(tempFolder.getRoot().toPath().resolve("missing")));
+	}
+
+	/**
+	 * Verifies that cancelled {@link BulkExportJob}s don't start any more
+	 * chunks, and stay cancelled after being read back in.
+	 */
+	@Test
+	public void cancel() throws IOException {
+		Path jobDirectory = tempFolder.getRoot().toPath().resolve("job");
+		BulkExportJob job = createJob(jobDirectory);
+		job.write();
+
+		Assert.assertTrue(job.chunkStarted());
+		Assert.assertEquals(1, job.getRunningChunkCount());
+		job.markCancelled();
+		Assert.assertFalse(job.isActive());
+		Assert.assertFalse(job.chunkStarted());
+		Assert.assertEquals(1, job.getRunningChunkCount());
+
+		job.chunkFinished();
+		Assert.assertEquals(0, job.getRunningChunkCount());
+		Assert.assertTrue(BulkExportJob.read(jobDirectory).isCancelled());
+	}
+
+	/**
+	 * @param jobDirectory
+	 *            the {@link BulkExportJob#getDirectory()} to use
+	 * @return a new {@link BulkExportJob} for five beneficiaries, in chunks of
+	 *         two
+	 */
+	private static BulkExportJob createJob(Path jobDirectory) {
+		return new BulkExportJob("4c2d1b8e-9f3a-4e5b-8c7d-6a5b4c3d2e1f", jobDirectory, "CN=client",
+				"https://localhost/v1/fhir/$export?patient=1,2,3,4,5",
+				"https://localhost/v1/fhir/$export-status/4c2d1b8e-9f3a-4e5b-8c7d-6a5b4c3d2e1f",
+				Instant.parse("2018-01-01T00:00:00Z"), Arrays.asList("Patient", "ExplanationOfBenefit"),
+				Arrays.asList("1", "2", "3", "4", "5"), 2);
+	}
+}
@@ -0,0 +1,124 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.server.app.MockHttpServletRequest;
+import gov.hhs.cms.bluebutton.server.app.MockHttpServletResponse;
+
+/**
+ * Unit tests for {@link BulkExportServlet}.
+ */
+public final class BulkExportServletTest {
+	private static final String OWNER_DN = "CN=Partner A";
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private BulkExportJobManager jobManager;
+	private BulkExportServlet servlet;
+	private BulkExportJob job;
+
+	/**
+	 * Starts a {@link BulkExportJob} for {@link #OWNER_DN} to run the tests
+	 * against.
+	 */
+	@Before
+	public void startJob() {
+		jobManager = new BulkExportJobManager(new MetricRegistry(), (parser, writers, beneficiaryId) -> {
+		}, tempFolder.getRoot().toPath(), 1, 1, 1, 3600L);
+		servlet = new BulkExportServlet(jobManager);
+
+		String statusUrl = jobManager.startJob(OWNER_DN, "https://localhost/v1/fhir/$export",
+				"https://localhost/v1/fhir", Arrays.asList("Patient"), Arrays.asList("1")).get();
+		job = jobManager.getJob(statusUrl.substring(statusUrl.lastIndexOf('/') + 1)).get();
+	}
+
+	/**
+	 * Shuts down the {@link BulkExportJobManager}.
+	 */
+	@After
+	public void closeJobManager() {
+		jobManager.close();
+	}
+
+	/**
+	 * Verifies that {@link BulkExportServlet} serves a job's status to the
+	 * client that started it.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void statusForOwner() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		servlet.doGet(createRequest("GET", OWNER_DN), response);
+
+		Assert.assertTrue(response.getStatus() == HttpServletResponse.SC_OK
+				|| response.getStatus() == HttpServletResponse.SC_ACCEPTED);
+	}
+
+	/**
+	 * Verifies that {@link BulkExportServlet} doesn't let one client see or
+	 * cancel another client's job.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void otherClientsJob() throws IOException {
+		MockHttpServletResponse getResponse = new MockHttpServletResponse();
+		servlet.doGet(createRequest("GET", "CN=Partner B"), getResponse);
+		Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, getResponse.getStatus());
+
+		MockHttpServletResponse deleteResponse = new MockHttpServletResponse();
+		servlet.doDelete(createRequest("DELETE", "CN=Partner B"), deleteResponse);
+		Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, deleteResponse.getStatus());
+		Assert.assertFalse(job.isCancelled());
+		Assert.assertTrue(jobManager.getJob(job.getId()).isPresent());
+	}
+
+	/**
+	 * Verifies that {@link BulkExportServlet} refuses requests from clients
+	 * without a certificate, rather than treating them all as the same
+	 * anonymous client.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void noClientCertificate() throws IOException {
+		MockHttpServletResponse getResponse = new MockHttpServletResponse();
+		servlet.doGet(createRequest("GET", null), getResponse);
+		Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, getResponse.getStatus());
+
+		MockHttpServletResponse deleteResponse = new MockHttpServletResponse();
+		servlet.doDelete(createRequest("DELETE", null), deleteResponse);
+		Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, deleteResponse.getStatus());
+		Assert.assertFalse(job.isCancelled());
+	}
+
+	/**
+	 * @param method
+	 *            the HTTP method to use
+	 * @param clientDn
+	 *            the DN of the client making the request, or <code>null</code>
+	 *            for a request without a client certificate
+	 * @return a new {@link MockHttpServletRequest} for {@link #job}'s status
+	 */
+	private MockHttpServletRequest createRequest(String method, String clientDn) {
+		return new MockHttpServletRequest(method, "/v1/fhir/$export-status/" + job.getId())
+				.setPathInfo("/" + job.getId()).setRemoteUser(clientDn);
+	}
+}
@@ -0,0 +1,72 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.hl7.fhir.dstu3.model.CodeableConcept;
+import org.junit.Assert;
+import org.junit.Test;
+
+import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
+import gov.hhs.cms.bluebutton.data.codebook.model.Value;
+
+/**
+ * Unit tests for {@link CcwCodebookVariableMetadata}.
+ */
+public final class CcwCodebookVariableMetadataTest {
+	/**
+	 * Verifies that the precomputed {@link CcwCodebookVariableMetadata} values
+	 * match what would be computed directly from each
+	 * {@link CcwCodebookVariable#getVariable()}.
+	 */
+	@Test
+	public void matchesVariables() {
+		for (CcwCodebookVariable ccwVariable : CcwCodebookVariable.values()) {
+			CcwCodebookVariableMetadata metadata = CcwCodebookVariableMetadata.of(ccwVariable);
+			Assert.assertNotNull(metadata);
+
+			Assert.assertEquals(String.format("%s/%s", TransformerConstants.BASE_URL_CCW_VARIABLES,
+					ccwVariable.getVariable().getId().toLowerCase()), metadata.getReferenceUrl());
+			Assert.assertEquals(ccwVariable.getVariable().getLabel(), metadata.getLabel());
+			Assert.assertEquals(ccwVariable.getVariable().getValueGroups().isPresent(), metadata.isCoded());
+
+			if (!metadata.isCoded())
+				continue;
+			List<Value> values = ccwVariable.getVariable().getValueGroups().get().stream()
+					.flatMap(g -> g.getValues().stream()).collect(Collectors.toList());
+			for (Value value : values) {
+				List<Value> matchingValues = values.stream().filter(v -> v.getCode().equals(value.getCode()))
+						.collect(Collectors.toList());
+				if (matchingValues.size() == 1) {
+					Assert.assertEquals(Optional.of(value.getDescription()), metadata.lookupDisplay(value.getCode()));
+					Assert.assertFalse(metadata.isDuplicateCode(value.getCode()));
+				} else {
+					Assert.assertEquals(Optional.empty(), metadata.lookupDisplay(value.getCode()));
+					Assert.assertTrue(metadata.isDuplicateCode(value.getCode()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Verifies that {@link CcwCodebookVariableMetadata#createAdjudicationCategory()}
+	 * returns independent copies, so that modifying one resource's adjudication
+	 * doesn't affect any others.
+	 */
+	@Test
+	public void createAdjudicationCategoryReturnsCopies() {
+		CcwCodebookVariableMetadata metadata = CcwCodebookVariableMetadata.of(CcwCodebookVariable.LINE_NCH_PMT_AMT);
+
+		CodeableConcept categoryA = metadata.createAdjudicationCategory();
+		Assert.assertEquals(TransformerConstants.CODING_CCW_ADJUDICATION_CATEGORY,
+				categoryA.getCodingFirstRep().getSystem());
+		Assert.assertEquals(metadata.getReferenceUrl(), categoryA.getCodingFirstRep().getCode());
+		Assert.assertEquals(metadata.getLabel(), categoryA.getCodingFirstRep().getDisplay());
+
+		categoryA.getCodingFirstRep().setDisplay("modified");
+		CodeableConcept categoryB = metadata.createAdjudicationCategory();
+		Assert.assertNotSame(categoryA, categoryB);
+		Assert.assertEquals(metadata.getLabel(), categoryB.getCodingFirstRep().getDisplay());
+	}
+}
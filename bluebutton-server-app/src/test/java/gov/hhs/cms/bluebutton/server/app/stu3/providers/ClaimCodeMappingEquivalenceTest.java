@@ -0,0 +1,146 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.DMEClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.HHAClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.HospiceClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.InpatientClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.OutpatientClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.SNFClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.samples.StaticRifResourceGroup;
+import gov.hhs.cms.bluebutton.server.app.ServerTestUtils;
+
+/**
+ * <p>
+ * Verifies that each claim transformer's {@link ClaimCodeMapping} table
+ * produces exactly the same {@link ExplanationOfBenefit} as the original,
+ * hand-written code mapping did (as preserved in
+ * {@link LegacyClaimCodeMappings}), for the
+ * {@link StaticRifResourceGroup#SAMPLE_A} claims.
+ * </p>
+ * <p>
+ * The whole {@link ExplanationOfBenefit} is compared (as encoded JSON), so
+ * that any change in the order, labels, versions, or dates of the diagnosis
+ * and procedure codes will be caught.
+ * </p>
+ */
+public final class ClaimCodeMappingEquivalenceTest {
+	/**
+	 * Verifies that {@link CarrierClaimTransformer}'s {@link ClaimCodeMapping}
+	 * matches {@link LegacyClaimCodeMappings#mapCarrierCodes}.
+	 */
+	@Test
+	public void carrier() {
+		CarrierClaim claim = findSampleClaim(CarrierClaim.class);
+		assertEquivalent(CarrierClaimTransformer.transform(new MetricRegistry(), claim),
+				CarrierClaimTransformer.transformClaim(claim, LegacyClaimCodeMappings::mapCarrierCodes));
+	}
+
+	/**
+	 * Verifies that {@link DMEClaimTransformer}'s {@link ClaimCodeMapping}
+	 * matches {@link LegacyClaimCodeMappings#mapDMECodes}.
+	 */
+	@Test
+	public void dme() {
+		DMEClaim claim = findSampleClaim(DMEClaim.class);
+		assertEquivalent(DMEClaimTransformer.transform(new MetricRegistry(), claim),
+				DMEClaimTransformer.transformClaim(claim, LegacyClaimCodeMappings::mapDMECodes));
+	}
+
+	/**
+	 * Verifies that {@link HHAClaimTransformer}'s {@link ClaimCodeMapping}
+	 * matches {@link LegacyClaimCodeMappings#mapHHACodes}.
+	 */
+	@Test
+	public void hha() {
+		HHAClaim claim = findSampleClaim(HHAClaim.class);
+		assertEquivalent(HHAClaimTransformer.transform(new MetricRegistry(), claim),
+				HHAClaimTransformer.transformClaim(claim, LegacyClaimCodeMappings::mapHHACodes));
+	}
+
+	/**
+	 * Verifies that {@link HospiceClaimTransformer}'s {@link ClaimCodeMapping}
+	 * matches {@link LegacyClaimCodeMappings#mapHospiceCodes}.
+	 */
+	@Test
+	public void hospice() {
+		HospiceClaim claim = findSampleClaim(HospiceClaim.class);
+		assertEquivalent(HospiceClaimTransformer.transform(new MetricRegistry(), claim),
+				HospiceClaimTransformer.transformClaim(claim, LegacyClaimCodeMappings::mapHospiceCodes));
+	}
+
+	/**
+	 * Verifies that {@link InpatientClaimTransformer}'s
+	 * {@link ClaimCodeMapping} matches
+	 * {@link LegacyClaimCodeMappings#mapInpatientCodes}.
+	 */
+	@Test
+	public void inpatient() {
+		InpatientClaim claim = findSampleClaim(InpatientClaim.class);
+		assertEquivalent(InpatientClaimTransformer.transform(new MetricRegistry(), claim),
+				InpatientClaimTransformer.transformClaim(claim, LegacyClaimCodeMappings::mapInpatientCodes));
+	}
+
+	/**
+	 * Verifies that {@link OutpatientClaimTransformer}'s
+	 * {@link ClaimCodeMapping} matches
+	 * {@link LegacyClaimCodeMappings#mapOutpatientCodes}.
+	 */
+	@Test
+	public void outpatient() {
+		OutpatientClaim claim = findSampleClaim(OutpatientClaim.class);
+		assertEquivalent(OutpatientClaimTransformer.transform(new MetricRegistry(), claim),
+				OutpatientClaimTransformer.transformClaim(claim, LegacyClaimCodeMappings::mapOutpatientCodes));
+	}
+
+	/**
+	 * Verifies that {@link SNFClaimTransformer}'s {@link ClaimCodeMapping}
+	 * matches {@link LegacyClaimCodeMappings#mapSNFCodes}.
+	 */
+	@Test
+	public void snf() {
+		SNFClaim claim = findSampleClaim(SNFClaim.class);
+		assertEquivalent(SNFClaimTransformer.transform(new MetricRegistry(), claim),
+				SNFClaimTransformer.transformClaim(claim, LegacyClaimCodeMappings::mapSNFCodes));
+	}
+
+	/**
+	 * @param claimClass
+	 *            the type of claim to find
+	 * @return the first claim of the specified type in
+	 *         {@link StaticRifResourceGroup#SAMPLE_A}
+	 */
+	private static <T> T findSampleClaim(Class<T> claimClass) {
+		List<Object> parsedRecords = ServerTestUtils
+				.parseData(Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+		return parsedRecords.stream().filter(r -> claimClass.isInstance(r)).map(r -> claimClass.cast(r)).findFirst()
+				.get();
+	}
+
+	/**
+	 * Verifies that the specified {@link ExplanationOfBenefit}s are identical,
+	 * once encoded.
+	 *
+	 * @param actual
+	 *            the {@link ExplanationOfBenefit} produced with the
+	 *            {@link ClaimCodeMapping} table
+	 * @param expected
+	 *            the {@link ExplanationOfBenefit} produced with the original
+	 *            code mapping
+	 */
+	private static void assertEquivalent(ExplanationOfBenefit actual, ExplanationOfBenefit expected) {
+		IParser parser = FhirContext.forDstu3().newJsonParser().setPrettyPrint(true);
+		Assert.assertEquals(parser.encodeResourceToString(expected), parser.encodeResourceToString(actual));
+	}
+}
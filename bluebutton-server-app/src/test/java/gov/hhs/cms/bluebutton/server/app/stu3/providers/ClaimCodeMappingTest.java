@@ -0,0 +1,98 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.hl7.fhir.dstu3.model.CodeableConcept;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.DiagnosisComponent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel;
+
+/**
+ * Unit tests for {@link ClaimCodeMapping}.
+ */
+public final class ClaimCodeMappingTest {
+	/**
+	 * Verifies that {@link ClaimCodeMapping#mapDiagnoses(ExplanationOfBenefit, Object)}
+	 * adds entries in the order that the fields were listed, skips empty fields,
+	 * and doesn't duplicate codes that appear in more than one field.
+	 */
+	@Test
+	public void mapDiagnoses() {
+		ClaimCodeMapping<SampleClaim> mapping = ClaimCodeMapping.<SampleClaim> builder()
+				.diagnosis(c -> c.principalCode, c -> c.principalVersion, DiagnosisLabel.PRINCIPAL)
+				.diagnosis(c -> c.diagnosis1Code, c -> c.diagnosis1Version)
+				.diagnosisWithPresentOnAdmission(c -> c.diagnosis2Code, c -> c.diagnosis2Version,
+						c -> c.diagnosis2PresentOnAdmission)
+				.diagnosis(c -> c.diagnosis3Code, c -> c.diagnosis3Version).build();
+
+		SampleClaim claim = new SampleClaim();
+		claim.principalCode = Optional.of("R4444");
+		claim.diagnosis1Code = Optional.of("R4444");
+		claim.diagnosis2Code = Optional.of("A40");
+		claim.diagnosis2PresentOnAdmission = Optional.of('Y');
+
+		ExplanationOfBenefit eob = new ExplanationOfBenefit();
+		mapping.mapDiagnoses(eob, claim);
+
+		Assert.assertEquals(2, eob.getDiagnosis().size());
+		DiagnosisComponent principal = eob.getDiagnosis().get(0);
+		Assert.assertEquals(1, principal.getSequence());
+		Assert.assertEquals("R4444", ((CodeableConcept) principal.getDiagnosis()).getCodingFirstRep().getCode());
+		Assert.assertEquals(DiagnosisLabel.PRINCIPAL.toCode(), principal.getTypeFirstRep().getCodingFirstRep().getCode());
+		DiagnosisComponent diagnosis2 = eob.getDiagnosis().get(1);
+		Assert.assertEquals(2, diagnosis2.getSequence());
+		Assert.assertEquals("A40", ((CodeableConcept) diagnosis2.getDiagnosis()).getCodingFirstRep().getCode());
+		Assert.assertEquals(1, diagnosis2.getExtension().size());
+	}
+
+	/**
+	 * Verifies that {@link ClaimCodeMapping#mapProcedures(ExplanationOfBenefit, Object)}
+	 * adds entries in the order that the fields were listed and skips empty
+	 * fields.
+	 */
+	@Test
+	public void mapProcedures() {
+		ClaimCodeMapping<SampleClaim> mapping = ClaimCodeMapping.<SampleClaim> builder()
+				.procedure(c -> c.procedure1Code, c -> c.procedure1Version, c -> c.procedure1Date)
+				.procedure(c -> c.procedure2Code, c -> c.procedure2Version, c -> c.procedure2Date).build();
+
+		SampleClaim claim = new SampleClaim();
+		claim.procedure2Code = Optional.of("0TCCCCC");
+		claim.procedure2Date = Optional.of(LocalDate.of(2016, 1, 16));
+
+		ExplanationOfBenefit eob = new ExplanationOfBenefit();
+		mapping.mapProcedures(eob, claim);
+
+		Assert.assertEquals(1, eob.getProcedure().size());
+		Assert.assertEquals("0TCCCCC",
+				((CodeableConcept) eob.getProcedure().get(0).getProcedure()).getCodingFirstRep().getCode());
+		Assert.assertTrue(eob.getProcedure().get(0).hasDate());
+		Assert.assertEquals(0, eob.getDiagnosis().size());
+	}
+
+	/**
+	 * A simple stand-in for the claim entities, with just enough code fields to
+	 * test {@link ClaimCodeMapping} against.
+	 */
+	private static final class SampleClaim {
+		private Optional<String> principalCode = Optional.empty();
+		private Optional<Character> principalVersion = Optional.of('0');
+		private Optional<String> diagnosis1Code = Optional.empty();
+		private Optional<Character> diagnosis1Version = Optional.of('0');
+		private Optional<String> diagnosis2Code = Optional.empty();
+		private Optional<Character> diagnosis2Version = Optional.of('0');
+		private Optional<Character> diagnosis2PresentOnAdmission = Optional.empty();
+		private Optional<String> diagnosis3Code = Optional.empty();
+		private Optional<Character> diagnosis3Version = Optional.empty();
+		private Optional<String> procedure1Code = Optional.empty();
+		private Optional<Character> procedure1Version = Optional.of('0');
+		private Optional<LocalDate> procedure1Date = Optional.empty();
+		private Optional<String> procedure2Code = Optional.empty();
+		private Optional<Character> procedure2Version = Optional.of('0');
+		private Optional<LocalDate> procedure2Date = Optional.empty();
+	}
+}
@@ -0,0 +1,57 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.server.app.synthetic.SyntheticDataGenerator;
+
+/**
+ * Unit tests for {@link ClaimTransformExecutor}.
+ */
+public final class ClaimTransformExecutorTest {
+	/**
+	 * Verifies that {@link ClaimTransformExecutor#transform(ClaimType, List)}
+	 * produces the same {@link ExplanationOfBenefit}s, in the same order, whether
+	 * or not the claims are transformed in parallel.
+	 */
+	@Test
+	public void parallelMatchesSequential() {
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(42L);
+		List<Object> claims = new ArrayList<>();
+		for (int i = 0; i < 40; i++)
+			claims.add(generator.generateClaim(ClaimType.CARRIER, "1", String.valueOf(1000 + i), 3));
+
+		MetricRegistry metricRegistry = new MetricRegistry();
+		String parallelTimerName = MetricRegistry.name(ClaimTransformExecutor.class.getSimpleName(), "transform",
+				"parallel");
+		EobCache eobCache = new EobCache(metricRegistry, 0L, 1L);
+		List<ExplanationOfBenefit> sequentialEobs;
+		try (ClaimTransformExecutor sequentialExecutor = new ClaimTransformExecutor(metricRegistry, eobCache, 1,
+				1)) {
+			sequentialEobs = sequentialExecutor.transform(ClaimType.CARRIER, claims);
+		}
+		Assert.assertFalse(metricRegistry.getTimers().containsKey(parallelTimerName));
+
+		List<ExplanationOfBenefit> parallelEobs;
+		try (ClaimTransformExecutor parallelExecutor = new ClaimTransformExecutor(metricRegistry, eobCache, 4,
+				10)) {
+			parallelEobs = parallelExecutor.transform(ClaimType.CARRIER, claims);
+
+			// Below the threshold, the transforms aren't handed off at all.
+			parallelExecutor.transform(ClaimType.CARRIER, claims.subList(0, 9));
+		}
+		Assert.assertEquals(1, metricRegistry.getTimers().get(parallelTimerName).getCount());
+
+		Assert.assertEquals(claims.size(), parallelEobs.size());
+		for (int i = 0; i < claims.size(); i++) {
+			Assert.assertEquals(String.valueOf(1000 + i), EobSortKey.of(parallelEobs.get(i)).getClaimId());
+			Assert.assertTrue(sequentialEobs.get(i).equalsDeep(parallelEobs.get(i)));
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.server.app.ClientSslIdentity;
+import gov.hhs.cms.bluebutton.server.app.MockHttpServletRequest;
+import gov.hhs.cms.bluebutton.server.app.MockHttpServletResponse;
+import gov.hhs.cms.bluebutton.server.app.ServerTestUtils;
+
+/**
+ * Unit tests for {@link EobCacheServlet}.
+ */
+public final class EobCacheServletTest {
+	/**
+	 * The DN of the {@link ClientSslIdentity#TRUSTED} client certificate.
+	 */
+	private static final String TRUSTED_CLIENT_DN = "CN=client-local-dev";
+
+	/**
+	 * Verifies that {@link EobCacheServlet} lets admins invalidate the
+	 * {@link EobCache}, identifying them by their client certificate even when
+	 * the container hasn't set {@link MockHttpServletRequest#getRemoteUser()}
+	 * (as is the case for the ITs' server).
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void adminByClientCertificate() throws Exception {
+		EobCache eobCache = new EobCache(new MetricRegistry(), 100L, 3600L);
+		eobCache.put(ClaimType.CARRIER, "1", EobCacheTest.createEob(ClaimType.CARRIER, "1", 1));
+		EobCacheServlet servlet = new EobCacheServlet(eobCache, Collections.singleton(TRUSTED_CLIENT_DN));
+
+		MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/v1/admin/cache/eob");
+		request.setAttribute("javax.servlet.request.X509Certificate",
+				new X509Certificate[] { readTrustedClientCertificate() });
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		servlet.doDelete(request, response);
+
+		Assert.assertEquals(HttpServletResponse.SC_NO_CONTENT, response.getStatus());
+		Assert.assertEquals(0, eobCache.size());
+	}
+
+	/**
+	 * Verifies that {@link EobCacheServlet} rejects clients that aren't admins,
+	 * and those without a client certificate.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void nonAdmin() throws IOException {
+		EobCache eobCache = new EobCache(new MetricRegistry(), 100L, 3600L);
+		eobCache.put(ClaimType.CARRIER, "1", EobCacheTest.createEob(ClaimType.CARRIER, "1", 1));
+		EobCacheServlet servlet = new EobCacheServlet(eobCache, Collections.singleton(TRUSTED_CLIENT_DN));
+
+		MockHttpServletResponse partnerResponse = new MockHttpServletResponse();
+		servlet.doDelete(new MockHttpServletRequest("DELETE", "/v1/admin/cache/eob").setRemoteUser("CN=Partner"),
+				partnerResponse);
+		Assert.assertEquals(HttpServletResponse.SC_FORBIDDEN, partnerResponse.getStatus());
+
+		MockHttpServletResponse anonymousResponse = new MockHttpServletResponse();
+		servlet.doDelete(new MockHttpServletRequest("DELETE", "/v1/admin/cache/eob"), anonymousResponse);
+		Assert.assertEquals(HttpServletResponse.SC_FORBIDDEN, anonymousResponse.getStatus());
+		Assert.assertEquals(1, eobCache.size());
+	}
+
+	/**
+	 * Verifies that {@link EobCacheServlet#parseAdminDns(String)} splits DNs
+	 * on semicolons only, as they contain commas themselves.
+	 */
+	@Test
+	public void parseAdminDns() {
+		Assert.assertEquals(new HashSet<>(Arrays.asList("CN=Data Loader,O=Example", "CN=Ops")),
+				EobCacheServlet.parseAdminDns(" CN=Data Loader,O=Example ;;CN=Ops;"));
+		Assert.assertTrue(EobCacheServlet.parseAdminDns("").isEmpty());
+		Assert.assertTrue(EobCacheServlet.parseAdminDns(null).isEmpty());
+	}
+
+	/**
+	 * @return the {@link ClientSslIdentity#TRUSTED} client certificate
+	 * @throws IOException
+	 *             (indicates test failure)
+	 * @throws CertificateException
+	 *             (indicates test failure)
+	 */
+	private static X509Certificate readTrustedClientCertificate() throws IOException, CertificateException {
+		try (InputStream certStream = Files
+				.newInputStream(ServerTestUtils.getSslStoresDirectory().resolve("client-trusted.cer"))) {
+			return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(certStream);
+		}
+	}
+}
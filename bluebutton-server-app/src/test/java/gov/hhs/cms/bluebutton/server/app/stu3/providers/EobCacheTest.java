@@ -0,0 +1,105 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Unit tests for {@link EobCache}.
+ */
+public final class EobCacheTest {
+	/**
+	 * Verifies that {@link EobCache} hands out independent copies of what it
+	 * caches, and tracks its hits and misses.
+	 */
+	@Test
+	public void getReturnsCopies() {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		EobCache eobCache = new EobCache(metricRegistry, 100L, 3600L);
+
+		ExplanationOfBenefit transformedEob = eobCache.get(ClaimType.CARRIER, "1",
+				() -> createEob(ClaimType.CARRIER, "1", 2));
+		Assert.assertEquals(1, eobCache.size());
+		Assert.assertEquals(3L, eobCache.weight());
+
+		// Changes to the EOBs that were handed out mustn't leak into the cache.
+		transformedEob.getItemFirstRep().setSequence(42);
+		ExplanationOfBenefit cachedEobA = eobCache.get(ClaimType.CARRIER, "1", () -> {
+			throw new AssertionError();
+		});
+		Assert.assertNotSame(transformedEob, cachedEobA);
+		Assert.assertEquals(1, cachedEobA.getItemFirstRep().getSequence());
+		cachedEobA.getItemFirstRep().setSequence(43);
+		ExplanationOfBenefit cachedEobB = eobCache.get(ClaimType.CARRIER, "1");
+		Assert.assertEquals(1, cachedEobB.getItemFirstRep().getSequence());
+		Assert.assertEquals(new EobSortKey("1", ClaimType.CARRIER), EobSortKey.of(cachedEobB));
+
+		Assert.assertNull(eobCache.get(ClaimType.DME, "1"));
+		Assert.assertEquals(2L, metricRegistry.meter("EobCache.hits").getCount());
+		Assert.assertEquals(2L, metricRegistry.meter("EobCache.misses").getCount());
+	}
+
+	/**
+	 * Verifies that {@link EobCache} evicts the least recently used
+	 * {@link ExplanationOfBenefit}s once it's over its maximum weight.
+	 */
+	@Test
+	public void evictsByWeight() {
+		EobCache eobCache = new EobCache(new MetricRegistry(), 10L, 3600L);
+		eobCache.put(ClaimType.CARRIER, "1", createEob(ClaimType.CARRIER, "1", 3));
+		eobCache.put(ClaimType.CARRIER, "2", createEob(ClaimType.CARRIER, "2", 3));
+		Assert.assertNotNull(eobCache.get(ClaimType.CARRIER, "1"));
+
+		// Pushes it over the limit, so "2" (the least recently used) has to go.
+		eobCache.put(ClaimType.INPATIENT, "3", createEob(ClaimType.INPATIENT, "3", 2));
+		Assert.assertEquals(2, eobCache.size());
+		Assert.assertEquals(7L, eobCache.weight());
+		Assert.assertNull(eobCache.get(ClaimType.CARRIER, "2"));
+		Assert.assertNotNull(eobCache.get(ClaimType.CARRIER, "1"));
+
+		// Anything heavier than the whole cache just isn't cached.
+		eobCache.put(ClaimType.CARRIER, "4", createEob(ClaimType.CARRIER, "4", 10));
+		Assert.assertNull(eobCache.get(ClaimType.CARRIER, "4"));
+	}
+
+	/**
+	 * Verifies that the {@link EobCache} invalidation hooks work as expected.
+	 */
+	@Test
+	public void invalidate() {
+		EobCache eobCache = new EobCache(new MetricRegistry(), 100L, 3600L);
+		eobCache.put(ClaimType.CARRIER, "1", createEob(ClaimType.CARRIER, "1", 1));
+		eobCache.put(ClaimType.DME, "1", createEob(ClaimType.DME, "1", 1));
+
+		Assert.assertTrue(eobCache.invalidate(ClaimType.CARRIER, "1"));
+		Assert.assertFalse(eobCache.invalidate(ClaimType.CARRIER, "1"));
+		Assert.assertNull(eobCache.get(ClaimType.CARRIER, "1"));
+		Assert.assertNotNull(eobCache.get(ClaimType.DME, "1"));
+		Assert.assertEquals(2L, eobCache.weight());
+
+		eobCache.invalidateAll();
+		Assert.assertEquals(0, eobCache.size());
+		Assert.assertEquals(0L, eobCache.weight());
+		Assert.assertNull(eobCache.get(ClaimType.DME, "1"));
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} to use
+	 * @param claimId
+	 *            the claim ID to use
+	 * @param itemCount
+	 *            the number of {@link ExplanationOfBenefit#getItem()} entries to
+	 *            add
+	 * @return a new, minimal {@link ExplanationOfBenefit}
+	 */
+	static ExplanationOfBenefit createEob(ClaimType claimType, String claimId, int itemCount) {
+		ExplanationOfBenefit eob = new ExplanationOfBenefit();
+		eob.setId(TransformerUtils.buildEobId(claimType, claimId));
+		for (int i = 1; i <= itemCount; i++)
+			eob.addItem().setSequence(i);
+		return eob;
+	}
+}
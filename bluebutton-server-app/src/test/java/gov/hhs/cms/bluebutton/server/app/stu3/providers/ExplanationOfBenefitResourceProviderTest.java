@@ -1,7 +1,12 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -9,6 +14,7 @@ import ca.uhn.fhir.rest.param.TokenAndListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.param.TokenParamModifier;
+import gov.hhs.cms.bluebutton.data.codebook.data.CcwCodebookVariable;
 
 /**
  * Unit tests for {@link ExplanationOfBenefitResourceProvider}.
@@ -77,4 +83,52 @@ public final class ExplanationOfBenefitResourceProviderTest {
 								.setModifier(TokenParamModifier.ABOVE)));
 		ExplanationOfBenefitResourceProvider.parseTypeParam(typeParam);
 	}
+
+	/**
+	 * Verifies that
+	 * {@link ExplanationOfBenefitResourceProvider#compareByClaimIdThenClaimType(IBaseResource, IBaseResource)}
+	 * sorts by claim ID and then by {@link ClaimType}, both for
+	 * {@link ExplanationOfBenefit}s that have an attached {@link EobSortKey} and
+	 * for those that don't.
+	 */
+	@Test
+	public void compareByClaimIdThenClaimType() {
+		ExplanationOfBenefit carrier2 = createEob(ClaimType.CARRIER, "2", true);
+		ExplanationOfBenefit dme1 = createEob(ClaimType.DME, "1", false);
+		ExplanationOfBenefit carrier1 = createEob(ClaimType.CARRIER, "1", true);
+		ExplanationOfBenefit inpatient1 = createEob(ClaimType.INPATIENT, "1", false);
+
+		List<IBaseResource> eobs = new ArrayList<>(Arrays.asList(inpatient1, carrier2, dme1, carrier1));
+		eobs.sort(ExplanationOfBenefitResourceProvider::compareByClaimIdThenClaimType);
+		Assert.assertEquals(Arrays.asList(carrier1, dme1, inpatient1, carrier2), eobs);
+
+		// Distinct but equal claim ID Strings must compare by ClaimType.
+		Assert.assertTrue(ExplanationOfBenefitResourceProvider.compareByClaimIdThenClaimType(carrier1,
+				createEob(ClaimType.DME, new String("1"), true)) < 0);
+		Assert.assertEquals(0, ExplanationOfBenefitResourceProvider.compareByClaimIdThenClaimType(carrier1,
+				createEob(ClaimType.CARRIER, new String("1"), false)));
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of the {@link ExplanationOfBenefit} to
+	 *            create
+	 * @param claimId
+	 *            the claim ID of the {@link ExplanationOfBenefit} to create
+	 * @param withSortKey
+	 *            whether or not to attach an {@link EobSortKey}, as the
+	 *            transformers do
+	 * @return a new, minimal {@link ExplanationOfBenefit} with the specified
+	 *         values
+	 */
+	private static ExplanationOfBenefit createEob(ClaimType claimType, String claimId, boolean withSortKey) {
+		ExplanationOfBenefit eob = new ExplanationOfBenefit();
+		eob.setId(TransformerUtils.buildEobId(claimType, claimId));
+		eob.addIdentifier(TransformerUtils.createIdentifier(CcwCodebookVariable.CLM_ID, claimId));
+		eob.getType().addCoding().setSystem(TransformerConstants.CODING_SYSTEM_BBAPI_EOB_TYPE)
+				.setCode(claimType.name());
+		if (withSortKey)
+			EobSortKey.attach(eob, claimId, claimType);
+		return eob;
+	}
 }
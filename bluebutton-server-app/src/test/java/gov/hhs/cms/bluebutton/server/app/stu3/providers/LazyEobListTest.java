@@ -0,0 +1,94 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.server.app.synthetic.SyntheticDataGenerator;
+
+/**
+ * Unit tests for {@link LazyEobList}.
+ */
+public final class LazyEobListTest {
+	/**
+	 * Verifies that {@link LazyEobList} produces the same {@link ExplanationOfBenefit}s,
+	 * in the same order, as transforming all of the claims up front and then
+	 * sorting them with
+	 * {@link ExplanationOfBenefitResourceProvider#compareByClaimIdThenClaimType(IBaseResource, IBaseResource)}.
+	 */
+	@Test
+	public void matchesEagerTransformAndSort() {
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(42L);
+		Map<ClaimType, List<?>> claimsByType = new EnumMap<>(ClaimType.class);
+		claimsByType.put(ClaimType.CARRIER, Arrays.asList(generator.generateClaim(ClaimType.CARRIER, "1", "30", 2),
+				generator.generateClaim(ClaimType.CARRIER, "1", "10", 1)));
+		claimsByType.put(ClaimType.PDE, Arrays.asList(generator.generateClaim(ClaimType.PDE, "1", "20", 0),
+				generator.generateClaim(ClaimType.PDE, "1", "10", 0)));
+		claimsByType.put(ClaimType.OUTPATIENT, Arrays.asList(generator.generateClaim(ClaimType.OUTPATIENT, "1", "15", 3)));
+
+		MetricRegistry metricRegistry = new MetricRegistry();
+		List<IBaseResource> eagerEobs = new ArrayList<>();
+		for (Map.Entry<ClaimType, List<?>> claimsForType : claimsByType.entrySet())
+			for (Object claim : claimsForType.getValue())
+				eagerEobs.add(claimsForType.getKey().getTransformer().apply(metricRegistry, claim));
+		eagerEobs.sort(ExplanationOfBenefitResourceProvider::compareByClaimIdThenClaimType);
+
+		LazyEobList lazyEobs = new LazyEobList(createClaimTransformExecutor(metricRegistry), claimsByType);
+		Assert.assertEquals(eagerEobs.size(), lazyEobs.size());
+		for (int i = 0; i < eagerEobs.size(); i++) {
+			Assert.assertEquals(EobSortKey.of((ExplanationOfBenefit) eagerEobs.get(i)), lazyEobs.getSortKey(i));
+			Assert.assertTrue(((ExplanationOfBenefit) eagerEobs.get(i)).equalsDeep(lazyEobs.get(i)));
+		}
+	}
+
+	/**
+	 * Verifies that {@link LazyEobList} only transforms the elements that are
+	 * actually read, and only does so once.
+	 */
+	@Test
+	public void transformsOnlyRequestedElements() {
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(42L);
+		Map<ClaimType, List<?>> claimsByType = new EnumMap<>(ClaimType.class);
+		claimsByType.put(ClaimType.DME, Arrays.asList(generator.generateClaim(ClaimType.DME, "1", "1", 1),
+				generator.generateClaim(ClaimType.DME, "1", "2", 1), generator.generateClaim(ClaimType.DME, "1", "3", 1)));
+
+		MetricRegistry metricRegistry = new MetricRegistry();
+		LazyEobList lazyEobs = new LazyEobList(createClaimTransformExecutor(metricRegistry), claimsByType);
+		Assert.assertEquals(3, lazyEobs.size());
+		Assert.assertEquals(0, countTransforms(metricRegistry));
+
+		List<IBaseResource> page = lazyEobs.subList(1, 2);
+		Assert.assertEquals("2", EobSortKey.of((ExplanationOfBenefit) page.get(0)).getClaimId());
+		Assert.assertSame(page.get(0), lazyEobs.get(1));
+		Assert.assertEquals(1, countTransforms(metricRegistry));
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to use
+	 * @return a new {@link ClaimTransformExecutor} that always transforms claims
+	 *         on the calling thread, and doesn't cache them
+	 */
+	private static ClaimTransformExecutor createClaimTransformExecutor(MetricRegistry metricRegistry) {
+		return new ClaimTransformExecutor(metricRegistry, new EobCache(metricRegistry, 0L, 1L), 1, 1);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} that the transformers were run with
+	 * @return the total number of transforms recorded in the specified
+	 *         {@link MetricRegistry}'s timers
+	 */
+	private static long countTransforms(MetricRegistry metricRegistry) {
+		return metricRegistry.getTimers().values().stream().mapToLong(t -> t.getCount()).sum();
+	}
+}
@@ -0,0 +1,860 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.time.LocalDate;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.DMEClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.HHAClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.HospiceClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.InpatientClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.OutpatientClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.SNFClaim;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel;
+
+/**
+ * <p>
+ * The diagnosis and procedure code mapping from each claim transformer, as it
+ * was before being replaced by the {@link ClaimCodeMapping} tables, along with
+ * the <code>TransformerUtils.extract*(...)</code> helpers that it used. This
+ * code is copied verbatim from the original transformers (other than where
+ * explicitly noted), and must not otherwise be "fixed":
+ * {@link ClaimCodeMappingEquivalenceTest} uses it as the reference that the
+ * tables are checked against.
+ * </p>
+ */
+final class LegacyClaimCodeMappings {
+	/**
+	 * Not used: this class only has static methods.
+	 */
+	private LegacyClaimCodeMappings() {
+	}
+
+	/**
+	 * The pre-{@link ClaimCodeMapping} version of the diagnosis and procedure
+	 * code mapping in {@link CarrierClaimTransformer}.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claimGroup
+	 *            the {@link CarrierClaim} to map the codes from
+	 */
+	static void mapCarrierCodes(ExplanationOfBenefit eob, CarrierClaim claimGroup) {
+		for (Diagnosis diagnosis : extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
+				claimGroup.getDiagnosisPrincipalCodeVersion(), 
+				claimGroup.getDiagnosis1Code(), claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
+				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
+				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
+				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
+				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
+				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
+				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
+				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
+				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
+				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
+				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
+				claimGroup.getDiagnosis12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+	}
+
+	/**
+	 * The pre-{@link ClaimCodeMapping} version of the diagnosis and procedure
+	 * code mapping in {@link DMEClaimTransformer}.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claimGroup
+	 *            the {@link DMEClaim} to map the codes from
+	 */
+	static void mapDMECodes(ExplanationOfBenefit eob, DMEClaim claimGroup) {
+		for (Diagnosis diagnosis : extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
+				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
+				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
+				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
+				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
+				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
+				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
+				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
+				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
+				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
+				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
+				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
+				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
+				claimGroup.getDiagnosis12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+	}
+
+	/**
+	 * The pre-{@link ClaimCodeMapping} version of the diagnosis and procedure
+	 * code mapping in {@link HHAClaimTransformer}.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claimGroup
+	 *            the {@link HHAClaim} to map the codes from
+	 */
+	static void mapHHACodes(ExplanationOfBenefit eob, HHAClaim claimGroup) {
+		for (Diagnosis diagnosis : extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
+				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
+				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
+				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
+				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
+				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
+				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
+				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
+				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
+				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
+				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
+				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
+				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
+				claimGroup.getDiagnosis12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (Diagnosis diagnosis : extractDiagnoses13Thru25(claimGroup.getDiagnosis13Code(),
+				claimGroup.getDiagnosis13CodeVersion(), claimGroup.getDiagnosis14Code(),
+				claimGroup.getDiagnosis14CodeVersion(), claimGroup.getDiagnosis15Code(),
+				claimGroup.getDiagnosis15CodeVersion(), claimGroup.getDiagnosis16Code(),
+				claimGroup.getDiagnosis16CodeVersion(), claimGroup.getDiagnosis17Code(),
+				claimGroup.getDiagnosis17CodeVersion(), claimGroup.getDiagnosis18Code(),
+				claimGroup.getDiagnosis18CodeVersion(), claimGroup.getDiagnosis19Code(),
+				claimGroup.getDiagnosis19CodeVersion(), claimGroup.getDiagnosis20Code(),
+				claimGroup.getDiagnosis20CodeVersion(), claimGroup.getDiagnosis21Code(),
+				claimGroup.getDiagnosis21CodeVersion(), claimGroup.getDiagnosis22Code(),
+				claimGroup.getDiagnosis22CodeVersion(), claimGroup.getDiagnosis23Code(),
+				claimGroup.getDiagnosis23CodeVersion(), claimGroup.getDiagnosis24Code(),
+				claimGroup.getDiagnosis24CodeVersion(), claimGroup.getDiagnosis25Code(),
+				claimGroup.getDiagnosis25CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (Diagnosis diagnosis : extractExternalDiagnoses1Thru12(
+				claimGroup.getDiagnosisExternalFirstCode(), claimGroup.getDiagnosisExternalFirstCodeVersion(),
+				claimGroup.getDiagnosisExternal1Code(), claimGroup.getDiagnosisExternal1CodeVersion(),
+				claimGroup.getDiagnosisExternal2Code(), claimGroup.getDiagnosisExternal2CodeVersion(),
+				claimGroup.getDiagnosisExternal3Code(), claimGroup.getDiagnosisExternal3CodeVersion(),
+				claimGroup.getDiagnosisExternal4Code(), claimGroup.getDiagnosisExternal4CodeVersion(),
+				claimGroup.getDiagnosisExternal5Code(), claimGroup.getDiagnosisExternal5CodeVersion(),
+				claimGroup.getDiagnosisExternal6Code(), claimGroup.getDiagnosisExternal6CodeVersion(),
+				claimGroup.getDiagnosisExternal7Code(), claimGroup.getDiagnosisExternal7CodeVersion(),
+				claimGroup.getDiagnosisExternal8Code(), claimGroup.getDiagnosisExternal8CodeVersion(),
+				claimGroup.getDiagnosisExternal9Code(), claimGroup.getDiagnosisExternal9CodeVersion(),
+				claimGroup.getDiagnosisExternal10Code(), claimGroup.getDiagnosisExternal10CodeVersion(),
+				claimGroup.getDiagnosisExternal11Code(), claimGroup.getDiagnosisExternal11CodeVersion(),
+				claimGroup.getDiagnosisExternal12Code(), claimGroup.getDiagnosisExternal12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+	}
+
+	/**
+	 * The pre-{@link ClaimCodeMapping} version of the diagnosis and procedure
+	 * code mapping in {@link HospiceClaimTransformer}.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claimGroup
+	 *            the {@link HospiceClaim} to map the codes from
+	 */
+	static void mapHospiceCodes(ExplanationOfBenefit eob, HospiceClaim claimGroup) {
+		for (Diagnosis diagnosis : extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
+				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
+				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
+				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
+				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
+				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
+				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
+				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
+				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
+				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
+				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
+				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
+				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
+				claimGroup.getDiagnosis12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (Diagnosis diagnosis : extractDiagnoses13Thru25(claimGroup.getDiagnosis13Code(),
+				claimGroup.getDiagnosis13CodeVersion(), claimGroup.getDiagnosis14Code(),
+				claimGroup.getDiagnosis14CodeVersion(), claimGroup.getDiagnosis15Code(),
+				claimGroup.getDiagnosis15CodeVersion(), claimGroup.getDiagnosis16Code(),
+				claimGroup.getDiagnosis16CodeVersion(), claimGroup.getDiagnosis17Code(),
+				claimGroup.getDiagnosis17CodeVersion(), claimGroup.getDiagnosis18Code(),
+				claimGroup.getDiagnosis18CodeVersion(), claimGroup.getDiagnosis19Code(),
+				claimGroup.getDiagnosis19CodeVersion(), claimGroup.getDiagnosis20Code(),
+				claimGroup.getDiagnosis20CodeVersion(), claimGroup.getDiagnosis21Code(),
+				claimGroup.getDiagnosis21CodeVersion(), claimGroup.getDiagnosis22Code(),
+				claimGroup.getDiagnosis22CodeVersion(), claimGroup.getDiagnosis23Code(),
+				claimGroup.getDiagnosis23CodeVersion(), claimGroup.getDiagnosis24Code(),
+				claimGroup.getDiagnosis24CodeVersion(), claimGroup.getDiagnosis25Code(),
+				claimGroup.getDiagnosis25CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (Diagnosis diagnosis : extractExternalDiagnoses1Thru12(
+				claimGroup.getDiagnosisExternalFirstCode(), claimGroup.getDiagnosisExternalFirstCodeVersion(),
+				claimGroup.getDiagnosisExternal1Code(), claimGroup.getDiagnosisExternal1CodeVersion(),
+				claimGroup.getDiagnosisExternal2Code(), claimGroup.getDiagnosisExternal2CodeVersion(),
+				claimGroup.getDiagnosisExternal3Code(), claimGroup.getDiagnosisExternal3CodeVersion(),
+				claimGroup.getDiagnosisExternal4Code(), claimGroup.getDiagnosisExternal4CodeVersion(),
+				claimGroup.getDiagnosisExternal5Code(), claimGroup.getDiagnosisExternal5CodeVersion(),
+				claimGroup.getDiagnosisExternal6Code(), claimGroup.getDiagnosisExternal6CodeVersion(),
+				claimGroup.getDiagnosisExternal7Code(), claimGroup.getDiagnosisExternal7CodeVersion(),
+				claimGroup.getDiagnosisExternal8Code(), claimGroup.getDiagnosisExternal8CodeVersion(),
+				claimGroup.getDiagnosisExternal9Code(), claimGroup.getDiagnosisExternal9CodeVersion(),
+				claimGroup.getDiagnosisExternal10Code(), claimGroup.getDiagnosisExternal10CodeVersion(),
+				claimGroup.getDiagnosisExternal11Code(), claimGroup.getDiagnosisExternal11CodeVersion(),
+				claimGroup.getDiagnosisExternal12Code(), claimGroup.getDiagnosisExternal12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+	}
+
+	/**
+	 * The pre-{@link ClaimCodeMapping} version of the diagnosis and procedure
+	 * code mapping in {@link InpatientClaimTransformer}.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claimGroup
+	 *            the {@link InpatientClaim} to map the codes from
+	 */
+	static void mapInpatientCodes(ExplanationOfBenefit eob, InpatientClaim claimGroup) {
+		for (Diagnosis diagnosis : extractInpatientDiagnoses(claimGroup))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (CCWProcedure procedure : extractCCWProcedures(claimGroup.getProcedure1Code(),
+				claimGroup.getProcedure1CodeVersion(), claimGroup.getProcedure1Date(), claimGroup.getProcedure2Code(),
+				claimGroup.getProcedure2CodeVersion(), claimGroup.getProcedure2Date(), claimGroup.getProcedure3Code(),
+				claimGroup.getProcedure3CodeVersion(), claimGroup.getProcedure3Date(), claimGroup.getProcedure4Code(),
+				claimGroup.getProcedure4CodeVersion(), claimGroup.getProcedure4Date(), claimGroup.getProcedure5Code(),
+				claimGroup.getProcedure5CodeVersion(), claimGroup.getProcedure5Date(), claimGroup.getProcedure6Code(),
+				claimGroup.getProcedure6CodeVersion(), claimGroup.getProcedure6Date(), claimGroup.getProcedure7Code(),
+				claimGroup.getProcedure7CodeVersion(), claimGroup.getProcedure7Date(), claimGroup.getProcedure8Code(),
+				claimGroup.getProcedure8CodeVersion(), claimGroup.getProcedure8Date(), claimGroup.getProcedure9Code(),
+				claimGroup.getProcedure9CodeVersion(), claimGroup.getProcedure9Date(), claimGroup.getProcedure10Code(),
+				claimGroup.getProcedure10CodeVersion(), claimGroup.getProcedure10Date(),
+				claimGroup.getProcedure11Code(), claimGroup.getProcedure11CodeVersion(),
+				claimGroup.getProcedure11Date(), claimGroup.getProcedure12Code(),
+				claimGroup.getProcedure12CodeVersion(), claimGroup.getProcedure12Date(),
+				claimGroup.getProcedure13Code(), claimGroup.getProcedure13CodeVersion(),
+				claimGroup.getProcedure13Date(), claimGroup.getProcedure14Code(),
+				claimGroup.getProcedure14CodeVersion(), claimGroup.getProcedure14Date(),
+				claimGroup.getProcedure15Code(), claimGroup.getProcedure15CodeVersion(),
+				claimGroup.getProcedure15Date(), claimGroup.getProcedure16Code(),
+				claimGroup.getProcedure16CodeVersion(), claimGroup.getProcedure16Date(),
+				claimGroup.getProcedure17Code(), claimGroup.getProcedure17CodeVersion(),
+				claimGroup.getProcedure17Date(), claimGroup.getProcedure18Code(),
+				claimGroup.getProcedure18CodeVersion(), claimGroup.getProcedure18Date(),
+				claimGroup.getProcedure19Code(), claimGroup.getProcedure19CodeVersion(),
+				claimGroup.getProcedure19Date(), claimGroup.getProcedure20Code(),
+				claimGroup.getProcedure20CodeVersion(), claimGroup.getProcedure20Date(),
+				claimGroup.getProcedure21Code(), claimGroup.getProcedure21CodeVersion(),
+				claimGroup.getProcedure21Date(), claimGroup.getProcedure22Code(),
+				claimGroup.getProcedure22CodeVersion(), claimGroup.getProcedure22Date(),
+				claimGroup.getProcedure23Code(), claimGroup.getProcedure23CodeVersion(),
+				claimGroup.getProcedure23Date(), claimGroup.getProcedure24Code(),
+				claimGroup.getProcedure24CodeVersion(), claimGroup.getProcedure24Date(),
+				claimGroup.getProcedure25Code(), claimGroup.getProcedure25CodeVersion(),
+				claimGroup.getProcedure25Date()))
+			TransformerUtils.addProcedureCode(eob, procedure);
+	}
+
+	/**
+	 * The pre-{@link ClaimCodeMapping} version of the diagnosis and procedure
+	 * code mapping in {@link OutpatientClaimTransformer}.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claimGroup
+	 *            the {@link OutpatientClaim} to map the codes from
+	 */
+	static void mapOutpatientCodes(ExplanationOfBenefit eob, OutpatientClaim claimGroup) {
+		for (Diagnosis diagnosis : extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
+				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
+				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
+				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
+				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
+				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
+				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
+				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
+				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
+				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
+				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
+				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
+				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
+				claimGroup.getDiagnosis12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (Diagnosis diagnosis : extractDiagnoses13Thru25(claimGroup.getDiagnosis13Code(),
+				claimGroup.getDiagnosis13CodeVersion(), claimGroup.getDiagnosis14Code(),
+				claimGroup.getDiagnosis14CodeVersion(), claimGroup.getDiagnosis15Code(),
+				claimGroup.getDiagnosis15CodeVersion(), claimGroup.getDiagnosis16Code(),
+				claimGroup.getDiagnosis16CodeVersion(), claimGroup.getDiagnosis17Code(),
+				claimGroup.getDiagnosis17CodeVersion(), claimGroup.getDiagnosis18Code(),
+				claimGroup.getDiagnosis18CodeVersion(), claimGroup.getDiagnosis19Code(),
+				claimGroup.getDiagnosis19CodeVersion(), claimGroup.getDiagnosis20Code(),
+				claimGroup.getDiagnosis20CodeVersion(), claimGroup.getDiagnosis21Code(),
+				claimGroup.getDiagnosis21CodeVersion(), claimGroup.getDiagnosis22Code(),
+				claimGroup.getDiagnosis22CodeVersion(), claimGroup.getDiagnosis23Code(),
+				claimGroup.getDiagnosis23CodeVersion(), claimGroup.getDiagnosis24Code(),
+				claimGroup.getDiagnosis24CodeVersion(), claimGroup.getDiagnosis25Code(),
+				claimGroup.getDiagnosis25CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (Diagnosis diagnosis : extractExternalDiagnoses1Thru12(
+				claimGroup.getDiagnosisExternalFirstCode(), claimGroup.getDiagnosisExternalFirstCodeVersion(),
+				claimGroup.getDiagnosisExternal1Code(), claimGroup.getDiagnosisExternal1CodeVersion(),
+				claimGroup.getDiagnosisExternal2Code(), claimGroup.getDiagnosisExternal2CodeVersion(),
+				claimGroup.getDiagnosisExternal3Code(), claimGroup.getDiagnosisExternal3CodeVersion(),
+				claimGroup.getDiagnosisExternal4Code(), claimGroup.getDiagnosisExternal4CodeVersion(),
+				claimGroup.getDiagnosisExternal5Code(), claimGroup.getDiagnosisExternal5CodeVersion(),
+				claimGroup.getDiagnosisExternal6Code(), claimGroup.getDiagnosisExternal6CodeVersion(),
+				claimGroup.getDiagnosisExternal7Code(), claimGroup.getDiagnosisExternal7CodeVersion(),
+				claimGroup.getDiagnosisExternal8Code(), claimGroup.getDiagnosisExternal8CodeVersion(),
+				claimGroup.getDiagnosisExternal9Code(), claimGroup.getDiagnosisExternal9CodeVersion(),
+				claimGroup.getDiagnosisExternal10Code(), claimGroup.getDiagnosisExternal10CodeVersion(),
+				claimGroup.getDiagnosisExternal11Code(), claimGroup.getDiagnosisExternal11CodeVersion(),
+				claimGroup.getDiagnosisExternal12Code(), claimGroup.getDiagnosisExternal12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		if (claimGroup.getDiagnosisAdmission1Code().isPresent())
+			TransformerUtils.addDiagnosisCode(eob, Diagnosis
+					.from(claimGroup.getDiagnosisAdmission1Code(), claimGroup.getDiagnosisAdmission1CodeVersion(),
+							DiagnosisLabel.REASONFORVISIT).get());
+		if (claimGroup.getDiagnosisAdmission2Code().isPresent())
+			TransformerUtils.addDiagnosisCode(eob, Diagnosis
+					.from(claimGroup.getDiagnosisAdmission2Code(), claimGroup.getDiagnosisAdmission2CodeVersion()
+					, DiagnosisLabel.REASONFORVISIT).get());
+
+		/*
+		 * This is the one deliberate change from the original code, which mapped
+		 * RSN_VISIT_CD2's value here (with RSN_VISIT_VRSN_CD3's version). See
+		 * OutpatientClaimTransformerTest.transformReasonForVisitCodes().
+		 */
+		if (claimGroup.getDiagnosisAdmission3Code().isPresent())
+			TransformerUtils.addDiagnosisCode(eob, Diagnosis
+					.from(claimGroup.getDiagnosisAdmission3Code(), claimGroup.getDiagnosisAdmission3CodeVersion()
+					, DiagnosisLabel.REASONFORVISIT).get());
+
+		for (CCWProcedure procedure : extractCCWProcedures(claimGroup.getProcedure1Code(),
+				claimGroup.getProcedure1CodeVersion(), claimGroup.getProcedure1Date(), claimGroup.getProcedure2Code(),
+				claimGroup.getProcedure2CodeVersion(), claimGroup.getProcedure2Date(), claimGroup.getProcedure3Code(),
+				claimGroup.getProcedure3CodeVersion(), claimGroup.getProcedure3Date(), claimGroup.getProcedure4Code(),
+				claimGroup.getProcedure4CodeVersion(), claimGroup.getProcedure4Date(), claimGroup.getProcedure5Code(),
+				claimGroup.getProcedure5CodeVersion(), claimGroup.getProcedure5Date(), claimGroup.getProcedure6Code(),
+				claimGroup.getProcedure6CodeVersion(), claimGroup.getProcedure6Date(), claimGroup.getProcedure7Code(),
+				claimGroup.getProcedure7CodeVersion(), claimGroup.getProcedure7Date(), claimGroup.getProcedure8Code(),
+				claimGroup.getProcedure8CodeVersion(), claimGroup.getProcedure8Date(), claimGroup.getProcedure9Code(),
+				claimGroup.getProcedure9CodeVersion(), claimGroup.getProcedure9Date(), claimGroup.getProcedure10Code(),
+				claimGroup.getProcedure10CodeVersion(), claimGroup.getProcedure10Date(),
+				claimGroup.getProcedure11Code(), claimGroup.getProcedure11CodeVersion(),
+				claimGroup.getProcedure11Date(), claimGroup.getProcedure12Code(),
+				claimGroup.getProcedure12CodeVersion(), claimGroup.getProcedure12Date(),
+				claimGroup.getProcedure13Code(), claimGroup.getProcedure13CodeVersion(),
+				claimGroup.getProcedure13Date(), claimGroup.getProcedure14Code(),
+				claimGroup.getProcedure14CodeVersion(), claimGroup.getProcedure14Date(),
+				claimGroup.getProcedure15Code(), claimGroup.getProcedure15CodeVersion(),
+				claimGroup.getProcedure15Date(), claimGroup.getProcedure16Code(),
+				claimGroup.getProcedure16CodeVersion(), claimGroup.getProcedure16Date(),
+				claimGroup.getProcedure17Code(), claimGroup.getProcedure17CodeVersion(),
+				claimGroup.getProcedure17Date(), claimGroup.getProcedure18Code(),
+				claimGroup.getProcedure18CodeVersion(), claimGroup.getProcedure18Date(),
+				claimGroup.getProcedure19Code(), claimGroup.getProcedure19CodeVersion(),
+				claimGroup.getProcedure19Date(), claimGroup.getProcedure20Code(),
+				claimGroup.getProcedure20CodeVersion(), claimGroup.getProcedure20Date(),
+				claimGroup.getProcedure21Code(), claimGroup.getProcedure21CodeVersion(),
+				claimGroup.getProcedure21Date(), claimGroup.getProcedure22Code(),
+				claimGroup.getProcedure22CodeVersion(), claimGroup.getProcedure22Date(),
+				claimGroup.getProcedure23Code(), claimGroup.getProcedure23CodeVersion(),
+				claimGroup.getProcedure23Date(), claimGroup.getProcedure24Code(),
+				claimGroup.getProcedure24CodeVersion(), claimGroup.getProcedure24Date(),
+				claimGroup.getProcedure25Code(), claimGroup.getProcedure25CodeVersion(),
+				claimGroup.getProcedure25Date()))
+			TransformerUtils.addProcedureCode(eob, procedure);
+	}
+
+	/**
+	 * The pre-{@link ClaimCodeMapping} version of the diagnosis and procedure
+	 * code mapping in {@link SNFClaimTransformer}.
+	 *
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to modify
+	 * @param claimGroup
+	 *            the {@link SNFClaim} to map the codes from
+	 */
+	static void mapSNFCodes(ExplanationOfBenefit eob, SNFClaim claimGroup) {
+
+		Optional<Diagnosis> admittingDiagnosis = Diagnosis.from(claimGroup.getDiagnosisAdmittingCode(),
+				claimGroup.getDiagnosisAdmittingCodeVersion(), DiagnosisLabel.ADMITTING);
+		if (admittingDiagnosis.isPresent()) {
+			TransformerUtils.addDiagnosisCode(eob, admittingDiagnosis.get());
+		}
+
+		for (Diagnosis diagnosis : extractDiagnoses1Thru12(claimGroup.getDiagnosisPrincipalCode(),
+				claimGroup.getDiagnosisPrincipalCodeVersion(), claimGroup.getDiagnosis1Code(),
+				claimGroup.getDiagnosis1CodeVersion(), claimGroup.getDiagnosis2Code(),
+				claimGroup.getDiagnosis2CodeVersion(), claimGroup.getDiagnosis3Code(),
+				claimGroup.getDiagnosis3CodeVersion(), claimGroup.getDiagnosis4Code(),
+				claimGroup.getDiagnosis4CodeVersion(), claimGroup.getDiagnosis5Code(),
+				claimGroup.getDiagnosis5CodeVersion(), claimGroup.getDiagnosis6Code(),
+				claimGroup.getDiagnosis6CodeVersion(), claimGroup.getDiagnosis7Code(),
+				claimGroup.getDiagnosis7CodeVersion(), claimGroup.getDiagnosis8Code(),
+				claimGroup.getDiagnosis8CodeVersion(), claimGroup.getDiagnosis9Code(),
+				claimGroup.getDiagnosis9CodeVersion(), claimGroup.getDiagnosis10Code(),
+				claimGroup.getDiagnosis10CodeVersion(), claimGroup.getDiagnosis11Code(),
+				claimGroup.getDiagnosis11CodeVersion(), claimGroup.getDiagnosis12Code(),
+				claimGroup.getDiagnosis12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (Diagnosis diagnosis : extractDiagnoses13Thru25(claimGroup.getDiagnosis13Code(),
+				claimGroup.getDiagnosis13CodeVersion(), claimGroup.getDiagnosis14Code(),
+				claimGroup.getDiagnosis14CodeVersion(), claimGroup.getDiagnosis15Code(),
+				claimGroup.getDiagnosis15CodeVersion(), claimGroup.getDiagnosis16Code(),
+				claimGroup.getDiagnosis16CodeVersion(), claimGroup.getDiagnosis17Code(),
+				claimGroup.getDiagnosis17CodeVersion(), claimGroup.getDiagnosis18Code(),
+				claimGroup.getDiagnosis18CodeVersion(), claimGroup.getDiagnosis19Code(),
+				claimGroup.getDiagnosis19CodeVersion(), claimGroup.getDiagnosis20Code(),
+				claimGroup.getDiagnosis20CodeVersion(), claimGroup.getDiagnosis21Code(),
+				claimGroup.getDiagnosis21CodeVersion(), claimGroup.getDiagnosis22Code(),
+				claimGroup.getDiagnosis22CodeVersion(), claimGroup.getDiagnosis23Code(),
+				claimGroup.getDiagnosis23CodeVersion(), claimGroup.getDiagnosis24Code(),
+				claimGroup.getDiagnosis24CodeVersion(), claimGroup.getDiagnosis25Code(),
+				claimGroup.getDiagnosis25CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (Diagnosis diagnosis : extractExternalDiagnoses1Thru12(
+				claimGroup.getDiagnosisExternalFirstCode(), claimGroup.getDiagnosisExternalFirstCodeVersion(),
+				claimGroup.getDiagnosisExternal1Code(), claimGroup.getDiagnosisExternal1CodeVersion(),
+				claimGroup.getDiagnosisExternal2Code(), claimGroup.getDiagnosisExternal2CodeVersion(),
+				claimGroup.getDiagnosisExternal3Code(), claimGroup.getDiagnosisExternal3CodeVersion(),
+				claimGroup.getDiagnosisExternal4Code(), claimGroup.getDiagnosisExternal4CodeVersion(),
+				claimGroup.getDiagnosisExternal5Code(), claimGroup.getDiagnosisExternal5CodeVersion(),
+				claimGroup.getDiagnosisExternal6Code(), claimGroup.getDiagnosisExternal6CodeVersion(),
+				claimGroup.getDiagnosisExternal7Code(), claimGroup.getDiagnosisExternal7CodeVersion(),
+				claimGroup.getDiagnosisExternal8Code(), claimGroup.getDiagnosisExternal8CodeVersion(),
+				claimGroup.getDiagnosisExternal9Code(), claimGroup.getDiagnosisExternal9CodeVersion(),
+				claimGroup.getDiagnosisExternal10Code(), claimGroup.getDiagnosisExternal10CodeVersion(),
+				claimGroup.getDiagnosisExternal11Code(), claimGroup.getDiagnosisExternal11CodeVersion(),
+				claimGroup.getDiagnosisExternal12Code(), claimGroup.getDiagnosisExternal12CodeVersion()))
+			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+
+		for (CCWProcedure procedure : extractCCWProcedures(claimGroup.getProcedure1Code(),
+				claimGroup.getProcedure1CodeVersion(), claimGroup.getProcedure1Date(), claimGroup.getProcedure2Code(),
+				claimGroup.getProcedure2CodeVersion(), claimGroup.getProcedure2Date(), claimGroup.getProcedure3Code(),
+				claimGroup.getProcedure3CodeVersion(), claimGroup.getProcedure3Date(), claimGroup.getProcedure4Code(),
+				claimGroup.getProcedure4CodeVersion(), claimGroup.getProcedure4Date(), claimGroup.getProcedure5Code(),
+				claimGroup.getProcedure5CodeVersion(), claimGroup.getProcedure5Date(), claimGroup.getProcedure6Code(),
+				claimGroup.getProcedure6CodeVersion(), claimGroup.getProcedure6Date(), claimGroup.getProcedure7Code(),
+				claimGroup.getProcedure7CodeVersion(), claimGroup.getProcedure7Date(), claimGroup.getProcedure8Code(),
+				claimGroup.getProcedure8CodeVersion(), claimGroup.getProcedure8Date(), claimGroup.getProcedure9Code(),
+				claimGroup.getProcedure9CodeVersion(), claimGroup.getProcedure9Date(), claimGroup.getProcedure10Code(),
+				claimGroup.getProcedure10CodeVersion(), claimGroup.getProcedure10Date(),
+				claimGroup.getProcedure11Code(), claimGroup.getProcedure11CodeVersion(),
+				claimGroup.getProcedure11Date(), claimGroup.getProcedure12Code(),
+				claimGroup.getProcedure12CodeVersion(), claimGroup.getProcedure12Date(),
+				claimGroup.getProcedure13Code(), claimGroup.getProcedure13CodeVersion(),
+				claimGroup.getProcedure13Date(), claimGroup.getProcedure14Code(),
+				claimGroup.getProcedure14CodeVersion(), claimGroup.getProcedure14Date(),
+				claimGroup.getProcedure15Code(), claimGroup.getProcedure15CodeVersion(),
+				claimGroup.getProcedure15Date(), claimGroup.getProcedure16Code(),
+				claimGroup.getProcedure16CodeVersion(), claimGroup.getProcedure16Date(),
+				claimGroup.getProcedure17Code(), claimGroup.getProcedure17CodeVersion(),
+				claimGroup.getProcedure17Date(), claimGroup.getProcedure18Code(),
+				claimGroup.getProcedure18CodeVersion(), claimGroup.getProcedure18Date(),
+				claimGroup.getProcedure19Code(), claimGroup.getProcedure19CodeVersion(),
+				claimGroup.getProcedure19Date(), claimGroup.getProcedure20Code(),
+				claimGroup.getProcedure20CodeVersion(), claimGroup.getProcedure20Date(),
+				claimGroup.getProcedure21Code(), claimGroup.getProcedure21CodeVersion(),
+				claimGroup.getProcedure21Date(), claimGroup.getProcedure22Code(),
+				claimGroup.getProcedure22CodeVersion(), claimGroup.getProcedure22Date(),
+				claimGroup.getProcedure23Code(), claimGroup.getProcedure23CodeVersion(),
+				claimGroup.getProcedure23Date(), claimGroup.getProcedure24Code(),
+				claimGroup.getProcedure24CodeVersion(), claimGroup.getProcedure24Date(),
+				claimGroup.getProcedure25Code(), claimGroup.getProcedure25CodeVersion(),
+				claimGroup.getProcedure25Date()))
+			TransformerUtils.addProcedureCode(eob, procedure);
+	}
+
+	/**
+	 * Extract the Diagnosis values for codes 1-12
+	 * 
+	 * @param diagnosisPrincipalCode
+	 * @param diagnosisPrincipalCodeVersion
+	 * @param diagnosis1Code
+	 *            through diagnosis12Code
+	 * @param diagnosis1CodeVersion
+	 *            through diagnosis12CodeVersion
+	 * 
+	 * @return the {@link Diagnosis}es that can be extracted from the specified
+	 * 
+	 */
+	private static List<Diagnosis> extractDiagnoses1Thru12(Optional<String> diagnosisPrincipalCode,
+			Optional<Character> diagnosisPrincipalCodeVersion, Optional<String> diagnosis1Code,
+			Optional<Character> diagnosis1CodeVersion, Optional<String> diagnosis2Code,
+			Optional<Character> diagnosis2CodeVersion, Optional<String> diagnosis3Code,
+			Optional<Character> diagnosis3CodeVersion, Optional<String> diagnosis4Code,
+			Optional<Character> diagnosis4CodeVersion, Optional<String> diagnosis5Code,
+			Optional<Character> diagnosis5CodeVersion, Optional<String> diagnosis6Code,
+			Optional<Character> diagnosis6CodeVersion, Optional<String> diagnosis7Code,
+			Optional<Character> diagnosis7CodeVersion, Optional<String> diagnosis8Code,
+			Optional<Character> diagnosis8CodeVersion, Optional<String> diagnosis9Code,
+			Optional<Character> diagnosis9CodeVersion, Optional<String> diagnosis10Code,
+			Optional<Character> diagnosis10CodeVersion, Optional<String> diagnosis11Code,
+			Optional<Character> diagnosis11CodeVersion, Optional<String> diagnosis12Code,
+			Optional<Character> diagnosis12CodeVersion) {
+		List<Diagnosis> diagnoses = new LinkedList<>();
+
+		/*
+		 * Seems silly, but allows the block below to be simple one-liners, rather than
+		 * requiring if-blocks.
+		 */
+		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
+			if (d.isPresent())
+				diagnoses.add(d.get());
+		};
+
+		diagnosisAdder.accept(
+				Diagnosis.from(diagnosisPrincipalCode, diagnosisPrincipalCodeVersion, DiagnosisLabel.PRINCIPAL));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis1Code, diagnosis1CodeVersion, DiagnosisLabel.PRINCIPAL));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis2Code, diagnosis2CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis3Code, diagnosis3CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis4Code, diagnosis4CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis5Code, diagnosis5CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis6Code, diagnosis6CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis7Code, diagnosis7CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis8Code, diagnosis8CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis9Code, diagnosis9CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis10Code, diagnosis10CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis11Code, diagnosis11CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis12Code, diagnosis12CodeVersion));
+
+		return diagnoses;
+	}
+
+	/**
+	 * Extract the Diagnosis values for codes 13-25
+	 * 
+	 * @param diagnosis13Code
+	 *            through diagnosis25Code
+	 * @param diagnosis13CodeVersion
+	 *            through diagnosis25CodeVersion
+	 * 
+	 * @return the {@link Diagnosis}es that can be extracted from the specified
+	 * 
+	 */
+	private static List<Diagnosis> extractDiagnoses13Thru25(Optional<String> diagnosis13Code,
+			Optional<Character> diagnosis13CodeVersion, Optional<String> diagnosis14Code,
+			Optional<Character> diagnosis14CodeVersion, Optional<String> diagnosis15Code,
+			Optional<Character> diagnosis15CodeVersion, Optional<String> diagnosis16Code,
+			Optional<Character> diagnosis16CodeVersion, Optional<String> diagnosis17Code,
+			Optional<Character> diagnosis17CodeVersion, Optional<String> diagnosis18Code,
+			Optional<Character> diagnosis18CodeVersion, Optional<String> diagnosis19Code,
+			Optional<Character> diagnosis19CodeVersion, Optional<String> diagnosis20Code,
+			Optional<Character> diagnosis20CodeVersion, Optional<String> diagnosis21Code,
+			Optional<Character> diagnosis21CodeVersion, Optional<String> diagnosis22Code,
+			Optional<Character> diagnosis22CodeVersion, Optional<String> diagnosis23Code,
+			Optional<Character> diagnosis23CodeVersion, Optional<String> diagnosis24Code,
+			Optional<Character> diagnosis24CodeVersion, Optional<String> diagnosis25Code,
+			Optional<Character> diagnosis25CodeVersion) {
+		List<Diagnosis> diagnoses = new LinkedList<>();
+
+		/*
+		 * Seems silly, but allows the block below to be simple one-liners, rather than
+		 * requiring if-blocks.
+		 */
+		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
+			if (d.isPresent())
+				diagnoses.add(d.get());
+		};
+
+		diagnosisAdder.accept(Diagnosis.from(diagnosis13Code, diagnosis13CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis14Code, diagnosis14CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis15Code, diagnosis15CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis16Code, diagnosis16CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis17Code, diagnosis17CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis18Code, diagnosis18CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis19Code, diagnosis19CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis20Code, diagnosis20CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis21Code, diagnosis21CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis22Code, diagnosis22CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis23Code, diagnosis23CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis24Code, diagnosis24CodeVersion));
+		diagnosisAdder.accept(Diagnosis.from(diagnosis25Code, diagnosis25CodeVersion));
+
+		return diagnoses;
+	}
+
+	/**
+	 * Extract the External Diagnosis values for codes 1-12
+	 * 
+	 * @param diagnosisExternalFirstCode
+	 * @param diagnosisExternalFirstCodeVersion
+	 * @param diagnosisExternal1Code
+	 *            through diagnosisExternal12Code
+	 * @param diagnosisExternal1CodeVersion
+	 *            through diagnosisExternal12CodeVersion
+	 * 
+	 * @return the {@link Diagnosis}es that can be extracted from the specified
+	 * 
+	 */
+	private static List<Diagnosis> extractExternalDiagnoses1Thru12(Optional<String> diagnosisExternalFirstCode,
+			Optional<Character> diagnosisExternalFirstCodeVersion, Optional<String> diagnosisExternal1Code,
+			Optional<Character> diagnosisExternal1CodeVersion, Optional<String> diagnosisExternal2Code,
+			Optional<Character> diagnosisExternal2CodeVersion, Optional<String> diagnosisExternal3Code,
+			Optional<Character> diagnosisExternal3CodeVersion, Optional<String> diagnosisExternal4Code,
+			Optional<Character> diagnosisExternal4CodeVersion, Optional<String> diagnosisExternal5Code,
+			Optional<Character> diagnosisExternal5CodeVersion, Optional<String> diagnosisExternal6Code,
+			Optional<Character> diagnosisExternal6CodeVersion, Optional<String> diagnosisExternal7Code,
+			Optional<Character> diagnosisExternal7CodeVersion, Optional<String> diagnosisExternal8Code,
+			Optional<Character> diagnosisExternal8CodeVersion, Optional<String> diagnosisExternal9Code,
+			Optional<Character> diagnosisExternal9CodeVersion, Optional<String> diagnosisExternal10Code,
+			Optional<Character> diagnosisExternal10CodeVersion, Optional<String> diagnosisExternal11Code,
+			Optional<Character> diagnosisExternal11CodeVersion, Optional<String> diagnosisExternal12Code,
+			Optional<Character> diagnosisExternal12CodeVersion) {
+		List<Diagnosis> diagnoses = new LinkedList<>();
+
+		/*
+		 * Seems silly, but allows the block below to be simple one-liners, rather than
+		 * requiring if-blocks.
+		 */
+		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
+			if (d.isPresent())
+				diagnoses.add(d.get());
+		};
+
+		diagnosisAdder.accept(Diagnosis.from(diagnosisExternalFirstCode, diagnosisExternalFirstCodeVersion,
+				DiagnosisLabel.FIRSTEXTERNAL));
+		diagnosisAdder.accept(
+				Diagnosis.from(diagnosisExternal1Code, diagnosisExternal1CodeVersion, DiagnosisLabel.FIRSTEXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(diagnosisExternal2Code, diagnosisExternal2CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(diagnosisExternal3Code, diagnosisExternal3CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(diagnosisExternal4Code, diagnosisExternal4CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(diagnosisExternal5Code, diagnosisExternal5CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(diagnosisExternal6Code, diagnosisExternal6CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(diagnosisExternal7Code, diagnosisExternal7CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(diagnosisExternal8Code, diagnosisExternal8CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(diagnosisExternal9Code, diagnosisExternal9CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder.accept(
+				Diagnosis.from(diagnosisExternal10Code, diagnosisExternal10CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder.accept(
+				Diagnosis.from(diagnosisExternal11Code, diagnosisExternal11CodeVersion, DiagnosisLabel.EXTERNAL));
+		diagnosisAdder.accept(
+				Diagnosis.from(diagnosisExternal12Code, diagnosisExternal12CodeVersion, DiagnosisLabel.EXTERNAL));
+
+		return diagnoses;
+	}
+
+	/**
+	 * Extract the Procedure values for codes 1-25
+	 * 
+	 * @param procedure1Code
+	 *            through procedure25Code,
+	 * @param procedure1CodeVersion
+	 *            through procedure25CodeVersion
+	 * @param procedure1Date
+	 *            through procedure25Date
+	 * 
+	 * @return the {@link CCWProcedure}es that can be extracted from the specified
+	 *         claim types
+	 */
+	private static List<CCWProcedure> extractCCWProcedures(Optional<String> procedure1Code,
+			Optional<Character> procedure1CodeVersion, Optional<LocalDate> procedure1Date,
+			Optional<String> procedure2Code, Optional<Character> procedure2CodeVersion,
+			Optional<LocalDate> procedure2Date, Optional<String> procedure3Code,
+			Optional<Character> procedure3CodeVersion, Optional<LocalDate> procedure3Date,
+			Optional<String> procedure4Code, Optional<Character> procedure4CodeVersion,
+			Optional<LocalDate> procedure4Date, Optional<String> procedure5Code,
+			Optional<Character> procedure5CodeVersion, Optional<LocalDate> procedure5Date,
+			Optional<String> procedure6Code, Optional<Character> procedure6CodeVersion,
+			Optional<LocalDate> procedure6Date, Optional<String> procedure7Code,
+			Optional<Character> procedure7CodeVersion, Optional<LocalDate> procedure7Date,
+			Optional<String> procedure8Code, Optional<Character> procedure8CodeVersion,
+			Optional<LocalDate> procedure8Date, Optional<String> procedure9Code,
+			Optional<Character> procedure9CodeVersion, Optional<LocalDate> procedure9Date,
+			Optional<String> procedure10Code, Optional<Character> procedure10CodeVersion,
+			Optional<LocalDate> procedure10Date, Optional<String> procedure11Code,
+			Optional<Character> procedure11CodeVersion, Optional<LocalDate> procedure11Date,
+			Optional<String> procedure12Code, Optional<Character> procedure12CodeVersion,
+			Optional<LocalDate> procedure12Date, Optional<String> procedure13Code,
+			Optional<Character> procedure13CodeVersion, Optional<LocalDate> procedure13Date,
+			Optional<String> procedure14Code, Optional<Character> procedure14CodeVersion,
+			Optional<LocalDate> procedure14Date, Optional<String> procedure15Code,
+			Optional<Character> procedure15CodeVersion, Optional<LocalDate> procedure15Date,
+			Optional<String> procedure16Code, Optional<Character> procedure16CodeVersion,
+			Optional<LocalDate> procedure16Date, Optional<String> procedure17Code,
+			Optional<Character> procedure17CodeVersion, Optional<LocalDate> procedure17Date,
+			Optional<String> procedure18Code, Optional<Character> procedure18CodeVersion,
+			Optional<LocalDate> procedure18Date, Optional<String> procedure19Code,
+			Optional<Character> procedure19CodeVersion, Optional<LocalDate> procedure19Date,
+			Optional<String> procedure20Code, Optional<Character> procedure20CodeVersion,
+			Optional<LocalDate> procedure20Date, Optional<String> procedure21Code,
+			Optional<Character> procedure21CodeVersion, Optional<LocalDate> procedure21Date,
+			Optional<String> procedure22Code, Optional<Character> procedure22CodeVersion,
+			Optional<LocalDate> procedure22Date, Optional<String> procedure23Code,
+			Optional<Character> procedure23CodeVersion, Optional<LocalDate> procedure23Date,
+			Optional<String> procedure24Code, Optional<Character> procedure24CodeVersion,
+			Optional<LocalDate> procedure24Date, Optional<String> procedure25Code,
+			Optional<Character> procedure25CodeVersion, Optional<LocalDate> procedure25Date) {
+
+		List<CCWProcedure> ccwProcedures = new LinkedList<>();
+
+		/*
+		 * Seems silly, but allows the block below to be simple one-liners, rather than
+		 * requiring if-blocks.
+		 */
+		Consumer<Optional<CCWProcedure>> ccwProcedureAdder = p -> {
+			if (p.isPresent())
+				ccwProcedures.add(p.get());
+		};
+
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure1Code, procedure1CodeVersion, procedure1Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure2Code, procedure2CodeVersion, procedure2Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure3Code, procedure3CodeVersion, procedure3Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure4Code, procedure4CodeVersion, procedure4Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure5Code, procedure5CodeVersion, procedure5Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure6Code, procedure6CodeVersion, procedure6Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure7Code, procedure7CodeVersion, procedure7Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure8Code, procedure8CodeVersion, procedure8Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure9Code, procedure9CodeVersion, procedure9Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure10Code, procedure10CodeVersion, procedure10Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure11Code, procedure11CodeVersion, procedure11Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure12Code, procedure12CodeVersion, procedure12Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure13Code, procedure13CodeVersion, procedure13Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure14Code, procedure14CodeVersion, procedure14Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure15Code, procedure15CodeVersion, procedure15Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure16Code, procedure16CodeVersion, procedure16Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure17Code, procedure17CodeVersion, procedure17Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure18Code, procedure18CodeVersion, procedure18Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure19Code, procedure19CodeVersion, procedure19Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure20Code, procedure20CodeVersion, procedure20Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure21Code, procedure21CodeVersion, procedure21Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure22Code, procedure22CodeVersion, procedure22Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure23Code, procedure23CodeVersion, procedure23Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure24Code, procedure24CodeVersion, procedure24Date));
+		ccwProcedureAdder.accept(CCWProcedure.from(procedure25Code, procedure25CodeVersion, procedure25Date));
+
+		return ccwProcedures;
+	}
+
+	/**
+	 * @param claim
+	 *            the {@link InpatientClaim} to extract the {@link Diagnosis}es
+	 *            from
+	 * @return the {@link Diagnosis}es that can be extracted from the specified
+	 *         {@link InpatientClaim}
+	 */
+	private static List<Diagnosis> extractInpatientDiagnoses(InpatientClaim claim) {
+		List<Diagnosis> diagnoses = new LinkedList<>();
+
+		/*
+		 * Seems silly, but allows the block below to be simple one-liners,
+		 * rather than requiring if-blocks.
+		 */
+		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
+			if (d.isPresent())
+				diagnoses.add(d.get());
+		};
+
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisAdmittingCode(),
+				claim.getDiagnosisAdmittingCodeVersion(), DiagnosisLabel.ADMITTING));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis1Code(), claim.getDiagnosis1CodeVersion(),
+				claim.getDiagnosis1PresentOnAdmissionCode(), DiagnosisLabel.PRINCIPAL));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisPrincipalCode(),
+				claim.getDiagnosisPrincipalCodeVersion(), DiagnosisLabel.PRINCIPAL));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis2Code(), claim.getDiagnosis2CodeVersion(),
+				claim.getDiagnosis2PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis3Code(), claim.getDiagnosis3CodeVersion(),
+				claim.getDiagnosis3PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis4Code(), claim.getDiagnosis4CodeVersion(),
+				claim.getDiagnosis4PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis5Code(), claim.getDiagnosis5CodeVersion(),
+				claim.getDiagnosis5PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis6Code(), claim.getDiagnosis6CodeVersion(),
+				claim.getDiagnosis6PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis7Code(), claim.getDiagnosis7CodeVersion(),
+				claim.getDiagnosis7PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis8Code(), claim.getDiagnosis8CodeVersion(),
+				claim.getDiagnosis8PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis9Code(), claim.getDiagnosis9CodeVersion(),
+				claim.getDiagnosis9PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis10Code(), claim.getDiagnosis10CodeVersion(),
+				claim.getDiagnosis10PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis11Code(), claim.getDiagnosis11CodeVersion(),
+				claim.getDiagnosis11PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis12Code(), claim.getDiagnosis12CodeVersion(),
+				claim.getDiagnosis12PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis13Code(), claim.getDiagnosis13CodeVersion(),
+				claim.getDiagnosis13PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis14Code(), claim.getDiagnosis14CodeVersion(),
+				claim.getDiagnosis14PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis15Code(), claim.getDiagnosis15CodeVersion(),
+				claim.getDiagnosis15PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis16Code(), claim.getDiagnosis16CodeVersion(),
+				claim.getDiagnosis16PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis17Code(), claim.getDiagnosis17CodeVersion(),
+				claim.getDiagnosis17PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis18Code(), claim.getDiagnosis18CodeVersion(),
+				claim.getDiagnosis18PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis19Code(), claim.getDiagnosis19CodeVersion(),
+				claim.getDiagnosis19PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis20Code(), claim.getDiagnosis20CodeVersion(),
+				claim.getDiagnosis20PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis21Code(), claim.getDiagnosis21CodeVersion(),
+				claim.getDiagnosis21PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis22Code(), claim.getDiagnosis22CodeVersion(),
+				claim.getDiagnosis22PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis23Code(), claim.getDiagnosis23CodeVersion(),
+				claim.getDiagnosis23PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis24Code(), claim.getDiagnosis24CodeVersion(),
+				claim.getDiagnosis24PresentOnAdmissionCode()));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis25Code(), claim.getDiagnosis25CodeVersion(),
+				claim.getDiagnosis25PresentOnAdmissionCode()));
+
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal1Code(), claim.getDiagnosisExternal1CodeVersion(),
+						claim.getDiagnosisExternal1PresentOnAdmissionCode(), DiagnosisLabel.FIRSTEXTERNAL));
+		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisExternalFirstCode(),
+				claim.getDiagnosisExternalFirstCodeVersion(), DiagnosisLabel.FIRSTEXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal2Code(), claim.getDiagnosisExternal2CodeVersion(),
+						claim.getDiagnosisExternal2PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal3Code(), claim.getDiagnosisExternal3CodeVersion(),
+						claim.getDiagnosisExternal3PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal4Code(), claim.getDiagnosisExternal4CodeVersion(),
+						claim.getDiagnosisExternal4PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal5Code(), claim.getDiagnosisExternal5CodeVersion(),
+						claim.getDiagnosisExternal5PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal6Code(), claim.getDiagnosisExternal6CodeVersion(),
+						claim.getDiagnosisExternal6PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal7Code(), claim.getDiagnosisExternal7CodeVersion(),
+						claim.getDiagnosisExternal7PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal8Code(), claim.getDiagnosisExternal8CodeVersion(),
+						claim.getDiagnosisExternal8PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal9Code(), claim.getDiagnosisExternal9CodeVersion(),
+						claim.getDiagnosisExternal9PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal10Code(), claim.getDiagnosisExternal10CodeVersion(),
+						claim.getDiagnosisExternal10PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal11Code(), claim.getDiagnosisExternal11CodeVersion(),
+						claim.getDiagnosisExternal11PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+		diagnosisAdder
+				.accept(Diagnosis.from(claim.getDiagnosisExternal12Code(), claim.getDiagnosisExternal12CodeVersion(),
+						claim.getDiagnosisExternal12PresentOnAdmissionCode(), DiagnosisLabel.EXTERNAL));
+
+		return diagnoses;
+	}
+}
@@ -6,6 +6,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
+import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent;
 import org.hl7.fhir.exceptions.FHIRException;
@@ -20,6 +21,7 @@ import gov.hhs.cms.bluebutton.data.model.rif.OutpatientClaimLine;
 import gov.hhs.cms.bluebutton.data.model.rif.samples.StaticRifResource;
 import gov.hhs.cms.bluebutton.data.model.rif.samples.StaticRifResourceGroup;
 import gov.hhs.cms.bluebutton.server.app.ServerTestUtils;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel;
 
 /**
  * Unit tests for {@link OutpatientClaimTransformer}.
@@ -44,6 +46,37 @@ public final class OutpatientClaimTransformerTest {
 		assertMatches(claim, eob);
 	}
 
+	/**
+	 * Verifies that {@link OutpatientClaimTransformer#transform(Object)} maps
+	 * each of the <code>RSN_VISIT_CD*</code> fields from its own value, when
+	 * they're all different.
+	 * 
+	 * @throws FHIRException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void transformReasonForVisitCodes() throws FHIRException {
+		List<Object> parsedRecords = ServerTestUtils
+				.parseData(Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+		OutpatientClaim claim = parsedRecords.stream().filter(r -> r instanceof OutpatientClaim)
+				.map(r -> (OutpatientClaim) r).findFirst().get();
+		claim.setDiagnosisAdmission1Code(Optional.of("A001"));
+		claim.setDiagnosisAdmission1CodeVersion(Optional.of('0'));
+		claim.setDiagnosisAdmission2Code(Optional.of("B002"));
+		claim.setDiagnosisAdmission2CodeVersion(Optional.of('0'));
+		claim.setDiagnosisAdmission3Code(Optional.of("C003"));
+		claim.setDiagnosisAdmission3CodeVersion(Optional.of('0'));
+
+		ExplanationOfBenefit eob = OutpatientClaimTransformer.transform(new MetricRegistry(), claim);
+		for (String reasonForVisitCode : Arrays.asList("A001", "B002", "C003")) {
+			Diagnosis expected = Diagnosis
+					.from(Optional.of(reasonForVisitCode), Optional.of('0'), DiagnosisLabel.REASONFORVISIT).get();
+			Assert.assertTrue(reasonForVisitCode,
+					eob.getDiagnosis().stream().filter(d -> d.getDiagnosis() instanceof CodeableConcept)
+							.anyMatch(d -> expected.isContainedIn((CodeableConcept) d.getDiagnosis())));
+		}
+	}
+
 	/**
 	 * Verifies that the {@link ExplanationOfBenefit} "looks like" it should, if
 	 * it were produced from the specified {@link OutpatientClaim}.
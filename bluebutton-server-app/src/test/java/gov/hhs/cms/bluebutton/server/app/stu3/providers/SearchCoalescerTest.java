@@ -0,0 +1,99 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+
+/**
+ * Unit tests for {@link SearchCoalescer}.
+ */
+public final class SearchCoalescerTest {
+	/**
+	 * Verifies that concurrent identical searches share a single execution,
+	 * and that each caller gets its own copy of the results.
+	 */
+	@Test
+	public void coalescesConcurrentSearches() throws InterruptedException, ExecutionException {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		SearchCoalescer searchCoalescer = new SearchCoalescer(metricRegistry);
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch searchStarted = new CountDownLatch(1);
+		CountDownLatch searchMayFinish = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Bundle> leader = executor.submit(() -> searchCoalescer.search("Patient", "a", () -> {
+				executions.incrementAndGet();
+				searchStarted.countDown();
+				await(searchMayFinish);
+				return new Bundle().setTotal(1);
+			}));
+			await(searchStarted);
+			Future<Bundle> follower = executor.submit(() -> searchCoalescer.search("Patient", "a", () -> {
+				executions.incrementAndGet();
+				return new Bundle().setTotal(2);
+			}));
+
+			// Wait for the follower to join the leader's search before letting it finish.
+			while (metricRegistry.meter("SearchCoalescer.Patient.coalesced").getCount() < 1)
+				Thread.sleep(1L);
+			searchMayFinish.countDown();
+
+			Assert.assertEquals(1, leader.get().getTotal());
+			Assert.assertEquals(1, follower.get().getTotal());
+			Assert.assertNotSame(leader.get(), follower.get());
+			Assert.assertEquals(1, executions.get());
+			Assert.assertEquals(1L, metricRegistry.meter("SearchCoalescer.Patient.executed").getCount());
+			Assert.assertEquals(0, searchCoalescer.getSearchesInFlight());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Once the first search is done, the next one should run again.
+		Assert.assertEquals(3, searchCoalescer.search("Patient", "a", () -> new Bundle().setTotal(3)).getTotal());
+	}
+
+	/**
+	 * Verifies that failed searches aren't remembered.
+	 */
+	@Test
+	public void failuresArentRemembered() {
+		SearchCoalescer searchCoalescer = new SearchCoalescer(new MetricRegistry());
+		try {
+			searchCoalescer.search("Patient", "a", () -> {
+				throw new InvalidRequestException("oops");
+			});
+			Assert.fail();
+		} catch (InvalidRequestException e) {
+			// Expected.
+		}
+
+		Assert.assertEquals(0, searchCoalescer.getSearchesInFlight());
+		Assert.assertEquals(1, searchCoalescer.search("Patient", "a", () -> new Bundle().setTotal(1)).getTotal());
+	}
+
+	/**
+	 * @param latch
+	 *            the {@link CountDownLatch} to wait on
+	 */
+	private static void await(CountDownLatch latch) {
+		try {
+			if (!latch.await(10, TimeUnit.SECONDS))
+				throw new IllegalStateException("Timed out.");
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
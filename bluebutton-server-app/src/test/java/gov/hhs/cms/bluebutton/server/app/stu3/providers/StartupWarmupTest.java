@@ -0,0 +1,48 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.StartupWarmup.SteadyStateTracker;
+
+/**
+ * Unit tests for {@link StartupWarmup}.
+ */
+public final class StartupWarmupTest {
+	/**
+	 * Verifies that {@link SteadyStateTracker} only reports a steady state once
+	 * iterations have stopped getting meaningfully faster for a while.
+	 */
+	@Test
+	public void steadyStateTracker() {
+		SteadyStateTracker tracker = new SteadyStateTracker();
+
+		// Still getting faster, as the JIT kicks in.
+		Assert.assertFalse(tracker.record(1000L));
+		Assert.assertFalse(tracker.record(500L));
+		Assert.assertFalse(tracker.record(200L));
+
+		// Only noise from here on out.
+		for (int i = 1; i < StartupWarmup.STEADY_STATE_ITERATIONS; i++)
+			Assert.assertFalse(tracker.record(i % 2 == 0 ? 190L : 210L));
+		Assert.assertTrue(tracker.record(200L));
+	}
+
+	/**
+	 * Verifies that a {@link StartupWarmup} that's disabled reports itself as
+	 * ready right away.
+	 */
+	@Test
+	public void disabled() {
+		StartupWarmup startupWarmup = new StartupWarmup(new MetricRegistry(), Collections.emptyList(), null, null,
+				false, 1, 1);
+		Assert.assertFalse(startupWarmup.isReady());
+		startupWarmup.start(null);
+		Assert.assertTrue(startupWarmup.isReady());
+		Assert.assertTrue(startupWarmup.execute().isHealthy());
+	}
+}
@@ -1,9 +1,15 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
+import java.util.Optional;
+
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.Coding;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.CareTeamComponent;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent;
 import org.hl7.fhir.dstu3.model.Extension;
 import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.codesystems.ClaimCareteamrole;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -81,4 +87,50 @@ public final class TransformerUtilsTest {
 				CcwCodebookVariable.REV_CNTR_PMT_MTHD_IND_CD, "1");
 		Assert.assertNull(paymentMethodConcept_1.getCodingFirstRep().getDisplay());
 	}
+
+	/**
+	 * Verifies that
+	 * {@link TransformerUtils#addCareTeamPractitioner(ExplanationOfBenefit, ItemComponent, String, String, ClaimCareteamrole)}
+	 * de-duplicates care team entries, including ones that were added to the
+	 * {@link ExplanationOfBenefit} directly, rather than through
+	 * {@link TransformerUtils}.
+	 */
+	@Test
+	public void addCareTeamPractitioner() {
+		ExplanationOfBenefit eob = new ExplanationOfBenefit();
+		ItemComponent item = eob.addItem();
+
+		CareTeamComponent careTeamA = TransformerUtils.addCareTeamPractitioner(eob, item,
+				TransformerConstants.CODING_NPI_US, "1234", ClaimCareteamrole.PRIMARY);
+		CareTeamComponent careTeamB = TransformerUtils.addCareTeamPractitioner(eob, item,
+				TransformerConstants.CODING_NPI_US, "5678", ClaimCareteamrole.PRIMARY);
+		Assert.assertSame(careTeamA, TransformerUtils.addCareTeamPractitioner(eob, item,
+				TransformerConstants.CODING_NPI_US, "1234", ClaimCareteamrole.ASSIST));
+		Assert.assertNotSame(careTeamA, careTeamB);
+		Assert.assertEquals(2, eob.getCareTeam().size());
+
+		CareTeamComponent careTeamC = eob.addCareTeam().setSequence(3)
+				.setProvider(TransformerUtils.createIdentifierReference(TransformerConstants.CODING_NPI_US, "9012"));
+		Assert.assertSame(careTeamC, TransformerUtils.addCareTeamPractitioner(eob, null,
+				TransformerConstants.CODING_NPI_US, "9012", ClaimCareteamrole.PRIMARY));
+		Assert.assertEquals(3, eob.getCareTeam().size());
+	}
+
+	/**
+	 * Verifies that
+	 * {@link TransformerUtils#addDiagnosisCode(ExplanationOfBenefit, Diagnosis)}
+	 * de-duplicates diagnosis entries.
+	 */
+	@Test
+	public void addDiagnosisCode() {
+		ExplanationOfBenefit eob = new ExplanationOfBenefit();
+
+		Diagnosis diagnosisA = Diagnosis.from(Optional.of("R4444"), Optional.of('0')).get();
+		Diagnosis diagnosisB = Diagnosis.from(Optional.of("R5555"), Optional.of('0')).get();
+		Assert.assertEquals(1, TransformerUtils.addDiagnosisCode(eob, diagnosisA));
+		Assert.assertEquals(2, TransformerUtils.addDiagnosisCode(eob, diagnosisB));
+		Assert.assertEquals(1, TransformerUtils.addDiagnosisCode(eob,
+				Diagnosis.from(Optional.of("R4444"), Optional.of('0')).get()));
+		Assert.assertEquals(2, eob.getDiagnosis().size());
+	}
 }
@@ -0,0 +1,196 @@
+package gov.hhs.cms.bluebutton.server.app.synthetic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.hhs.cms.bluebutton.server.app.FDADrugDataUtilityApp;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.TransformerUtils;
+
+/**
+ * <p>
+ * Pools of real-looking codes for {@link SyntheticDataGenerator} to draw from.
+ * Where possible, these are read from the same lookup files that
+ * {@link TransformerUtils} uses for display values, so that generated claims
+ * exercise those lookups as real ones would.
+ * </p>
+ * <p>
+ * Not all of those lookup files are available in every environment (see
+ * <code>src/main/resources/README.md</code>), so each pool falls back to a
+ * small built-in list if its file can't be found.
+ * </p>
+ */
+public final class SyntheticCodes {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticCodes.class);
+
+	/**
+	 * The maximum number of codes to read from each lookup file. Some of them
+	 * (e.g. the NPI file) are huge, and a sample of their first entries is
+	 * plenty.
+	 */
+	private static final int MAX_CODES_PER_POOL = 50_000;
+
+	/**
+	 * There's no HCPCS lookup file, so this is a selection of the most commonly
+	 * billed HCPCS codes (and CPT codes, which are a subset of them).
+	 */
+	private static final List<String> HCPCS_CODES = Collections.unmodifiableList(Arrays.asList("99213", "99214",
+			"99212", "99203", "99204", "99232", "99233", "99223", "99285", "99284", "36415", "80053", "80061",
+			"85025", "83036", "84443", "93000", "71046", "71045", "77067", "97110", "97140", "97530", "90471",
+			"90686", "G0008", "G0439", "J1100", "J3301", "J0897", "A0425", "A0428", "E0601", "E1390", "A4253"));
+
+	private static final List<String> FALLBACK_ICD_CODES = Arrays.asList("7840", "4011", "25000", "2724", "4280",
+			"42731", "496", "5990", "71590", "V5869");
+	private static final List<String> FALLBACK_PROCEDURE_CODES = Arrays.asList("8295", "3995", "8154", "4516",
+			"3722", "9904", "8151", "0066");
+	private static final List<String> FALLBACK_NPIS = Arrays.asList("1003000126", "1003000134", "1003000142",
+			"1003000167", "1003000183", "1003000209", "1003000217", "1003000225");
+	private static final List<String> FALLBACK_NATIONAL_DRUG_CODES = Arrays.asList("00093-0311", "00378-0208",
+			"00591-0405", "00904-5785", "16714-0627", "68180-0513", "00781-1506", "59762-3304");
+
+	private final List<String> icdCodes;
+	private final List<String> procedureCodes;
+	private final List<String> npis;
+	private final List<String> nationalDrugCodes;
+
+	/**
+	 * Constructs a new {@link SyntheticCodes} instance.
+	 *
+	 * @param icdCodes
+	 *            the ICD diagnosis codes to draw from
+	 * @param procedureCodes
+	 *            the ICD procedure codes to draw from
+	 * @param npis
+	 *            the NPIs to draw from
+	 * @param nationalDrugCodes
+	 *            the FDA product NDCs (<code>LLLLL-PPPP</code>) to draw from
+	 */
+	SyntheticCodes(List<String> icdCodes, List<String> procedureCodes, List<String> npis,
+			List<String> nationalDrugCodes) {
+		if (icdCodes.isEmpty() || procedureCodes.isEmpty() || npis.isEmpty() || nationalDrugCodes.isEmpty())
+			throw new IllegalArgumentException();
+
+		this.icdCodes = icdCodes;
+		this.procedureCodes = procedureCodes;
+		this.npis = npis;
+		this.nationalDrugCodes = nationalDrugCodes;
+	}
+
+	/**
+	 * @param random
+	 *            the {@link Random} to use
+	 * @return a random ICD diagnosis code
+	 */
+	public String randomIcdCode(Random random) {
+		return icdCodes.get(random.nextInt(icdCodes.size()));
+	}
+
+	/**
+	 * @param random
+	 *            the {@link Random} to use
+	 * @return a random ICD procedure code
+	 */
+	public String randomProcedureCode(Random random) {
+		return procedureCodes.get(random.nextInt(procedureCodes.size()));
+	}
+
+	/**
+	 * @param random
+	 *            the {@link Random} to use
+	 * @return a random NPI
+	 */
+	public String randomNpi(Random random) {
+		return npis.get(random.nextInt(npis.size()));
+	}
+
+	/**
+	 * @param random
+	 *            the {@link Random} to use
+	 * @return a random HCPCS code
+	 */
+	public String randomHcpcsCode(Random random) {
+		return HCPCS_CODES.get(random.nextInt(HCPCS_CODES.size()));
+	}
+
+	/**
+	 * @param random
+	 *            the {@link Random} to use
+	 * @return a random 11-digit NDC, as it would appear in a claim (i.e. an FDA
+	 *         product code plus a random package code)
+	 */
+	public String randomNationalDrugCode(Random random) {
+		String productCode = nationalDrugCodes.get(random.nextInt(nationalDrugCodes.size()));
+		return String.format("%s%02d", productCode.replace("-", ""), random.nextInt(100));
+	}
+
+	/**
+	 * @return a {@link SyntheticCodes} instance with code pools read from the
+	 *         lookup files on the classpath, where available
+	 */
+	public static SyntheticCodes loadFromLookupFiles() {
+		List<String> icdCodes = readFirstColumn("DGNS_CD.txt", FALLBACK_ICD_CODES);
+		List<String> procedureCodes = readFirstColumn("PRCDR_CD.txt", FALLBACK_PROCEDURE_CODES);
+		List<String> npis = readFirstColumn("NPI_Coded_Display_Values_Tab.txt", FALLBACK_NPIS);
+
+		List<String> nationalDrugCodes;
+		if (Thread.currentThread().getContextClassLoader()
+				.getResource(FDADrugDataUtilityApp.FDA_PRODUCTS_RESOURCE) != null) {
+			Map<String, String> fdaProducts = TransformerUtils.readFDADrugCodeFile();
+			nationalDrugCodes = new ArrayList<>(fdaProducts.keySet());
+			Collections.sort(nationalDrugCodes);
+			if (nationalDrugCodes.size() > MAX_CODES_PER_POOL)
+				nationalDrugCodes = new ArrayList<>(nationalDrugCodes.subList(0, MAX_CODES_PER_POOL));
+		} else {
+			LOGGER.warn("Lookup file '{}' not found: using fallback codes.", FDADrugDataUtilityApp.FDA_PRODUCTS_RESOURCE);
+			nationalDrugCodes = FALLBACK_NATIONAL_DRUG_CODES;
+		}
+
+		return new SyntheticCodes(icdCodes, procedureCodes, npis, nationalDrugCodes);
+	}
+
+	/**
+	 * @param resourceName
+	 *            the name of the tab-separated (with a header row) classpath
+	 *            resource to read
+	 * @param fallbackCodes
+	 *            the codes to use if the resource can't be found
+	 * @return the (non-blank) values from the first column of the specified
+	 *         resource, up to {@link #MAX_CODES_PER_POOL} of them
+	 */
+	private static List<String> readFirstColumn(String resourceName, List<String> fallbackCodes) {
+		InputStream resourceStream = Thread.currentThread().getContextClassLoader()
+				.getResourceAsStream(resourceName);
+		if (resourceStream == null) {
+			LOGGER.warn("Lookup file '{}' not found: using fallback codes.", resourceName);
+			return fallbackCodes;
+		}
+
+		List<String> codes = new ArrayList<>();
+		try (BufferedReader resourceReader = new BufferedReader(
+				new InputStreamReader(resourceStream, StandardCharsets.ISO_8859_1))) {
+			resourceReader.readLine();
+			String line;
+			while (codes.size() < MAX_CODES_PER_POOL && (line = resourceReader.readLine()) != null) {
+				String code = line.split("\t", 2)[0].replace("\"", "").trim();
+				if (!code.isEmpty())
+					codes.add(code);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read lookup file: " + resourceName, e);
+		}
+
+		return codes.isEmpty() ? fallbackCodes : codes;
+	}
+}
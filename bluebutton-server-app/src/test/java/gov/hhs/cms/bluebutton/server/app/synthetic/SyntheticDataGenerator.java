@@ -0,0 +1,333 @@
+package gov.hhs.cms.bluebutton.server.app.synthetic;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
+
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+import gov.hhs.cms.bluebutton.data.model.rif.PartDEvent;
+import gov.hhs.cms.bluebutton.data.model.rif.RifFileEvent;
+import gov.hhs.cms.bluebutton.data.model.rif.RifFileRecords;
+import gov.hhs.cms.bluebutton.data.model.rif.RifFilesEvent;
+import gov.hhs.cms.bluebutton.data.model.rif.samples.StaticRifResourceGroup;
+import gov.hhs.cms.bluebutton.datapipeline.rif.extract.RifFilesProcessor;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimType;
+
+/**
+ * <p>
+ * Generates synthetic {@link Beneficiary} and claim entities (e.g.
+ * {@link gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim}s) in volume, with
+ * as many claim lines as needed.
+ * </p>
+ * <p>
+ * Each generated entity is a copy of its {@link StaticRifResourceGroup#SAMPLE_A}
+ * record, with new IDs and with its diagnosis, procedure, HCPCS, NPI, and NDC
+ * codes replaced by ones drawn at random from {@link SyntheticCodes}. Codes
+ * that are absent in the sample record are left absent, so the generated
+ * entities have the same shape as the sample ones.
+ * </p>
+ * <p>
+ * Instances are not thread-safe. For repeatable data, use the same seed and
+ * make the same sequence of calls.
+ * </p>
+ */
+public final class SyntheticDataGenerator {
+	private static final Pattern FIELD_ICD_CODE = Pattern.compile("diagnosis(?!.*PresentOnAdmission).*Code");
+	private static final Pattern FIELD_PROCEDURE_CODE = Pattern.compile("procedure\\d+Code");
+	private static final Pattern FIELD_NPI = Pattern.compile(".*(Npi|NPI)");
+	private static final String FIELD_HCPCS_CODE = "hcpcsCode";
+	private static final String FIELD_NATIONAL_DRUG_CODE = "nationalDrugCode";
+
+	/**
+	 * Caches the results of {@link #getInstanceFields(Class)}, as reflection
+	 * lookups would otherwise dominate the cost of generating large volumes.
+	 */
+	private static final Map<Class<?>, List<Field>> INSTANCE_FIELDS = new ConcurrentHashMap<>();
+
+	private final Random random;
+	private final SyntheticCodes codes;
+	private final Beneficiary beneficiaryTemplate;
+	private final Map<ClaimType, Object> claimTemplates;
+
+	/**
+	 * Constructs a new {@link SyntheticDataGenerator}.
+	 *
+	 * @param seed
+	 *            the seed for the {@link Random} used to generate data
+	 * @param codes
+	 *            the {@link SyntheticCodes} to draw codes from
+	 */
+	public SyntheticDataGenerator(long seed, SyntheticCodes codes) {
+		this.random = new Random(seed);
+		this.codes = codes;
+
+		List<Object> sampleRecords = parseSampleRecords();
+		this.beneficiaryTemplate = sampleRecords.stream().filter(r -> r instanceof Beneficiary)
+				.map(r -> (Beneficiary) r).findFirst().get();
+		this.claimTemplates = new EnumMap<>(ClaimType.class);
+		for (ClaimType claimType : ClaimType.values())
+			claimTemplates.put(claimType, sampleRecords.stream().filter(r -> claimType.getEntityClass().isInstance(r))
+					.findFirst().orElseThrow(() -> new IllegalStateException("No sample for: " + claimType)));
+	}
+
+	/**
+	 * Constructs a new {@link SyntheticDataGenerator}, using
+	 * {@link SyntheticCodes#loadFromLookupFiles()}.
+	 *
+	 * @param seed
+	 *            the seed for the {@link Random} used to generate data
+	 */
+	public SyntheticDataGenerator(long seed) {
+		this(seed, SyntheticCodes.loadFromLookupFiles());
+	}
+
+	/**
+	 * @param beneficiaryId
+	 *            the {@link Beneficiary#getBeneficiaryId()} value to use
+	 * @return a new synthetic {@link Beneficiary}
+	 */
+	public Beneficiary generateBeneficiary(String beneficiaryId) {
+		Beneficiary beneficiary = copyEntity(beneficiaryTemplate);
+		beneficiary.setBeneficiaryId(beneficiaryId);
+
+		/*
+		 * The HICN column holds hashed values, and has to be unique for Patient
+		 * lookups. Synthetic beneficiaries don't have a real HICN to hash, so
+		 * just use something unique.
+		 */
+		beneficiary.setHicn(String.format("synthetic-%s", beneficiaryId));
+
+		return beneficiary;
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of claim to generate
+	 * @param beneficiaryId
+	 *            the beneficiary ID value to use
+	 * @param claimId
+	 *            the claim ID (or {@link PartDEvent#getEventId()}) value to use
+	 * @param lineCount
+	 *            the number of claim lines to generate (ignored for
+	 *            {@link ClaimType#PDE}, as {@link PartDEvent}s don't have lines)
+	 * @return a new synthetic claim entity of the specified {@link ClaimType}
+	 */
+	public Object generateClaim(ClaimType claimType, String beneficiaryId, String claimId, int lineCount) {
+		if (lineCount < 0)
+			throw new IllegalArgumentException();
+
+		Object claimTemplate = claimTemplates.get(claimType);
+		Object claim = copyEntity(claimTemplate);
+		writeField(claim, "beneficiaryId", beneficiaryId);
+		writeField(claim, claimType == ClaimType.PDE ? "eventId" : "claimId", claimId);
+		randomizeCodes(claim);
+
+		List<Object> lineTemplates = readLines(claimTemplate);
+		if (lineTemplates != null) {
+			if (lineTemplates.isEmpty())
+				throw new IllegalStateException("Sample claim has no lines: " + claimType);
+
+			List<Object> lines = readLines(claim);
+			for (int lineNumber = 1; lineNumber <= lineCount; lineNumber++) {
+				Object line = copyEntity(lineTemplates.get((lineNumber - 1) % lineTemplates.size()));
+				writeField(line, "lineNumber", new BigDecimal(lineNumber));
+				writeField(line, "parentClaim", claim);
+				randomizeCodes(line);
+				lines.add(line);
+			}
+		}
+
+		return claim;
+	}
+
+	/**
+	 * Generates a beneficiary's worth of claims, lazily, so that arbitrarily
+	 * large volumes can be streamed (e.g. into a {@link SyntheticDataLoader})
+	 * without being held in memory all at once.
+	 *
+	 * @param beneficiaryId
+	 *            the beneficiary ID value to use
+	 * @param claimCounts
+	 *            the number of claims of each {@link ClaimType} to generate
+	 * @param lineCount
+	 *            the number of lines to generate for each claim
+	 * @param claimIds
+	 *            the source of (unique) claim ID values to use
+	 * @return a {@link Stream} of the new synthetic claim entities
+	 */
+	public Stream<Object> generateClaims(String beneficiaryId, Map<ClaimType, Integer> claimCounts, int lineCount,
+			LongSupplier claimIds) {
+		return claimCounts.entrySet().stream().flatMap(claimCount -> IntStream.range(0, claimCount.getValue())
+				.mapToObj(i -> generateClaim(claimCount.getKey(), beneficiaryId,
+						Long.toString(claimIds.getAsLong()), lineCount)));
+	}
+
+	/**
+	 * Replaces the non-<code>null</code> code fields of the specified entity
+	 * with random ones.
+	 *
+	 * @param entity
+	 *            the claim or claim line entity to modify
+	 */
+	private void randomizeCodes(Object entity) {
+		for (Field field : getInstanceFields(entity.getClass())) {
+			if (field.getType() != String.class)
+				continue;
+
+			String fieldName = field.getName();
+			String code;
+			if (FIELD_ICD_CODE.matcher(fieldName).matches())
+				code = codes.randomIcdCode(random);
+			else if (FIELD_PROCEDURE_CODE.matcher(fieldName).matches())
+				code = codes.randomProcedureCode(random);
+			else if (FIELD_NPI.matcher(fieldName).matches())
+				code = codes.randomNpi(random);
+			else if (FIELD_HCPCS_CODE.equals(fieldName))
+				code = codes.randomHcpcsCode(random);
+			else if (FIELD_NATIONAL_DRUG_CODE.equals(fieldName))
+				code = codes.randomNationalDrugCode(random);
+			else
+				continue;
+
+			try {
+				if (field.get(entity) != null)
+					field.set(entity, code);
+			} catch (IllegalAccessException e) {
+				throw new BadCodeMonkeyException(e);
+			}
+		}
+	}
+
+	/**
+	 * @return the parsed {@link StaticRifResourceGroup#SAMPLE_A} records, to use
+	 *         as templates
+	 */
+	private static List<Object> parseSampleRecords() {
+		RifFilesEvent rifFilesEvent = new RifFilesEvent(Instant.now(),
+				Arrays.stream(StaticRifResourceGroup.SAMPLE_A.getResources()).map(r -> r.toRifFile())
+						.collect(Collectors.toList()));
+		RifFilesProcessor processor = new RifFilesProcessor();
+		List<Object> recordsParsed = new ArrayList<>();
+		for (RifFileEvent rifFileEvent : rifFilesEvent.getFileEvents()) {
+			RifFileRecords rifFileRecords = processor.produceRecords(rifFileEvent);
+			rifFileRecords.getRecords().map(r -> r.getRecord()).forEach(r -> recordsParsed.add(r));
+		}
+
+		return recordsParsed;
+	}
+
+	/**
+	 * @param entity
+	 *            the JPA entity to copy
+	 * @return a shallow copy of the specified entity, with all of its
+	 *         non-collection fields copied over, and with empty collections
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T copyEntity(T entity) {
+		try {
+			T copy = (T) entity.getClass().newInstance();
+			for (Field field : getInstanceFields(entity.getClass())) {
+				if (!Collection.class.isAssignableFrom(field.getType()))
+					field.set(copy, field.get(entity));
+				else if (field.get(copy) == null)
+					field.set(copy, Set.class.isAssignableFrom(field.getType()) ? new HashSet<>() : new ArrayList<>());
+			}
+			return copy;
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new BadCodeMonkeyException(e);
+		}
+	}
+
+	/**
+	 * @param claim
+	 *            the claim entity to get the lines of
+	 * @return the (mutable) <code>lines</code> {@link List} for the specified
+	 *         claim, or <code>null</code> if it's not a type of claim that has
+	 *         lines
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<Object> readLines(Object claim) {
+		Field linesField = findField(claim.getClass(), "lines");
+		if (linesField == null)
+			return null;
+
+		try {
+			return (List<Object>) linesField.get(claim);
+		} catch (IllegalAccessException e) {
+			throw new BadCodeMonkeyException(e);
+		}
+	}
+
+	/**
+	 * @param entity
+	 *            the JPA entity to modify
+	 * @param fieldName
+	 *            the name of the field to set
+	 * @param value
+	 *            the value to set the field to
+	 */
+	private static void writeField(Object entity, String fieldName, Object value) {
+		Field field = findField(entity.getClass(), fieldName);
+		if (field == null)
+			throw new BadCodeMonkeyException(
+					String.format("No '%s' field in: %s", fieldName, entity.getClass().getName()));
+
+		try {
+			field.set(entity, value);
+		} catch (IllegalAccessException e) {
+			throw new BadCodeMonkeyException(e);
+		}
+	}
+
+	/**
+	 * @param type
+	 *            the {@link Class} to search (along with its superclasses)
+	 * @param fieldName
+	 *            the name of the {@link Field} to find
+	 * @return the matching {@link Field} (made accessible), or <code>null</code>
+	 *         if none was found
+	 */
+	private static Field findField(Class<?> type, String fieldName) {
+		return getInstanceFields(type).stream().filter(f -> f.getName().equals(fieldName)).findFirst().orElse(null);
+	}
+
+	/**
+	 * @param type
+	 *            the {@link Class} to get the fields of
+	 * @return all of the (accessible) non-static {@link Field}s of the
+	 *         specified {@link Class} and its superclasses
+	 */
+	private static List<Field> getInstanceFields(Class<?> type) {
+		return INSTANCE_FIELDS.computeIfAbsent(type, t -> {
+			List<Field> fields = new ArrayList<>();
+			for (Class<?> searchType = t; searchType != Object.class; searchType = searchType.getSuperclass()) {
+				for (Field field : searchType.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers()))
+						continue;
+					field.setAccessible(true);
+					fields.add(field);
+				}
+			}
+			return Collections.unmodifiableList(fields);
+		});
+	}
+}
@@ -0,0 +1,98 @@
+package gov.hhs.cms.bluebutton.server.app.synthetic;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.PartDEvent;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimType;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.TransformerUtils;
+
+/**
+ * Unit tests for {@link SyntheticDataGenerator}.
+ */
+public final class SyntheticDataGeneratorTest {
+	/**
+	 * Verifies that {@link SyntheticDataGenerator#generateClaim(ClaimType, String, String, int)}
+	 * produces claims of every {@link ClaimType}, with the requested number of
+	 * lines, that transform successfully.
+	 */
+	@Test
+	public void generateClaimsOfEveryType() {
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(42L);
+
+		for (ClaimType claimType : ClaimType.values()) {
+			Object claim = generator.generateClaim(claimType, "900000001", "900000000001", 250);
+			Assert.assertTrue(claimType.getEntityClass().isInstance(claim));
+
+			ExplanationOfBenefit eob = claimType.getTransformer().apply(new MetricRegistry(), claim);
+			Assert.assertEquals(TransformerUtils.buildEobId(claimType, "900000000001"), eob.getIdElement().getIdPart());
+			Assert.assertTrue(eob.getPatient().getReference().endsWith("900000001"));
+			if (claimType != ClaimType.PDE)
+				Assert.assertEquals(250, eob.getItem().size());
+		}
+	}
+
+	/**
+	 * Verifies that {@link SyntheticDataGenerator} replaces the sample codes and
+	 * renumbers the lines, and that it's repeatable for a given seed.
+	 */
+	@Test
+	public void generatedCarrierClaim() {
+		CarrierClaim claim = (CarrierClaim) new SyntheticDataGenerator(42L).generateClaim(ClaimType.CARRIER,
+				"900000001", "900000000001", 10);
+		CarrierClaim sameSeedClaim = (CarrierClaim) new SyntheticDataGenerator(42L)
+				.generateClaim(ClaimType.CARRIER, "900000001", "900000000001", 10);
+
+		Assert.assertEquals("900000000001", claim.getClaimId());
+		Assert.assertEquals("900000001", claim.getBeneficiaryId());
+		Assert.assertEquals(10, claim.getLines().size());
+		for (int i = 0; i < claim.getLines().size(); i++) {
+			CarrierClaimLine line = claim.getLines().get(i);
+			Assert.assertEquals(i + 1, line.getLineNumber().intValue());
+			Assert.assertEquals(line.getHcpcsCode(), sameSeedClaim.getLines().get(i).getHcpcsCode());
+		}
+		Assert.assertEquals(claim.getDiagnosisPrincipalCode(), sameSeedClaim.getDiagnosisPrincipalCode());
+
+		List<String> hcpcsCodes = claim.getLines().stream().filter(l -> l.getHcpcsCode().isPresent())
+				.map(l -> l.getHcpcsCode().get()).distinct().collect(Collectors.toList());
+		Assert.assertTrue("HCPCS codes weren't randomized: " + hcpcsCodes, hcpcsCodes.size() > 1);
+	}
+
+	/**
+	 * Verifies that
+	 * {@link SyntheticDataGenerator#generateClaims(String, Map, int, java.util.function.LongSupplier)}
+	 * works as expected.
+	 */
+	@Test
+	public void generateClaimsForBeneficiary() {
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(42L);
+		Beneficiary beneficiary = generator.generateBeneficiary("900000001");
+		Assert.assertEquals("900000001", beneficiary.getBeneficiaryId());
+
+		Map<ClaimType, Integer> claimCounts = new EnumMap<>(ClaimType.class);
+		claimCounts.put(ClaimType.CARRIER, 3);
+		claimCounts.put(ClaimType.PDE, 2);
+		AtomicLong claimIds = new AtomicLong(900000000001L);
+		List<Object> claims = generator.generateClaims("900000001", claimCounts, 5, claimIds::getAndIncrement)
+				.collect(Collectors.toList());
+
+		Assert.assertEquals(5, claims.size());
+		Assert.assertEquals(3, claims.stream().filter(c -> c instanceof CarrierClaim).count());
+		Assert.assertEquals(Arrays.asList("900000000004", "900000000005"), claims.stream()
+				.filter(c -> c instanceof PartDEvent).map(c -> ((PartDEvent) c).getEventId())
+				.collect(Collectors.toList()));
+	}
+}
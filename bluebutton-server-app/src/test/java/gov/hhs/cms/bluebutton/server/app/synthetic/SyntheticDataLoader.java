@@ -0,0 +1,151 @@
+package gov.hhs.cms.bluebutton.server.app.synthetic;
+
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.HibernatePersistenceProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+
+/**
+ * <p>
+ * Streams entities from a {@link SyntheticDataGenerator} into the database,
+ * using JDBC batched inserts. Entities are persisted and then detached in
+ * batches, so memory use is bounded no matter how many are loaded.
+ * </p>
+ * <p>
+ * Note that this bypasses the <code>RifLoader</code> (and so, e.g., its HICN
+ * hashing), so it is only suitable for synthetic data. Claims reference their
+ * {@link Beneficiary}, so the {@link Beneficiary}s must be loaded before their
+ * claims are.
+ * </p>
+ */
+public final class SyntheticDataLoader implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticDataLoader.class);
+
+	/**
+	 * The default number of top-level entities (i.e. not counting claim lines)
+	 * to persist per transaction and JDBC batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	private final LocalContainerEntityManagerFactoryBean containerEmfBean;
+	private final EntityManagerFactory entityManagerFactory;
+	private final int batchSize;
+
+	/**
+	 * Constructs a new {@link SyntheticDataLoader}.
+	 *
+	 * @param dataSource
+	 *            the {@link DataSource} for the database to load into, which
+	 *            must already have the correct schema
+	 * @param batchSize
+	 *            the number of top-level entities to persist per transaction
+	 *            and JDBC batch
+	 */
+	public SyntheticDataLoader(DataSource dataSource, int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException();
+
+		this.containerEmfBean = new LocalContainerEntityManagerFactoryBean();
+		containerEmfBean.setDataSource(dataSource);
+		containerEmfBean.setPackagesToScan("gov.hhs.cms.bluebutton.data.model.rif");
+		containerEmfBean.setPersistenceProvider(new HibernatePersistenceProvider());
+		containerEmfBean.setJpaProperties(jpaProperties(batchSize));
+		containerEmfBean.afterPropertiesSet();
+
+		this.entityManagerFactory = containerEmfBean.getObject();
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Constructs a new {@link SyntheticDataLoader}, with a batch size of
+	 * {@link #DEFAULT_BATCH_SIZE}.
+	 *
+	 * @param dataSource
+	 *            the {@link DataSource} for the database to load into, which
+	 *            must already have the correct schema
+	 */
+	public SyntheticDataLoader(DataSource dataSource) {
+		this(dataSource, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param batchSize
+	 *            the JDBC batch size to use
+	 * @return the JPA/Hibernate {@link Properties} to use
+	 */
+	private static Properties jpaProperties(int batchSize) {
+		Properties jpaProperties = new Properties();
+
+		/*
+		 * A claim with N lines is N+1 inserts across two tables. Ordering the
+		 * inserts lets Hibernate batch all of the lines for a flush together,
+		 * rather than breaking up the batch at each new claim.
+		 */
+		jpaProperties.put(AvailableSettings.STATEMENT_BATCH_SIZE, Integer.toString(batchSize));
+		jpaProperties.put(AvailableSettings.ORDER_INSERTS, "true");
+		return jpaProperties;
+	}
+
+	/**
+	 * Persists all of the specified entities, committing each batch as it goes.
+	 * If this fails part of the way through, the batches prior to the failure
+	 * will remain committed.
+	 *
+	 * @param entities
+	 *            the entities to persist, e.g. from
+	 *            {@link SyntheticDataGenerator#generateClaims(String, java.util.Map, int, java.util.function.LongSupplier)}
+	 * @return the number of (top-level) entities that were persisted
+	 */
+	public long load(Stream<?> entities) {
+		EntityManager entityManager = null;
+		EntityTransaction transaction = null;
+		long count = 0;
+		try {
+			entityManager = entityManagerFactory.createEntityManager();
+			transaction = entityManager.getTransaction();
+			transaction.begin();
+
+			Iterator<?> entitiesIter = entities.iterator();
+			while (entitiesIter.hasNext()) {
+				entityManager.persist(entitiesIter.next());
+				count++;
+
+				if (count % batchSize == 0) {
+					entityManager.flush();
+					entityManager.clear();
+					transaction.commit();
+					transaction.begin();
+				}
+			}
+
+			transaction.commit();
+			LOGGER.debug("Loaded {} synthetic entities.", count);
+			return count;
+		} finally {
+			if (transaction != null && transaction.isActive())
+				transaction.rollback();
+			if (entityManager != null)
+				entityManager.close();
+		}
+	}
+
+	/**
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		containerEmfBean.destroy();
+	}
+}
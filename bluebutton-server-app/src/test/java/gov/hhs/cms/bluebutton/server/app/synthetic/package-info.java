@@ -0,0 +1,6 @@
+/**
+ * Contains a generator for synthetic beneficiary and claim data in volume, for
+ * use by the integration tests, benchmarks, and load tests. (These test
+ * classes are published in this module's <code>test-jar</code>.)
+ */
+package gov.hhs.cms.bluebutton.server.app.synthetic;
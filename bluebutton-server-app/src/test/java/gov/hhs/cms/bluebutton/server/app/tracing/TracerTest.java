@@ -0,0 +1,224 @@
+package gov.hhs.cms.bluebutton.server.app.tracing;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Tracer} and {@link SpanContext}.
+ */
+public final class TracerTest {
+	/**
+	 * Resets the global {@link Tracer} state after each test case.
+	 */
+	@After
+	public void resetTracer() {
+		Tracer.clearCurrentSpan();
+		Tracer.configure(0.0, new InMemorySpanExporter());
+	}
+
+	/**
+	 * Verifies that {@link SpanContext#parseTraceparent(String)} works as
+	 * expected for valid headers.
+	 */
+	@Test
+	public void parseTraceparent_valid() {
+		Optional<SpanContext> context = SpanContext
+				.parseTraceparent("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+		Assert.assertTrue(context.isPresent());
+		Assert.assertEquals("0af7651916cd43dd8448eb211c80319c", context.get().getTraceId());
+		Assert.assertEquals("b7ad6b7169203331", context.get().getSpanId());
+		Assert.assertTrue(context.get().isSampled());
+		Assert.assertEquals("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01",
+				context.get().toTraceparent());
+
+		Optional<SpanContext> unsampledContext = SpanContext
+				.parseTraceparent("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-00");
+		Assert.assertFalse(unsampledContext.get().isSampled());
+
+		// Future versions may add fields, which must be ignored.
+		Assert.assertTrue(SpanContext
+				.parseTraceparent("01-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01-what-the-future-holds")
+				.isPresent());
+	}
+
+	/**
+	 * Verifies that {@link SpanContext#parseTraceparent(String)} rejects invalid
+	 * headers.
+	 */
+	@Test
+	public void parseTraceparent_invalid() {
+		Assert.assertFalse(SpanContext.parseTraceparent(null).isPresent());
+		Assert.assertFalse(SpanContext.parseTraceparent("").isPresent());
+		Assert.assertFalse(SpanContext.parseTraceparent("garbage").isPresent());
+		Assert.assertFalse(SpanContext
+				.parseTraceparent("00-0AF7651916CD43DD8448EB211C80319C-B7AD6B7169203331-01").isPresent());
+		Assert.assertFalse(SpanContext
+				.parseTraceparent("00-00000000000000000000000000000000-b7ad6b7169203331-01").isPresent());
+		Assert.assertFalse(SpanContext
+				.parseTraceparent("00-0af7651916cd43dd8448eb211c80319c-0000000000000000-01").isPresent());
+		Assert.assertFalse(SpanContext
+				.parseTraceparent("ff-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01").isPresent());
+		Assert.assertFalse(SpanContext
+				.parseTraceparent("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01-extra").isPresent());
+	}
+
+	/**
+	 * Verifies that child {@link Span}s are parented and exported correctly, and
+	 * that the remote parent's trace is continued.
+	 */
+	@Test
+	public void nestedSpans() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter();
+		Tracer.configure(0.0, exporter);
+
+		SpanContext remoteParent = SpanContext
+				.parseTraceparent("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01").get();
+		try (Span root = Tracer.startRootSpan("root", Optional.of(remoteParent))) {
+			Assert.assertTrue(root.isRecording());
+			try (Span child = Tracer.startSpan("child")) {
+				child.setAttribute("foo", 42);
+				try (Span grandchild = Tracer.startSpan("grandchild")) {
+					Assert.assertSame(grandchild, Tracer.currentSpan());
+				}
+				Assert.assertSame(child, Tracer.currentSpan());
+			}
+			Assert.assertSame(root, Tracer.currentSpan());
+		}
+		Assert.assertFalse(Tracer.currentSpan().isRecording());
+
+		List<Span> spans = exporter.getSpans();
+		Assert.assertEquals(3, spans.size());
+		Span grandchild = spans.get(0);
+		Span child = spans.get(1);
+		Span root = spans.get(2);
+		Assert.assertEquals("grandchild", grandchild.getName());
+		Assert.assertEquals("42", child.getAttributes().get("foo"));
+		Assert.assertEquals(remoteParent.getTraceId(), root.getContext().getTraceId());
+		Assert.assertEquals(remoteParent.getSpanId(), root.getParentSpanId().get());
+		Assert.assertEquals(root.getContext().getSpanId(), child.getParentSpanId().get());
+		Assert.assertEquals(child.getContext().getSpanId(), grandchild.getParentSpanId().get());
+		Assert.assertEquals(root.getContext().getTraceId(), grandchild.getContext().getTraceId());
+		Assert.assertTrue(root.getDurationNanoseconds() >= child.getDurationNanoseconds());
+	}
+
+	/**
+	 * Verifies that nothing is recorded for unsampled traces.
+	 */
+	@Test
+	public void unsampled() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter();
+		Tracer.configure(0.0, exporter);
+
+		try (Span root = Tracer.startRootSpan("root", Optional.empty())) {
+			Assert.assertFalse(root.isRecording());
+			try (Span child = Tracer.startSpan("child")) {
+				Assert.assertFalse(child.isRecording());
+			}
+		}
+
+		// A caller's explicit "not sampled" decision must be honored, too.
+		Tracer.configure(1.0, exporter);
+		SpanContext remoteParent = SpanContext
+				.parseTraceparent("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-00").get();
+		try (Span root = Tracer.startRootSpan("root", Optional.of(remoteParent))) {
+			Assert.assertFalse(root.isRecording());
+		}
+
+		Assert.assertEquals(0, exporter.getSpans().size());
+	}
+
+	/**
+	 * Verifies that new traces are always recorded with a sample rate of
+	 * <code>1.0</code>.
+	 */
+	@Test
+	public void sampleRateOfOne() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter();
+		Tracer.configure(1.0, exporter);
+
+		try (Span root = Tracer.startRootSpan("root", Optional.empty())) {
+			Assert.assertTrue(root.isRecording());
+			Assert.assertFalse(root.getParentSpanId().isPresent());
+			Assert.assertEquals(32, root.getContext().getTraceId().length());
+			Assert.assertEquals(16, root.getContext().getSpanId().length());
+		}
+
+		Assert.assertEquals(1, exporter.getSpans().size());
+	}
+
+	/**
+	 * Verifies that {@link Tracer#callInSpan(Span, java.util.function.Supplier)}
+	 * parents the {@link Span}s started on another thread to the specified
+	 * {@link Span}, and then leaves that thread as it found it.
+	 */
+	@Test
+	public void callInSpanOnOtherThread() throws Exception {
+		InMemorySpanExporter exporter = new InMemorySpanExporter();
+		Tracer.configure(1.0, exporter);
+
+		try (Span root = Tracer.startRootSpan("root", Optional.empty())) {
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+			try {
+				Boolean workerLeftClean = executor.submit(() -> {
+					Tracer.callInSpan(root, () -> {
+						try (Span child = Tracer.startSpan("child")) {
+							return child;
+						}
+					});
+					return !Tracer.currentSpan().isRecording();
+				}).get();
+				Assert.assertTrue(workerLeftClean);
+			} finally {
+				executor.shutdown();
+			}
+			Assert.assertSame(root, Tracer.currentSpan());
+		}
+
+		List<Span> spans = exporter.getSpans();
+		Assert.assertEquals(2, spans.size());
+		Span child = spans.get(0);
+		Span root = spans.get(1);
+		Assert.assertEquals("child", child.getName());
+		Assert.assertEquals(root.getContext().getTraceId(), child.getContext().getTraceId());
+		Assert.assertEquals(root.getContext().getSpanId(), child.getParentSpanId().get());
+	}
+
+	/**
+	 * Verifies that {@link Tracer#callInNewSpan(String, java.util.function.Supplier)}
+	 * runs its action in a child {@link Span} that is closed afterwards, even if
+	 * the action fails.
+	 */
+	@Test
+	public void callInNewSpan() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter();
+		Tracer.configure(1.0, exporter);
+
+		try (Span root = Tracer.startRootSpan("root", Optional.empty())) {
+			Span child = Tracer.callInNewSpan("child", () -> Tracer.currentSpan());
+			Assert.assertEquals("child", child.getName());
+			Assert.assertSame(root, Tracer.currentSpan());
+
+			try {
+				Tracer.callInNewSpan("failing", () -> {
+					throw new IllegalStateException();
+				});
+				Assert.fail();
+			} catch (IllegalStateException e) {
+				// Expected.
+			}
+			Assert.assertSame(root, Tracer.currentSpan());
+		}
+
+		List<Span> spans = exporter.getSpans();
+		Assert.assertEquals(3, spans.size());
+		Assert.assertEquals("child", spans.get(0).getName());
+		Assert.assertEquals("failing", spans.get(1).getName());
+		Assert.assertEquals(spans.get(2).getContext().getSpanId(), spans.get(0).getParentSpanId().get());
+	}
+}
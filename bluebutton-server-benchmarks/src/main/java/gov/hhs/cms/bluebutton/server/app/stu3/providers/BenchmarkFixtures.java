@@ -0,0 +1,107 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.data.model.rif.RifFileEvent;
+import gov.hhs.cms.bluebutton.data.model.rif.RifFileRecords;
+import gov.hhs.cms.bluebutton.data.model.rif.RifFilesEvent;
+import gov.hhs.cms.bluebutton.data.model.rif.samples.StaticRifResource;
+import gov.hhs.cms.bluebutton.data.model.rif.samples.StaticRifResourceGroup;
+import gov.hhs.cms.bluebutton.datapipeline.rif.extract.RifFilesProcessor;
+import gov.hhs.cms.bluebutton.server.app.synthetic.SyntheticDataGenerator;
+
+/**
+ * Provides the sample data used by the benchmarks: the
+ * {@link StaticRifResourceGroup#SAMPLE_A} records, and synthetic variants of
+ * them with many more claim lines than real samples have.
+ */
+final class BenchmarkFixtures {
+	/**
+	 * The {@link SyntheticDataGenerator} seed to use, so that every run
+	 * benchmarks the same data.
+	 */
+	private static final long SEED = 42L;
+
+	/**
+	 * Not used: this class only has static methods.
+	 */
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * @param sampleResources
+	 *            the sample RIF resources to parse
+	 * @return the {@link List} of RIF records that were parsed
+	 */
+	static List<Object> parseData(List<StaticRifResource> sampleResources) {
+		RifFilesEvent rifFilesEvent = new RifFilesEvent(Instant.now(),
+				sampleResources.stream().map(r -> r.toRifFile()).collect(Collectors.toList()));
+		RifFilesProcessor processor = new RifFilesProcessor();
+		List<Object> recordsParsed = new ArrayList<>();
+		for (RifFileEvent rifFileEvent : rifFilesEvent.getFileEvents()) {
+			RifFileRecords rifFileRecords = processor.produceRecords(rifFileEvent);
+			rifFileRecords.getRecords().map(r -> r.getRecord()).forEach(r -> recordsParsed.add(r));
+		}
+
+		return recordsParsed;
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} to get a sample claim for
+	 * @return a newly parsed copy of the {@link StaticRifResourceGroup#SAMPLE_A}
+	 *         claim of the specified {@link ClaimType}
+	 */
+	static Object findSampleClaim(ClaimType claimType) {
+		return parseData(Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources())).stream()
+				.filter(r -> claimType.getEntityClass().isInstance(r)).findFirst()
+				.orElseThrow(() -> new IllegalStateException("No sample claim for: " + claimType));
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of claim to generate
+	 * @param lineCount
+	 *            the number of claim lines to generate
+	 * @return a new synthetic claim of the specified {@link ClaimType}, with the
+	 *         specified number of lines
+	 * @see SyntheticDataGenerator
+	 */
+	static Object generateClaim(ClaimType claimType, int lineCount) {
+		return new SyntheticDataGenerator(SEED).generateClaim(claimType, "900000001", "900000000001", lineCount);
+	}
+
+	/**
+	 * @param eobCount
+	 *            the number of {@link ExplanationOfBenefit}s to generate
+	 * @param linesPerClaim
+	 *            the number of lines that each (non-{@link ClaimType#PDE}) claim
+	 *            should have
+	 * @return the specified number of {@link ExplanationOfBenefit}s, for a
+	 *         single beneficiary, transformed from synthetic claims of every
+	 *         {@link ClaimType} (in rotation), with distinct claim IDs
+	 */
+	static List<IBaseResource> generateEobs(int eobCount, int linesPerClaim) {
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(SEED);
+		MetricRegistry metricRegistry = new MetricRegistry();
+		ClaimType[] claimTypes = ClaimType.values();
+
+		List<IBaseResource> eobs = new ArrayList<>(eobCount);
+		for (int i = 0; i < eobCount; i++) {
+			ClaimType claimType = claimTypes[i % claimTypes.length];
+			Object claim = generator.generateClaim(claimType, "900000001", Long.toString(900000000001L + i),
+					linesPerClaim);
+			eobs.add(claimType.getTransformer().apply(metricRegistry, claim));
+		}
+		return eobs;
+	}
+}
@@ -0,0 +1,45 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>
+ * The main entry point for <code>benchmarks.jar</code>. Runs the JMH benchmarks
+ * in this module with the {@link GCProfiler} attached, so that the results
+ * include bytes allocated per operation (<code>gc.alloc.rate.norm</code>)
+ * alongside ops/sec, and writes the results out as JSON.
+ * </p>
+ * <p>
+ * Accepts all of the standard JMH command line options, e.g.
+ * <code>java -jar benchmarks.jar ClaimTransformerBenchmark -p claimType=CARRIER -rff carrier.json</code>.
+ * </p>
+ */
+public final class BenchmarkRunner {
+	/**
+	 * The default JMH results file, if one isn't specified via <code>-rff</code>.
+	 */
+	private static final String DEFAULT_RESULTS_FILE = "jmh-results.json";
+
+	/**
+	 * @param args
+	 *            the standard JMH command line options
+	 * @throws RunnerException
+	 *             (indicates a benchmark failure)
+	 * @throws CommandLineOptionException
+	 *             (indicates invalid command line options)
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		Options options = new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class)
+				.resultFormat(commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON))
+				.result(commandLineOptions.getResult().orElse(DEFAULT_RESULTS_FILE)).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,111 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Benchmarks the work that {@link ExplanationOfBenefitResourceProvider}'s
+ * <code>findByPatient(...)</code> search does after the claims have been transformed: sorting the
+ * {@link ExplanationOfBenefit}s and assembling them into a {@link Bundle}, both
+ * with and without paging.
+ * </p>
+ * <p>
+ * See {@link EncodingBenchmark} for the cost of then serializing those
+ * {@link Bundle}s.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BundleBenchmark {
+	/**
+	 * The server base URL to use in the {@link Bundle}s' paging links.
+	 */
+	static final String SERVER_BASE = "https://localhost:6500/v1/fhir";
+
+	/**
+	 * The page size to request when benchmarking paged {@link Bundle}s.
+	 */
+	private static final int PAGE_SIZE = 10;
+
+	@Param({ "10", "100", "1000", "10000" })
+	public int eobCount;
+
+	private List<IBaseResource> eobs;
+	private List<IBaseResource> eobsShuffled;
+	private PagingArguments unpaged;
+	private PagingArguments paged;
+
+	/**
+	 * Generates the {@link ExplanationOfBenefit}s to be bundled.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.eobs = BenchmarkFixtures.generateEobs(eobCount, 3);
+		this.eobs.sort(ExplanationOfBenefitResourceProvider::compareByClaimIdThenClaimType);
+
+		this.eobsShuffled = new ArrayList<>(eobs);
+		Collections.shuffle(eobsShuffled, new Random(42L));
+
+		this.unpaged = new PagingArguments(Optional.empty(), Optional.empty(), SERVER_BASE);
+
+		// Ask for a page from the middle, so that all of the paging links are needed.
+		this.paged = new PagingArguments(Optional.of(PAGE_SIZE), Optional.of((eobCount / 2 / PAGE_SIZE) * PAGE_SIZE),
+				SERVER_BASE);
+	}
+
+	/**
+	 * @return the sorted {@link ExplanationOfBenefit}s (returned so that JMH can
+	 *         prevent dead code elimination)
+	 */
+	@Benchmark
+	public List<IBaseResource> sort() {
+		// The copy is part of the measurement, but is cheap relative to the sort.
+		List<IBaseResource> eobsToSort = new ArrayList<>(eobsShuffled);
+		eobsToSort.sort(ExplanationOfBenefitResourceProvider::compareByClaimIdThenClaimType);
+		return eobsToSort;
+	}
+
+	/**
+	 * @return a {@link Bundle} of all of the {@link ExplanationOfBenefit}s
+	 */
+	@Benchmark
+	public Bundle createBundleUnpaged() {
+		return TransformerUtils.createBundle(unpaged, "/ExplanationOfBenefit?", ExplanationOfBenefit.SP_PATIENT,
+				"900000001", eobs);
+	}
+
+	/**
+	 * @return a {@link Bundle} of a single page of the
+	 *         {@link ExplanationOfBenefit}s, with paging links
+	 */
+	@Benchmark
+	public Bundle createBundlePaged() {
+		return TransformerUtils.createBundle(paged, "/ExplanationOfBenefit?", ExplanationOfBenefit.SP_PATIENT,
+				"900000001", eobs);
+	}
+}
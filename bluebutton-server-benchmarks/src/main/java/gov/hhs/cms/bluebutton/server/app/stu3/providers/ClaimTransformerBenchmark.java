@@ -0,0 +1,76 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * <p>
+ * Benchmarks each {@link ClaimType}'s transformer, e.g.
+ * {@link CarrierClaimTransformer}, {@link PartDEventTransformer}, etc.
+ * </p>
+ * <p>
+ * Each transformer is run against its sample claim as-is (<code>lines=0</code>)
+ * and against synthetic variants of it with many more claim lines, as the cost
+ * of the line-level mapping is what dominates for large claims. Note that
+ * {@link ClaimType#PDE} claims don't have lines, so its <code>lines</code>
+ * variants are all identical.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClaimTransformerBenchmark {
+	@Param({ "CARRIER", "DME", "HHA", "HOSPICE", "INPATIENT", "OUTPATIENT", "PDE", "SNF" })
+	public ClaimType claimType;
+
+	@Param({ "0", "100", "1000" })
+	public int lines;
+
+	private MetricRegistry metricRegistry;
+	private Object claim;
+
+	/**
+	 * Parses the sample claim for the {@link #claimType} being benchmarked, or
+	 * generates a synthetic one with the requested number of {@link #lines}.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.metricRegistry = new MetricRegistry();
+
+		this.claim = lines > 0 ? BenchmarkFixtures.generateClaim(claimType, lines)
+				: BenchmarkFixtures.findSampleClaim(claimType);
+
+		/*
+		 * Run the transform once up front, so that the lazily-loaded lookup tables
+		 * in TransformerUtils are loaded before measurement starts.
+		 */
+		claimType.getTransformer().apply(metricRegistry, claim);
+	}
+
+	/**
+	 * @return the {@link ExplanationOfBenefit} produced by transforming the
+	 *         claim (returned so that JMH can prevent dead code elimination)
+	 */
+	@Benchmark
+	public ExplanationOfBenefit transform() {
+		return claimType.getTransformer().apply(metricRegistry, claim);
+	}
+}
@@ -0,0 +1,142 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+
+/**
+ * Benchmarks HAPI's encoding of {@link ExplanationOfBenefit} {@link Bundle}s,
+ * as JSON and as XML, with and without pretty printing. The output is written
+ * to a {@link Writer} that discards it, so that only the encoding itself is
+ * measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodingBenchmark {
+	/**
+	 * Enumerates the encodings that the server supports.
+	 */
+	public static enum Encoding {
+		JSON,
+
+		XML;
+	}
+
+	@Param({ "10", "100", "1000", "10000" })
+	public int eobCount;
+
+	@Param({ "JSON", "XML" })
+	public Encoding encoding;
+
+	@Param({ "false", "true" })
+	public boolean prettyPrint;
+
+	private IParser parser;
+	private Bundle bundle;
+
+	/**
+	 * Generates the {@link Bundle} to be encoded, and the {@link IParser} to
+	 * encode it with.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		/*
+		 * FhirContexts are expensive to create and are thread-safe, so the server only
+		 * ever uses one. Parsers are cheap, but we may as well reuse ours, too.
+		 */
+		FhirContext fhirContext = FhirContext.forDstu3();
+		this.parser = encoding == Encoding.JSON ? fhirContext.newJsonParser() : fhirContext.newXmlParser();
+		this.parser.setPrettyPrint(prettyPrint);
+
+		this.bundle = TransformerUtils.createBundle(
+				new PagingArguments(Optional.empty(), Optional.empty(), BundleBenchmark.SERVER_BASE),
+				"/ExplanationOfBenefit?", ExplanationOfBenefit.SP_PATIENT, "900000001",
+				BenchmarkFixtures.generateEobs(eobCount, 3));
+	}
+
+	/**
+	 * @param blackhole
+	 *            the {@link Blackhole} that the encoded output is fed to
+	 * @throws IOException
+	 *             (shouldn't happen, as the output isn't actually written
+	 *             anywhere)
+	 */
+	@Benchmark
+	public void encode(Blackhole blackhole) throws IOException {
+		parser.encodeResourceToWriter(bundle, new BlackholeWriter(blackhole));
+	}
+
+	/**
+	 * A {@link Writer} that feeds everything written to it into a
+	 * {@link Blackhole}, rather than keeping it.
+	 */
+	private static final class BlackholeWriter extends Writer {
+		private final Blackhole blackhole;
+
+		/**
+		 * Constructs a new {@link BlackholeWriter}.
+		 *
+		 * @param blackhole
+		 *            the {@link Blackhole} to consume the output
+		 */
+		BlackholeWriter(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		/**
+		 * @see java.io.Writer#write(char[], int, int)
+		 */
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			blackhole.consume(cbuf);
+			blackhole.consume(len);
+		}
+
+		/**
+		 * @see java.io.Writer#write(java.lang.String, int, int)
+		 */
+		@Override
+		public void write(String str, int off, int len) {
+			blackhole.consume(str);
+			blackhole.consume(len);
+		}
+
+		/**
+		 * @see java.io.Writer#flush()
+		 */
+		@Override
+		public void flush() {
+		}
+
+		/**
+		 * @see java.io.Writer#close()
+		 */
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.hhs.cms.bluebutton.data.model.rif.PartDEvent;
+
+/**
+ * <p>
+ * Benchmarks {@link TransformerUtils#retrieveFDADrugCodeDisplay(String)}, which
+ * is run for every {@link PartDEvent} and every claim line with a national
+ * drug code.
+ * </p>
+ * <p>
+ * Run it with {@link BenchmarkRunner}, so that the bytes allocated per lookup
+ * (<code>gc.alloc.rate.norm</code>) are reported, too. See
+ * {@link ClaimTransformerBenchmark} (with <code>claimType=PDE</code>) for
+ * overall {@link PartDEventTransformer} throughput.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NdcLookupBenchmark {
+	/**
+	 * The drug code to look up: either the sample {@link PartDEvent}'s (a hit),
+	 * or one that isn't in the FDA data (a miss).
+	 */
+	@Param({ "SAMPLE", "MISSING" })
+	public String drugCodeType;
+
+	private String drugCode;
+
+	/**
+	 * Picks the drug code to look up, and loads the NDC lookup table before
+	 * measurement starts.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		PartDEvent partDEvent = (PartDEvent) BenchmarkFixtures.findSampleClaim(ClaimType.PDE);
+		this.drugCode = "SAMPLE".equals(drugCodeType) ? partDEvent.getNationalDrugCode() : "99999999999";
+
+		TransformerUtils.retrieveFDADrugCodeDisplay(drugCode);
+	}
+
+	/**
+	 * @return the display value that was looked up (returned so that JMH can
+	 *         prevent dead code elimination)
+	 */
+	@Benchmark
+	public String retrieveFDADrugCodeDisplay() {
+		return TransformerUtils.retrieveFDADrugCodeDisplay(drugCode);
+	}
+}